@@ -39,20 +39,68 @@ import android.util.Log;
  * @author James Johnson
  */
 public class GLRenderer implements GLSurfaceView.Renderer {
+	/**
+	 * Draw frames as fast as the display allows.
+	 */
+	public static final int FRAME_RATE_UNCAPPED = 0;
+	
+	/**
+	 * Cap at 60 frames per second, dropping to 30 while frames take longer
+	 * than the 60 budget, and going back up once they fit again.
+	 */
+	public static final int FRAME_RATE_ADAPTIVE = -1;
+	
+	/**
+	 * The longest time in milliseconds a single update is told has passed
+	 * while frames are drawn continuously. Longer gaps, such as a hitch,
+	 * count as this long so nothing jumps across the screen. The first frame
+	 * after going idle while rendering on demand is told the real time
+	 * passed, up to the longer of this and the idle frame delay.
+	 */
+	public static final long MAX_FRAME_TIME = 100;
+	
+	private static final long NANOS_PER_MS = 1000000L;
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	// Wake this early and let the buffer swap wait out the rest
+	private static final long SLEEP_SLACK = 2 * NANOS_PER_MS;
+	// Averages used for the frame rate and adaptive pacing
+	private static final float FRAME_SMOOTHING = 0.1f;
+	private static final float WORK_SMOOTHING = 0.02f;
+	// Adaptive pacing drops to 30 when frames average this much over the
+	// 60 budget, and goes back up when the work fits in this much of it
+	private static final float ADAPTIVE_SLOW = 1.15f;
+	private static final float ADAPTIVE_FAST = 0.6f;
+	// Frames to wait after changing rate before judging again
+	private static final int ADAPTIVE_HOLD = 120;
+	
 	private static GL10 sGL;
 	private static int sWidth;
 	private static int sHeight;
 	private static float sScale;
 	private static float sFPS;
+	private static int sFrameCap;
+	private static Color sClearColor;
+	private static volatile GLSurfaceView sView;
 	
 	private Color mClearColor;
-	private long mStartTime;
-	private long mEndTime;
+	private long mLastFrame;
+	private long mNextFrame;
+	private long mDeltaRemainder;
 	private long mDeltaTime;
+	private int mTargetFrameRate;
+	private long mFrameBudget;
+	private float mAverageFrame;
+	private float mAverageWork;
+	private int mAdaptiveHold;
 	private Engine mEngine;
 	private int mTargetWidth;
 	private int mTargetHeight;
 	private boolean mPaused;
+	private GLSurfaceView mView;
+	private boolean mOnDemand;
+	private long mIdleDelay;
+	private boolean mIdling;
+	private Runnable mIdleRequest;
 	
 	/**
 	 * Called when the surface is created or recreated.
@@ -87,18 +135,127 @@ public class GLRenderer implements GLSurfaceView.Renderer {
 		if (mPaused) {
 			return;
 		}
-		mStartTime = System.currentTimeMillis();
+		long start = pace();
 		gl.glClear(GL10.GL_COLOR_BUFFER_BIT | GL10.GL_DEPTH_BUFFER_BIT);
 		if (mEngine != null) {
 			mEngine.update(mDeltaTime);
 			mEngine.render(gl);
 		}
-		mEndTime = System.currentTimeMillis();
-		mDeltaTime = mEndTime - mStartTime;
-		if (mDeltaTime > 0) {
-			sFPS = 1000.0f / (float)mDeltaTime;
+		if (mTargetFrameRate == FRAME_RATE_ADAPTIVE) {
+			adapt(System.nanoTime() - start);
 		}
 		//Log.d("FPS", "" + mFPS);
+		if (mOnDemand) {
+			scheduleFrame();
+		}
+	}
+	
+	// Sleeps until this frame is due, then works out the time passed since
+	// the last one. Returns when the frame started, in nanoseconds.
+	private long pace() {
+		long now = System.nanoTime();
+		if ((mFrameBudget > 0) && (mNextFrame != 0)) {
+			long wait = mNextFrame - now - SLEEP_SLACK;
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait / NANOS_PER_MS, (int)(wait % NANOS_PER_MS));
+				} catch (InterruptedException e) {
+					// Draw early rather than hold up the GL thread
+				}
+				now = System.nanoTime();
+			}
+		}
+		if (mFrameBudget > 0) {
+			// Keep to the schedule, but start over rather than rush to catch up
+			if ((mNextFrame == 0) || (now - mNextFrame > mFrameBudget)) {
+				mNextFrame = now;
+			}
+			mNextFrame += mFrameBudget;
+		}
+		
+		if (mLastFrame == 0) {
+			mDeltaTime = 0;
+			mDeltaRemainder = 0;
+		} else {
+			// Carry the part of a millisecond left over into the next frame so
+			// a 30 fps game doesn't lose a third of a millisecond every frame
+			long elapsed = now - mLastFrame + mDeltaRemainder;
+			mDeltaTime = elapsed / NANOS_PER_MS;
+			mDeltaRemainder = elapsed % NANOS_PER_MS;
+			// Clocks must keep time across idle ticks, which may be far apart
+			long max = mIdling ? Math.max(MAX_FRAME_TIME, mIdleDelay) : MAX_FRAME_TIME;
+			if (mDeltaTime > max) {
+				mDeltaTime = max;
+				mDeltaRemainder = 0;
+			}
+			float frame = (float)(now - mLastFrame);
+			if (mAverageFrame <= 0) {
+				mAverageFrame = frame;
+			} else {
+				mAverageFrame += (frame - mAverageFrame) * FRAME_SMOOTHING;
+			}
+			sFPS = NANOS_PER_SECOND / mAverageFrame;
+		}
+		mLastFrame = now;
+		return now;
+	}
+	
+	// Drops to 30 fps when frames keep missing the 60 budget, and goes back
+	// to 60 when the update and render fit in it comfortably again
+	private void adapt(long work) {
+		if (mAverageWork <= 0) {
+			mAverageWork = work;
+		} else {
+			mAverageWork += (work - mAverageWork) * WORK_SMOOTHING;
+		}
+		if (mAdaptiveHold > 0) {
+			mAdaptiveHold--;
+			return;
+		}
+		float budget = (float)NANOS_PER_SECOND / 60;
+		if (sFrameCap == 60) {
+			// Idle gaps between frames drawn on demand aren't slow frames
+			float average = mOnDemand ? mAverageWork : mAverageFrame;
+			if (average > budget * ADAPTIVE_SLOW) {
+				setFrameCap(30);
+			}
+		} else if (mAverageWork < budget * ADAPTIVE_FAST) {
+			setFrameCap(60);
+		}
+	}
+	
+	// Sets the frame rate frames are paced to, 0 for none
+	private void setFrameCap(int fps) {
+		sFrameCap = fps;
+		mFrameBudget = (fps > 0) ? NANOS_PER_SECOND / fps : 0;
+		mNextFrame = 0;
+		mAdaptiveHold = ADAPTIVE_HOLD;
+		mAverageFrame = 0;
+	}
+	
+	// Asks for the next frame right away if the Engine needs one, otherwise
+	// after the idle delay, if there is one
+	private void scheduleFrame() {
+		if (mView == null) {
+			return;
+		}
+		if ((mEngine != null) && mEngine.needsFrame()) {
+			mIdling = false;
+			mView.requestRender();
+			return;
+		}
+		mIdling = true;
+		if (mIdleDelay > 0) {
+			if (mIdleRequest == null) {
+				mIdleRequest = new Runnable() {
+					public void run() {
+						mView.requestRender();
+					}
+				};
+			}
+			mView.removeCallbacks(mIdleRequest);
+			mView.postDelayed(mIdleRequest, mIdleDelay);
+		}
 	}
 	
 	/**
@@ -134,6 +291,7 @@ public class GLRenderer implements GLSurfaceView.Renderer {
 	public void setClearColor(Color color) {
 		if (color != null) {
 			mClearColor = color.clone();
+			sClearColor = mClearColor;
 		}
 		if (sGL != null) {
 			sGL.glClearColor(mClearColor.r, mClearColor.g, mClearColor.b, mClearColor.a);
@@ -165,6 +323,76 @@ public class GLRenderer implements GLSurfaceView.Renderer {
 		mTargetHeight = height;
 	}
 	
+	/**
+	 * Turns on demand rendering on or off. When on, the GLSurfaceView must use
+	 * RENDERMODE_WHEN_DIRTY, and a new frame is only drawn when the Engine
+	 * needs one or input arrives. Set up by GLView.setRenderOnDemand().
+	 * @param enabled
+	 * true to render on demand.
+	 */
+	public void setRenderOnDemand(boolean enabled) {
+		mOnDemand = enabled;
+		mIdling = false;
+		if (enabled && (mView != null)) {
+			mView.requestRender();
+		}
+	}
+	
+	/**
+	 * Sets how often frames are drawn while rendering on demand and nothing
+	 * has changed, so clocks and slow animations the Engine can't see still
+	 * move.
+	 * @param fps
+	 * The idle frame rate in frames per second, or 0 to draw nothing until
+	 * something changes. Defaults to 0.
+	 */
+	public void setIdleFrameRate(float fps) {
+		if (fps <= 0) {
+			mIdleDelay = 0;
+			if ((mView != null) && (mIdleRequest != null)) {
+				mView.removeCallbacks(mIdleRequest);
+			}
+			return;
+		}
+		mIdleDelay = Math.max((long)(1000.0f / fps), 1);
+	}
+	
+	/**
+	 * Sets the frame rate to pace drawing to. A steady 30 looks smoother than
+	 * a frame rate wandering between 30 and 60, so games that can't hold 60
+	 * should cap at 30 or use FRAME_RATE_ADAPTIVE.
+	 * @param fps
+	 * The frame rate in frames per second, FRAME_RATE_UNCAPPED, or
+	 * FRAME_RATE_ADAPTIVE. Defaults to FRAME_RATE_UNCAPPED.
+	 */
+	public void setTargetFrameRate(int fps) {
+		if (fps < FRAME_RATE_ADAPTIVE) {
+			Log.w("GLRenderer", "Invalid frame rate " + fps + ", drawing uncapped.");
+			fps = FRAME_RATE_UNCAPPED;
+		}
+		mTargetFrameRate = fps;
+		mAverageWork = 0;
+		setFrameCap((fps == FRAME_RATE_ADAPTIVE) ? 60 : fps);
+	}
+	
+	// Sets the view asked for frames when rendering on demand
+	void setView(GLSurfaceView view) {
+		mView = view;
+		sView = view;
+	}
+	
+	/**
+	 * Asks for a frame to be drawn soon when rendering on demand. Safe to call
+	 * from any thread, so an idle renderer can be woken from the UI thread.
+	 * Does nothing before the GLView is created.
+	 */
+	public static void requestRender() {
+		GLSurfaceView view = sView;
+		if (view != null) {
+			view.requestRender();
+		}
+	}
+	
 	/**
 	 * Pauses the Renderer.
 	 */
@@ -177,6 +405,9 @@ public class GLRenderer implements GLSurfaceView.Renderer {
 	 */
 	public void resume() {
 		mPaused = false;
+		// Time spent paused doesn't count as a frame
+		mLastFrame = 0;
+		mNextFrame = 0;
 	}
 	
 	/**
@@ -210,5 +441,26 @@ public class GLRenderer implements GLSurfaceView.Renderer {
 	 * Returns the frame rate in Frame Per Second.
 	 */
 	public static float getFPS() { return sFPS; }
+	
+	/**
+	 * Gets the frame rate drawing is currently paced to. With
+	 * FRAME_RATE_ADAPTIVE this is either 60 or 30.
+	 * @return
+	 * The frame rate in frames per second, or 0 when uncapped.
+	 */
+	public static int getFrameCap() { return sFrameCap; }
+	
+	/**
+	 * Gets the background color of the drawing surface. Used to restore it
+	 * after drawing into a texture.
+	 * @return
+	 * The background color. Don't change it; call setClearColor() instead.
+	 */
+	public static Color getClearColor() {
+		if (sClearColor == null) {
+			return Color.BLACK;
+		}
+		return sClearColor;
+	}
 }
 
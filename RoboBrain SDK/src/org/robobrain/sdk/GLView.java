@@ -95,6 +95,7 @@ public class GLView extends GLSurfaceView implements SensorEventListener {
 				 mRenderer.resume();
 			 }
 		 });
+		requestRender();
 	}
 	
 	/**
@@ -133,6 +134,7 @@ public class GLView extends GLSurfaceView implements SensorEventListener {
 				}
 				break;
 		}
+		requestRender();
 		return true;
 	}
 	
@@ -162,6 +164,7 @@ public class GLView extends GLSurfaceView implements SensorEventListener {
 		Keyboard.key = keyCode;
 		Keyboard.state = Keyboard.KEY_DOWN;
 		Log.d("Key", "down: " + keyCode);
+		requestRender();
 		return super.onKeyDown(keyCode, event);
 	}
 	
@@ -173,6 +176,7 @@ public class GLView extends GLSurfaceView implements SensorEventListener {
 		Keyboard.key = keyCode;
 		Keyboard.state = Keyboard.KEY_UP;
 		Log.d("Key", "up: " + keyCode);
+		requestRender();
 		return super.onKeyUp(keyCode, event);
 	}
 	
@@ -188,6 +192,55 @@ public class GLView extends GLSurfaceView implements SensorEventListener {
 		 });
 	}
 	
+	/**
+	 * Turns on demand rendering on or off. When on, frames are only drawn
+	 * while the Engine needs them (see Engine.needsFrame()) or when touch or
+	 * key input arrives, so menus and puzzle boards that aren't changing use
+	 * almost no CPU. Accelerometer changes don't wake the renderer. Off by
+	 * default.
+	 * @param enabled
+	 * true to render on demand, false to render continuously.
+	 */
+	public void setRenderOnDemand(final boolean enabled) {
+		setRenderMode(enabled ? RENDERMODE_WHEN_DIRTY : RENDERMODE_CONTINUOUSLY);
+		queueEvent(new Runnable() {
+			 public void run() {
+				 mRenderer.setRenderOnDemand(enabled);
+			 }
+		 });
+		requestRender();
+	}
+	
+	/**
+	 * Sets how often frames are drawn while rendering on demand and nothing
+	 * has changed.
+	 * @param fps
+	 * The idle frame rate in frames per second, or 0 to draw nothing until
+	 * something changes.
+	 */
+	public void setIdleFrameRate(final float fps) {
+		queueEvent(new Runnable() {
+			 public void run() {
+				 mRenderer.setIdleFrameRate(fps);
+			 }
+		 });
+	}
+	
+	/**
+	 * Sets the frame rate to pace drawing to.
+	 * @param fps
+	 * The frame rate in frames per second, GLRenderer.FRAME_RATE_UNCAPPED, or
+	 * GLRenderer.FRAME_RATE_ADAPTIVE to hold 60 and drop to 30 when frames
+	 * can't keep up.
+	 */
+	public void setTargetFrameRate(final int fps) {
+		queueEvent(new Runnable() {
+			 public void run() {
+				 mRenderer.setTargetFrameRate(fps);
+			 }
+		 });
+	}
+	
 	/**
 	 * Registers your game's Engine with this renderer.
 	 * @param game Your game's Engine object.
@@ -219,6 +272,7 @@ public class GLView extends GLSurfaceView implements SensorEventListener {
 	protected void init(Context context) {
 		mContext = context;
 	    mRenderer = new GLRenderer();
+	    mRenderer.setView(this);
 	    setRenderer(mRenderer);
 	        
 		setFocusable(true);
@@ -142,6 +142,39 @@ public class GameActivity extends Activity {
     	mGLView.setBackgroundColor(color);
     }
     
+    /**
+     * Turns on demand rendering on or off. When on, frames are only drawn
+     * while the game Engine needs them or input arrives. Use it for menus and
+     * puzzle screens that are mostly still.
+     * @param enabled
+     * true to render on demand, false to render continuously.
+     */
+    public void setRenderOnDemand(boolean enabled) {
+    	mGLView.setRenderOnDemand(enabled);
+    }
+    
+    /**
+     * Sets how often frames are drawn while rendering on demand and nothing
+     * has changed.
+     * @param fps
+     * The idle frame rate in frames per second, or 0 to draw nothing until
+     * something changes.
+     */
+    public void setIdleFrameRate(float fps) {
+    	mGLView.setIdleFrameRate(fps);
+    }
+    
+    /**
+     * Sets the frame rate to pace drawing to.
+     * @param fps
+     * The frame rate in frames per second, GLRenderer.FRAME_RATE_UNCAPPED, or
+     * GLRenderer.FRAME_RATE_ADAPTIVE to hold 60 and drop to 30 when frames
+     * can't keep up.
+     */
+    public void setTargetFrameRate(int fps) {
+    	mGLView.setTargetFrameRate(fps);
+    }
+    
     /**
      * Registers a game Engine class to be used by this Activity to run a game.
      */
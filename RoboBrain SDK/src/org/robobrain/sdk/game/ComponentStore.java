@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.game;
+
+import java.util.ArrayList;
+
+import org.robobrain.sdk.graphics.Renderable;
+
+import android.util.Log;
+
+/**
+ * Stores the state of many game objects in parallel arrays of primitives
+ * (structure of arrays) instead of one object per game object. Systems then
+ * walk the arrays from start to end, which is far friendlier to the CPU cache
+ * than calling update() on thousands of Entities.
+ * <p>
+ * Every object in the store is a slot, identified by a handle that stays the
+ * same for its whole life. The arrays themselves are packed: slots 0 to size() - 1
+ * are live, and removing a slot moves the last one into its place. Use
+ * indexOf() to find where a handle lives right now. Handles carry a generation,
+ * so one kept after its slot was removed stays invalid when the slot is reused.
+ * <p>
+ * A slot can be attached to an existing Entity. Each update the store copies
+ * the Entity's position, velocity, rotation, scale and size in, runs its
+ * systems and copies the results back out, so Entity subclasses keep working
+ * unchanged. The position is read from and written to the Entity's Renderable,
+ * like Entity.update() does.
+ * Register the store with the World to have it updated every frame.
+ * @author James Johnson
+ */
+public class ComponentStore {
+	/**
+	 * Returned when a handle is not valid.
+	 */
+	public static final int INVALID_HANDLE = -1;
+
+	// A handle is a slot id in the low bits and the id's generation above it
+	private static final int ID_BITS = 20;
+	private static final int ID_MASK = (1 << ID_BITS) - 1;
+	private static final int GENERATION_MASK = (1 << (31 - ID_BITS)) - 1;
+
+	/** Position along the X axis. */
+	public float x[];
+
+	/** Position along the Y axis. */
+	public float y[];
+
+	/** Velocity along the X axis in pixels per millisecond. */
+	public float vx[];
+
+	/** Velocity along the Y axis in pixels per millisecond. */
+	public float vy[];
+
+	/** Angle of rotation in degrees. */
+	public float rotation[];
+
+	/** Scale. 1 = normal size. */
+	public float scale[];
+
+	/**
+	 * Half of the width of the collision bounds, centered on the position.
+	 * Refreshed from attached Entities every update.
+	 */
+	public float halfWidth[];
+
+	/**
+	 * Half of the height of the collision bounds, centered on the position.
+	 * Refreshed from attached Entities every update.
+	 */
+	public float halfHeight[];
+
+	private Entity mOwners[];
+	private int mHandles[];
+	private int mIndices[];
+	private int mGenerations[];
+	private int mFreeIds[];
+	private int mFreeCount;
+	private int mNextId;
+	private int mCount;
+	private int mOwnerCount;
+	private ArrayList<ComponentSystem> mSystems;
+	private SystemJob mSystemJob;
+
+	/**
+	 * Initializes the ComponentStore.
+	 * @param capacity
+	 * The number of slots to allocate up front. The store grows if more are
+	 * added, but that allocates.
+	 */
+	public ComponentStore(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		mCount = 0;
+		mOwnerCount = 0;
+		mNextId = 0;
+		mFreeCount = 0;
+		mSystems = new ArrayList<ComponentSystem>();
+		mSystemJob = new SystemJob();
+		allocate(capacity);
+	}
+
+	/**
+	 * Adds a new slot that is not attached to an Entity.
+	 * @param x
+	 * The starting position along the X axis.
+	 * @param y
+	 * The starting position along the Y axis.
+	 * @return
+	 * The slot's handle, or INVALID_HANDLE if the store can't hold any more.
+	 */
+	public int add(float x, float y) {
+		if ((mFreeCount == 0) && (mNextId > ID_MASK)) {
+			Log.e("ComponentStore", "Too many slots, the limit is " + (ID_MASK + 1) + ".");
+			return INVALID_HANDLE;
+		}
+		if (mCount == this.x.length) {
+			allocate(this.x.length * 2);
+		}
+		int id;
+		if (mFreeCount > 0) {
+			id = mFreeIds[--mFreeCount];
+		} else {
+			id = mNextId++;
+		}
+		int handle = (mGenerations[id] << ID_BITS) | id;
+		int i = mCount++;
+		mHandles[i] = handle;
+		mIndices[id] = i;
+		mOwners[i] = null;
+		this.x[i] = x;
+		this.y[i] = y;
+		vx[i] = 0;
+		vy[i] = 0;
+		rotation[i] = 0;
+		scale[i] = 1.0f;
+		halfWidth[i] = 0;
+		halfHeight[i] = 0;
+		return handle;
+	}
+
+	/**
+	 * Adds a new slot that mirrors an Entity. The Entity's collision bounds are
+	 * taken from its current size.
+	 * @param entity
+	 * The Entity to attach. It may only be attached to one store.
+	 * @return
+	 * The slot's handle, or INVALID_HANDLE.
+	 */
+	public int attach(Entity entity) {
+		if (entity == null) {
+			Log.w("ComponentStore", "Null Entity passed to attach().");
+			return INVALID_HANDLE;
+		}
+		if (entity.mComponentStore != null) {
+			Log.w("ComponentStore", "Entity is already attached to a ComponentStore.");
+			return INVALID_HANDLE;
+		}
+		Renderable r = entity.getRenderable();
+		int handle = (r != null) ? add(r.x, r.y) : add(entity.x, entity.y);
+		if (handle == INVALID_HANDLE) {
+			return INVALID_HANDLE;
+		}
+		int i = indexOf(handle);
+		mOwners[i] = entity;
+		mOwnerCount++;
+		vx[i] = entity.vx;
+		vy[i] = entity.vy;
+		rotation[i] = entity.rotation;
+		scale[i] = entity.scale;
+		halfWidth[i] = entity.getWidth() * 0.5f;
+		halfHeight[i] = entity.getHeight() * 0.5f;
+		entity.mComponentStore = this;
+		entity.mComponentHandle = handle;
+		return handle;
+	}
+
+	/**
+	 * Removes a slot. The last slot is moved into its place.
+	 * @param handle
+	 * The handle of the slot to remove.
+	 */
+	public void remove(int handle) {
+		int i = indexOf(handle);
+		if (i < 0) {
+			return;
+		}
+		Entity owner = mOwners[i];
+		if (owner != null) {
+			owner.mComponentStore = null;
+			owner.mComponentHandle = INVALID_HANDLE;
+			mOwnerCount--;
+		}
+		int last = --mCount;
+		if (i != last) {
+			x[i] = x[last];
+			y[i] = y[last];
+			vx[i] = vx[last];
+			vy[i] = vy[last];
+			rotation[i] = rotation[last];
+			scale[i] = scale[last];
+			halfWidth[i] = halfWidth[last];
+			halfHeight[i] = halfHeight[last];
+			mOwners[i] = mOwners[last];
+			int moved = mHandles[last];
+			mHandles[i] = moved;
+			mIndices[moved & ID_MASK] = i;
+		}
+		mOwners[last] = null;
+		int id = handle & ID_MASK;
+		mIndices[id] = INVALID_HANDLE;
+		mGenerations[id] = (mGenerations[id] + 1) & GENERATION_MASK;
+		mFreeIds[mFreeCount++] = id;
+	}
+
+	/**
+	 * Removes the slot attached to an Entity.
+	 * @param entity
+	 * The attached Entity.
+	 */
+	public void detach(Entity entity) {
+		if ((entity == null) || (entity.mComponentStore != this)) {
+			return;
+		}
+		remove(entity.mComponentHandle);
+	}
+
+	/**
+	 * Removes every slot.
+	 */
+	public void clear() {
+		while (mCount > 0) {
+			remove(mHandles[mCount - 1]);
+		}
+	}
+
+	/**
+	 * Adds a system that is run over the store every update. Systems run in the
+	 * order they were added.
+	 * @param system
+	 * The system to add.
+	 */
+	public void addSystem(ComponentSystem system) {
+		if (system == null) {
+			Log.w("ComponentStore", "Null ComponentSystem passed to addSystem().");
+			return;
+		}
+		mSystems.add(system);
+	}
+
+	/**
+	 * Removes a system.
+	 * @param system
+	 * The system to remove.
+	 */
+	public void removeSystem(ComponentSystem system) {
+		mSystems.remove(system);
+	}
+
+	/**
+	 * Copies the attached Entities in, runs every system and copies the results
+	 * back out to the Entities. Called by the World once per frame.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	public void update(long time) {
+		update(time, null);
+	}
+	
+	/**
+	 * Copies the attached Entities in, runs every system and copies the results
+	 * back out to the Entities. Systems that can run in parallel are split
+	 * across the JobSystem.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 * @param jobs
+	 * The JobSystem to use, or null to run every system on this thread.
+	 */
+	public void update(long time, JobSystem jobs) {
+		pullFromEntities();
+		int c = mSystems.size();
+		for (int i = 0; i < c; i++) {
+			ComponentSystem system = mSystems.get(i);
+			if ((jobs != null) && system.isParallel()) {
+				mSystemJob.system = system;
+				mSystemJob.time = time;
+				jobs.parallelFor(mCount, mSystemJob);
+				mSystemJob.system = null;
+			} else {
+				system.update(this, time);
+			}
+		}
+		pushToEntities();
+	}
+
+	/**
+	 * Copies position, velocity, rotation, scale and size from the attached
+	 * Entities into the store.
+	 */
+	public void pullFromEntities() {
+		if (mOwnerCount == 0) {
+			return;
+		}
+		for (int i = 0; i < mCount; i++) {
+			Entity e = mOwners[i];
+			if (e == null) {
+				continue;
+			}
+			Renderable r = e.getRenderable();
+			if (r != null) {
+				x[i] = r.x;
+				y[i] = r.y;
+			} else {
+				x[i] = e.x;
+				y[i] = e.y;
+			}
+			vx[i] = e.vx;
+			vy[i] = e.vy;
+			rotation[i] = e.rotation;
+			scale[i] = e.scale;
+			halfWidth[i] = e.getWidth() * 0.5f;
+			halfHeight[i] = e.getHeight() * 0.5f;
+		}
+	}
+
+	/**
+	 * Copies position, velocity, rotation and scale from the store out to the
+	 * attached Entities. The position is applied with Entity.offset(), which
+	 * moves the Entity and its Renderable together.
+	 */
+	public void pushToEntities() {
+		if (mOwnerCount == 0) {
+			return;
+		}
+		for (int i = 0; i < mCount; i++) {
+			Entity e = mOwners[i];
+			if (e == null) {
+				continue;
+			}
+			Renderable r = e.getRenderable();
+			if (r != null) {
+				e.offset(x[i] - r.x, y[i] - r.y);
+			} else {
+				e.offset(x[i] - e.x, y[i] - e.y);
+			}
+			e.vx = vx[i];
+			e.vy = vy[i];
+			e.rotation = rotation[i];
+			e.scale = scale[i];
+		}
+	}
+
+	/**
+	 * Determines if the collision bounds of two slots overlap.
+	 * @param a
+	 * The index of the first slot.
+	 * @param b
+	 * The index of the second slot.
+	 * @return
+	 * true if the bounds overlap.
+	 */
+	public boolean overlaps(int a, int b) {
+		float dx = x[a] - x[b];
+		float dy = y[a] - y[b];
+		if (dx < 0) {
+			dx = -dx;
+		}
+		if (dy < 0) {
+			dy = -dy;
+		}
+		return (dx <= halfWidth[a] + halfWidth[b]) && (dy <= halfHeight[a] + halfHeight[b]);
+	}
+
+	/**
+	 * Gets the index a slot currently lives at.
+	 * @param handle
+	 * The slot's handle.
+	 * @return
+	 * The index into the arrays, or INVALID_HANDLE if the slot was removed.
+	 */
+	public int indexOf(int handle) {
+		if (handle < 0) {
+			return INVALID_HANDLE;
+		}
+		int id = handle & ID_MASK;
+		if ((id >= mNextId) || (mGenerations[id] != (handle >>> ID_BITS))) {
+			return INVALID_HANDLE;
+		}
+		return mIndices[id];
+	}
+
+	/**
+	 * Gets the handle of the slot at an index.
+	 * @param index
+	 * The index into the arrays. Ranges from 0 - (size() - 1).
+	 * @return
+	 * The slot's handle.
+	 */
+	public int getHandle(int index) { return mHandles[index]; }
+
+	/**
+	 * Gets the Entity attached to the slot at an index.
+	 * @param index
+	 * The index into the arrays. Ranges from 0 - (size() - 1).
+	 * @return
+	 * The attached Entity, or null.
+	 */
+	public Entity getOwner(int index) { return mOwners[index]; }
+
+	/**
+	 * Gets the number of live slots.
+	 * @return
+	 * The number of slots.
+	 */
+	public int size() { return mCount; }
+
+	/**
+	 * Gets the number of slots the arrays can hold before growing.
+	 * @return
+	 * The capacity of the store.
+	 */
+	public int getCapacity() { return x.length; }
+
+	// Runs a parallel system over a range of slots
+	private class SystemJob extends JobSystem.Job {
+		ComponentSystem system;
+		long time;
+		
+		@Override
+		public void run(int start, int end) {
+			system.update(ComponentStore.this, time, start, end);
+		}
+	}
+	
+	// Allocates or grows all of the arrays
+	private void allocate(int capacity) {
+		if (x != null) {
+			Log.w("ComponentStore", "Store full, growing to " + capacity + " slots.");
+		}
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		vx = grow(vx, capacity);
+		vy = grow(vy, capacity);
+		rotation = grow(rotation, capacity);
+		scale = grow(scale, capacity);
+		halfWidth = grow(halfWidth, capacity);
+		halfHeight = grow(halfHeight, capacity);
+		mHandles = grow(mHandles, capacity);
+		mIndices = grow(mIndices, capacity);
+		mGenerations = grow(mGenerations, capacity);
+		mFreeIds = grow(mFreeIds, capacity);
+
+		Entity owners[] = new Entity[capacity];
+		if (mOwners != null) {
+			System.arraycopy(mOwners, 0, owners, 0, mCount);
+		}
+		mOwners = owners;
+	}
+
+	private float[] grow(float[] array, int capacity) {
+		float grown[] = new float[capacity];
+		if (array != null) {
+			System.arraycopy(array, 0, grown, 0, array.length);
+		}
+		return grown;
+	}
+
+	private int[] grow(int[] array, int capacity) {
+		int grown[] = new int[capacity];
+		if (array != null) {
+			System.arraycopy(array, 0, grown, 0, array.length);
+		}
+		return grown;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.game;
+
+/**
+ * A system runs one piece of game logic over every slot of a ComponentStore.
+ * Derive your own systems from this class and keep update() to plain loops over
+ * the store's arrays, from 0 to size() - 1.
+ * <p>
+ * If each slot can be processed on its own, without looking at other slots,
+ * override isParallel() to return true and put the loop in update(store, time,
+ * start, end). The World then splits it across its JobSystem.
+ * @author James Johnson
+ */
+public abstract class ComponentSystem {
+	/**
+	 * Runs the system over a ComponentStore. Called once per frame.
+	 * @param store
+	 * The store to update.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	public abstract void update(ComponentStore store, long time);
+	
+	/**
+	 * Runs the system over part of a ComponentStore. Only called when
+	 * isParallel() returns true, possibly on several threads at once. Systems
+	 * that return true from isParallel() must override this; running the whole
+	 * store from every range would update slots more than once.
+	 * @param store
+	 * The store to update.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 * @param start
+	 * The index of the first slot to update.
+	 * @param end
+	 * One past the index of the last slot to update.
+	 */
+	public void update(ComponentStore store, long time, int start, int end) {
+		throw new IllegalStateException(getClass().getName() +
+			" returns true from isParallel() but does not override update(store, time, start, end).");
+	}
+	
+	/**
+	 * Determines if the system can be split across threads.
+	 * @return
+	 * true if update(store, time, start, end) only touches the slots in its range.
+	 */
+	public boolean isParallel() { return false; }
+}
@@ -28,7 +28,11 @@ import org.robobrain.sdk.audio.MusicManager;
 import org.robobrain.sdk.audio.SoundManager;
 import org.robobrain.sdk.graphics.Renderable;
 import org.robobrain.sdk.graphics.TextureManager;
+import org.robobrain.sdk.input.GestureDetector;
+import org.robobrain.sdk.input.InputRecorder;
 import org.robobrain.sdk.input.Multitouch;
+import org.robobrain.sdk.physics.PhysicsWorld;
+import org.robobrain.sdk.tween.TweenManager;
 
 import android.util.Log;
 
@@ -44,16 +48,42 @@ public class Engine {
 	 */
 	protected World mWorld;
 	
+	/**
+	 * Recognizes gestures from Multitouch input. Optional.
+	 */
+	protected GestureDetector mGestures;
+	
+	/**
+	 * Records the input seen each frame. Optional.
+	 */
+	protected InputRecorder mRecorder;
+	
+	/**
+	 * Simulates physics Bodies before the World updates. Optional.
+	 */
+	protected PhysicsWorld mPhysics;
+	
+	/**
+	 * Plays Tweens before the World updates. Optional.
+	 */
+	protected TweenManager mTweens;
+	
 	private boolean mInitialized;
-	private boolean mPaused;
+	private volatile boolean mPaused;
+	private volatile boolean mFrameRequested;
 	
 	/**
 	 * Initializes the Engine.
 	 */
 	public Engine() {
 		mWorld = null;
+		mGestures = null;
+		mRecorder = null;
+		mPhysics = null;
+		mTweens = null;
 		mInitialized = false;
 		mPaused = false;
+		mFrameRequested = true;
 	}
 	
 	/**
@@ -75,6 +105,18 @@ public class Engine {
 		if (mPaused) {
 			return;
 		}
+		if (mRecorder != null) {
+			mRecorder.recordFrame(time);
+		}
+		if (mGestures != null) {
+			mGestures.update(time);
+		}
+		if (mPhysics != null) {
+			mPhysics.update(time);
+		}
+		if (mTweens != null) {
+			mTweens.update(time);
+		}
 		if (mWorld == null) {
 			return;
 		}
@@ -108,6 +150,51 @@ public class Engine {
 	 */
 	public void play() {
 		mPaused = false;
+		mFrameRequested = true;
+		GLRenderer.requestRender();
+	}
+	
+	/**
+	 * Asks for another frame to be drawn when rendering on demand. Call this
+	 * after changing something the Engine can't see, such as a Sprite's
+	 * color or a Renderable of your own. Does nothing when rendering
+	 * continuously. Safe to call from any thread; wakes the renderer if it is
+	 * idle.
+	 */
+	public void requestFrame() {
+		mFrameRequested = true;
+		GLRenderer.requestRender();
+	}
+	
+	/**
+	 * Determines if another frame should be drawn when rendering on demand.
+	 * Called by the GLRenderer after every frame. Override this to keep
+	 * drawing for reasons of your own, and call super.needsFrame().
+	 * Clears requestFrame().
+	 * @return
+	 * true if a frame was requested, a Tween is playing, a physics Body is
+	 * awake, a gesture is in progress, or the World changed or has particles
+	 * alive.
+	 */
+	public boolean needsFrame() {
+		boolean needed = mFrameRequested;
+		mFrameRequested = false;
+		if (mPaused) {
+			return false;
+		}
+		if (needed) {
+			return true;
+		}
+		if ((mTweens != null) && (mTweens.getActiveCount() > 0)) {
+			return true;
+		}
+		if ((mPhysics != null) && mPhysics.isAwake()) {
+			return true;
+		}
+		if ((mGestures != null) && mGestures.isActive()) {
+			return true;
+		}
+		return (mWorld != null) && mWorld.hasChanged();
 	}
 	
 	/**
@@ -127,6 +214,12 @@ public class Engine {
 	 * being closed. 
 	 */
 	public void shutdown() {
+		if (mRecorder != null) {
+			mRecorder.close();
+		}
+		if ((mWorld != null) && (mWorld.getJobSystem() != null)) {
+			mWorld.getJobSystem().shutdown();
+		}
 		SoundManager.release();
 		MusicManager.release();
 		TextureManager.unloadAll();
@@ -154,8 +247,72 @@ public class Engine {
 			return;
 		}
 		mWorld = world;
+		mFrameRequested = true;
+	}
+	
+	/**
+	 * Registers a GestureDetector with the game Engine. The Engine updates it
+	 * every frame before the Multitouch state is cleared.
+	 * @param detector
+	 * The GestureDetector to update, or null to stop detecting gestures.
+	 */
+	public void registerGestureDetector(GestureDetector detector) {
+		mGestures = detector;
+	}
+	
+	/**
+	 * Gets the GestureDetector registered with the game Engine.
+	 * @return
+	 * The GestureDetector, or null if none has been registered.
+	 */
+	public GestureDetector getGestureDetector() { return mGestures; }
+	
+	/**
+	 * Registers an InputRecorder with the game Engine. The Engine records the
+	 * input it sees every frame until the recorder is closed.
+	 * @param recorder
+	 * The InputRecorder to write to, or null to stop recording.
+	 */
+	public void registerInputRecorder(InputRecorder recorder) {
+		mRecorder = recorder;
+	}
+	
+	/**
+	 * Registers a PhysicsWorld with the game Engine. It is stepped every frame
+	 * before the World, so Entities linked to Bodies have already moved when
+	 * the World updates them.
+	 * @param physics
+	 * The PhysicsWorld to update, or null to stop simulating.
+	 */
+	public void registerPhysics(PhysicsWorld physics) {
+		mPhysics = physics;
 	}
 	
+	/**
+	 * Gets the PhysicsWorld registered with the game Engine.
+	 * @return
+	 * The PhysicsWorld, or null if none has been registered.
+	 */
+	public PhysicsWorld getPhysics() { return mPhysics; }
+	
+	/**
+	 * Registers a TweenManager with the game Engine. Its Tweens are advanced
+	 * every frame after physics and before the World, so the World sees
+	 * tweened positions when it checks for collisions.
+	 * @param tweens
+	 * The TweenManager to update, or null to stop playing Tweens.
+	 */
+	public void registerTweens(TweenManager tweens) {
+		mTweens = tweens;
+	}
+	
+	/**
+	 * Gets the TweenManager registered with the game Engine.
+	 * @return
+	 * The TweenManager, or null if none has been registered.
+	 */
+	public TweenManager getTweens() { return mTweens; }
+	
 	/**
 	 * Returns true if the Engine has been initialized and is ready to play.
 	 *
@@ -21,11 +21,15 @@
 
 package org.robobrain.sdk.game;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.microedition.khronos.opengles.GL10;
 
 import org.robobrain.sdk.GLRenderer;
 import org.robobrain.sdk.graphics.Rectangle;
 import org.robobrain.sdk.graphics.Renderable;
+import org.robobrain.sdk.math.FastMath;
+import org.robobrain.sdk.math.Intersect;
 
 import android.util.Log;
 
@@ -36,6 +40,16 @@ import android.util.Log;
  *
  */
 public class Entity {
+	// Classes that override getCollisionRect() or getRect(). Entities may be
+	// created on any thread, so the map has to allow that.
+	private static final ConcurrentHashMap<Class<?>, Boolean> sCustomRect = new ConcurrentHashMap<Class<?>, Boolean>();
+	
+	/** Collision category every Entity starts in. */
+	public static final int CATEGORY_DEFAULT = 0x00000001;
+	
+	/** Collision mask that accepts every category. */
+	public static final int MASK_ALL = 0xFFFFFFFF;
+	
     /**
      * The Entity's position along the X axis.
      */
@@ -95,6 +109,60 @@ public class Entity {
 	 */
 	public boolean remove;
 	
+	/**
+	 * Set to false to leave the Entity out of collision tests entirely. It can
+	 * still be found with the World's spatial queries.
+	 */
+	public boolean collidable;
+	
+	/**
+	 * The collision categories this Entity belongs to, one per bit.
+	 */
+	public int collisionCategory;
+	
+	/**
+	 * The collision categories this Entity collides with, one per bit. Two
+	 * Entities are only tested if each one's category is in the other's mask.
+	 */
+	public int collisionMask;
+	
+	/**
+	 * Set to true for small fast Entities such as bullets. When the World's
+	 * continuous collision is on, the Entity is swept from where it was last
+	 * frame to where it is now and stopped at the first thing it hits, so it
+	 * can't pass through thin walls.
+	 */
+	public boolean continuous;
+	
+	// The ComponentStore mirroring this Entity, if any, and its slot handle
+	ComponentStore mComponentStore;
+	int mComponentHandle;
+	
+	// Cached collision box, refreshed by updateBounds()
+	float mLeft;
+	float mTop;
+	float mRight;
+	float mBottom;
+	private boolean mHasBounds;
+	private boolean mBoundsDirty;
+	private boolean mCustomRect;
+	
+	// Set when updateBounds() finds the box changed, cleared by the World
+	boolean mBoundsChanged;
+	
+	// Center of the collision box at the end of the last frame
+	float mPrevX;
+	float mPrevY;
+	boolean mHasPrev;
+	
+	// The values the cached box was built from
+	private float mBoundsX;
+	private float mBoundsY;
+	private float mBoundsRotation;
+	private float mBoundsScale;
+	private int mBoundsWidth;
+	private int mBoundsHeight;
+	
 	public Entity() {
 	    x = 0;
 	    y = 0;
@@ -108,6 +176,16 @@ public class Entity {
 		mSpeed = 1;
 		mFriction = 0.8f;
 		type = 0;
+		collidable = true;
+		collisionCategory = CATEGORY_DEFAULT;
+		collisionMask = MASK_ALL;
+		continuous = false;
+		mHasPrev = false;
+		mComponentStore = null;
+		mComponentHandle = ComponentStore.INVALID_HANDLE;
+		mHasBounds = false;
+		mBoundsDirty = true;
+		mCustomRect = overridesCollisionRect(getClass());
 	}
 	
 	/**
@@ -129,6 +207,31 @@ public class Entity {
 		mRenderable.update(time);
 	}
 	
+	// Determines if the Renderable needs another frame drawn: it is
+	// animating, such as a playing Sprite, or it changed in a way the bounds
+	// don't show, such as new text. Clears the Renderable's change.
+	boolean needsFrame() {
+		if (mRenderable == null) {
+			return false;
+		}
+		boolean changed = mRenderable.takeChange();
+		return mRenderable.isAnimating() || changed;
+	}
+	
+	/**
+	 * Determines if update() can run on a worker thread at the same time as other
+	 * Entities are updated. Override this to return true only if update() changes
+	 * nothing but this Entity and its Renderable: no other Entities, no World,
+	 * no sounds and no OpenGL. It may call the World's queryRect(), queryRadius(),
+	 * queryPoint() and nearest(), which see where Entities were at the start of
+	 * the frame, as long as it passes a results list of its own.
+	 * @return
+	 * true if the Entity can be updated in parallel. Defaults to false.
+	 */
+	public boolean isParallelSafe() {
+		return false;
+	}
+	
 	/**
 	 * Refreshes the Entity's texture after an OpenGL reset.
 	 */
@@ -173,6 +276,7 @@ public class Entity {
 	 */
 	public void setX(float x) {
 	    this.x = x;
+	    mBoundsDirty = true;
 	}
 	
 	/**
@@ -193,6 +297,7 @@ public class Entity {
 	 */
 	public void setY(float y) {
 	    this.y = y;
+	    mBoundsDirty = true;
 	}
 	
 	/**
@@ -247,6 +352,7 @@ public class Entity {
 	@Deprecated
 	public void setRotation(float angle) {
 	    this.rotation = angle;
+	    mBoundsDirty = true;
 	}
 	
 	/**
@@ -267,6 +373,7 @@ public class Entity {
 	@Deprecated
 	public void setScale(float angle) {
 	    this.scale = angle;
+	    mBoundsDirty = true;
 	}
 	
 	/**
@@ -295,7 +402,10 @@ public class Entity {
 	}
 	
 	/**
-	 * Gets the Entity's collision Rectangle.
+	 * Gets the Entity's collision Rectangle. Override this, or getRect(), to
+	 * give the Entity a custom collision box. The cached bounds then call it
+	 * whenever they are refreshed, which allocates if the override creates a
+	 * new Rectangle.
 	 * @return
 	 * The Entity's collision Rectangle.
 	 */
@@ -303,6 +413,167 @@ public class Entity {
 		return getRect();
 	}
 	
+	/**
+	 * Refreshes the Entity's cached collision box if anything it depends on has
+	 * changed since the last call. The box surrounds the Renderable, grown to
+	 * fit its rotation. The World calls this once per frame.
+	 * @return
+	 * true if the Entity has a collision box.
+	 */
+	public boolean updateBounds() {
+		if (mCustomRect) {
+			Rectangle rect = getCollisionRect();
+			if (rect == null) {
+				mBoundsChanged |= mHasBounds;
+				mHasBounds = false;
+				return false;
+			}
+			float right = rect.x + rect.width;
+			float bottom = rect.y + rect.height;
+			if (!mHasBounds || (rect.x != mLeft) || (rect.y != mTop) || (right != mRight) || (bottom != mBottom)) {
+				mBoundsChanged = true;
+			}
+			mHasBounds = true;
+			mLeft = rect.x;
+			mTop = rect.y;
+			mRight = right;
+			mBottom = bottom;
+			return true;
+		}
+		if (mRenderable == null) {
+			mHasBounds = false;
+			return false;
+		}
+		float rx = mRenderable.x;
+		float ry = mRenderable.y;
+		int width = mRenderable.getWidth();
+		int height = mRenderable.getHeight();
+		if (!mBoundsDirty && mHasBounds &&
+			(rx == mBoundsX) && (ry == mBoundsY) &&
+			(rotation == mBoundsRotation) && (scale == mBoundsScale) &&
+			(width == mBoundsWidth) && (height == mBoundsHeight)) {
+			return true;
+		}
+		mBoundsX = rx;
+		mBoundsY = ry;
+		mBoundsRotation = rotation;
+		mBoundsScale = scale;
+		mBoundsWidth = width;
+		mBoundsHeight = height;
+		mBoundsDirty = false;
+		mHasBounds = true;
+		mBoundsChanged = true;
+
+		// The Renderable's size already includes its scale
+		float hw = width * 0.5f;
+		float hh = height * 0.5f;
+		if ((rotation % 180.0f) != 0.0f) {
+			float cos = Math.abs(FastMath.cosDeg(rotation));
+			float sin = Math.abs(FastMath.sinDeg(rotation));
+			float w = hw * cos + hh * sin;
+			hh = hw * sin + hh * cos;
+			hw = w;
+		}
+		mLeft = rx - hw;
+		mTop = ry - hh;
+		mRight = rx + hw;
+		mBottom = ry + hh;
+		return true;
+	}
+	
+	/**
+	 * Moves the Entity and its Renderable by the same amount. Used to pull
+	 * continuous Entities back to the point of impact.
+	 * @param dx
+	 * The distance to move along the X axis.
+	 * @param dy
+	 * The distance to move along the Y axis.
+	 */
+	public void offset(float dx, float dy) {
+		x += dx;
+		y += dy;
+		if (mRenderable != null) {
+			mRenderable.x += dx;
+			mRenderable.y += dy;
+		}
+		mBoundsDirty = true;
+	}
+	
+	/**
+	 * Forces the cached collision box to be rebuilt by the next updateBounds().
+	 */
+	public void invalidateBounds() {
+		mBoundsDirty = true;
+	}
+	
+	/**
+	 * Gets the left edge of the cached collision box.
+	 * @return
+	 * The left edge in pixels.
+	 */
+	public float getLeft() { return mLeft; }
+	
+	/**
+	 * Gets the top edge of the cached collision box.
+	 * @return
+	 * The top edge in pixels.
+	 */
+	public float getTop() { return mTop; }
+	
+	/**
+	 * Gets the right edge of the cached collision box.
+	 * @return
+	 * The right edge in pixels.
+	 */
+	public float getRight() { return mRight; }
+	
+	/**
+	 * Gets the bottom edge of the cached collision box.
+	 * @return
+	 * The bottom edge in pixels.
+	 */
+	public float getBottom() { return mBottom; }
+	
+	/**
+	 * Determines if the Entity's collision box touches a rectangle. Reads the
+	 * box cached by the last updateBounds() without refreshing it, so it is
+	 * safe to call from parallel updates. The World refreshes every box at
+	 * the start of each frame.
+	 * @param left
+	 * The left edge of the rectangle.
+	 * @param top
+	 * The top edge of the rectangle.
+	 * @param right
+	 * The right edge of the rectangle.
+	 * @param bottom
+	 * The bottom edge of the rectangle.
+	 * @return
+	 * true if they intersect.
+	 */
+	public boolean intersects(float left, float top, float right, float bottom) {
+		if (!mHasBounds) {
+			return false;
+		}
+		return Intersect.boxes(mLeft, mTop, mRight, mBottom, left, top, right, bottom);
+	}
+	
+	/**
+	 * Determines if the Entity's collision box contains a point. Like
+	 * intersects(), it reads the cached box without refreshing it.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @return
+	 * true if the point is inside the box.
+	 */
+	public boolean containsPoint(float x, float y) {
+		if (!mHasBounds) {
+			return false;
+		}
+		return Intersect.boxPoint(mLeft, mTop, mRight, mBottom, x, y);
+	}
+	
 	/**
 	 * Determines if the Entity has collided with another Entity.
 	 * @param receiver	the Entity to test against.
@@ -310,15 +581,27 @@ public class Entity {
 	 * true if a collision occurred. 
 	 */
 	public boolean hasCollided(Entity receiver) {
-		Rectangle rect = getCollisionRect();
-		if (rect == null) {
+		if (!updateBounds() || !receiver.updateBounds()) {
 		    return false;
 		}
-		if (rect.intersects(receiver.getCollisionRect())) {
-			return true;
-		} else {
-			return false;
+		return Intersect.boxes(mLeft, mTop, mRight, mBottom,
+							   receiver.mLeft, receiver.mTop, receiver.mRight, receiver.mBottom);
+	}
+	
+	// Checks whether a class replaces getCollisionRect() or getRect(), so the
+	// cached bounds know to ask it for the box
+	private static boolean overridesCollisionRect(Class<?> type) {
+		Boolean overrides = sCustomRect.get(type);
+		if (overrides == null) {
+			try {
+				overrides = (type.getMethod("getCollisionRect").getDeclaringClass() != Entity.class) ||
+							(type.getMethod("getRect").getDeclaringClass() != Entity.class);
+			} catch (NoSuchMethodException e) {
+				overrides = Boolean.FALSE;
+			}
+			sCustomRect.put(type, overrides);
 		}
+		return overrides;
 	}
 	
 	/**
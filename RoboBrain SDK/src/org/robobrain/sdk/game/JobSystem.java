@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.util.Log;
+
+/**
+ * Splits loops across a pool of worker threads, one per spare CPU core. The
+ * thread calling parallelFor() works on the loop too and does not return until
+ * every part of it has finished, so the call acts as a barrier: code after it
+ * can safely use the results.
+ * <p>
+ * Jobs must only touch the data in the range they are given. They must not call
+ * OpenGL, add or remove Entities or change shared state.
+ * @author James Johnson
+ */
+public class JobSystem {
+	/**
+	 * A loop body that can be run in parallel. Derive from this class and keep
+	 * a single instance around, so running it every frame does not allocate.
+	 */
+	public static abstract class Job {
+		/**
+		 * Runs the job over part of the loop.
+		 * @param start
+		 * The first index to process.
+		 * @param end
+		 * One past the last index to process.
+		 */
+		public abstract void run(int start, int end);
+	}
+
+	/** The default smallest number of items given to a thread at once. */
+	public static final int DEFAULT_MIN_CHUNK = 32;
+
+	// Number of chunks handed out per thread, so faster threads can take more
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final Object mLock = new Object();
+	private final AtomicInteger mNext = new AtomicInteger();
+	private final AtomicInteger mRemaining = new AtomicInteger();
+	private Thread mWorkers[];
+	private boolean mRunning;
+	private int mGeneration;
+	private int mBusy;
+
+	// The loop being run, guarded by mLock
+	private Job mJob;
+	private int mCount;
+	private int mChunk;
+	private int mChunks;
+	private Throwable mError;
+
+	/**
+	 * Initializes the JobSystem with one worker for every CPU core except the
+	 * one the game loop runs on.
+	 */
+	public JobSystem() {
+		this(Runtime.getRuntime().availableProcessors() - 1);
+	}
+
+	/**
+	 * Initializes the JobSystem.
+	 * @param workers
+	 * The number of worker threads to start. 0 runs every job on the calling thread.
+	 */
+	public JobSystem(int workers) {
+		if (workers < 0) {
+			workers = 0;
+		}
+		mRunning = true;
+		mGeneration = 0;
+		mBusy = 0;
+		mWorkers = new Thread[workers];
+		for (int i = 0; i < workers; i++) {
+			Thread t = new Thread(new Worker(), "JobSystem-" + i);
+			t.setDaemon(true);
+			mWorkers[i] = t;
+			t.start();
+		}
+		Log.d("JobSystem", "Started " + workers + " worker threads.");
+	}
+
+	/**
+	 * Runs a job over the indices 0 to count - 1, split across all threads, and
+	 * waits for it to finish.
+	 * @param count
+	 * The number of items in the loop.
+	 * @param job
+	 * The job to run.
+	 */
+	public void parallelFor(int count, Job job) {
+		parallelFor(count, job, DEFAULT_MIN_CHUNK);
+	}
+
+	/**
+	 * Runs a job over the indices 0 to count - 1, split across all threads, and
+	 * waits for it to finish.
+	 * @param count
+	 * The number of items in the loop.
+	 * @param job
+	 * The job to run.
+	 * @param minChunk
+	 * The smallest number of items worth handing to another thread.
+	 */
+	public void parallelFor(int count, Job job, int minChunk) {
+		if ((job == null) || (count <= 0)) {
+			return;
+		}
+		if (minChunk < 1) {
+			minChunk = 1;
+		}
+		int threads = mWorkers.length + 1;
+		if (!mRunning || (threads == 1) || (count <= minChunk)) {
+			job.run(0, count);
+			return;
+		}
+
+		int chunk = (count + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD);
+		if (chunk < minChunk) {
+			chunk = minChunk;
+		}
+		int chunks = (count + chunk - 1) / chunk;
+
+		synchronized (mLock) {
+			// A worker that woke up late for the last loop may still be leaving it
+			while (mBusy > 0) {
+				waitOnLock();
+			}
+			mJob = job;
+			mCount = count;
+			mChunk = chunk;
+			mChunks = chunks;
+			mError = null;
+			mNext.set(0);
+			mRemaining.set(chunks);
+			mGeneration++;
+			mLock.notifyAll();
+		}
+
+		runChunks(job, count, chunk, chunks);
+
+		Throwable error;
+		synchronized (mLock) {
+			while (mRemaining.get() > 0) {
+				waitOnLock();
+			}
+			mJob = null;
+			error = mError;
+			mError = null;
+		}
+		if (error != null) {
+			if (error instanceof RuntimeException) {
+				throw (RuntimeException)error;
+			}
+			if (error instanceof Error) {
+				throw (Error)error;
+			}
+			throw new RuntimeException(error);
+		}
+	}
+
+	/**
+	 * Stops all worker threads. Jobs run after this are run on the calling thread.
+	 */
+	public void shutdown() {
+		synchronized (mLock) {
+			mRunning = false;
+			mLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Gets the number of threads jobs are split across, including the caller.
+	 * @return
+	 * The number of threads.
+	 */
+	public int getThreadCount() { return mWorkers.length + 1; }
+
+	// Runs chunks of the loop until there are none left
+	private void runChunks(Job job, int count, int chunk, int chunks) {
+		int c;
+		while ((c = mNext.getAndIncrement()) < chunks) {
+			int start = c * chunk;
+			int end = start + chunk;
+			if (end > count) {
+				end = count;
+			}
+			try {
+				job.run(start, end);
+			} catch (Throwable t) {
+				Log.e("JobSystem", "Job failed: " + t);
+				synchronized (mLock) {
+					if (mError == null) {
+						mError = t;
+					}
+				}
+			}
+			if (mRemaining.decrementAndGet() == 0) {
+				synchronized (mLock) {
+					mLock.notifyAll();
+				}
+			}
+		}
+	}
+
+	private void waitOnLock() {
+		try {
+			mLock.wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Waits for loops and helps run them
+	private class Worker implements Runnable {
+		public void run() {
+			int seen = 0;
+			while (true) {
+				Job job;
+				int count;
+				int chunk;
+				int chunks;
+				synchronized (mLock) {
+					while (mRunning && (mGeneration == seen)) {
+						try {
+							mLock.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					if (!mRunning) {
+						return;
+					}
+					seen = mGeneration;
+					job = mJob;
+					count = mCount;
+					chunk = mChunk;
+					chunks = mChunks;
+					mBusy++;
+				}
+				if (job != null) {
+					runChunks(job, count, chunk, chunks);
+				}
+				synchronized (mLock) {
+					mBusy--;
+					mLock.notifyAll();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.game;
+
+import org.robobrain.sdk.math.VectorArrays;
+
+/**
+ * Moves every slot in a ComponentStore by its velocity, after applying an
+ * optional constant acceleration (such as gravity) and friction.
+ * @author James Johnson
+ */
+public class MovementSystem extends ComponentSystem {
+	/**
+	 * Acceleration along the X axis in pixels per millisecond squared.
+	 */
+	public float ax;
+	
+	/**
+	 * Acceleration along the Y axis in pixels per millisecond squared.
+	 */
+	public float ay;
+	
+	/**
+	 * The amount velocity is multiplied by each frame. 1 = no friction.
+	 */
+	public float friction;
+	
+	/**
+	 * Initializes the MovementSystem with no acceleration and no friction.
+	 */
+	public MovementSystem() {
+		ax = 0;
+		ay = 0;
+		friction = 1.0f;
+	}
+	
+	/**
+	 * Moves every slot in the store.
+	 * @param store
+	 * The store to update.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	@Override
+	public void update(ComponentStore store, long time) {
+		update(store, time, 0, store.size());
+	}
+	
+	/**
+	 * Moves part of the slots in the store.
+	 * @param store
+	 * The store to update.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 * @param start
+	 * The index of the first slot to move.
+	 * @param end
+	 * One past the index of the last slot to move.
+	 */
+	@Override
+	public void update(ComponentStore store, long time, int start, int end) {
+		int count = end - start;
+		if (count <= 0) {
+			return;
+		}
+		if ((ax != 0) || (ay != 0)) {
+			VectorArrays.accelerate(store.vx, store.vy, start, count, ax, ay, time);
+		}
+		if (friction != 1.0f) {
+			VectorArrays.multiply(store.vx, start, count, friction);
+			VectorArrays.multiply(store.vy, start, count, friction);
+		}
+		VectorArrays.integrate(store.x, store.y, store.vx, store.vy, start, count, time);
+	}
+	
+	/**
+	 * Movement only touches each slot's own data, so it can run in parallel.
+	 * @return
+	 * Always true.
+	 */
+	@Override
+	public boolean isParallel() { return true; }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.game;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import org.robobrain.sdk.graphics.Renderable;
+import org.robobrain.sdk.math.Matrix3;
+import org.robobrain.sdk.math.Vector2;
+
+import android.util.Log;
+
+/**
+ * An Entity that can have child Nodes, for objects built from parts such as a
+ * ship with turrets. A Node's x, y, rotation and scale are relative to its
+ * parent. Only the root Node is added to the World; it updates and draws the
+ * whole tree, parents before children.
+ * <p>
+ * Each Node caches its world transform and only rebuilds it when its own
+ * transform or an ancestor's has changed since the last frame, so subtrees
+ * that don't move cost a few comparisons. The world position, rotation and
+ * scale are handed straight to the Renderable's draw().
+ * <p>
+ * The World only tests the root Node for collisions. Use getWorldX() and
+ * getWorldY() to test the children yourself.
+ * @author James Johnson
+ */
+public class Node extends Entity {
+	/**
+	 * Set to false to hide the Node and all of its children.
+	 */
+	public boolean visible;
+	
+	private Node mParent;
+	private Node mChildren[];
+	private int mChildCount;
+	
+	// Cached world transform
+	private Matrix3 mWorld;
+	private Matrix3 mInverse;
+	private boolean mInverseDirty;
+	private float mWorldX;
+	private float mWorldY;
+	private float mWorldRotation;
+	private float mWorldScale;
+	
+	// The local values the world transform was built from
+	private float mLocalX;
+	private float mLocalY;
+	private float mLocalRotation;
+	private float mLocalScale;
+	private boolean mTransformDirty;
+	
+	/**
+	 * Initializes a Node with nothing to draw. Useful for grouping children.
+	 */
+	public Node() {
+		visible = true;
+		mParent = null;
+		mChildren = null;
+		mChildCount = 0;
+		mWorld = new Matrix3();
+		mInverse = new Matrix3();
+		mInverseDirty = true;
+		mWorldScale = 1.0f;
+		mTransformDirty = true;
+	}
+	
+	/**
+	 * Initializes a Node that draws a Renderable.
+	 * @param renderable
+	 * The Renderable drawn at the Node's world transform.
+	 */
+	public Node(Renderable renderable) {
+		this();
+		mRenderable = renderable;
+	}
+	
+	/**
+	 * Updates the Node's Renderable and then its children. Children flagged
+	 * for removal are dropped. The root Node then brings the world transforms
+	 * of the tree up to date. Call super.update() if you override this.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	@Override
+	public void update(long time) {
+		if (mRenderable != null) {
+			mRenderable.update(time);
+		}
+		for (int i = 0; i < mChildCount; i++) {
+			mChildren[i].update(time);
+		}
+		for (int i = mChildCount - 1; i >= 0; i--) {
+			if (mChildren[i].remove) {
+				removeChildAt(i);
+			}
+		}
+		if ((mParent == null) && updateTransform(false)) {
+			// Lets the World know the tree moved
+			mBoundsChanged = true;
+		}
+	}
+	
+	/**
+	 * Draws the Node and its children at their world transforms.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	@Override
+	public void draw(GL10 gl) {
+		if (gl == null) {
+			return;
+		}
+		if (mParent == null) {
+			// Catch anything moved after the update
+			updateTransform(false);
+		}
+		drawTree(gl);
+	}
+	
+	// Draws this Node, then its children, without checking transforms
+	private void drawTree(GL10 gl) {
+		if (!visible) {
+			return;
+		}
+		if (mRenderable != null) {
+			mRenderable.draw(gl, mWorldX, mWorldY, mWorldRotation, mWorldScale);
+		}
+		for (int i = 0; i < mChildCount; i++) {
+			mChildren[i].drawTree(gl);
+		}
+	}
+	
+	// Determines if this Node's Renderable or any child's needs a frame.
+	// Every child is asked so all of their changes are cleared.
+	@Override
+	boolean needsFrame() {
+		boolean needed = super.needsFrame();
+		for (int i = 0; i < mChildCount; i++) {
+			needed |= mChildren[i].needsFrame();
+		}
+		return needed;
+	}
+	
+	/**
+	 * Gets the textures of the Node's Renderable and its children again after
+	 * OpenGL is reset.
+	 */
+	@Override
+	public void updateTexture() {
+		super.updateTexture();
+		for (int i = 0; i < mChildCount; i++) {
+			mChildren[i].updateTexture();
+		}
+	}
+	
+	/**
+	 * Rebuilds the world transform of this Node and its children where their
+	 * transforms have changed. The root does this every update and draw, so
+	 * you only need to call it to read world values in between.
+	 */
+	public void updateTransforms() {
+		Node root = this;
+		while (root.mParent != null) {
+			root = root.mParent;
+		}
+		root.updateTransform(false);
+	}
+	
+	// Rebuilds the world transform if it or the parent's changed, then recurses.
+	// Returns true if any transform in the subtree was rebuilt.
+	private boolean updateTransform(boolean parentChanged) {
+		boolean changed = parentChanged || mTransformDirty ||
+			(x != mLocalX) || (y != mLocalY) ||
+			(rotation != mLocalRotation) || (scale != mLocalScale);
+		if (changed) {
+			mLocalX = x;
+			mLocalY = y;
+			mLocalRotation = rotation;
+			mLocalScale = scale;
+			mTransformDirty = false;
+			mInverseDirty = true;
+			if (mParent == null) {
+				mWorldX = x;
+				mWorldY = y;
+				mWorldRotation = rotation;
+				mWorldScale = scale;
+			} else {
+				// Uniform scale commutes with rotation, so the angles and
+				// scales simply combine
+				Matrix3 p = mParent.mWorld;
+				mWorldX = p.m00 * x + p.m01 * y + p.m02;
+				mWorldY = p.m10 * x + p.m11 * y + p.m12;
+				mWorldRotation = mParent.mWorldRotation + rotation;
+				mWorldScale = mParent.mWorldScale * scale;
+			}
+			mWorld.setTransform(mWorldX, mWorldY, mWorldRotation, mWorldScale, mWorldScale);
+			if (mRenderable != null) {
+				// Keeps the collision box of the root in world space
+				mRenderable.x = mWorldX;
+				mRenderable.y = mWorldY;
+			}
+		}
+		boolean rebuilt = changed;
+		for (int i = 0; i < mChildCount; i++) {
+			rebuilt |= mChildren[i].updateTransform(changed);
+		}
+		return rebuilt;
+	}
+	
+	/**
+	 * Forces the world transform of the Node and its children to be rebuilt.
+	 */
+	public void invalidateTransform() {
+		mTransformDirty = true;
+		invalidateBounds();
+	}
+	
+	/**
+	 * Adds a child Node. It is drawn after, and so on top of, this Node and
+	 * the children added before it. A Node already in another tree is moved.
+	 * @param child
+	 * The Node to add. It must not be this Node or one of its ancestors.
+	 */
+	public void addChild(Node child) {
+		if (child == null) {
+			Log.w("Node", "Null Node passed to addChild().");
+			return;
+		}
+		for (Node n = this; n != null; n = n.mParent) {
+			if (n == child) {
+				Log.e("Node", "A Node can't be added to itself or its children.");
+				return;
+			}
+		}
+		if (child.mParent != null) {
+			child.mParent.removeChild(child);
+		}
+		if (mChildren == null) {
+			mChildren = new Node[4];
+		} else if (mChildCount == mChildren.length) {
+			Node grown[] = new Node[mChildCount * 2];
+			System.arraycopy(mChildren, 0, grown, 0, mChildCount);
+			mChildren = grown;
+		}
+		mChildren[mChildCount++] = child;
+		child.mParent = this;
+		child.mTransformDirty = true;
+	}
+	
+	/**
+	 * Removes a child Node. Its transform becomes relative to the World.
+	 * @param child
+	 * The Node to remove.
+	 */
+	public void removeChild(Node child) {
+		for (int i = 0; i < mChildCount; i++) {
+			if (mChildren[i] == child) {
+				removeChildAt(i);
+				return;
+			}
+		}
+	}
+	
+	// Removes a child, keeping the others in drawing order
+	private void removeChildAt(int index) {
+		Node child = mChildren[index];
+		mChildCount--;
+		System.arraycopy(mChildren, index + 1, mChildren, index, mChildCount - index);
+		mChildren[mChildCount] = null;
+		child.mParent = null;
+		child.mTransformDirty = true;
+		// Rebuilt so the World sees the tree changed
+		mTransformDirty = true;
+	}
+	
+	/**
+	 * Gets the Node's parent.
+	 * @return
+	 * The parent, or null for a root Node.
+	 */
+	public Node getParent() { return mParent; }
+	
+	/**
+	 * Gets the number of children.
+	 * @return
+	 * The number of children.
+	 */
+	public int getChildCount() { return mChildCount; }
+	
+	/**
+	 * Gets a child by its position in drawing order.
+	 * @param index
+	 * The child's position. 0 is drawn first.
+	 * @return
+	 * The child.
+	 */
+	public Node getChild(int index) { return mChildren[index]; }
+	
+	/**
+	 * Gets the Node's position along the X axis in World space.
+	 * @return
+	 * The position in pixels.
+	 */
+	public float getWorldX() { return mWorldX; }
+	
+	/**
+	 * Gets the Node's position along the Y axis in World space.
+	 * @return
+	 * The position in pixels.
+	 */
+	public float getWorldY() { return mWorldY; }
+	
+	/**
+	 * Gets the Node's rotation in World space.
+	 * @return
+	 * The angle in degrees.
+	 */
+	public float getWorldRotation() { return mWorldRotation; }
+	
+	/**
+	 * Gets the Node's scale in World space.
+	 * @return
+	 * The scale. 1 = normal size.
+	 */
+	public float getWorldScale() { return mWorldScale; }
+	
+	/**
+	 * Gets the cached transform from the Node's space to World space. Don't
+	 * change it.
+	 * @return
+	 * The world Matrix.
+	 */
+	public Matrix3 getWorldMatrix() { return mWorld; }
+	
+	/**
+	 * Converts a point from the Node's space to World space.
+	 * @param point
+	 * The point to convert. It is changed in place.
+	 * @return
+	 * The converted point.
+	 */
+	public Vector2 localToWorld(Vector2 point) {
+		return mWorld.transform(point);
+	}
+	
+	/**
+	 * Converts a point from World space to the Node's space, such as a touch
+	 * to test against a part.
+	 * @param point
+	 * The point to convert. It is changed in place.
+	 * @return
+	 * The converted point.
+	 */
+	public Vector2 worldToLocal(Vector2 point) {
+		if (mInverseDirty) {
+			mInverse.set(mWorld).invert();
+			mInverseDirty = false;
+		}
+		return mInverse.transform(point);
+	}
+}
@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.game;
+
+import java.util.ArrayList;
+
+import org.robobrain.sdk.math.Intersect;
+
+/**
+ * A spatial index over Entity bounding boxes. The World rebuilds it once per
+ * frame after the Entities move, then uses it to find collision pairs and to
+ * answer area queries such as "what is under this touch" or "which enemies are
+ * within range" without scanning every Entity.
+ * <p>
+ * Each Entity is stored in the smallest node that fully contains its box, so
+ * large Entities sit near the root and small ones sink to the leaves. Nodes
+ * and items live in parallel arrays that are reused between rebuilds, so a
+ * rebuild only allocates when the tree grows.
+ * <p>
+ * Queries append to the list passed in and never clear it. Entities added
+ * during a frame are not indexed until the next rebuild, and Entities marked
+ * for removal are skipped. Queries keep no state in the tree, so Entities
+ * updated in parallel may query it at the same time, as long as each thread
+ * passes its own list.
+ * @author James Johnson
+ */
+public class QuadTree {
+	/** The most items a leaf holds before it splits. */
+	public static final int MAX_ITEMS = 8;
+
+	/** The deepest a node can be. Deeper nodes never split. */
+	public static final int MAX_DEPTH = 8;
+
+	private static final int NONE = -1;
+
+	// Items
+	private int mItemCount;
+	private Entity mEntities[];
+	private float mLeft[];
+	private float mTop[];
+	private float mRight[];
+	private float mBottom[];
+	private int mCategory[];
+	private int mMask[];
+	private int mNext[];
+
+	// Nodes. The four children of a node are stored one after another.
+	private int mNodeCount;
+	private float mNodeLeft[];
+	private float mNodeTop[];
+	private float mNodeRight[];
+	private float mNodeBottom[];
+	private int mNodeChild[];
+	private int mNodeHead[];
+	private int mNodeItems[];
+	private int mNodeDepth[];
+
+	// Results of the last pair query
+	private int mHits[];
+	private int mHitCount;
+	private int mFilteredPairs;
+
+	/**
+	 * Initializes an empty QuadTree.
+	 */
+	public QuadTree() {
+		mItemCount = 0;
+		mEntities = new Entity[64];
+		mLeft = new float[64];
+		mTop = new float[64];
+		mRight = new float[64];
+		mBottom = new float[64];
+		mCategory = new int[64];
+		mMask = new int[64];
+		mNext = new int[64];
+
+		mNodeCount = 0;
+		mNodeLeft = new float[32];
+		mNodeTop = new float[32];
+		mNodeRight = new float[32];
+		mNodeBottom = new float[32];
+		mNodeChild = new int[32];
+		mNodeHead = new int[32];
+		mNodeItems = new int[32];
+		mNodeDepth = new int[32];
+
+		mHits = new int[64];
+		mHitCount = 0;
+		mFilteredPairs = 0;
+	}
+
+	/**
+	 * Removes every Entity from the tree.
+	 */
+	public void clear() {
+		for (int i = 0; i < mItemCount; i++) {
+			mEntities[i] = null;
+		}
+		mItemCount = 0;
+		mNodeCount = 0;
+	}
+
+	/**
+	 * Throws the tree away and indexes a list of Entities from scratch.
+	 * Entities without collision bounds are left out.
+	 * @param entities
+	 * The Entities to index.
+	 */
+	public void rebuild(ArrayList<Entity> entities) {
+		clear();
+		int count = entities.size();
+		if (mEntities.length < count) {
+			growItems(count);
+		}
+
+		// Gather the boxes and the bounds of the whole tree
+		float left = Float.MAX_VALUE;
+		float top = Float.MAX_VALUE;
+		float right = -Float.MAX_VALUE;
+		float bottom = -Float.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			Entity e = entities.get(i);
+			if (!e.updateBounds()) {
+				continue;
+			}
+			int item = mItemCount++;
+			mEntities[item] = e;
+			mLeft[item] = e.mLeft;
+			mTop[item] = e.mTop;
+			mRight[item] = e.mRight;
+			mBottom[item] = e.mBottom;
+			if (e.collidable) {
+				mCategory[item] = e.collisionCategory;
+				mMask[item] = e.collisionMask;
+			} else {
+				mCategory[item] = 0;
+				mMask[item] = 0;
+			}
+			if (mLeft[item] < left) {
+				left = mLeft[item];
+			}
+			if (mTop[item] < top) {
+				top = mTop[item];
+			}
+			if (mRight[item] > right) {
+				right = mRight[item];
+			}
+			if (mBottom[item] > bottom) {
+				bottom = mBottom[item];
+			}
+		}
+		if (mItemCount == 0) {
+			return;
+		}
+
+		addNode(left, top, right, bottom, 0);
+		for (int i = 0; i < mItemCount; i++) {
+			insert(i);
+		}
+	}
+
+	/**
+	 * Finds the Entities whose boxes touch a rectangle.
+	 * @param left
+	 * The left edge of the rectangle.
+	 * @param top
+	 * The top edge of the rectangle.
+	 * @param right
+	 * The right edge of the rectangle.
+	 * @param bottom
+	 * The bottom edge of the rectangle.
+	 * @param results
+	 * The list the Entities are added to.
+	 * @return
+	 * The number of Entities added.
+	 */
+	public int queryRect(float left, float top, float right, float bottom, ArrayList<Entity> results) {
+		if (mNodeCount == 0) {
+			return 0;
+		}
+		return collectNode(0, left, top, right, bottom, 0, 0, -1.0f, results);
+	}
+
+	/**
+	 * Finds the Entities whose boxes touch a circle.
+	 * @param x
+	 * The center of the circle along the X axis.
+	 * @param y
+	 * The center of the circle along the Y axis.
+	 * @param radius
+	 * The radius of the circle.
+	 * @param results
+	 * The list the Entities are added to.
+	 * @return
+	 * The number of Entities added.
+	 */
+	public int queryRadius(float x, float y, float radius, ArrayList<Entity> results) {
+		if (mNodeCount == 0) {
+			return 0;
+		}
+		return collectNode(0, x - radius, y - radius, x + radius, y + radius, x, y, radius * radius, results);
+	}
+
+	/**
+	 * Finds the Entities whose boxes contain a point. Useful for picking
+	 * Entities with a touch.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @param results
+	 * The list the Entities are added to.
+	 * @return
+	 * The number of Entities added.
+	 */
+	public int queryPoint(float x, float y, ArrayList<Entity> results) {
+		return queryRect(x, y, x, y, results);
+	}
+
+	/**
+	 * Finds the Entity whose center is closest to a point.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @param maxDistance
+	 * Entities further away than this are ignored.
+	 * @param exclude
+	 * An Entity to skip, usually the one searching. May be null.
+	 * @return
+	 * The closest Entity, or null if none are in range.
+	 */
+	public Entity nearest(float x, float y, float maxDistance, Entity exclude) {
+		if (mNodeCount == 0) {
+			return null;
+		}
+		int item = nearestNode(0, x, y, exclude, NONE, maxDistance * maxDistance);
+		return (item == NONE) ? null : mEntities[item];
+	}
+
+	/**
+	 * Gets the number of Entities in the tree.
+	 * @return
+	 * The number of Entities.
+	 */
+	public int size() { return mItemCount; }
+
+	/**
+	 * Gets the number of nodes in the tree.
+	 * @return
+	 * The number of nodes.
+	 */
+	public int getNodeCount() { return mNodeCount; }
+
+	// Finds the items after an item that touch its box and pass its collision
+	// filter. Used by the World to find each collision pair once. Results are
+	// read with getHit().
+	int queryPairs(int item) {
+		mHitCount = 0;
+		queryNode(0, mLeft[item], mTop[item], mRight[item], mBottom[item], item);
+		return mHitCount;
+	}
+	
+	// Checks whether an item can collide with anything
+	boolean isCollidable(int item) {
+		return (mCategory[item] != 0) && (mMask[item] != 0);
+	}
+	
+	// Gets the number of touching pairs rejected by the filter since the last call
+	int takeFilteredPairs() {
+		int filtered = mFilteredPairs;
+		mFilteredPairs = 0;
+		return filtered;
+	}
+
+	// Gets the Entity stored in an item
+	Entity getItem(int item) {
+		return mEntities[item];
+	}
+
+	// Gets an item found by the last query
+	int getHit(int i) {
+		return mHits[i];
+	}
+
+	// Adds the Entities in a node and its children whose boxes touch a
+	// rectangle to a list. If r2 isn't negative the boxes must also be within
+	// sqrt(r2) of cx, cy. Returns the number added. Keeps no state in the tree,
+	// unlike queryNode().
+	private int collectNode(int node, float left, float top, float right, float bottom,
+							float cx, float cy, float r2, ArrayList<Entity> results) {
+		if ((right < mNodeLeft[node]) || (left > mNodeRight[node]) ||
+			(bottom < mNodeTop[node]) || (top > mNodeBottom[node])) {
+			return 0;
+		}
+		int added = 0;
+		for (int item = mNodeHead[node]; item != NONE; item = mNext[item]) {
+			if (mEntities[item].remove) {
+				continue;
+			}
+			if ((right < mLeft[item]) || (left > mRight[item]) ||
+				(bottom < mTop[item]) || (top > mBottom[item])) {
+				continue;
+			}
+			if ((r2 >= 0) &&
+				(Intersect.boxDistanceSquared(mLeft[item], mTop[item], mRight[item], mBottom[item], cx, cy) > r2)) {
+				continue;
+			}
+			results.add(mEntities[item]);
+			added++;
+		}
+		int child = mNodeChild[node];
+		if (child != NONE) {
+			for (int i = 0; i < 4; i++) {
+				added += collectNode(child + i, left, top, right, bottom, cx, cy, r2, results);
+			}
+		}
+		return added;
+	}
+
+	// Adds every item in a node and its children that touches a rectangle.
+	// Items numbered at or below minItem are skipped.
+	private void queryNode(int node, float left, float top, float right, float bottom, int minItem) {
+		if ((right < mNodeLeft[node]) || (left > mNodeRight[node]) ||
+			(bottom < mNodeTop[node]) || (top > mNodeBottom[node])) {
+			return;
+		}
+		for (int item = mNodeHead[node]; item != NONE; item = mNext[item]) {
+			if ((item <= minItem) || mEntities[item].remove) {
+				continue;
+			}
+			if ((right < mLeft[item]) || (left > mRight[item]) ||
+				(bottom < mTop[item]) || (top > mBottom[item])) {
+				continue;
+			}
+			if ((minItem != NONE) &&
+				(((mCategory[minItem] & mMask[item]) == 0) || ((mCategory[item] & mMask[minItem]) == 0))) {
+				if (isCollidable(item)) {
+					mFilteredPairs++;
+				}
+				continue;
+			}
+			if (mHitCount == mHits.length) {
+				int grown[] = new int[mHits.length * 2];
+				System.arraycopy(mHits, 0, grown, 0, mHitCount);
+				mHits = grown;
+			}
+			mHits[mHitCount++] = item;
+		}
+		int child = mNodeChild[node];
+		if (child != NONE) {
+			for (int i = 0; i < 4; i++) {
+				queryNode(child + i, left, top, right, bottom, minItem);
+			}
+		}
+	}
+
+	// Branch and bound search for the closest item center. Returns the
+	// closest item in a node and its children within the best distance
+	// squared so far, or best if there is none.
+	private int nearestNode(int node, float x, float y, Entity exclude, int best, float bestDistance) {
+		if (Intersect.boxDistanceSquared(mNodeLeft[node], mNodeTop[node], mNodeRight[node], mNodeBottom[node], x, y) > bestDistance) {
+			return best;
+		}
+		for (int item = mNodeHead[node]; item != NONE; item = mNext[item]) {
+			Entity e = mEntities[item];
+			if ((e == exclude) || e.remove) {
+				continue;
+			}
+			float d = centerDistanceSquared(item, x, y);
+			if (d <= bestDistance) {
+				bestDistance = d;
+				best = item;
+			}
+		}
+		int child = mNodeChild[node];
+		if (child == NONE) {
+			return best;
+		}
+
+		// Visit the child containing the point first so the bound shrinks quickly
+		float midX = (mNodeLeft[node] + mNodeRight[node]) * 0.5f;
+		float midY = (mNodeTop[node] + mNodeBottom[node]) * 0.5f;
+		int first = ((x < midX) ? 0 : 1) + ((y < midY) ? 0 : 2);
+		int found = nearestNode(child + first, x, y, exclude, best, bestDistance);
+		if (found != best) {
+			best = found;
+			bestDistance = centerDistanceSquared(best, x, y);
+		}
+		for (int i = 0; i < 4; i++) {
+			if (i == first) {
+				continue;
+			}
+			found = nearestNode(child + i, x, y, exclude, best, bestDistance);
+			if (found != best) {
+				best = found;
+				bestDistance = centerDistanceSquared(best, x, y);
+			}
+		}
+		return best;
+	}
+
+	// Distance squared from a point to the center of an item's box
+	private float centerDistanceSquared(int item, float x, float y) {
+		float dx = (mLeft[item] + mRight[item]) * 0.5f - x;
+		float dy = (mTop[item] + mBottom[item]) * 0.5f - y;
+		return dx * dx + dy * dy;
+	}
+
+	// Places an item in the deepest node that fully contains it
+	private void insert(int item) {
+		int node = 0;
+		while (true) {
+			int child = mNodeChild[node];
+			if (child == NONE) {
+				link(node, item);
+				if ((mNodeItems[node] > MAX_ITEMS) && (mNodeDepth[node] < MAX_DEPTH)) {
+					split(node);
+				}
+				return;
+			}
+			int quadrant = quadrant(node, item);
+			if (quadrant == NONE) {
+				link(node, item);
+				return;
+			}
+			node = child + quadrant;
+		}
+	}
+
+	// Gives a leaf four children and moves down the items that fit in one
+	private void split(int node) {
+		float left = mNodeLeft[node];
+		float top = mNodeTop[node];
+		float right = mNodeRight[node];
+		float bottom = mNodeBottom[node];
+		float midX = (left + right) * 0.5f;
+		float midY = (top + bottom) * 0.5f;
+		int depth = mNodeDepth[node] + 1;
+
+		int child = addNode(left, top, midX, midY, depth);
+		addNode(midX, top, right, midY, depth);
+		addNode(left, midY, midX, bottom, depth);
+		addNode(midX, midY, right, bottom, depth);
+		mNodeChild[node] = child;
+
+		int item = mNodeHead[node];
+		mNodeHead[node] = NONE;
+		mNodeItems[node] = 0;
+		while (item != NONE) {
+			int next = mNext[item];
+			int quadrant = quadrant(node, item);
+			link((quadrant == NONE) ? node : child + quadrant, item);
+			item = next;
+		}
+	}
+
+	// Finds the child quadrant that fully contains an item, or NONE
+	private int quadrant(int node, int item) {
+		float midX = (mNodeLeft[node] + mNodeRight[node]) * 0.5f;
+		float midY = (mNodeTop[node] + mNodeBottom[node]) * 0.5f;
+		int quadrant;
+		if (mRight[item] < midX) {
+			quadrant = 0;
+		} else if (mLeft[item] >= midX) {
+			quadrant = 1;
+		} else {
+			return NONE;
+		}
+		if (mBottom[item] < midY) {
+			return quadrant;
+		} else if (mTop[item] >= midY) {
+			return quadrant + 2;
+		}
+		return NONE;
+	}
+
+	// Pushes an item onto a node's list
+	private void link(int node, int item) {
+		mNext[item] = mNodeHead[node];
+		mNodeHead[node] = item;
+		mNodeItems[node]++;
+	}
+
+	// Adds an empty leaf and returns its index
+	private int addNode(float left, float top, float right, float bottom, int depth) {
+		if (mNodeCount == mNodeLeft.length) {
+			growNodes();
+		}
+		int node = mNodeCount++;
+		mNodeLeft[node] = left;
+		mNodeTop[node] = top;
+		mNodeRight[node] = right;
+		mNodeBottom[node] = bottom;
+		mNodeChild[node] = NONE;
+		mNodeHead[node] = NONE;
+		mNodeItems[node] = 0;
+		mNodeDepth[node] = depth;
+		return node;
+	}
+
+	private void growItems(int count) {
+		int size = Math.max(count, mEntities.length * 2);
+		mEntities = new Entity[size];
+		mLeft = new float[size];
+		mTop = new float[size];
+		mRight = new float[size];
+		mBottom = new float[size];
+		mCategory = new int[size];
+		mMask = new int[size];
+		mNext = new int[size];
+	}
+
+	private void growNodes() {
+		int size = mNodeLeft.length * 2;
+		mNodeLeft = grow(mNodeLeft, size);
+		mNodeTop = grow(mNodeTop, size);
+		mNodeRight = grow(mNodeRight, size);
+		mNodeBottom = grow(mNodeBottom, size);
+		mNodeChild = grow(mNodeChild, size);
+		mNodeHead = grow(mNodeHead, size);
+		mNodeItems = grow(mNodeItems, size);
+		mNodeDepth = grow(mNodeDepth, size);
+	}
+
+	private static float[] grow(float[] array, int size) {
+		float grown[] = new float[size];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static int[] grow(int[] array, int size) {
+		int grown[] = new int[size];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import javax.microedition.khronos.opengles.GL10;
 
 import org.robobrain.sdk.GLRenderer;
+import org.robobrain.sdk.math.Intersect;
 
 import android.util.Log;
 
@@ -35,6 +36,10 @@ import android.util.Log;
  *
  */
 public class World extends Entity {
+	// How far in pixels a swept box may start inside a wall and still count
+	// as resting against it
+	private static final float CONTACT_SLOP = 0.5f;
+	
 	protected static World sInstance;
 	
 	/**
@@ -42,11 +47,52 @@ public class World extends Entity {
 	 */
 	protected ArrayList<Entity> mEntities;
 	
+	/**
+	 * ComponentStores updated by the World before the Entities.
+	 */
+	protected ArrayList<ComponentStore> mStores;
+	
+	/**
+	 * Splits Entity and ComponentSystem updates across threads. Optional.
+	 */
+	protected JobSystem mJobs;
+	
+	/**
+	 * Spatial index of the Entities, rebuilt every frame after they move.
+	 */
+	protected QuadTree mIndex;
+	
+	private Entity mParallel[];
+	private Entity mArray[];
+	private boolean mContinuous;
+	private ArrayList<Entity> mSweepResults;
+	private float mNormal[];
+	private float mHitNormal[];
+	private int mImpacts;
+	private int mTestedPairs;
+	private int mFilteredPairs;
+	private int mCollisions;
+	private UpdateJob mUpdateJob;
+	private boolean mChanged;
+	private boolean mListChanged;
+	
 	/**
 	 * Initializes the World.
 	 */
 	public World() {
 		mEntities = new ArrayList<Entity>();
+		mStores = new ArrayList<ComponentStore>();
+		mJobs = null;
+		mParallel = new Entity[0];
+		mUpdateJob = new UpdateJob();
+		mIndex = new QuadTree();
+		mArray = new Entity[0];
+		mContinuous = false;
+		mSweepResults = new ArrayList<Entity>();
+		mNormal = new float[2];
+		mHitNormal = new float[2];
+		mChanged = true;
+		mListChanged = false;
 		sInstance = this;
 	}
 	
@@ -57,26 +103,55 @@ public class World extends Entity {
 	 */
 	@Override
 	public void update(long time) {
+		int stores = mStores.size();
+		for (int i = 0; i < stores; i++) {
+			mStores.get(i).update(time, mJobs);
+		}
+		
 		int count = mEntities.size();
+		refreshBounds(count);
+		if (mJobs != null) {
+			updateParallel(time, count);
+		} else {
+			for (int i = 0; i < count; i++) {
+				mEntities.get(i).update(time);
+			}
+		}
+		
 		for (int i = 0; i < count; i++) {
 			Entity e = mEntities.get(i);
-			e.update(time);
 			if ((e.getX() < 0) || (e.getX() > GLRenderer.getWidth()) ||
 				(e.getY() < 0) || (e.getY() > GLRenderer.getHeight())) {
 				e.onBounds(GLRenderer.getWidth(), GLRenderer.getHeight());
 			}
 		}
 		
-		for (int i = 0; i < count - 1; i++) {
-			for (int j = i + 1; j < count; j++) {
-				Entity s = mEntities.get(i);
-				Entity r = mEntities.get(j);
+		// Only test the pairs whose boxes touch in the index and whose
+		// categories and masks accept each other
+		mIndex.rebuild(mEntities);
+		if (mContinuous && resolveImpacts(count)) {
+			mIndex.rebuild(mEntities);
+		}
+		mTestedPairs = 0;
+		mCollisions = 0;
+		int items = mIndex.size();
+		for (int i = 0; i < items; i++) {
+			if (!mIndex.isCollidable(i)) {
+				continue;
+			}
+			Entity s = mIndex.getItem(i);
+			int hits = mIndex.queryPairs(i);
+			mTestedPairs += hits;
+			for (int j = 0; j < hits; j++) {
+				Entity r = mIndex.getItem(mIndex.getHit(j));
 				if (s.hasCollided(r)) {
 					s.onCollision(r);
 					r.onCollision(s);
+					mCollisions++;
 				}
 			}
 		}
+		mFilteredPairs = mIndex.takeFilteredPairs();
 		
 		// Remove dead entities
 		for (int i = 0; i < mEntities.size(); i++) { 
@@ -85,6 +160,188 @@ public class World extends Entity {
 				removeEntity(e);
 			}
 		}
+		
+		// Note whether anything on screen moved
+		boolean changed = mListChanged;
+		count = mEntities.size();
+		for (int i = 0; i < count; i++) {
+			Entity e = mEntities.get(i);
+			changed |= e.needsFrame() | e.mBoundsChanged;
+			e.mBoundsChanged = false;
+		}
+		mChanged = changed;
+		mListChanged = false;
+	}
+	
+	// Refreshes every Entity's cached box before any of them move, so the
+	// updates, parallel or not, only read it. Also remembers where each
+	// continuous Entity's box was.
+	private void refreshBounds(int count) {
+		for (int i = 0; i < count; i++) {
+			Entity e = mEntities.get(i);
+			boolean bounds = e.updateBounds();
+			if (!mContinuous || !e.continuous) {
+				continue;
+			}
+			e.mHasPrev = bounds;
+			if (e.mHasPrev) {
+				e.mPrevX = (e.mLeft + e.mRight) * 0.5f;
+				e.mPrevY = (e.mTop + e.mBottom) * 0.5f;
+			}
+		}
+	}
+	
+	// Sweeps each continuous Entity from its last position to its new one and
+	// pulls it back to the first collidable Entity in the way. Returns true if
+	// any Entity was moved.
+	private boolean resolveImpacts(int count) {
+		mImpacts = 0;
+		for (int i = 0; i < count; i++) {
+			Entity e = mEntities.get(i);
+			if (!e.continuous || !e.mHasPrev || !e.collidable || e.remove || !e.updateBounds()) {
+				continue;
+			}
+			float hw = (e.mRight - e.mLeft) * 0.5f;
+			float hh = (e.mBottom - e.mTop) * 0.5f;
+			float dx = (e.mLeft + hw) - e.mPrevX;
+			float dy = (e.mTop + hh) - e.mPrevY;
+			if ((dx == 0) && (dy == 0)) {
+				continue;
+			}
+			
+			// Everything the box passed over this frame
+			float left = Math.min(e.mLeft, e.mPrevX - hw);
+			float top = Math.min(e.mTop, e.mPrevY - hh);
+			float right = Math.max(e.mRight, e.mPrevX + hw);
+			float bottom = Math.max(e.mBottom, e.mPrevY + hh);
+			mSweepResults.clear();
+			mIndex.queryRect(left, top, right, bottom, mSweepResults);
+			
+			float first = 1.0f;
+			Entity hit = null;
+			mHitNormal[0] = 0;
+			mHitNormal[1] = 0;
+			int results = mSweepResults.size();
+			for (int j = 0; j < results; j++) {
+				Entity r = mSweepResults.get(j);
+				if ((r == e) || !r.collidable ||
+					((e.collisionCategory & r.collisionMask) == 0) ||
+					((r.collisionCategory & e.collisionMask) == 0)) {
+					continue;
+				}
+				float t = Intersect.sweep(e.mPrevX - hw, e.mPrevY - hh, e.mPrevX + hw, e.mPrevY + hh, dx, dy,
+										  r.mLeft, r.mTop, r.mRight, r.mBottom, mNormal);
+				if ((t == 0) && !contactNormal(e.mPrevX, e.mPrevY, hw, hh, dx, dy, r, mNormal)) {
+					// Overlapping at the start is left to the normal collision test
+					continue;
+				}
+				if ((t >= 0) && (t < first)) {
+					first = t;
+					hit = r;
+					mHitNormal[0] = mNormal[0];
+					mHitNormal[1] = mNormal[1];
+				}
+			}
+			mSweepResults.clear();
+			if (hit == null) {
+				continue;
+			}
+			
+			e.offset(dx * (first - 1.0f), dy * (first - 1.0f));
+			e.updateBounds();
+			stopAlong(e, mHitNormal[0], mHitNormal[1]);
+			mImpacts++;
+			
+			// Rounding can leave a sliver between the boxes
+			if (!e.hasCollided(hit)) {
+				e.onCollision(hit);
+				hit.onCollision(e);
+			}
+		}
+		return (mImpacts > 0);
+	}
+	
+	// Finds the face of r a box centered on x, y is resting against and moving
+	// into. Boxes that ended the last frame flush against a wall, or a rounding
+	// sliver into it, sweep from time 0 and would otherwise pass through.
+	// Returns false if the box is deeper in than that or moving away.
+	private static boolean contactNormal(float x, float y, float hw, float hh, float dx, float dy,
+										 Entity r, float normal[]) {
+		// How far the center is inside each face of r grown by the box
+		float left = x - (r.mLeft - hw);
+		float right = (r.mRight + hw) - x;
+		float top = y - (r.mTop - hh);
+		float bottom = (r.mBottom + hh) - y;
+		float depth = Math.min(Math.min(left, right), Math.min(top, bottom));
+		if ((depth < 0) || (depth > CONTACT_SLOP)) {
+			return false;
+		}
+		normal[0] = 0;
+		normal[1] = 0;
+		if (depth == left) {
+			normal[0] = -1.0f;
+		} else if (depth == right) {
+			normal[0] = 1.0f;
+		} else if (depth == top) {
+			normal[1] = -1.0f;
+		} else {
+			normal[1] = 1.0f;
+		}
+		return (dx * normal[0] + dy * normal[1]) < 0;
+	}
+	
+	// Stops an Entity moving into a face so it doesn't push into it again next
+	// frame. Movement along the face is kept.
+	private static void stopAlong(Entity e, float nx, float ny) {
+		if (nx * e.dx + ny * e.dy < 0) {
+			if (nx != 0) {
+				e.dx = 0;
+			} else {
+				e.dy = 0;
+			}
+		}
+		if (nx * e.vx + ny * e.vy < 0) {
+			if (nx != 0) {
+				e.vx = 0;
+			} else {
+				e.vy = 0;
+			}
+		}
+	}
+	
+	// Updates the parallel safe Entities across the JobSystem, then the rest
+	private void updateParallel(long time, int count) {
+		if (mParallel.length < count) {
+			mParallel = new Entity[count * 2];
+		}
+		int parallel = 0;
+		for (int i = 0; i < count; i++) {
+			Entity e = mEntities.get(i);
+			if (e.isParallelSafe()) {
+				mParallel[parallel++] = e;
+			} else {
+				e.update(time);
+			}
+		}
+		if (parallel > 0) {
+			mUpdateJob.time = time;
+			mJobs.parallelFor(parallel, mUpdateJob);
+			for (int i = 0; i < parallel; i++) {
+				mParallel[i] = null;
+			}
+		}
+	}
+	
+	// Updates a range of the parallel safe Entities
+	private class UpdateJob extends JobSystem.Job {
+		long time;
+		
+		@Override
+		public void run(int start, int end) {
+			for (int i = start; i < end; i++) {
+				mParallel[i].update(time);
+			}
+		}
 	}
 	
 	/**
@@ -121,6 +378,7 @@ public class World extends Entity {
 			return;
 		}
 		mEntities.add(entity);
+		mListChanged = true;
 	}
 	
 	public void addEntityAtBottom(Entity entity) {
@@ -129,6 +387,7 @@ public class World extends Entity {
 			return;
 		}
 		mEntities.add(0, entity);
+		mListChanged = true;
 	}
 	
 	
@@ -141,11 +400,59 @@ public class World extends Entity {
 		if (entity == null) {
 			return;
 		}
-		mEntities.remove(entity);
+		if (entity.mComponentStore != null) {
+			entity.mComponentStore.detach(entity);
+		}
+		if (mEntities.remove(entity)) {
+			mListChanged = true;
+		}
+	}
+	
+	/**
+	 * Sets the JobSystem used to update parallel safe Entities and
+	 * ComponentSystems. Collision tests and rendering always run after every
+	 * update has finished.
+	 * @param jobs
+	 * The JobSystem to use, or null to update everything on the game thread.
+	 */
+	public void setJobSystem(JobSystem jobs) {
+		mJobs = jobs;
+	}
+	
+	/**
+	 * Gets the JobSystem used by the World.
+	 * @return
+	 * The JobSystem, or null if updates run on the game thread.
+	 */
+	public JobSystem getJobSystem() { return mJobs; }
+	
+	/**
+	 * Registers a ComponentStore with the World. The World updates it every frame
+	 * before updating the Entities.
+	 * @param store
+	 * The ComponentStore to update.
+	 */
+	public void addComponentStore(ComponentStore store) {
+		if (store == null) {
+			Log.w("World", "Null ComponentStore passed to addComponentStore().");
+			return;
+		}
+		mStores.add(store);
 	}
 	
 	/**
-	 * Converts the World's internal list of Entities into an array.
+	 * Stops updating a ComponentStore.
+	 * @param store
+	 * The ComponentStore to remove.
+	 */
+	public void removeComponentStore(ComponentStore store) {
+		mStores.remove(store);
+	}
+	
+	/**
+	 * Converts the World's internal list of Entities into an array. The same
+	 * array is reused until the number of Entities changes, so don't keep it
+	 * between frames.
 	 * @return
 	 * An array of Entities.
 	 */
@@ -153,11 +460,166 @@ public class World extends Entity {
 		if (mEntities == null) {
 			return null;
 		}
-		Entity[] ents = new Entity[mEntities.size()];
-		ents = mEntities.toArray(ents);
-		return ents;
+		int count = mEntities.size();
+		if (mArray.length != count) {
+			mArray = new Entity[count];
+		}
+		return mEntities.toArray(mArray);
+	}
+	
+	/**
+	 * Gets the number of Entities in the World.
+	 * @return
+	 * The number of Entities.
+	 */
+	public int getEntityCount() { return mEntities.size(); }
+	
+	/**
+	 * Gets an Entity by its position in the World's list. Use with
+	 * getEntityCount() to walk the Entities without allocating.
+	 * @param index
+	 * The Entity's position in the list. 0 is drawn first.
+	 * @return
+	 * The Entity.
+	 */
+	public Entity getEntity(int index) { return mEntities.get(index); }
+	
+	/**
+	 * Finds the Entities whose collision rectangles touch a rectangle.
+	 * @param left
+	 * The left edge of the rectangle.
+	 * @param top
+	 * The top edge of the rectangle.
+	 * @param right
+	 * The right edge of the rectangle.
+	 * @param bottom
+	 * The bottom edge of the rectangle.
+	 * @param results
+	 * The list the Entities are added to. It is not cleared first.
+	 * @return
+	 * The number of Entities added.
+	 */
+	public int queryRect(float left, float top, float right, float bottom, ArrayList<Entity> results) {
+		return mIndex.queryRect(left, top, right, bottom, results);
+	}
+	
+	/**
+	 * Finds the Entities whose collision rectangles touch a circle.
+	 * @param x
+	 * The center of the circle along the X axis.
+	 * @param y
+	 * The center of the circle along the Y axis.
+	 * @param radius
+	 * The radius of the circle.
+	 * @param results
+	 * The list the Entities are added to. It is not cleared first.
+	 * @return
+	 * The number of Entities added.
+	 */
+	public int queryRadius(float x, float y, float radius, ArrayList<Entity> results) {
+		return mIndex.queryRadius(x, y, radius, results);
+	}
+	
+	/**
+	 * Finds the Entities under a point, such as a touch.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @param results
+	 * The list the Entities are added to. It is not cleared first.
+	 * @return
+	 * The number of Entities added.
+	 */
+	public int queryPoint(float x, float y, ArrayList<Entity> results) {
+		return mIndex.queryPoint(x, y, results);
 	}
 	
+	/**
+	 * Finds the Entity closest to a point.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @param maxDistance
+	 * Entities further away than this are ignored.
+	 * @param exclude
+	 * An Entity to skip, usually the one searching. May be null.
+	 * @return
+	 * The closest Entity, or null if none are in range.
+	 */
+	public Entity nearest(float x, float y, float maxDistance, Entity exclude) {
+		return mIndex.nearest(x, y, maxDistance, exclude);
+	}
+	
+	/**
+	 * Turns continuous collision on or off. When on, Entities with continuous
+	 * set are swept along their movement each frame and stopped at the first
+	 * collidable Entity they would have passed through.
+	 * @param enabled
+	 * true to sweep continuous Entities. Off by default.
+	 */
+	public void setContinuousCollision(boolean enabled) {
+		mContinuous = enabled;
+	}
+	
+	/**
+	 * Determines if continuous collision is on.
+	 * @return
+	 * true if continuous Entities are swept.
+	 */
+	public boolean getContinuousCollision() { return mContinuous; }
+	
+	/**
+	 * Gets the number of continuous Entities stopped by an impact during the
+	 * last update.
+	 * @return
+	 * The number of impacts.
+	 */
+	public int getImpactCount() { return mImpacts; }
+	
+	/**
+	 * Gets the number of Entity pairs tested for collision during the last update.
+	 * @return
+	 * The number of pairs passed to hasCollided().
+	 */
+	public int getTestedPairs() { return mTestedPairs; }
+	
+	/**
+	 * Gets the number of Entity pairs whose boxes touched during the last update
+	 * but were skipped because of their collision categories and masks.
+	 * Entities that are not collidable are never counted.
+	 * @return
+	 * The number of pairs filtered out.
+	 */
+	public int getFilteredPairs() { return mFilteredPairs; }
+	
+	/**
+	 * Gets the number of collisions reported during the last update.
+	 * @return
+	 * The number of pairs that collided.
+	 */
+	public int getCollisionCount() { return mCollisions; }
+	
+	/**
+	 * Determines if the last update changed anything on screen: an Entity
+	 * moved, turned, was scaled or resized, a Renderable is animating, such as
+	 * a playing Sprite or a ParticleEmitter with particles alive, a Renderable
+	 * changed in a way its size doesn't show, such as new text or a new
+	 * Sprite frame, or Entities were added or removed. Used by the Engine to decide
+	 * whether to draw another frame when rendering on demand.
+	 * @return
+	 * true if the World changed.
+	 */
+	public boolean hasChanged() { return mChanged || mListChanged; }
+	
+	/**
+	 * Gets the World's spatial index. It is rebuilt at the end of every update.
+	 * @return
+	 * The QuadTree holding the Entities.
+	 */
+	public QuadTree getSpatialIndex() { return mIndex; }
+	
 	/**
 	 * Gets an instance of the World.
 	 * @return
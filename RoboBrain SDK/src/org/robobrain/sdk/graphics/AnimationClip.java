@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import android.util.Log;
+
+/**
+ * One animation from a sprite sheet: a list of frames, how long each is
+ * shown and what happens at the end. The texture coordinates of every frame
+ * are worked out once when the clip is made, so changing frames is just a
+ * table lookup. A clip holds no playback state, so one clip can be shared by
+ * every Sprite that plays it. Give a clip to Sprite.play().
+ * <p>
+ * Events can be attached to frames with setEvent(). A Sprite's
+ * AnimationListener is told when a frame with an event is shown, and when a
+ * MODE_ONCE clip finishes.
+ * @author James Johnson
+ */
+public class AnimationClip {
+	/** Starts again from the first frame after the last one. */
+	public static final int MODE_LOOP = 0;
+
+	/** Plays forwards then backwards, forever. */
+	public static final int MODE_PING_PONG = 1;
+
+	/** Stops on the last frame. */
+	public static final int MODE_ONCE = 2;
+
+	/** The event value of a frame without an event. */
+	public static final int NO_EVENT = 0;
+
+	/** Sent to the AnimationListener when a MODE_ONCE clip finishes. */
+	public static final int EVENT_END = -1;
+
+	// Per frame tables
+	float mUVs[];        // left, top, right, bottom per frame. Null for SpriteSheet clips
+	int mFrames[];       // SpriteSheet frame indices. Null for grid clips
+	int mDurations[];
+	int mEvents[];
+
+	SpriteSheet mSheet;
+
+	private int mFrameCount;
+	private int mMode;
+	private int mLength;
+
+	/**
+	 * Initializes a clip from consecutive frames of a sprite sheet. Frames
+	 * are numbered from 0, left to right then top to bottom.
+	 * @param texture
+	 * The sprite sheet.
+	 * @param frameWidth
+	 * The width of one frame in pixels.
+	 * @param frameHeight
+	 * The height of one frame in pixels.
+	 * @param firstFrame
+	 * The first frame of the clip.
+	 * @param frameCount
+	 * The number of frames in the clip.
+	 * @param duration
+	 * How long each frame is shown in milliseconds.
+	 * @param mode
+	 * MODE_LOOP, MODE_PING_PONG or MODE_ONCE.
+	 */
+	public AnimationClip(Texture texture, int frameWidth, int frameHeight, int firstFrame, int frameCount, int duration, int mode) {
+		if (frameCount < 1) {
+			frameCount = 1;
+		}
+		int frames[] = new int[frameCount];
+		int durations[] = new int[frameCount];
+		for (int i = 0; i < frameCount; i++) {
+			frames[i] = firstFrame + i;
+			durations[i] = duration;
+		}
+		initGrid(texture, frameWidth, frameHeight, frames, durations, mode);
+	}
+
+	/**
+	 * Initializes a clip from any frames of a sprite sheet, each with its
+	 * own duration. Frames may be repeated.
+	 * @param texture
+	 * The sprite sheet.
+	 * @param frameWidth
+	 * The width of one frame in pixels.
+	 * @param frameHeight
+	 * The height of one frame in pixels.
+	 * @param frames
+	 * The sheet frames to show, in order.
+	 * @param durations
+	 * How long each frame is shown in milliseconds. Must be the same length
+	 * as frames.
+	 * @param mode
+	 * MODE_LOOP, MODE_PING_PONG or MODE_ONCE.
+	 */
+	public AnimationClip(Texture texture, int frameWidth, int frameHeight, int[] frames, int[] durations, int mode) {
+		initGrid(texture, frameWidth, frameHeight, frames, durations, mode);
+	}
+
+	/**
+	 * Initializes a clip from texture coordinates worked out elsewhere, such
+	 * as a sprite sheet descriptor.
+	 * @param uvs
+	 * The left, top, right and bottom texture coordinates of each frame.
+	 * @param durations
+	 * How long each frame is shown in milliseconds. One per frame.
+	 * @param mode
+	 * MODE_LOOP, MODE_PING_PONG or MODE_ONCE.
+	 */
+	public AnimationClip(float[] uvs, int[] durations, int mode) {
+		if ((uvs == null) || (durations == null) || (uvs.length < durations.length * 4) || (durations.length == 0)) {
+			Log.e("AnimationClip", "Texture coordinates don't match the frame durations.");
+			init(new float[] { 0, 0, 1, 1 }, new int[] { 1 }, mode);
+			return;
+		}
+		float copy[] = new float[durations.length * 4];
+		System.arraycopy(uvs, 0, copy, 0, copy.length);
+		init(copy, durations.clone(), mode);
+	}
+
+	/**
+	 * Initializes a clip from named frames of a SpriteSheet. The Sprite shows
+	 * each frame with its trimmed quad and pivot.
+	 * @param sheet
+	 * The sprite sheet.
+	 * @param frames
+	 * The sheet frames to show, in order. See SpriteSheet.getFrameIndex().
+	 * @param durations
+	 * How long each frame is shown in milliseconds. Must be the same length
+	 * as frames.
+	 * @param mode
+	 * MODE_LOOP, MODE_PING_PONG or MODE_ONCE.
+	 */
+	public AnimationClip(SpriteSheet sheet, int[] frames, int[] durations, int mode) {
+		initSheet(sheet, frames, durations, mode);
+	}
+
+	/**
+	 * Initializes a clip from every SpriteSheet frame whose name starts with
+	 * a prefix, in name order.
+	 * @param sheet
+	 * The sprite sheet.
+	 * @param prefix
+	 * The start of the frame names, e.g. "walk_".
+	 * @param duration
+	 * How long each frame is shown in milliseconds.
+	 * @param mode
+	 * MODE_LOOP, MODE_PING_PONG or MODE_ONCE.
+	 */
+	public AnimationClip(SpriteSheet sheet, String prefix, int duration, int mode) {
+		int frames[] = (sheet == null) ? null : sheet.getFrames(prefix);
+		int durations[] = null;
+		if (frames != null) {
+			durations = new int[frames.length];
+			for (int i = 0; i < durations.length; i++) {
+				durations[i] = duration;
+			}
+		}
+		initSheet(sheet, frames, durations, mode);
+	}
+
+	/**
+	 * Attaches an event to a frame. The Sprite's AnimationListener is told
+	 * each time the frame is shown. Set events up before the clip is played.
+	 * @param frame
+	 * The frame of the clip, from 0.
+	 * @param event
+	 * Any positive number, or NO_EVENT to remove the event.
+	 */
+	public void setEvent(int frame, int event) {
+		if ((frame < 0) || (frame >= mFrameCount)) {
+			Log.w("AnimationClip", "Invalid frame passed to setEvent().");
+			return;
+		}
+		mEvents[frame] = event;
+	}
+
+	/**
+	 * Gets the event attached to a frame.
+	 * @param frame
+	 * The frame of the clip, from 0.
+	 * @return
+	 * The event, or NO_EVENT.
+	 */
+	public int getEvent(int frame) { return mEvents[frame]; }
+
+	/**
+	 * Gets the number of frames.
+	 * @return
+	 * The number of frames.
+	 */
+	public int getFrameCount() { return mFrameCount; }
+
+	/**
+	 * Gets how long a frame is shown.
+	 * @param frame
+	 * The frame of the clip, from 0.
+	 * @return
+	 * The duration in milliseconds.
+	 */
+	public int getDuration(int frame) { return mDurations[frame]; }
+
+	/**
+	 * Gets how long it takes to play every frame once.
+	 * @return
+	 * The length in milliseconds.
+	 */
+	public int getLength() { return mLength; }
+
+	/**
+	 * Gets what happens after the last frame.
+	 * @return
+	 * MODE_LOOP, MODE_PING_PONG or MODE_ONCE.
+	 */
+	public int getMode() { return mMode; }
+
+	/**
+	 * Gets the SpriteSheet the clip's frames come from.
+	 * @return
+	 * The sheet, or null if the clip was made from a grid.
+	 */
+	public SpriteSheet getSheet() { return mSheet; }
+
+	private void initSheet(SpriteSheet sheet, int[] frames, int[] durations, int mode) {
+		if ((sheet == null) || (frames == null) || (durations == null) || (frames.length != durations.length) ||
+			(frames.length == 0)) {
+			Log.e("AnimationClip", "Invalid sprite sheet or frame list.");
+			init(new float[] { 0, 0, 1, 1 }, new int[] { 1 }, mode);
+			return;
+		}
+		for (int i = 0; i < frames.length; i++) {
+			if ((frames[i] < 0) || (frames[i] >= sheet.getFrameCount())) {
+				Log.e("AnimationClip", "Frame " + frames[i] + " is not in the sprite sheet.");
+				init(new float[] { 0, 0, 1, 1 }, new int[] { 1 }, mode);
+				return;
+			}
+		}
+		mSheet = sheet;
+		mFrames = frames.clone();
+		init(null, durations.clone(), mode);
+	}
+
+	private void initGrid(Texture texture, int frameWidth, int frameHeight, int[] frames, int[] durations, int mode) {
+		if ((texture == null) || (frames == null) || (durations == null) || (frames.length != durations.length) ||
+			(frames.length == 0) || (frameWidth < 1) || (frameHeight < 1)) {
+			Log.e("AnimationClip", "Invalid sprite sheet or frame list.");
+			init(new float[] { 0, 0, 1, 1 }, new int[] { 1 }, mode);
+			return;
+		}
+		int columns = Math.max(texture.getWidth() / frameWidth, 1);
+		float colUnit = (float)frameWidth / (float)texture.getWidth();
+		float rowUnit = (float)frameHeight / (float)texture.getHeight();
+		float uvs[] = new float[frames.length * 4];
+		for (int i = 0; i < frames.length; i++) {
+			int column = frames[i] % columns;
+			int row = frames[i] / columns;
+			uvs[i * 4] = column * colUnit;
+			uvs[i * 4 + 1] = row * rowUnit;
+			uvs[i * 4 + 2] = (column + 1) * colUnit;
+			uvs[i * 4 + 3] = (row + 1) * rowUnit;
+		}
+		init(uvs, durations.clone(), mode);
+	}
+
+	private void init(float[] uvs, int[] durations, int mode) {
+		if ((mode < MODE_LOOP) || (mode > MODE_ONCE)) {
+			mode = MODE_LOOP;
+		}
+		mUVs = uvs;
+		mDurations = durations;
+		mFrameCount = durations.length;
+		mEvents = new int[mFrameCount];
+		mMode = mode;
+		mLength = 0;
+		for (int i = 0; i < mFrameCount; i++) {
+			if (mDurations[i] < 1) {
+				mDurations[i] = 1;
+			}
+			mLength += mDurations[i];
+		}
+	}
+}
@@ -28,49 +28,126 @@ import java.nio.ShortBuffer;
 import javax.microedition.khronos.opengles.GL10;
 
 import org.robobrain.sdk.GLRenderer;
-import org.robobrain.sdk.util.StringUtils;
 
 import android.util.Log;
 
 /**
- * Draws text to the screen via OpenGL
+ * Draws text to the screen via OpenGL. Glyph sizes, spacing and kerning come
+ * from a FontDescriptor, which is either loaded from a BMFont .fnt file or
+ * made for the old 16x16 grid textures, or come from a GlyphAtlas that draws
+ * them from a TrueType font as they are needed.
+ * <p>
+ * Text is turned into a TextMesh holding a quad for each character and drawn
+ * with a single glDrawElements() call per texture page. Text that doesn't
+ * change every frame should build its mesh once with build() and draw it with
+ * draw(), which is what TextSprite does.
  * @author James Johnson
  *
  */
 public class BitmapFont {
 	/** Size of each vertext in bytes */
-	public static final int VERTEX_SIZE = (2 + 2) * 4; // Float x2 + Short x2
-	
+	public static final int VERTEX_SIZE = (2 + 2) * 4; // Float x2 + Float x2
+
 	/** The width or height of one character in Textures coords */
 	public static final float TEXTURE_UNIT = 1.0f / 16.0f;
-	
-	private Texture mTexture;
+
+	/** The number of floats used by one character. (4 vertices) */
+	public static final int FLOATS_PER_CHAR = 4 * 4;
+
+	/** The most characters that can be drawn with one call. */
+	public static final int MAX_CHARS = 16383;
+
+	private FontDescriptor mDescriptor;
+	private Texture mPages[];
+	private GlyphAtlas mAtlas;
 	private Color mColor;
-	private FloatBuffer mVertices;
+	private TextMesh mMesh;
 	private ShortBuffer mIndices;
-	private int mWidth;
-	private int mHeight;
-	
-	/** 
+	private float mScratch[];
+	private char mChars[];
+	private TextLayout mLayout;
+	private int mPageNext[];
+
+	/**
 	 * Initializes the Bitmap Font
 	 * @param texture
-	 * The Texture containing the font. It must be 16x16 units square and 
+	 * The Texture containing the font. It must be 16x16 units square and
 	 * contain the first UTF-8 codepage in order.
 	 */
-	public BitmapFont(Texture texture) {	
+	public BitmapFont(Texture texture) {
 		if (texture == null) {
 			return;
 		}
-		mTexture = texture;
-		mVertices = null;
+		init(FontDescriptor.createGrid(texture.getWidth(), texture.getHeight()), new Texture[] { texture });
+	}
+
+	/**
+	 * Initializes the Bitmap Font from a BMFont descriptor with one page.
+	 * @param descriptor
+	 * The font's descriptor.
+	 * @param texture
+	 * The Texture the descriptor was made for.
+	 */
+	public BitmapFont(FontDescriptor descriptor, Texture texture) {
+		if ((descriptor == null) || (texture == null)) {
+			return;
+		}
+		init(descriptor, new Texture[] { texture });
+	}
+
+	/**
+	 * Initializes the Bitmap Font from a BMFont descriptor.
+	 * @param descriptor
+	 * The font's descriptor.
+	 * @param pages
+	 * One Texture for each of the descriptor's pages, in order. The file
+	 * names are available from descriptor.getPageFile().
+	 */
+	public BitmapFont(FontDescriptor descriptor, Texture[] pages) {
+		if ((descriptor == null) || (pages == null)) {
+			return;
+		}
+		if (pages.length < descriptor.getPageCount()) {
+			Log.e("BitmapFont", "Font needs " + descriptor.getPageCount() + " pages but only " + pages.length + " were given.");
+			return;
+		}
+		for (int i = 0; i < descriptor.getPageCount(); i++) {
+			if (pages[i] == null) {
+				Log.e("BitmapFont", "Font page " + i + " is null.");
+				return;
+			}
+		}
+		init(descriptor, pages.clone());
+	}
+
+	/**
+	 * Initializes the Bitmap Font from a GlyphAtlas. Glyphs are drawn into
+	 * the atlas the first time they are used.
+	 * @param atlas
+	 * The atlas holding the glyphs.
+	 */
+	public BitmapFont(GlyphAtlas atlas) {
+		if ((atlas == null) || (atlas.getDescriptor() == null)) {
+			return;
+		}
+		init(atlas.getDescriptor(), null);
+		mAtlas = atlas;
+	}
+
+	private void init(FontDescriptor descriptor, Texture[] pages) {
+		mDescriptor = descriptor;
+		mPages = pages;
+		mMesh = new TextMesh();
 		mIndices = null;
-		mWidth = texture.getWidth() / 16;
-		mHeight = texture.getHeight() / 16;
-		mColor = Color.WHITE;
+		mScratch = null;
+		mChars = new char[16];
+		mLayout = new TextLayout();
+		mPageNext = new int[descriptor.getPageCount()];
+		mColor = Color.WHITE.clone();
 	}
-	
+
 	/**
-	 * Draws one character on the screen. Please note that the origin is at 
+	 * Draws one character on the screen. Please note that the origin is at
 	 * the characer's top left corner.
 	 * @param gl
 	 * A valid OpenGL ES 1.0 object.
@@ -82,54 +159,20 @@ public class BitmapFont {
 	 * The position of the character on the Y-Axis.
 	 */
 	public void drawChar(GL10 gl, char c, float x, float y) {
-		if (mTexture == null) {
-			return;
-		}
-		int left = (int)c % 16;
-		int right = left + 1;
-		int top = (int)c / 16;
-		int bottom = top + 1;
-		
-		float l = ((float)left) * TEXTURE_UNIT;
-		float r = ((float)right) * TEXTURE_UNIT;
-		float t = ((float)top) * TEXTURE_UNIT;
-		float b = ((float)bottom) * TEXTURE_UNIT;
-		
-		float[] verts = { 
-			0, 0, l, t,
-			mWidth, 0, r, t,
-			mWidth, mHeight, r, b,
-			0, mHeight, l, b
-		};
-		
-		// Vertices
-		ByteBuffer buf = ByteBuffer.allocateDirect(4 * VERTEX_SIZE);
-		buf.order(ByteOrder.nativeOrder());
-		mVertices = buf.asFloatBuffer();
-		mVertices.put(verts);
-		mVertices.position(0);
-		gl.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
-		mVertices.position(2);
-		gl.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
-	
-		// Indices
-		short[] ind = { 0, 1, 2, 2, 3, 0 };
-		ByteBuffer buf2 = ByteBuffer.allocateDirect(6 * 2);
-		buf2.order(ByteOrder.nativeOrder());
-		mIndices = buf2.asShortBuffer();
-		mIndices.put(ind);
-		mIndices.position(0);
-		
-		gl.glMatrixMode(GL10.GL_MODELVIEW);
-		gl.glLoadIdentity();
-		gl.glScalef(1.0f * GLRenderer.getScale(), 1.0f * GLRenderer.getScale(), 1.0f);
-		gl.glTranslatef(x, y, 0);
-		gl.glDrawElements(GL10.GL_TRIANGLES, 6, GL10.GL_UNSIGNED_SHORT, mIndices);
+		if (mDescriptor == null) {
+			return;
+		}
+		mChars[0] = c;
+		buildChars(mChars, 0, 1, mMesh);
+		draw(gl, mMesh, x, y);
 	}
-	
+
 	/**
-	 * Draws a String to the screen. Please note that the origin is at 
-	 * the String's top left corner.
+	 * Draws a String to the screen. Please note that the origin is at
+	 * the String's top left corner. The mesh is rebuilt on every call,
+	 * so use build() and draw() for text that rarely changes.
+	 * Any CharSequence can be drawn, such as a TextBuilder, so numbers can be
+	 * drawn without creating a String.
 	 * @param gl
 	 * A valid OpenGL ES 1.0 object.
 	 * @param s
@@ -139,33 +182,312 @@ public class BitmapFont {
 	 * @param y
 	 * The position of the string on the Y-Axis.
 	 */
-	public void drawString(GL10 gl, String s, float x, float y) {
-		if (mTexture == null) {
+	public void drawString(GL10 gl, CharSequence s, float x, float y) {
+		if (mDescriptor == null) {
 			return;
 		}
 		if (s == null) {
 			return;
 		}
-		int c = s.length();
-		for (int i = 0; i < c; i++) {
-			float cx = x + (i * mWidth);
-			drawChar(gl, s.charAt(i), cx, y);
+		build(s, mMesh);
+		draw(gl, mMesh, x, y);
+	}
+
+	/**
+	 * Draws a range of characters to the screen. Please note that the origin
+	 * is at the first character's top left corner.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 * @param chars
+	 * The characters to draw.
+	 * @param offset
+	 * The index of the first character.
+	 * @param count
+	 * The number of characters to draw.
+	 * @param x
+	 * The position of the text on the X-Axis.
+	 * @param y
+	 * The position of the text on the Y-Axis.
+	 */
+	public void drawChars(GL10 gl, char[] chars, int offset, int count, float x, float y) {
+		if (mDescriptor == null) {
+			return;
+		}
+		if (chars == null) {
+			return;
+		}
+		buildChars(chars, offset, count, mMesh);
+		draw(gl, mMesh, x, y);
+	}
+
+	/**
+	 * Builds the mesh for a String on one line, or several if it contains
+	 * '\n'. The String's top left corner is at the origin. Characters the font
+	 * doesn't have are drawn with its fallback glyph, or skipped if it has none.
+	 * @param s
+	 * The String to build.
+	 * @param mesh
+	 * A mesh to reuse, or null to create a new one.
+	 * @return
+	 * The mesh. Pass it to draw().
+	 */
+	public TextMesh build(CharSequence s, TextMesh mesh) {
+		return build(s, 0, TextLayout.ALIGN_LEFT, mesh);
+	}
+
+	/**
+	 * Builds the mesh for a String, wrapping and aligning its lines. The
+	 * top left corner of the text's bounds is at the origin.
+	 * @param s
+	 * The String to build.
+	 * @param wrapWidth
+	 * The widest a line may be in pixels, or 0 to only break at '\n'.
+	 * @param align
+	 * TextLayout.ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT.
+	 * @param mesh
+	 * A mesh to reuse, or null to create a new one.
+	 * @return
+	 * The mesh. Pass it to draw().
+	 */
+	public TextMesh build(CharSequence s, float wrapWidth, int align, TextMesh mesh) {
+		if ((mDescriptor == null) || (s == null)) {
+			return buildChars(null, 0, 0, wrapWidth, align, mesh);
+		}
+		int count = copyChars(s);
+		return buildChars(mChars, 0, count, wrapWidth, align, mesh);
+	}
+
+	/**
+	 * Builds the mesh for a range of characters. The first character's
+	 * top left corner is at the origin.
+	 * @param chars
+	 * The characters to build.
+	 * @param offset
+	 * The index of the first character.
+	 * @param count
+	 * The number of characters to build.
+	 * @param mesh
+	 * A mesh to reuse, or null to create a new one.
+	 * @return
+	 * The mesh. Pass it to draw().
+	 */
+	public TextMesh buildChars(char[] chars, int offset, int count, TextMesh mesh) {
+		return buildChars(chars, offset, count, 0, TextLayout.ALIGN_LEFT, mesh);
+	}
+
+	/**
+	 * Builds the mesh for a range of characters, wrapping and aligning its
+	 * lines. The top left corner of the text's bounds is at the origin.
+	 * @param chars
+	 * The characters to build.
+	 * @param offset
+	 * The index of the first character.
+	 * @param count
+	 * The number of characters to build.
+	 * @param wrapWidth
+	 * The widest a line may be in pixels, or 0 to only break at '\n'.
+	 * @param align
+	 * TextLayout.ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT.
+	 * @param mesh
+	 * A mesh to reuse, or null to create a new one.
+	 * @return
+	 * The mesh. Pass it to draw().
+	 */
+	public TextMesh buildChars(char[] chars, int offset, int count, float wrapWidth, int align, TextMesh mesh) {
+		if (mesh == null) {
+			mesh = new TextMesh();
+		}
+		mesh.mQuads = 0;
+		mesh.mWidth = 0;
+		mesh.mHeight = 0;
+		mesh.mLineCount = 0;
+		if ((mDescriptor == null) || (chars == null)) {
+			return mesh;
+		}
+		count = clampLength(count);
+		if (mAtlas != null) {
+			mAtlas.prepare(chars, offset, count);
+			mesh.mGeneration = mAtlas.getGeneration();
+		}
+		TextLayout layout = mLayout.layout(mDescriptor, chars, offset, count, wrapWidth, align);
+		int quads = layout.mCount;
+		if ((mScratch == null) || (mScratch.length < quads * FLOATS_PER_CHAR)) {
+			mScratch = new float[Math.max(quads, 16) * FLOATS_PER_CHAR];
+		}
+
+		// Count the quads on each page
+		FontDescriptor d = mDescriptor;
+		int pages = d.getPageCount();
+		if (mesh.mPageCounts.length < pages) {
+			mesh.mPageCounts = new int[pages];
+		}
+		int pageCounts[] = mesh.mPageCounts;
+		for (int p = 0; p < pageCounts.length; p++) {
+			pageCounts[p] = 0;
+		}
+		for (int q = 0; q < quads; q++) {
+			pageCounts[d.mPages[layout.mGlyphs[q]]]++;
+		}
+
+		// Write the quads grouped by page
+		if (pages == 1) {
+			for (int q = 0; q < quads; q++) {
+				putQuad(mScratch, q * FLOATS_PER_CHAR, layout.mGlyphs[q], layout.mX[q], layout.mY[q]);
+			}
+		} else {
+			int next[] = mPageNext;
+			int start = 0;
+			for (int p = 0; p < pages; p++) {
+				next[p] = start;
+				start += pageCounts[p];
+			}
+			for (int q = 0; q < quads; q++) {
+				int g = layout.mGlyphs[q];
+				putQuad(mScratch, next[d.mPages[g]]++ * FLOATS_PER_CHAR, g, layout.mX[q], layout.mY[q]);
+			}
+		}
+		mesh.mVertices = fill(mScratch, quads * FLOATS_PER_CHAR, mesh.mVertices);
+		mesh.mQuads = quads;
+		mesh.mWidth = layout.getWidth();
+		mesh.mHeight = layout.getHeight();
+		mesh.mLineCount = layout.getLineCount();
+		return mesh;
+	}
+
+	/**
+	 * Lays out a String without building a mesh. Useful for measuring text.
+	 * @param s
+	 * The String to lay out.
+	 * @param wrapWidth
+	 * The widest a line may be in pixels, or 0 to only break at '\n'.
+	 * @param align
+	 * TextLayout.ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT.
+	 * @param layout
+	 * A layout to reuse, or null to create a new one.
+	 * @return
+	 * The layout.
+	 */
+	public TextLayout layout(CharSequence s, float wrapWidth, int align, TextLayout layout) {
+		if (layout == null) {
+			layout = new TextLayout();
+		}
+		if ((mDescriptor == null) || (s == null)) {
+			return layout.layout(null, null, 0, 0, wrapWidth, align);
+		}
+		int count = copyChars(s);
+		return layout.layout(mDescriptor, mChars, 0, count, wrapWidth, align);
+	}
+
+	/**
+	 * Draws a mesh built by build() with one draw call per texture page. Call
+	 * begin() first.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 * @param mesh
+	 * The mesh returned by build().
+	 * @param x
+	 * The position of the text on the X-Axis.
+	 * @param y
+	 * The position of the text on the Y-Axis.
+	 */
+	public void draw(GL10 gl, TextMesh mesh, float x, float y) {
+		if (!prepare(gl, mesh)) {
+			return;
+		}
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glScalef(1.0f * GLRenderer.getScale(), 1.0f * GLRenderer.getScale(), 1.0f);
+		gl.glTranslatef(x, y, 0);
+		drawPages(gl, mesh);
+	}
+
+	/**
+	 * Draws a mesh built by build() scaled like a Sprite. Unlike
+	 * draw(gl, mesh, x, y), the position is in screen pixels and only the
+	 * size is scaled. Call begin() first.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 * @param mesh
+	 * The mesh returned by build().
+	 * @param x
+	 * The screen position of the mesh's left edge.
+	 * @param y
+	 * The screen position of the mesh's top edge.
+	 * @param scale
+	 * The amount to scale the mesh by, on top of GLRenderer.getScale().
+	 */
+	public void draw(GL10 gl, TextMesh mesh, float x, float y, float scale) {
+		if (!prepare(gl, mesh)) {
+			return;
 		}
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glTranslatef(x, y, 0);
+		gl.glScalef(scale * GLRenderer.getScale(), scale * GLRenderer.getScale(), 1.0f);
+		drawPages(gl, mesh);
+	}
+
+	// Points OpenGL at the mesh's vertices. Returns false if there is nothing
+	// to draw.
+	private boolean prepare(GL10 gl, TextMesh mesh) {
+		if ((mDescriptor == null) || (mesh == null) || (mesh.mQuads == 0)) {
+			return false;
+		}
+		ensureIndices(mesh.mQuads);
+		int pages = mDescriptor.getPageCount();
+		if ((mAtlas != null) && mAtlas.upload(gl) && (pages == 1)) {
+			// The mesh may use glyphs added since begin(), and uploading them
+			// unbound the page
+			gl.glBindTexture(GL10.GL_TEXTURE_2D, getPageGLID(0));
+		}
+
+		FloatBuffer vertices = mesh.mVertices;
+		vertices.position(0);
+		gl.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, vertices);
+		vertices.position(2);
+		gl.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, vertices);
+		vertices.position(0);
+		return true;
 	}
-	
+
+	// Draws the mesh with the current matrix, one call per texture page
+	private void drawPages(GL10 gl, TextMesh mesh) {
+		int pages = mDescriptor.getPageCount();
+		if (pages == 1) {
+			mIndices.position(0);
+			gl.glDrawElements(GL10.GL_TRIANGLES, mesh.mQuads * 6, GL10.GL_UNSIGNED_SHORT, mIndices);
+			return;
+		}
+		int first = 0;
+		for (int p = 0; p < pages; p++) {
+			int quads = mesh.mPageCounts[p];
+			if (quads == 0) {
+				continue;
+			}
+			gl.glBindTexture(GL10.GL_TEXTURE_2D, getPageGLID(p));
+			mIndices.position(first * 6);
+			gl.glDrawElements(GL10.GL_TRIANGLES, quads * 6, GL10.GL_UNSIGNED_SHORT, mIndices);
+			first += quads;
+		}
+		mIndices.position(0);
+	}
+
 	/**
 	 * Prepares the Font for drawing. Call this before any draw calls.
 	 * @param gl
 	 * A valid OpenGL ES 1.0 object.
 	 */
 	public void begin(GL10 gl) {
-		if (mTexture == null) {
+		if (mDescriptor == null) {
 			return;
 		}
+		if (mAtlas != null) {
+			mAtlas.upload(gl);
+		}
 		gl.glColor4f(mColor.r, mColor.g, mColor.b, mColor.a);
-		gl.glBindTexture(GL10.GL_TEXTURE_2D, mTexture.getGLID());
+		gl.glBindTexture(GL10.GL_TEXTURE_2D, getPageGLID(0));
 	}
-	
+
 	/**
 	 * Finishes drawing. Call after drawing text.
 	 * @param gl
@@ -174,7 +496,41 @@ public class BitmapFont {
 	public void end(GL10 gl) {
 		gl.glBindTexture(GL10.GL_TEXTURE_2D, 0);
 	}
-	
+
+	/**
+	 * Determines if a mesh must be rebuilt because the glyphs it uses were
+	 * evicted from the font's GlyphAtlas.
+	 * @param mesh
+	 * The mesh to test.
+	 * @return
+	 * True if the mesh is out of date.
+	 */
+	public boolean isStale(TextMesh mesh) {
+		if ((mAtlas == null) || (mesh == null)) {
+			return false;
+		}
+		return mesh.mGeneration != mAtlas.getGeneration();
+	}
+
+	/**
+	 * Gets new copies of the font's textures after OpenGL reloads them.
+	 */
+	public void updateTextures() {
+		if (mAtlas != null) {
+			mAtlas.onGlReset();
+			return;
+		}
+		if (mPages == null) {
+			return;
+		}
+		for (int i = 0; i < mPages.length; i++) {
+			Texture t = TextureManager.getTexture(mPages[i].getID());
+			if (t != null) {
+				mPages[i] = t;
+			}
+		}
+	}
+
 	/**
 	 * Set the text color.
 	 * @param c
@@ -185,11 +541,121 @@ public class BitmapFont {
 			mColor = c.clone();
 		}
 	}
-	
+
 	/**
 	 * Gets the text color.
 	 * @return
 	 * The text color.
 	 */
 	public Color getColor() { return mColor; }
+
+	/**
+	 * Gets the descriptor holding the font's glyph metrics.
+	 * @return
+	 * The descriptor.
+	 */
+	public FontDescriptor getDescriptor() { return mDescriptor; }
+
+	/**
+	 * Gets the distance between two lines of text.
+	 * @return
+	 * The line height in pixels.
+	 */
+	public int getLineHeight() {
+		if (mDescriptor == null) {
+			return 0;
+		}
+		return mDescriptor.getLineHeight();
+	}
+
+	private int getPageGLID(int page) {
+		if (mAtlas != null) {
+			return mAtlas.getPageGLID(page);
+		}
+		return mPages[page].getGLID();
+	}
+
+	// Writes the quad for one glyph at offset in dst
+	private void putQuad(float[] dst, int offset, int g, float x, float y) {
+		FontDescriptor d = mDescriptor;
+		float left = x + d.mXOffsets[g];
+		float top = y + d.mYOffsets[g];
+		float right = left + d.mWidths[g];
+		float bottom = top + d.mHeights[g];
+		int t = g * 4;
+		float l = d.mTexCoords[t];
+		float tv = d.mTexCoords[t + 1];
+		float r = d.mTexCoords[t + 2];
+		float b = d.mTexCoords[t + 3];
+
+		dst[offset++] = left;  dst[offset++] = top;    dst[offset++] = l; dst[offset++] = tv;
+		dst[offset++] = right; dst[offset++] = top;    dst[offset++] = r; dst[offset++] = tv;
+		dst[offset++] = right; dst[offset++] = bottom; dst[offset++] = r; dst[offset++] = b;
+		dst[offset++] = left;  dst[offset++] = bottom; dst[offset++] = l; dst[offset]   = b;
+	}
+
+	// Limits the number of characters to what one draw call can handle
+	private static int clampLength(int count) {
+		if (count < 0) {
+			return 0;
+		}
+		if (count > MAX_CHARS) {
+			Log.w("BitmapFont", "Text is too long, only the first " + MAX_CHARS + " characters will be drawn.");
+			return MAX_CHARS;
+		}
+		return count;
+	}
+
+	// Copies text into the scratch char array and returns the number of chars
+	private int copyChars(CharSequence s) {
+		int count = clampLength(s.length());
+		if (mChars.length < count) {
+			mChars = new char[Math.max(count, mChars.length * 2)];
+		}
+		for (int i = 0; i < count; i++) {
+			mChars[i] = s.charAt(i);
+		}
+		return count;
+	}
+
+	// Copies vertices into a direct buffer, allocating a bigger one if needed
+	private static FloatBuffer fill(float[] src, int floats, FloatBuffer dst) {
+		if ((dst == null) || (dst.capacity() < floats)) {
+			int capacity = Math.max(floats, 16 * FLOATS_PER_CHAR);
+			ByteBuffer buf = ByteBuffer.allocateDirect(capacity * 4);
+			buf.order(ByteOrder.nativeOrder());
+			dst = buf.asFloatBuffer();
+		}
+		dst.clear();
+		dst.put(src, 0, floats);
+		dst.flip();
+		return dst;
+	}
+
+	// Makes sure the index buffer covers a number of characters
+	private void ensureIndices(int chars) {
+		if ((mIndices != null) && (mIndices.capacity() >= chars * 6)) {
+			return;
+		}
+		int count = 16;
+		while (count < chars) {
+			count *= 2;
+		}
+		if (count > MAX_CHARS) {
+			count = MAX_CHARS;
+		}
+		ByteBuffer buf = ByteBuffer.allocateDirect(count * 6 * 2);
+		buf.order(ByteOrder.nativeOrder());
+		mIndices = buf.asShortBuffer();
+		for (int i = 0; i < count; i++) {
+			short base = (short)(i * 4);
+			mIndices.put(base);
+			mIndices.put((short)(base + 1));
+			mIndices.put((short)(base + 2));
+			mIndices.put((short)(base + 2));
+			mIndices.put((short)(base + 3));
+			mIndices.put(base);
+		}
+		mIndices.position(0);
+	}
 }
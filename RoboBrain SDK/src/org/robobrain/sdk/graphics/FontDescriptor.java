@@ -0,0 +1,781 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import android.util.Log;
+
+/**
+ * Describes where each glyph of a font lives in its texture pages and how
+ * far apart glyphs are drawn. Descriptors are loaded from AngelCode BMFont
+ * .fnt files, either the text or the binary (version 3) format, or created for
+ * the old fixed 16x16 grid textures with createGrid().
+ * <p>
+ * Everything is stored in primitive arrays indexed by glyph, so laying out
+ * text needs no objects. Find a glyph with getGlyph(), then read its metrics
+ * with the other getters. All sizes are in texture pixels.
+ * @author James Johnson
+ */
+public class FontDescriptor {
+	/** Returned by getGlyph() when the font has no glyph for a character. */
+	public static final int NO_GLYPH = -1;
+
+	/** Returned by getPage() for a glyph with nothing to draw, such as a space. */
+	public static final int NO_PAGE = -1;
+
+	// Characters below this are found with a direct lookup
+	private static final int DIRECT_SIZE = 256;
+
+	private int mLineHeight;
+	private int mBase;
+	private int mScaleW;
+	private int mScaleH;
+	private String mPageFiles[];
+
+	// Glyph tables, indexed by glyph
+	int mGlyphCount;
+	int mIds[];
+	float mTexCoords[];  // u0, v0, u1, v1 per glyph
+	short mWidths[];
+	short mHeights[];
+	short mXOffsets[];
+	short mYOffsets[];
+	short mAdvances[];
+	byte mPages[];
+	boolean mKerned[];   // true if the glyph is the first of any kerning pair
+	int mFallback;
+
+	// Character to glyph lookup
+	private int mDirect[];
+	private int mCodeTable[];
+
+	// Kerning pairs, found by glyph pair through a hash table
+	private int mKerningCount;
+	private int mKernFirst[];
+	private int mKernSecond[];
+	private short mKernAmount[];
+	private int mKernTable[];
+
+	private FontDescriptor() {
+		mLineHeight = 0;
+		mBase = 0;
+		mScaleW = 1;
+		mScaleH = 1;
+		mPageFiles = new String[0];
+		mGlyphCount = 0;
+		mKerningCount = 0;
+		mFallback = NO_GLYPH;
+	}
+
+	/**
+	 * Creates a descriptor for a fixed grid font. The texture must be 16x16
+	 * cells square and contain the first 256 characters in order.
+	 * @param textureWidth
+	 * The width of the font texture in pixels.
+	 * @param textureHeight
+	 * The height of the font texture in pixels.
+	 * @return
+	 * The descriptor.
+	 */
+	public static FontDescriptor createGrid(int textureWidth, int textureHeight) {
+		FontDescriptor d = new FontDescriptor();
+		int cellW = textureWidth / 16;
+		int cellH = textureHeight / 16;
+		d.mLineHeight = cellH;
+		d.mBase = cellH;
+		d.mScaleW = Math.max(textureWidth, 1);
+		d.mScaleH = Math.max(textureHeight, 1);
+		d.mPageFiles = new String[] { null };
+		d.allocateGlyphs(256);
+		for (int c = 0; c < 256; c++) {
+			int x = (c % 16) * cellW;
+			int y = (c / 16) * cellH;
+			d.putGlyph(c, c, x, y, cellW, cellH, 0, 0, cellW, 0);
+		}
+		d.mGlyphCount = 256;
+		d.allocateKerning(0);
+		d.finish();
+		return d;
+	}
+
+	/**
+	 * Loads a BMFont descriptor. The text and binary formats are both
+	 * supported and told apart automatically.
+	 * @param in
+	 * The stream to read. Usually an asset. It is closed when done.
+	 * @return
+	 * The descriptor, or null if it couldn't be read.
+	 */
+	public static FontDescriptor load(InputStream in) {
+		if (in == null) {
+			Log.e("FontDescriptor", "Null stream passed to load().");
+			return null;
+		}
+		byte data[];
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte buf[] = new byte[4096];
+			int n;
+			while ((n = in.read(buf)) > 0) {
+				out.write(buf, 0, n);
+			}
+			data = out.toByteArray();
+		} catch (IOException e) {
+			Log.e("FontDescriptor", "Could not read font: " + e.getMessage());
+			return null;
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) { }
+		}
+
+		FontDescriptor d = new FontDescriptor();
+		boolean loaded;
+		if ((data.length >= 4) && (data[0] == 'B') && (data[1] == 'M') && (data[2] == 'F')) {
+			loaded = d.parseBinary(data);
+		} else {
+			loaded = d.parseText(data);
+		}
+		if (!loaded) {
+			return null;
+		}
+		d.finish();
+		return d;
+	}
+
+	/**
+	 * Finds the glyph for a character.
+	 * @param c
+	 * The character, or any Unicode code point.
+	 * @return
+	 * The glyph, or the font's fallback glyph if it has none for the character.
+	 * NO_GLYPH if there is no fallback either.
+	 */
+	public int getGlyph(int c) {
+		if ((c >= 0) && (c < DIRECT_SIZE)) {
+			return mDirect[c];
+		}
+		if (mCodeTable != null) {
+			int mask = mCodeTable.length - 1;
+			int slot = hash(c) & mask;
+			while (mCodeTable[slot] != 0) {
+				int g = mCodeTable[slot] - 1;
+				if (mIds[g] == c) {
+					return g;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+		return mFallback;
+	}
+
+	/**
+	 * Gets the kerning adjustment between two glyphs.
+	 * @param first
+	 * The glyph on the left.
+	 * @param second
+	 * The glyph on the right.
+	 * @return
+	 * The number of pixels to add to the first glyph's advance.
+	 */
+	public int getKerning(int first, int second) {
+		if ((first < 0) || (second < 0) || !mKerned[first]) {
+			return 0;
+		}
+		int mask = mKernTable.length - 1;
+		int slot = hash(first, second) & mask;
+		while (mKernTable[slot] != 0) {
+			int k = mKernTable[slot] - 1;
+			if ((mKernFirst[k] == first) && (mKernSecond[k] == second)) {
+				return mKernAmount[k];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the distance between two lines of text.
+	 * @return
+	 * The line height in pixels.
+	 */
+	public int getLineHeight() { return mLineHeight; }
+
+	/**
+	 * Gets the distance from the top of a line to the baseline.
+	 * @return
+	 * The base in pixels.
+	 */
+	public int getBase() { return mBase; }
+
+	/**
+	 * Gets the width of the texture pages the descriptor was made for.
+	 * @return
+	 * The width in pixels.
+	 */
+	public int getScaleW() { return mScaleW; }
+
+	/**
+	 * Gets the height of the texture pages the descriptor was made for.
+	 * @return
+	 * The height in pixels.
+	 */
+	public int getScaleH() { return mScaleH; }
+
+	/**
+	 * Gets the number of texture pages.
+	 * @return
+	 * The number of pages.
+	 */
+	public int getPageCount() { return mPageFiles.length; }
+
+	/**
+	 * Gets the file name of a texture page, as written in the descriptor.
+	 * @param page
+	 * The page.
+	 * @return
+	 * The file name, or null for grid fonts.
+	 */
+	public String getPageFile(int page) { return mPageFiles[page]; }
+
+	/**
+	 * Gets the number of glyphs.
+	 * @return
+	 * The number of glyphs.
+	 */
+	public int getGlyphCount() { return mGlyphCount; }
+
+	/**
+	 * Gets the number of kerning pairs.
+	 * @return
+	 * The number of kerning pairs.
+	 */
+	public int getKerningCount() { return mKerningCount; }
+
+	/**
+	 * Gets the character a glyph draws.
+	 * @param glyph
+	 * The glyph.
+	 * @return
+	 * The character's code point.
+	 */
+	public int getCharacter(int glyph) { return mIds[glyph]; }
+
+	/**
+	 * Gets how far to move after drawing a glyph.
+	 * @param glyph
+	 * The glyph.
+	 * @return
+	 * The advance in pixels.
+	 */
+	public int getAdvance(int glyph) { return mAdvances[glyph]; }
+
+	/**
+	 * Gets the width of a glyph's image.
+	 * @param glyph
+	 * The glyph.
+	 * @return
+	 * The width in pixels.
+	 */
+	public int getGlyphWidth(int glyph) { return mWidths[glyph]; }
+
+	/**
+	 * Gets the height of a glyph's image.
+	 * @param glyph
+	 * The glyph.
+	 * @return
+	 * The height in pixels.
+	 */
+	public int getGlyphHeight(int glyph) { return mHeights[glyph]; }
+
+	/**
+	 * Gets the offset of a glyph's image from the pen position.
+	 * @param glyph
+	 * The glyph.
+	 * @return
+	 * The offset along the X axis in pixels.
+	 */
+	public int getXOffset(int glyph) { return mXOffsets[glyph]; }
+
+	/**
+	 * Gets the offset of a glyph's image from the top of the line.
+	 * @param glyph
+	 * The glyph.
+	 * @return
+	 * The offset along the Y axis in pixels.
+	 */
+	public int getYOffset(int glyph) { return mYOffsets[glyph]; }
+
+	/**
+	 * Gets the texture page a glyph is on.
+	 * @param glyph
+	 * The glyph.
+	 * @return
+	 * The page, or NO_PAGE if a GlyphAtlas found nothing to draw for it.
+	 */
+	public int getPage(int glyph) { return mPages[glyph]; }
+
+	// Parses the text format, one "tag key=value ..." line at a time
+	private boolean parseText(byte[] data) {
+		String text;
+		try {
+			text = new String(data, "UTF-8");
+		} catch (java.io.UnsupportedEncodingException e) {
+			text = new String(data);
+		}
+		String lines[] = text.split("\n");
+		int glyphs = 0;
+		int kernings = 0;
+		for (int i = 0; i < lines.length; i++) {
+			String line = lines[i].trim();
+			if (line.startsWith("char ")) {
+				glyphs++;
+			} else if (line.startsWith("kerning ")) {
+				kernings++;
+			}
+		}
+		allocateGlyphs(glyphs);
+		allocateKerning(kernings);
+
+		boolean haveCommon = false;
+		try {
+			for (int i = 0; i < lines.length; i++) {
+				String line = lines[i].trim();
+				if (line.startsWith("common ")) {
+					mLineHeight = intValue(line, "lineHeight", 0);
+					mBase = intValue(line, "base", 0);
+					mScaleW = Math.max(intValue(line, "scaleW", 1), 1);
+					mScaleH = Math.max(intValue(line, "scaleH", 1), 1);
+					mPageFiles = new String[Math.max(intValue(line, "pages", 1), 1)];
+					haveCommon = true;
+				} else if (line.startsWith("page ")) {
+					int id = intValue(line, "id", 0);
+					if (haveCommon && (id >= 0) && (id < mPageFiles.length)) {
+						mPageFiles[id] = stringValue(line, "file");
+					}
+				} else if (line.startsWith("char ")) {
+					putGlyph(mGlyphCount++, intValue(line, "id", 0),
+							 intValue(line, "x", 0), intValue(line, "y", 0),
+							 intValue(line, "width", 0), intValue(line, "height", 0),
+							 intValue(line, "xoffset", 0), intValue(line, "yoffset", 0),
+							 intValue(line, "xadvance", 0), intValue(line, "page", 0));
+				} else if (line.startsWith("kerning ")) {
+					mKernFirst[mKerningCount] = intValue(line, "first", 0);
+					mKernSecond[mKerningCount] = intValue(line, "second", 0);
+					mKernAmount[mKerningCount] = (short)intValue(line, "amount", 0);
+					mKerningCount++;
+				}
+			}
+		} catch (NumberFormatException e) {
+			Log.e("FontDescriptor", "Invalid number in font: " + e.getMessage());
+			return false;
+		}
+		if (!haveCommon) {
+			Log.e("FontDescriptor", "Font is missing its common line.");
+			return false;
+		}
+		return true;
+	}
+
+	// Parses the binary format, version 3
+	private boolean parseBinary(byte[] data) {
+		if (data[3] != 3) {
+			Log.e("FontDescriptor", "Unsupported binary font version " + data[3] + ".");
+			return false;
+		}
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		buf.position(4);
+		boolean haveCommon = false;
+		try {
+			while (buf.remaining() >= 5) {
+				int type = buf.get();
+				int size = buf.getInt();
+				int start = buf.position();
+				if ((size < 0) || (size > buf.remaining())) {
+					Log.e("FontDescriptor", "Truncated block in binary font.");
+					return false;
+				}
+				switch (type) {
+				case 2:
+					mLineHeight = buf.getShort() & 0xFFFF;
+					mBase = buf.getShort() & 0xFFFF;
+					mScaleW = Math.max(buf.getShort() & 0xFFFF, 1);
+					mScaleH = Math.max(buf.getShort() & 0xFFFF, 1);
+					mPageFiles = new String[Math.max(buf.getShort() & 0xFFFF, 1)];
+					haveCommon = true;
+					break;
+				case 3:
+					if (!haveCommon) {
+						break;
+					}
+					int page = 0;
+					int nameStart = start;
+					for (int i = start; (i < start + size) && (page < mPageFiles.length); i++) {
+						if (data[i] == 0) {
+							mPageFiles[page++] = new String(data, nameStart, i - nameStart, "UTF-8");
+							nameStart = i + 1;
+						}
+					}
+					break;
+				case 4:
+					allocateGlyphs(size / 20);
+					for (int i = 0; i < size / 20; i++) {
+						int id = buf.getInt();
+						int x = buf.getShort() & 0xFFFF;
+						int y = buf.getShort() & 0xFFFF;
+						int w = buf.getShort() & 0xFFFF;
+						int h = buf.getShort() & 0xFFFF;
+						int xoff = buf.getShort();
+						int yoff = buf.getShort();
+						int adv = buf.getShort();
+						int pg = buf.get() & 0xFF;
+						buf.get(); // Channel
+						putGlyph(mGlyphCount++, id, x, y, w, h, xoff, yoff, adv, pg);
+					}
+					break;
+				case 5:
+					allocateKerning(size / 10);
+					for (int i = 0; i < size / 10; i++) {
+						mKernFirst[mKerningCount] = buf.getInt();
+						mKernSecond[mKerningCount] = buf.getInt();
+						mKernAmount[mKerningCount] = buf.getShort();
+						mKerningCount++;
+					}
+					break;
+				default:
+					// Info block and unknown blocks aren't needed
+					break;
+				}
+				buf.position(start + size);
+			}
+		} catch (java.io.UnsupportedEncodingException e) {
+			Log.e("FontDescriptor", "Could not read page name: " + e.getMessage());
+			return false;
+		}
+		if (!haveCommon) {
+			Log.e("FontDescriptor", "Binary font is missing its common block.");
+			return false;
+		}
+		if (mIds == null) {
+			allocateGlyphs(0);
+		}
+		if (mKernFirst == null) {
+			allocateKerning(0);
+		}
+		return true;
+	}
+
+	private void allocateGlyphs(int count) {
+		mGlyphCount = 0;
+		mIds = new int[count];
+		mTexCoords = new float[count * 4];
+		mWidths = new short[count];
+		mHeights = new short[count];
+		mXOffsets = new short[count];
+		mYOffsets = new short[count];
+		mAdvances = new short[count];
+		mPages = new byte[count];
+		mKerned = new boolean[count];
+	}
+
+	private void allocateKerning(int count) {
+		mKerningCount = 0;
+		mKernFirst = new int[count];
+		mKernSecond = new int[count];
+		mKernAmount = new short[count];
+	}
+
+	// Texture coords are filled in by finish() once the page size is known
+	private void putGlyph(int g, int id, int x, int y, int w, int h, int xoff, int yoff, int adv, int page) {
+		mIds[g] = id;
+		mTexCoords[g * 4] = x;
+		mTexCoords[g * 4 + 1] = y;
+		mTexCoords[g * 4 + 2] = x + w;
+		mTexCoords[g * 4 + 3] = y + h;
+		mWidths[g] = (short)w;
+		mHeights[g] = (short)h;
+		mXOffsets[g] = (short)xoff;
+		mYOffsets[g] = (short)yoff;
+		mAdvances[g] = (short)adv;
+		mPages[g] = (byte)page;
+	}
+
+	// Builds the lookup tables once every glyph and kerning pair is read
+	private void finish() {
+		float su = 1.0f / mScaleW;
+		float sv = 1.0f / mScaleH;
+		for (int g = 0; g < mGlyphCount; g++) {
+			mTexCoords[g * 4] *= su;
+			mTexCoords[g * 4 + 1] *= sv;
+			mTexCoords[g * 4 + 2] *= su;
+			mTexCoords[g * 4 + 3] *= sv;
+			if ((mPages[g] < 0) || (mPages[g] >= mPageFiles.length)) {
+				Log.w("FontDescriptor", "Glyph " + mIds[g] + " is on a missing page.");
+				mPages[g] = 0;
+			}
+		}
+
+		buildLookup();
+
+		// BMFont uses id -1 for the glyph drawn in place of missing characters
+		mFallback = NO_GLYPH;
+		for (int g = 0; g < mGlyphCount; g++) {
+			if (mIds[g] == -1) {
+				mFallback = g;
+			}
+		}
+		if (mFallback == NO_GLYPH) {
+			mFallback = mDirect['?'];
+		}
+
+		// Kerning pairs are stored by glyph so layout never looks up characters twice
+		int kept = 0;
+		for (int k = 0; k < mKerningCount; k++) {
+			int first = findGlyph(mKernFirst[k]);
+			int second = findGlyph(mKernSecond[k]);
+			if ((first == NO_GLYPH) || (second == NO_GLYPH) || (mKernAmount[k] == 0)) {
+				continue;
+			}
+			mKernFirst[kept] = first;
+			mKernSecond[kept] = second;
+			mKernAmount[kept] = mKernAmount[k];
+			mKerned[first] = true;
+			kept++;
+		}
+		mKerningCount = kept;
+		mKernTable = new int[tableSize(kept)];
+		int mask = mKernTable.length - 1;
+		for (int k = 0; k < kept; k++) {
+			int slot = hash(mKernFirst[k], mKernSecond[k]) & mask;
+			while (mKernTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			mKernTable[slot] = k + 1;
+		}
+	}
+
+	// Builds the character to glyph lookup tables
+	private void buildLookup() {
+		mDirect = new int[DIRECT_SIZE];
+		for (int c = 0; c < DIRECT_SIZE; c++) {
+			mDirect[c] = NO_GLYPH;
+		}
+		int wide = 0;
+		for (int g = 0; g < mGlyphCount; g++) {
+			int id = mIds[g];
+			if ((id >= 0) && (id < DIRECT_SIZE)) {
+				mDirect[id] = g;
+			} else if (id >= DIRECT_SIZE) {
+				wide++;
+			}
+		}
+		mCodeTable = null;
+		if (wide > 0) {
+			mCodeTable = new int[tableSize(wide)];
+			int mask = mCodeTable.length - 1;
+			for (int g = 0; g < mGlyphCount; g++) {
+				if (mIds[g] < DIRECT_SIZE) {
+					continue;
+				}
+				int slot = hash(mIds[g]) & mask;
+				while (mCodeTable[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				mCodeTable[slot] = g + 1;
+			}
+		}
+	}
+
+	// Creates an empty descriptor that a GlyphAtlas fills in as glyphs are
+	// rasterized. It has no kerning and no fallback glyph.
+	static FontDescriptor createDynamic(int lineHeight, int base, int pageSize, int pages) {
+		FontDescriptor d = new FontDescriptor();
+		d.mLineHeight = lineHeight;
+		d.mBase = base;
+		d.mScaleW = Math.max(pageSize, 1);
+		d.mScaleH = Math.max(pageSize, 1);
+		d.mPageFiles = new String[Math.max(pages, 1)];
+		d.allocateGlyphs(64);
+		d.allocateKerning(0);
+		d.mKernTable = new int[16];
+		d.buildLookup();
+		return d;
+	}
+
+	// Adds a glyph to a dynamic descriptor and returns its index. The position
+	// and size are in pixels.
+	int addGlyph(int id, int x, int y, int w, int h, int xoff, int yoff, int adv, int page) {
+		if (mGlyphCount == mIds.length) {
+			growGlyphs(mGlyphCount * 2);
+		}
+		int g = mGlyphCount++;
+		putGlyph(g, id, x, y, w, h, xoff, yoff, adv, page);
+		mTexCoords[g * 4] /= mScaleW;
+		mTexCoords[g * 4 + 1] /= mScaleH;
+		mTexCoords[g * 4 + 2] /= mScaleW;
+		mTexCoords[g * 4 + 3] /= mScaleH;
+		mKerned[g] = false;
+		if ((id >= 0) && (id < DIRECT_SIZE)) {
+			mDirect[id] = g;
+			return g;
+		}
+		if ((mCodeTable == null) || ((mGlyphCount * 2) > mCodeTable.length)) {
+			buildLookup();
+			return g;
+		}
+		int mask = mCodeTable.length - 1;
+		int slot = hash(id) & mask;
+		while (mCodeTable[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		mCodeTable[slot] = g + 1;
+		return g;
+	}
+
+	// Removes every glyph on a page of a dynamic descriptor. The remaining
+	// glyphs are renumbered.
+	void removePage(int page) {
+		int kept = 0;
+		for (int g = 0; g < mGlyphCount; g++) {
+			if (mPages[g] == page) {
+				continue;
+			}
+			if (kept != g) {
+				mIds[kept] = mIds[g];
+				System.arraycopy(mTexCoords, g * 4, mTexCoords, kept * 4, 4);
+				mWidths[kept] = mWidths[g];
+				mHeights[kept] = mHeights[g];
+				mXOffsets[kept] = mXOffsets[g];
+				mYOffsets[kept] = mYOffsets[g];
+				mAdvances[kept] = mAdvances[g];
+				mPages[kept] = mPages[g];
+				mKerned[kept] = false;
+			}
+			kept++;
+		}
+		mGlyphCount = kept;
+		buildLookup();
+	}
+
+	// Grows the glyph tables, keeping their contents
+	private void growGlyphs(int capacity) {
+		int ids[] = mIds;
+		float texCoords[] = mTexCoords;
+		short widths[] = mWidths;
+		short heights[] = mHeights;
+		short xOffsets[] = mXOffsets;
+		short yOffsets[] = mYOffsets;
+		short advances[] = mAdvances;
+		byte pages[] = mPages;
+		int count = mGlyphCount;
+		allocateGlyphs(capacity);
+		System.arraycopy(ids, 0, mIds, 0, count);
+		System.arraycopy(texCoords, 0, mTexCoords, 0, count * 4);
+		System.arraycopy(widths, 0, mWidths, 0, count);
+		System.arraycopy(heights, 0, mHeights, 0, count);
+		System.arraycopy(xOffsets, 0, mXOffsets, 0, count);
+		System.arraycopy(yOffsets, 0, mYOffsets, 0, count);
+		System.arraycopy(advances, 0, mAdvances, 0, count);
+		System.arraycopy(pages, 0, mPages, 0, count);
+		mGlyphCount = count;
+	}
+
+	// Like getGlyph() but without the fallback
+	int findGlyph(int c) {
+		int g = getGlyph(c);
+		if ((g != NO_GLYPH) && (mIds[g] == c)) {
+			return g;
+		}
+		return NO_GLYPH;
+	}
+
+	// Power of two with room for count entries at half load
+	private static int tableSize(int count) {
+		int size = 16;
+		while (size < count * 2) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	private static int hash(int c) {
+		int h = c * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static int hash(int a, int b) {
+		int h = a * 73856093 ^ b * 19349663;
+		return h ^ (h >>> 16);
+	}
+
+	// Finds key=value on a line and parses the value as an int
+	private static int intValue(String line, String key, int def) {
+		String v = stringValue(line, key);
+		if (v == null) {
+			return def;
+		}
+		return Integer.parseInt(v);
+	}
+
+	// Finds key=value on a line. Quoted values may contain spaces.
+	private static String stringValue(String line, String key) {
+		int i = 0;
+		int n = line.length();
+		while (i < n) {
+			int eq = line.indexOf('=', i);
+			if (eq < 0) {
+				return null;
+			}
+			int k = eq - 1;
+			while ((k >= 0) && (line.charAt(k) != ' ') && (line.charAt(k) != '\t')) {
+				k--;
+			}
+			String name = line.substring(k + 1, eq);
+			int start = eq + 1;
+			int end;
+			if ((start < n) && (line.charAt(start) == '"')) {
+				start++;
+				end = line.indexOf('"', start);
+				if (end < 0) {
+					end = n;
+				}
+				i = end + 1;
+			} else {
+				end = start;
+				while ((end < n) && (line.charAt(end) != ' ') && (line.charAt(end) != '\t')) {
+					end++;
+				}
+				i = end;
+			}
+			if (name.equals(key)) {
+				return line.substring(start, end);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import android.util.Log;
+
+/**
+ * A font whose glyphs are drawn by a GlyphRasterizer the first time they are
+ * used and packed into alpha texture pages. Only the characters a game
+ * actually shows take up texture memory, so large character sets such as CJK
+ * don't need prebaked textures. Give the atlas to a BitmapFont to draw with it.
+ * <p>
+ * Glyphs are packed into rows on each page. When every page is full, the page
+ * used least recently is cleared and refilled. Meshes built with glyphs from
+ * that page are out of date afterwards, which BitmapFont.isStale() reports.
+ * TextSprite rebuilds its mesh automatically.
+ * @author James Johnson
+ */
+public class GlyphAtlas {
+	/** The default width and height of a page in pixels. */
+	public static final int DEFAULT_PAGE_SIZE = 512;
+
+	// Empty pixels between glyphs so linear filtering doesn't bleed
+	private static final int SPACING = 1;
+
+	private GlyphRasterizer mRasterizer;
+	private FontDescriptor mDescriptor;
+	private GlyphBitmap mBitmap;
+	private int mPageSize;
+	private int mMaxPages;
+	private int mPageCount;
+	private int mGeneration;
+	private int mStamp;
+
+	// Per page state
+	private ByteBuffer mPixels[];
+	private int mGLIDs[];
+	private int mPageStamps[];
+	private int mShelfY[];
+	private int mShelfHeight[];
+	private int mCursorX[];
+	private int mDirtyTop[];
+	private int mDirtyBottom[];
+
+	/**
+	 * Initializes the GlyphAtlas with up to 4 pages of DEFAULT_PAGE_SIZE.
+	 * @param rasterizer
+	 * Draws the glyphs.
+	 */
+	public GlyphAtlas(GlyphRasterizer rasterizer) {
+		this(rasterizer, DEFAULT_PAGE_SIZE, 4);
+	}
+
+	/**
+	 * Initializes the GlyphAtlas.
+	 * @param rasterizer
+	 * Draws the glyphs.
+	 * @param pageSize
+	 * The width and height of each page in pixels. Should be a power of 2.
+	 * @param maxPages
+	 * The most pages to create before glyphs are evicted.
+	 */
+	public GlyphAtlas(GlyphRasterizer rasterizer, int pageSize, int maxPages) {
+		if (rasterizer == null) {
+			Log.e("GlyphAtlas", "Null rasterizer passed to GlyphAtlas.");
+			return;
+		}
+		if (pageSize < 16) {
+			pageSize = 16;
+		}
+		if (maxPages < 1) {
+			maxPages = 1;
+		}
+		mRasterizer = rasterizer;
+		mPageSize = pageSize;
+		mMaxPages = maxPages;
+		mDescriptor = FontDescriptor.createDynamic(rasterizer.getLineHeight(), rasterizer.getBase(), pageSize, maxPages);
+		mBitmap = new GlyphBitmap();
+		mPageCount = 0;
+		mGeneration = 0;
+		mStamp = 0;
+		mPixels = new ByteBuffer[maxPages];
+		mGLIDs = new int[maxPages];
+		mPageStamps = new int[maxPages];
+		mShelfY = new int[maxPages];
+		mShelfHeight = new int[maxPages];
+		mCursorX = new int[maxPages];
+		mDirtyTop = new int[maxPages];
+		mDirtyBottom = new int[maxPages];
+	}
+
+	/**
+	 * Makes sure every character in a range has a glyph, drawing any that are
+	 * missing. Glyphs used here are safe from eviction until the next call.
+	 * BitmapFont calls this before laying out text.
+	 * @param chars
+	 * The characters.
+	 * @param offset
+	 * The index of the first character.
+	 * @param count
+	 * The number of characters.
+	 */
+	public void prepare(char[] chars, int offset, int count) {
+		if (mDescriptor == null) {
+			return;
+		}
+		mStamp++;
+		FontDescriptor d = mDescriptor;
+		for (int i = 0; i < count; i++) {
+			char c = chars[offset + i];
+			if ((c == '\n') || (c == '\r')) {
+				continue;
+			}
+			int g = d.findGlyph(c);
+			if (g == FontDescriptor.NO_GLYPH) {
+				g = addGlyph(c);
+				if (g == FontDescriptor.NO_GLYPH) {
+					continue;
+				}
+			}
+			if ((d.mWidths[g] > 0) && (d.mHeights[g] > 0)) {
+				mPageStamps[d.mPages[g]] = mStamp;
+			}
+		}
+	}
+
+	/**
+	 * Sends new glyphs to OpenGL. Only the rows of each page that changed are
+	 * uploaded. BitmapFont calls this from begin() and again before drawing,
+	 * in case text built since begin() added glyphs. Leaves no texture bound
+	 * if anything was uploaded.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 * @return
+	 * true if anything was uploaded.
+	 */
+	public boolean upload(GL10 gl) {
+		boolean uploaded = false;
+		for (int p = 0; p < mPageCount; p++) {
+			if (mGLIDs[p] == 0) {
+				int ids[] = new int[1];
+				gl.glGenTextures(1, ids, 0);
+				mGLIDs[p] = ids[0];
+				gl.glBindTexture(GL10.GL_TEXTURE_2D, mGLIDs[p]);
+				mPixels[p].position(0);
+				gl.glTexImage2D(GL10.GL_TEXTURE_2D, 0, GL10.GL_ALPHA, mPageSize, mPageSize, 0,
+								GL10.GL_ALPHA, GL10.GL_UNSIGNED_BYTE, mPixels[p]);
+				gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_LINEAR);
+				gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
+				gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE);
+				gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
+			} else if (mDirtyBottom[p] > mDirtyTop[p]) {
+				// GLES 1.0 can't upload part of a row, so whole rows are sent
+				gl.glBindTexture(GL10.GL_TEXTURE_2D, mGLIDs[p]);
+				mPixels[p].position(mDirtyTop[p] * mPageSize);
+				gl.glTexSubImage2D(GL10.GL_TEXTURE_2D, 0, 0, mDirtyTop[p], mPageSize, mDirtyBottom[p] - mDirtyTop[p],
+								   GL10.GL_ALPHA, GL10.GL_UNSIGNED_BYTE, mPixels[p]);
+				mPixels[p].position(0);
+			} else {
+				continue;
+			}
+			mDirtyTop[p] = mPageSize;
+			mDirtyBottom[p] = 0;
+			gl.glBindTexture(GL10.GL_TEXTURE_2D, 0);
+			uploaded = true;
+		}
+		return uploaded;
+	}
+
+	/**
+	 * Forgets the OpenGL textures after the context is lost. The pages are
+	 * uploaded again on the next call to upload().
+	 */
+	public void onGlReset() {
+		for (int p = 0; p < mPageCount; p++) {
+			mGLIDs[p] = 0;
+		}
+	}
+
+	/**
+	 * Deletes the OpenGL textures and every glyph.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object, or null if the context is already gone.
+	 */
+	public void clear(GL10 gl) {
+		if (mDescriptor == null) {
+			return;
+		}
+		for (int p = 0; p < mPageCount; p++) {
+			if ((gl != null) && (mGLIDs[p] != 0)) {
+				int ids[] = { mGLIDs[p] };
+				gl.glDeleteTextures(1, ids, 0);
+			}
+			mGLIDs[p] = 0;
+			mDescriptor.removePage(p);
+		}
+		mDescriptor.removePage(FontDescriptor.NO_PAGE);
+		mPageCount = 0;
+		mGeneration++;
+	}
+
+	/**
+	 * Gets the descriptor holding the glyphs drawn so far.
+	 * @return
+	 * The descriptor.
+	 */
+	public FontDescriptor getDescriptor() { return mDescriptor; }
+
+	/**
+	 * Gets the OpenGL texture of a page.
+	 * @param page
+	 * The page.
+	 * @return
+	 * The texture's id, or 0 if it hasn't been uploaded.
+	 */
+	public int getPageGLID(int page) { return mGLIDs[page]; }
+
+	/**
+	 * Gets the number of pages created so far.
+	 * @return
+	 * The number of pages.
+	 */
+	public int getPageCount() { return mPageCount; }
+
+	/**
+	 * Gets a number that changes whenever glyphs are evicted. Meshes built
+	 * before it changed must be rebuilt.
+	 * @return
+	 * The generation.
+	 */
+	public int getGeneration() { return mGeneration; }
+
+	// Draws a glyph and packs it into a page, returning its index
+	private int addGlyph(int c) {
+		FontDescriptor d = mDescriptor;
+		if (!mRasterizer.rasterize(c, mBitmap)) {
+			return FontDescriptor.NO_GLYPH;
+		}
+		GlyphBitmap b = mBitmap;
+
+		// Trim the transparent border
+		int left = b.width;
+		int top = b.height;
+		int right = -1;
+		int bottom = -1;
+		for (int y = 0; y < b.height; y++) {
+			int row = y * b.width;
+			for (int x = 0; x < b.width; x++) {
+				if (b.alpha[row + x] != 0) {
+					if (x < left) {
+						left = x;
+					}
+					if (x > right) {
+						right = x;
+					}
+					if (y < top) {
+						top = y;
+					}
+					bottom = y;
+				}
+			}
+		}
+		if (right < 0) {
+			// Nothing to draw, such as a space. Kept off the pages so evicting
+			// a page never takes it away from text already laid out.
+			return d.addGlyph(c, 0, 0, 0, 0, 0, 0, b.advance, FontDescriptor.NO_PAGE);
+		}
+		int w = right - left + 1;
+		int h = bottom - top + 1;
+		if ((w + SPACING > mPageSize) || (h + SPACING > mPageSize)) {
+			Log.w("GlyphAtlas", "Glyph " + (char)c + " is bigger than a page.");
+			return FontDescriptor.NO_GLYPH;
+		}
+
+		int page = pack(w + SPACING, h + SPACING);
+		if (page < 0) {
+			Log.w("GlyphAtlas", "Out of room for glyph " + (char)c + ", every page is in use.");
+			return FontDescriptor.NO_GLYPH;
+		}
+		int px = mCursorX[page] - (w + SPACING);
+		int py = mShelfY[page];
+
+		// Copy the trimmed image into the page
+		ByteBuffer pixels = mPixels[page];
+		for (int y = 0; y < h; y++) {
+			int src = (top + y) * b.width + left;
+			int dst = (py + y) * mPageSize + px;
+			for (int x = 0; x < w; x++) {
+				pixels.put(dst + x, b.alpha[src + x]);
+			}
+		}
+		if (py < mDirtyTop[page]) {
+			mDirtyTop[page] = py;
+		}
+		if (py + h > mDirtyBottom[page]) {
+			mDirtyBottom[page] = py + h;
+		}
+		return d.addGlyph(c, px, py, w, h, b.xOffset + left, b.yOffset + top, b.advance, page);
+	}
+
+	// Finds room for a w x h box and returns its page. The box's top left
+	// corner is left at mCursorX - w, mShelfY.
+	private int pack(int w, int h) {
+		for (int p = 0; p < mPageCount; p++) {
+			if (fit(p, w, h)) {
+				return p;
+			}
+		}
+		if (mPageCount < mMaxPages) {
+			int p = mPageCount++;
+			ByteBuffer buf = ByteBuffer.allocateDirect(mPageSize * mPageSize);
+			buf.order(ByteOrder.nativeOrder());
+			mPixels[p] = buf;
+			mGLIDs[p] = 0;
+			resetPage(p);
+			if (fit(p, w, h)) {
+				return p;
+			}
+			return -1;
+		}
+
+		// Every page is full, evict the one used least recently
+		int oldest = -1;
+		for (int p = 0; p < mPageCount; p++) {
+			if ((mPageStamps[p] != mStamp) && ((oldest < 0) || (mPageStamps[p] < mPageStamps[oldest]))) {
+				oldest = p;
+			}
+		}
+		if (oldest < 0) {
+			return -1;
+		}
+		mDescriptor.removePage(oldest);
+		ByteBuffer pixels = mPixels[oldest];
+		for (int i = 0; i < mPageSize * mPageSize; i++) {
+			pixels.put(i, (byte)0);
+		}
+		resetPage(oldest);
+		mDirtyTop[oldest] = 0;
+		mDirtyBottom[oldest] = mPageSize;
+		mGeneration++;
+		if (fit(oldest, w, h)) {
+			return oldest;
+		}
+		return -1;
+	}
+
+	// Tries to fit a box on the current row of a page, or starts a new row
+	private boolean fit(int p, int w, int h) {
+		if ((mCursorX[p] + w <= mPageSize) && (mShelfY[p] + Math.max(h, mShelfHeight[p]) <= mPageSize)) {
+			if (h > mShelfHeight[p]) {
+				mShelfHeight[p] = h;
+			}
+			mCursorX[p] += w;
+			return true;
+		}
+		int y = mShelfY[p] + mShelfHeight[p];
+		if ((y + h > mPageSize) || (w > mPageSize)) {
+			return false;
+		}
+		mShelfY[p] = y;
+		mShelfHeight[p] = h;
+		mCursorX[p] = w;
+		return true;
+	}
+
+	private void resetPage(int p) {
+		mShelfY[p] = 0;
+		mShelfHeight[p] = 0;
+		mCursorX[p] = 0;
+		mPageStamps[p] = 0;
+		mDirtyTop[p] = mPageSize;
+		mDirtyBottom[p] = 0;
+	}
+}
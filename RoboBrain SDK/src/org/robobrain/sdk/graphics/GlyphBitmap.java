@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+/**
+ * The image and metrics of one glyph drawn by a GlyphRasterizer. A single
+ * GlyphBitmap is reused for every glyph, so its pixel array only grows.
+ * @author James Johnson
+ */
+public class GlyphBitmap {
+	/** The width of the image in pixels. */
+	public int width;
+
+	/** The height of the image in pixels. */
+	public int height;
+
+	/** The distance from the pen position to the left of the image. */
+	public int xOffset;
+
+	/** The distance from the top of the line to the top of the image. */
+	public int yOffset;
+
+	/** How far to move the pen after drawing the glyph. */
+	public int advance;
+
+	/** The coverage of each pixel from 0 - 255, one row after another. */
+	public byte alpha[];
+
+	/**
+	 * Initializes an empty GlyphBitmap.
+	 */
+	public GlyphBitmap() {
+		alpha = new byte[0];
+	}
+
+	/**
+	 * Sets the size of the image and clears it.
+	 * @param width
+	 * The width in pixels.
+	 * @param height
+	 * The height in pixels.
+	 */
+	public void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+		int size = width * height;
+		if (alpha.length < size) {
+			alpha = new byte[size];
+		} else {
+			for (int i = 0; i < size; i++) {
+				alpha[i] = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+/**
+ * Draws single glyphs of a font into an alpha bitmap for a GlyphAtlas.
+ * PaintRasterizer draws TrueType fonts with Android's Paint. Other
+ * implementations can supply glyphs from anywhere, such as a stand-in that
+ * draws boxes when there is no Android runtime.
+ * @author James Johnson
+ */
+public interface GlyphRasterizer {
+	/**
+	 * Gets the distance between two lines of text.
+	 * @return
+	 * The line height in pixels.
+	 */
+	public int getLineHeight();
+
+	/**
+	 * Gets the distance from the top of a line to the baseline.
+	 * @return
+	 * The base in pixels.
+	 */
+	public int getBase();
+
+	/**
+	 * Draws one glyph. The bitmap's offsets place its top left corner
+	 * relative to the pen position and the top of the line. Transparent
+	 * borders are trimmed by the GlyphAtlas, so they don't need to be tight.
+	 * @param c
+	 * The Unicode code point to draw.
+	 * @param out
+	 * Receives the glyph's image and metrics.
+	 * @return
+	 * false if the font can't draw the character.
+	 */
+	public boolean rasterize(int c, GlyphBitmap out);
+}
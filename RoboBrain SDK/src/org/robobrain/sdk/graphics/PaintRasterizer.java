@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * Draws glyphs of a TrueType font with Android's Paint. Load the Typeface
+ * with Typeface.createFromAsset() and hand this to a GlyphAtlas.
+ * @author James Johnson
+ */
+public class PaintRasterizer implements GlyphRasterizer {
+	// Room left around each glyph for anti aliasing and overhangs
+	private static final int PADDING = 2;
+
+	private Paint mPaint;
+	private int mLineHeight;
+	private int mBase;
+	private char mChars[];
+	private float mWidths[];
+	private Bitmap mBitmap;
+	private Canvas mCanvas;
+	private int mPixels[];
+
+	/**
+	 * Initializes the PaintRasterizer.
+	 * @param typeface
+	 * The font to draw, or null for the default font.
+	 * @param size
+	 * The size of the text in pixels.
+	 */
+	public PaintRasterizer(Typeface typeface, float size) {
+		mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		if (typeface != null) {
+			mPaint.setTypeface(typeface);
+		}
+		mPaint.setTextSize(size);
+		mPaint.setColor(0xFFFFFFFF);
+		Paint.FontMetrics fm = new Paint.FontMetrics();
+		mPaint.getFontMetrics(fm);
+		mBase = (int)Math.ceil(-fm.ascent);
+		mLineHeight = (int)Math.ceil(fm.descent - fm.ascent + fm.leading);
+		mChars = new char[2];
+		mWidths = new float[2];
+		mBitmap = null;
+		mCanvas = null;
+		mPixels = null;
+	}
+
+	public int getLineHeight() { return mLineHeight; }
+
+	public int getBase() { return mBase; }
+
+	public boolean rasterize(int c, GlyphBitmap out) {
+		int count = Character.toChars(c, mChars, 0);
+		mPaint.getTextWidths(mChars, 0, count, mWidths);
+		float advance = mWidths[0];
+		if (count > 1) {
+			advance += mWidths[1];
+		}
+		int width = (int)Math.ceil(advance) + PADDING * 2;
+		int height = mLineHeight + PADDING * 2;
+		ensureBitmap(width, height);
+
+		mBitmap.eraseColor(0);
+		mCanvas.drawText(mChars, 0, count, PADDING, PADDING + mBase, mPaint);
+		mBitmap.getPixels(mPixels, 0, width, 0, 0, width, height);
+
+		out.setSize(width, height);
+		for (int i = 0; i < width * height; i++) {
+			out.alpha[i] = (byte)(mPixels[i] >>> 24);
+		}
+		out.xOffset = -PADDING;
+		out.yOffset = -PADDING;
+		out.advance = Math.round(advance);
+		return true;
+	}
+
+	// Makes sure the drawing bitmap is at least width x height
+	private void ensureBitmap(int width, int height) {
+		if ((mBitmap != null) && (mBitmap.getWidth() >= width) && (mBitmap.getHeight() >= height)) {
+			return;
+		}
+		if (mBitmap != null) {
+			width = Math.max(width, mBitmap.getWidth());
+			height = Math.max(height, mBitmap.getHeight());
+			mBitmap.recycle();
+		}
+		mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+		mCanvas = new Canvas(mBitmap);
+		mPixels = new int[width * height];
+	}
+}
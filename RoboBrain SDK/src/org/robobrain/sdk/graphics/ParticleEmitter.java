@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import org.robobrain.sdk.GLRenderer;
+import org.robobrain.sdk.math.FastMath;
+
+import android.util.Log;
+
+/**
+ * A Renderable that emits, moves and draws many small textured particles. All
+ * particle data lives in preallocated arrays of primitives and the whole
+ * emitter is drawn with a single glDrawElements() call, so explosions with
+ * thousands of particles cost one draw call and no garbage.
+ * <p>
+ * Particles are emitted at the emitter's position and live in screen space, so
+ * moving the emitter does not drag particles that have already been emitted.
+ * Configure the emitter through its public fields, then either set a
+ * continuous emission rate or call burst().
+ * @author James Johnson
+ */
+public class ParticleEmitter extends Renderable {
+	/** The most particles one emitter can hold. Limited by 16 bit indices. */
+	public static final int MAX_PARTICLES = 16383;
+
+	/** Particles emitted per second. 0 = only emit on burst(). */
+	public float rate;
+
+	/** Shortest particle life in milliseconds. */
+	public float minLife;
+
+	/** Longest particle life in milliseconds. */
+	public float maxLife;
+
+	/** Slowest starting speed in pixels per millisecond. */
+	public float minSpeed;
+
+	/** Fastest starting speed in pixels per millisecond. */
+	public float maxSpeed;
+
+	/** Direction particles are emitted in, in degrees. 0 = right, 90 = down. */
+	public float direction;
+
+	/** Particles are emitted up to this many degrees either side of direction. */
+	public float spread;
+
+	/** Acceleration along the X axis in pixels per millisecond squared. */
+	public float gravityX;
+
+	/** Acceleration along the Y axis in pixels per millisecond squared. */
+	public float gravityY;
+
+	/** Particles are emitted up to this many pixels from the emitter's position. */
+	public float radius;
+
+	/** Size of a particle in pixels when it is emitted. */
+	public float startSize;
+
+	/** Size of a particle in pixels when it dies. */
+	public float endSize;
+
+	/** Color of a particle when it is emitted. */
+	public Color startColor;
+
+	/** Color of a particle when it dies. */
+	public Color endColor;
+
+	/** Set to true to add particle colors together instead of blending them. */
+	public boolean additive;
+
+	private Texture mTexture;
+	private int mCapacity;
+	private int mCount;
+	private float mEmitAccumulator;
+	private int mSeed;
+
+	// Particle data
+	private float mX[];
+	private float mY[];
+	private float mVX[];
+	private float mVY[];
+	private float mLife[];
+	private float mMaxLife[];
+	private float mSize[];
+	private float mColor[];
+
+	// Rendering
+	private float mVertexData[];
+	private FloatBuffer mVertices;
+	private FloatBuffer mTexCoords;
+	private FloatBuffer mColors;
+	private ShortBuffer mIndices;
+
+	/**
+	 * Initializes the ParticleEmitter.
+	 * @param texture
+	 * The Texture drawn for every particle. Usually a small soft dot.
+	 * @param maxParticles
+	 * The most particles alive at once. Up to MAX_PARTICLES.
+	 */
+	public ParticleEmitter(Texture texture, int maxParticles) {
+		if (maxParticles < 1) {
+			maxParticles = 1;
+		}
+		if (maxParticles > MAX_PARTICLES) {
+			Log.w("ParticleEmitter", "maxParticles clamped to " + MAX_PARTICLES + ".");
+			maxParticles = MAX_PARTICLES;
+		}
+		mTexture = texture;
+		mCapacity = maxParticles;
+		mCount = 0;
+		mEmitAccumulator = 0;
+		mSeed = (int)System.nanoTime() | 1;
+
+		mX = new float[maxParticles];
+		mY = new float[maxParticles];
+		mVX = new float[maxParticles];
+		mVY = new float[maxParticles];
+		mLife = new float[maxParticles];
+		mMaxLife = new float[maxParticles];
+		mSize = new float[maxParticles];
+		mColor = new float[maxParticles * 4];
+
+		rate = 0;
+		minLife = 500;
+		maxLife = 1000;
+		minSpeed = 0.05f;
+		maxSpeed = 0.2f;
+		direction = 0;
+		spread = 180;
+		gravityX = 0;
+		gravityY = 0;
+		radius = 0;
+		startSize = 16;
+		endSize = 16;
+		startColor = Color.WHITE.clone();
+		endColor = new Color(1.0f, 1.0f, 1.0f, 0.0f);
+		additive = false;
+
+		x = 0;
+		y = 0;
+		scale = 1.0f;
+		rotation = 0;
+		visible = true;
+
+		buildBuffers();
+	}
+
+	/**
+	 * Emits a number of particles at once.
+	 * @param count
+	 * The number of particles to emit. Particles beyond the emitter's capacity
+	 * are dropped.
+	 */
+	public void burst(int count) {
+		for (int i = 0; i < count; i++) {
+			if (!emit()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes every particle.
+	 */
+	public void clear() {
+		mCount = 0;
+		mEmitAccumulator = 0;
+	}
+
+	/**
+	 * Moves, ages and kills the existing particles, then emits new ones.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	@Override
+	public void update(long time) {
+		float t = (float)time;
+		float dvx = gravityX * t;
+		float dvy = gravityY * t;
+		Color c0 = startColor;
+		Color c1 = endColor;
+		int i = 0;
+		while (i < mCount) {
+			float life = mLife[i] - t;
+			if (life <= 0) {
+				kill(i);
+				continue;
+			}
+			mLife[i] = life;
+			mVX[i] += dvx;
+			mVY[i] += dvy;
+			mX[i] += mVX[i] * t;
+			mY[i] += mVY[i] * t;
+
+			// 0 when emitted, 1 when it dies
+			float age = 1.0f - life / mMaxLife[i];
+			mSize[i] = startSize + (endSize - startSize) * age;
+			int ci = i * 4;
+			mColor[ci] = c0.r + (c1.r - c0.r) * age;
+			mColor[ci + 1] = c0.g + (c1.g - c0.g) * age;
+			mColor[ci + 2] = c0.b + (c1.b - c0.b) * age;
+			mColor[ci + 3] = c0.a + (c1.a - c0.a) * age;
+			i++;
+		}
+
+		// New particles start moving next frame
+		if (rate > 0) {
+			mEmitAccumulator += rate * time * 0.001f;
+			while (mEmitAccumulator >= 1.0f) {
+				mEmitAccumulator -= 1.0f;
+				if (!emit()) {
+					mEmitAccumulator = 0;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets a new copy of the Renderable's texture from
+	 * the TextureManager.
+	 */
+	@Override
+	public void updateTexture() {
+		if (mTexture != null) {
+			mTexture = TextureManager.getTexture(mTexture.getID());
+		}
+	}
+
+	/**
+	 * Draws every particle with a single draw call.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	@Override
+	public void draw(GL10 gl) {
+		if (!visible || (mCount == 0)) {
+			return;
+		}
+
+		// Build the quads in screen space
+		float s = GLRenderer.getScale() * scale * 0.5f;
+		float v[] = mVertexData;
+		int n = 0;
+		for (int i = 0; i < mCount; i++) {
+			float half = mSize[i] * s;
+			float l = mX[i] - half;
+			float r = mX[i] + half;
+			float t = mY[i] - half;
+			float b = mY[i] + half;
+			v[n++] = l; v[n++] = t;
+			v[n++] = r; v[n++] = t;
+			v[n++] = r; v[n++] = b;
+			v[n++] = l; v[n++] = b;
+		}
+		mVertices.clear();
+		mVertices.put(v, 0, n);
+		mVertices.position(0);
+
+		// Four vertices per particle share the particle's color
+		n = 0;
+		float cd[] = mVertexData;
+		for (int i = 0; i < mCount; i++) {
+			int ci = i * 4;
+			for (int k = 0; k < 4; k++) {
+				cd[n++] = mColor[ci];
+				cd[n++] = mColor[ci + 1];
+				cd[n++] = mColor[ci + 2];
+				cd[n++] = mColor[ci + 3];
+			}
+		}
+		mColors.clear();
+		mColors.put(cd, 0, n);
+		mColors.position(0);
+
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+		if (mTexture != null) {
+			gl.glBindTexture(GL10.GL_TEXTURE_2D, mTexture.getGLID());
+		}
+		if (additive) {
+			gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE);
+		}
+		gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
+		gl.glVertexPointer(2, GL10.GL_FLOAT, 0, mVertices);
+		gl.glTexCoordPointer(2, GL10.GL_FLOAT, 0, mTexCoords);
+		gl.glColorPointer(4, GL10.GL_FLOAT, 0, mColors);
+		mIndices.position(0);
+		gl.glDrawElements(GL10.GL_TRIANGLES, mCount * 6, GL10.GL_UNSIGNED_SHORT, mIndices);
+		gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+		if (additive) {
+			gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+		}
+	}
+
+	/**
+	 * Moves the emitter and draws every particle.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	@Override
+	public void draw(GL10 gl, float x, float y, float rotation, float scale) {
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+		this.scale = scale;
+		this.draw(gl);
+	}
+
+	/**
+	 * Gets the number of particles alive.
+	 * @return
+	 * The number of particles.
+	 */
+	public int getCount() { return mCount; }
+
+	/**
+	 * Gets the most particles the emitter can hold.
+	 * @return
+	 * The number of particles.
+	 */
+	public int getCapacity() { return mCapacity; }
+
+	/**
+	 * Determines if the emitter has particles alive or is emitting them.
+	 * @return
+	 * true while particles are alive or the rate is above 0.
+	 */
+	@Override
+	public boolean isAnimating() { return (mCount > 0) || (rate > 0); }
+
+	/**
+	 * Gets the Texture drawn for every particle.
+	 * @return
+	 * The Texture used by the ParticleEmitter.
+	 */
+	@Override
+	public Texture getTexture() { return mTexture; }
+
+	// Adds one particle at the emitter's position
+	private boolean emit() {
+		if (mCount == mCapacity) {
+			return false;
+		}
+		int i = mCount++;
+		float px = x;
+		float py = y;
+		if (radius > 0) {
+			float a = random() * 360.0f;
+			float d = random() * radius;
+			px += FastMath.cosDeg(a) * d;
+			py += FastMath.sinDeg(a) * d;
+		}
+		float angle = direction + (random() * 2.0f - 1.0f) * spread;
+		float speed = minSpeed + (maxSpeed - minSpeed) * random();
+		float life = minLife + (maxLife - minLife) * random();
+		if (life < 1.0f) {
+			life = 1.0f;
+		}
+		mX[i] = px;
+		mY[i] = py;
+		mVX[i] = FastMath.cosDeg(angle) * speed;
+		mVY[i] = FastMath.sinDeg(angle) * speed;
+		mLife[i] = life;
+		mMaxLife[i] = life;
+		mSize[i] = startSize;
+		int ci = i * 4;
+		mColor[ci] = startColor.r;
+		mColor[ci + 1] = startColor.g;
+		mColor[ci + 2] = startColor.b;
+		mColor[ci + 3] = startColor.a;
+		return true;
+	}
+
+	// Removes a particle by moving the last one into its place
+	private void kill(int i) {
+		int last = --mCount;
+		if (i == last) {
+			return;
+		}
+		mX[i] = mX[last];
+		mY[i] = mY[last];
+		mVX[i] = mVX[last];
+		mVY[i] = mVY[last];
+		mLife[i] = mLife[last];
+		mMaxLife[i] = mMaxLife[last];
+		mSize[i] = mSize[last];
+		int ci = i * 4;
+		int cl = last * 4;
+		mColor[ci] = mColor[cl];
+		mColor[ci + 1] = mColor[cl + 1];
+		mColor[ci + 2] = mColor[cl + 2];
+		mColor[ci + 3] = mColor[cl + 3];
+	}
+
+	// A fast random number from 0 - 1. Math.random() is synchronized.
+	private float random() {
+		mSeed ^= mSeed << 13;
+		mSeed ^= mSeed >>> 17;
+		mSeed ^= mSeed << 5;
+		return (mSeed >>> 8) * (1.0f / 16777216.0f);
+	}
+
+	// Allocates all of the vertex data up front
+	private void buildBuffers() {
+		int verts = mCapacity * 4;
+
+		// Enough for either positions (2 per vertex) or colors (4 per vertex)
+		mVertexData = new float[verts * 4];
+
+		ByteBuffer buf = ByteBuffer.allocateDirect(verts * 2 * 4);
+		buf.order(ByteOrder.nativeOrder());
+		mVertices = buf.asFloatBuffer();
+
+		buf = ByteBuffer.allocateDirect(verts * 4 * 4);
+		buf.order(ByteOrder.nativeOrder());
+		mColors = buf.asFloatBuffer();
+
+		// Texture coordinates never change
+		buf = ByteBuffer.allocateDirect(verts * 2 * 4);
+		buf.order(ByteOrder.nativeOrder());
+		mTexCoords = buf.asFloatBuffer();
+		float uv[] = { 0, 0, 1, 0, 1, 1, 0, 1 };
+		for (int i = 0; i < mCapacity; i++) {
+			mTexCoords.put(uv);
+		}
+		mTexCoords.position(0);
+
+		ByteBuffer buf2 = ByteBuffer.allocateDirect(mCapacity * 6 * 2);
+		buf2.order(ByteOrder.nativeOrder());
+		mIndices = buf2.asShortBuffer();
+		for (int i = 0; i < mCapacity; i++) {
+			short base = (short)(i * 4);
+			mIndices.put(base);
+			mIndices.put((short)(base + 1));
+			mIndices.put((short)(base + 2));
+			mIndices.put((short)(base + 2));
+			mIndices.put((short)(base + 3));
+			mIndices.put(base);
+		}
+		mIndices.position(0);
+	}
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11ExtensionPack;
+
+import org.robobrain.sdk.GLRenderer;
+
+import android.util.Log;
+
+/**
+ * Draws a group of Renderables into a texture once, then draws that texture
+ * as a single quad every frame until invalidate() is called. Use it for HUDs
+ * and backgrounds built from many sprites that rarely change.
+ * <p>
+ * The Renderables are laid out in the cache's own space: (0, 0) is its top
+ * left corner and (width, height) its bottom right, in screen pixels. Like
+ * a Sprite, the cache is drawn centered on its x and y, so it can be given to
+ * an Entity or a Node. The Renderables aren't updated by the cache; call
+ * invalidate() after changing any of them.
+ * <p>
+ * The texture is rendered through GL_OES_framebuffer_object. Devices without
+ * it draw the Renderables one by one every frame instead, so they look the
+ * same but don't get any faster.
+ * @author James Johnson
+ */
+public class RenderCache extends Renderable {
+	private static final int VERTEX_SIZE = (2 + 2) * 4;
+
+	// Framebuffer support, checked once per OpenGL context
+	private static final int SUPPORT_UNKNOWN = 0;
+	private static final int SUPPORT_YES = 1;
+	private static final int SUPPORT_NO = 2;
+
+	/**
+	 * This color tints the cached image. It defaults to white. It has no
+	 * effect when the Renderables are drawn without a cache.
+	 */
+	public Color color;
+
+	private ArrayList<Renderable> mItems;
+	private int mWidth;
+	private int mHeight;
+	private int mTextureWidth;
+	private int mTextureHeight;
+	private int mTextureID;
+	private int mFramebufferID;
+	private int mSupport;
+	private boolean mDirty;
+	private int mRenderCount;
+	private FloatBuffer mVertices;
+	private ShortBuffer mIndices;
+	private int mIDs[];
+
+	/**
+	 * Initializes an empty RenderCache.
+	 * @param width
+	 * The width of the cached area in pixels.
+	 * @param height
+	 * The height of the cached area in pixels.
+	 */
+	public RenderCache(int width, int height) {
+		mWidth = Math.max(width, 1);
+		mHeight = Math.max(height, 1);
+		mTextureWidth = nextPowerOfTwo(mWidth);
+		mTextureHeight = nextPowerOfTwo(mHeight);
+		mItems = new ArrayList<Renderable>();
+		mTextureID = 0;
+		mFramebufferID = 0;
+		mSupport = SUPPORT_UNKNOWN;
+		mDirty = true;
+		mRenderCount = 0;
+		mIDs = new int[1];
+		color = new Color(1.0f, 1.0f, 1.0f, 1.0f);
+		x = 0;
+		y = 0;
+		rotation = 0;
+		scale = 1.0f;
+		visible = true;
+
+		// A quad centered on the origin, top of the image at v = 0
+		float hw = mWidth * 0.5f;
+		float hh = mHeight * 0.5f;
+		float u = (float)mWidth / (float)mTextureWidth;
+		float v = (float)mHeight / (float)mTextureHeight;
+		ByteBuffer buf = ByteBuffer.allocateDirect(4 * VERTEX_SIZE);
+		buf.order(ByteOrder.nativeOrder());
+		mVertices = buf.asFloatBuffer();
+		mVertices.put(-hw).put(-hh).put(0).put(0);
+		mVertices.put(hw).put(-hh).put(u).put(0);
+		mVertices.put(hw).put(hh).put(u).put(v);
+		mVertices.put(-hw).put(hh).put(0).put(v);
+		mVertices.position(0);
+
+		short[] ind = { 0, 1, 2, 2, 3, 0 };
+		ByteBuffer buf2 = ByteBuffer.allocateDirect(6 * 2);
+		buf2.order(ByteOrder.nativeOrder());
+		mIndices = buf2.asShortBuffer();
+		mIndices.put(ind);
+		mIndices.position(0);
+	}
+
+	/**
+	 * Adds a Renderable to the cache. It is drawn after, and so on top of, the
+	 * ones added before it.
+	 * @param renderable
+	 * The Renderable to add.
+	 */
+	public void add(Renderable renderable) {
+		if (renderable == null) {
+			Log.w("RenderCache", "Null Renderable passed to add().");
+			return;
+		}
+		mItems.add(renderable);
+		mDirty = true;
+	}
+
+	/**
+	 * Removes a Renderable from the cache.
+	 * @param renderable
+	 * The Renderable to remove.
+	 */
+	public void remove(Renderable renderable) {
+		if (mItems.remove(renderable)) {
+			mDirty = true;
+		}
+	}
+
+	/**
+	 * Removes every Renderable from the cache.
+	 */
+	public void clear() {
+		mItems.clear();
+		mDirty = true;
+	}
+
+	/**
+	 * Gets the number of Renderables in the cache.
+	 * @return
+	 * The number of Renderables.
+	 */
+	public int getCount() { return mItems.size(); }
+
+	/**
+	 * Gets a Renderable by its position in drawing order.
+	 * @param index
+	 * The Renderable's position. 0 is drawn first.
+	 * @return
+	 * The Renderable.
+	 */
+	public Renderable get(int index) { return mItems.get(index); }
+
+	/**
+	 * Marks the cached image as out of date. It is drawn again the next time
+	 * the cache is drawn.
+	 */
+	public void invalidate() {
+		mDirty = true;
+	}
+
+	/**
+	 * Determines if the cache is drawn from a texture. False before the first
+	 * draw and on devices without framebuffer objects.
+	 * @return
+	 * True if the Renderables are cached.
+	 */
+	public boolean isCached() {
+		return (mSupport == SUPPORT_YES) && (mFramebufferID != 0);
+	}
+
+	/**
+	 * Gets the number of times the Renderables have been drawn into the
+	 * texture. Useful for checking that the cache isn't invalidated every frame.
+	 * @return
+	 * The number of times.
+	 */
+	public int getRenderCount() { return mRenderCount; }
+
+	/**
+	 * Forgets the texture and framebuffer after OpenGL is reset, and updates
+	 * the textures of the cached Renderables. The image is drawn again on the
+	 * next draw.
+	 */
+	@Override
+	public void updateTexture() {
+		mTextureID = 0;
+		mFramebufferID = 0;
+		mSupport = SUPPORT_UNKNOWN;
+		mDirty = true;
+		int count = mItems.size();
+		for (int i = 0; i < count; i++) {
+			mItems.get(i).updateTexture();
+		}
+	}
+
+	/**
+	 * Deletes the texture and framebuffer. They are made again if the cache
+	 * is drawn.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	public void release(GL10 gl) {
+		if (gl == null) {
+			return;
+		}
+		if (mFramebufferID != 0) {
+			mIDs[0] = mFramebufferID;
+			((GL11ExtensionPack)gl).glDeleteFramebuffersOES(1, mIDs, 0);
+			mFramebufferID = 0;
+		}
+		if (mTextureID != 0) {
+			mIDs[0] = mTextureID;
+			gl.glDeleteTextures(1, mIDs, 0);
+			mTextureID = 0;
+		}
+		mDirty = true;
+	}
+
+	/**
+	 * Draws the cache, rendering the Renderables into the texture first if it
+	 * is out of date.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	@Override
+	public void draw(GL10 gl) {
+		if (!visible || (gl == null)) {
+			return;
+		}
+		if (mSupport == SUPPORT_UNKNOWN) {
+			mSupport = checkSupport(gl) ? SUPPORT_YES : SUPPORT_NO;
+		}
+		if ((mSupport == SUPPORT_YES) && (mFramebufferID == 0) && !createFramebuffer(gl)) {
+			mSupport = SUPPORT_NO;
+		}
+		if (mSupport == SUPPORT_NO) {
+			drawDirect(gl);
+			return;
+		}
+		if (mDirty) {
+			renderItems(gl);
+			mDirty = false;
+		}
+
+		// The texture holds premultiplied color
+		mVertices.position(0);
+		gl.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
+		mVertices.position(2);
+		gl.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
+		gl.glColor4f(color.r * color.a, color.g * color.a, color.b * color.a, color.a);
+		gl.glBindTexture(GL10.GL_TEXTURE_2D, mTextureID);
+		gl.glBlendFunc(GL10.GL_ONE, GL10.GL_ONE_MINUS_SRC_ALPHA);
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glTranslatef(x, y, 0);
+		gl.glRotatef(rotation, 0, 0, 1);
+		gl.glScalef(scale, scale, 1.0f);
+		gl.glDrawElements(GL10.GL_TRIANGLES, 6, GL10.GL_UNSIGNED_SHORT, mIndices);
+		gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+	}
+
+	/**
+	 * Draws the cache.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	@Override
+	public void draw(GL10 gl, float x, float y, float rotation, float scale) {
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+		this.scale = scale;
+		draw(gl);
+	}
+
+	/**
+	 * Gets the width of the cache.
+	 * @return
+	 * The width in pixels.
+	 */
+	@Override
+	public int getWidth() { return (int)(mWidth * scale); }
+
+	/**
+	 * Gets the height of the cache.
+	 * @return
+	 * The height in pixels.
+	 */
+	@Override
+	public int getHeight() { return (int)(mHeight * scale); }
+
+	// Checks for framebuffer objects
+	private boolean checkSupport(GL10 gl) {
+		if (!(gl instanceof GL11ExtensionPack)) {
+			return false;
+		}
+		String extensions = gl.glGetString(GL10.GL_EXTENSIONS);
+		if ((extensions == null) || (extensions.indexOf("GL_OES_framebuffer_object") < 0)) {
+			Log.w("RenderCache", "Framebuffer objects not supported, drawing without a cache.");
+			return false;
+		}
+		return true;
+	}
+
+	// Makes the texture and the framebuffer that renders into it
+	private boolean createFramebuffer(GL10 gl) {
+		GL11ExtensionPack ext = (GL11ExtensionPack)gl;
+		gl.glGenTextures(1, mIDs, 0);
+		mTextureID = mIDs[0];
+		gl.glBindTexture(GL10.GL_TEXTURE_2D, mTextureID);
+		gl.glTexImage2D(GL10.GL_TEXTURE_2D, 0, GL10.GL_RGBA, mTextureWidth, mTextureHeight, 0,
+						GL10.GL_RGBA, GL10.GL_UNSIGNED_BYTE, null);
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_LINEAR);
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_LINEAR);
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE);
+		gl.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
+
+		ext.glGenFramebuffersOES(1, mIDs, 0);
+		mFramebufferID = mIDs[0];
+		ext.glBindFramebufferOES(GL11ExtensionPack.GL_FRAMEBUFFER_OES, mFramebufferID);
+		ext.glFramebufferTexture2DOES(GL11ExtensionPack.GL_FRAMEBUFFER_OES, GL11ExtensionPack.GL_COLOR_ATTACHMENT0_OES,
+									  GL10.GL_TEXTURE_2D, mTextureID, 0);
+		int status = ext.glCheckFramebufferStatusOES(GL11ExtensionPack.GL_FRAMEBUFFER_OES);
+		ext.glBindFramebufferOES(GL11ExtensionPack.GL_FRAMEBUFFER_OES, 0);
+		if (status != GL11ExtensionPack.GL_FRAMEBUFFER_COMPLETE_OES) {
+			Log.w("RenderCache", "Framebuffer incomplete (" + status + "), drawing without a cache.");
+			release(gl);
+			return false;
+		}
+		return true;
+	}
+
+	// Draws the Renderables into the texture
+	private void renderItems(GL10 gl) {
+		GL11ExtensionPack ext = (GL11ExtensionPack)gl;
+		ext.glBindFramebufferOES(GL11ExtensionPack.GL_FRAMEBUFFER_OES, mFramebufferID);
+		gl.glViewport(0, 0, mTextureWidth, mTextureHeight);
+		gl.glMatrixMode(GL10.GL_PROJECTION);
+		gl.glPushMatrix();
+		gl.glLoadIdentity();
+		// Row 0 of the texture holds the top of the image, like a loaded bitmap
+		gl.glOrthof(0, mTextureWidth, 0, mTextureHeight, 0, 1);
+		gl.glClearColor(0, 0, 0, 0);
+		gl.glClear(GL10.GL_COLOR_BUFFER_BIT);
+
+		// Color first, then alpha on its own so it adds up instead of being
+		// multiplied by itself
+		gl.glColorMask(true, true, true, false);
+		drawItems(gl, GL10.GL_SRC_ALPHA);
+		gl.glColorMask(false, false, false, true);
+		drawItems(gl, GL10.GL_ONE);
+		gl.glColorMask(true, true, true, true);
+		gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+
+		Color clear = GLRenderer.getClearColor();
+		gl.glClearColor(clear.r, clear.g, clear.b, clear.a);
+		gl.glMatrixMode(GL10.GL_PROJECTION);
+		gl.glPopMatrix();
+		gl.glViewport(0, 0, GLRenderer.getWidth(), GLRenderer.getHeight());
+		ext.glBindFramebufferOES(GL11ExtensionPack.GL_FRAMEBUFFER_OES, 0);
+		mRenderCount++;
+	}
+
+	// Draws every Renderable, setting the blend before each in case one changed it
+	private void drawItems(GL10 gl, int source) {
+		int count = mItems.size();
+		for (int i = 0; i < count; i++) {
+			Renderable r = mItems.get(i);
+			gl.glBlendFunc(source, GL10.GL_ONE_MINUS_SRC_ALPHA);
+			gl.glBindTexture(GL10.GL_TEXTURE_2D, 0);
+			r.draw(gl);
+		}
+	}
+
+	// Draws the Renderables straight to the screen, moved into place through
+	// the projection since they reset the modelview themselves
+	private void drawDirect(GL10 gl) {
+		gl.glMatrixMode(GL10.GL_PROJECTION);
+		gl.glPushMatrix();
+		gl.glTranslatef(x, y, 0);
+		gl.glRotatef(rotation, 0, 0, 1);
+		gl.glScalef(scale, scale, 1.0f);
+		gl.glTranslatef(-mWidth * 0.5f, -mHeight * 0.5f, 0);
+		int count = mItems.size();
+		for (int i = 0; i < count; i++) {
+			gl.glBindTexture(GL10.GL_TEXTURE_2D, 0);
+			mItems.get(i).draw(gl);
+		}
+		gl.glMatrixMode(GL10.GL_PROJECTION);
+		gl.glPopMatrix();
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+	}
+
+	// Textures must be a power of 2 in OpenGL ES 1.0
+	private static int nextPowerOfTwo(int n) {
+		int p = 1;
+		while (p < n) {
+			p <<= 1;
+		}
+		return p;
+	}
+}
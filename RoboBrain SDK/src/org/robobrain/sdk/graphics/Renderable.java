@@ -62,6 +62,23 @@ public class Renderable {
 	 */
 	public void update(long time) {}
 	
+	/**
+	 * Determines if the Renderable changes by itself from frame to frame, so
+	 * frames must keep being drawn while rendering on demand.
+	 * @return
+	 * true while the Renderable is animating. Defaults to false.
+	 */
+	public boolean isAnimating() { return false; }
+	
+	/**
+	 * Reports once that the Renderable changed in a way its size doesn't
+	 * show, such as new text or a new animation frame, so a frame is drawn
+	 * while rendering on demand. Called by the World once per update.
+	 * @return
+	 * true if the Renderable changed since the last call. Defaults to false.
+	 */
+	public boolean takeChange() { return false; }
+	
 	
 	/**
 	 * Gets a new copy of the Renderable's texture from 
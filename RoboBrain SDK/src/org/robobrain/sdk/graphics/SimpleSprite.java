@@ -71,7 +71,7 @@ public class SimpleSprite extends Renderable {
 		x = 0;
 		y = 0;
 		scale = 1.0f;
-		color = Color.WHITE;
+		color = Color.WHITE.clone();
 		visible = true;
 	}
 	
@@ -36,6 +36,12 @@ import android.util.Log;
  * An animated Renderable object. Draws an animated Texture to the screen. It is 
  * in effect a Sprite sheet.Note: The Sprite's origin is at the center of it's
  *  bounding Rectangle.
+ * <p>
+ * By default every frame of the sheet is played in a loop. Call play() with an
+ * AnimationClip to pick the frames, their durations and how the clip ends.
+ * <p>
+ * A Sprite made from a SpriteSheet draws each frame with its trimmed quad,
+ * so the transparent border packed away by the sheet is never filled.
  * @author James Johnson
  *
  */
@@ -66,6 +72,17 @@ public class Sprite extends Renderable{
 	protected float mRight;
 	protected int mTime;
 	protected boolean mPlaying;
+	protected int mFrameTime;
+	protected AnimationClip mClip;
+	protected int mClipFrame;
+	protected int mClipDirection;
+	protected boolean mClipFinished;
+	protected AnimationListener mListener;
+	protected SpriteSheet mSheet;
+	private SpriteSheet mFrameSheet; // The sheet of the frame shown, or null for grid frames
+	private int mSheetFrame;
+	private boolean mVertsDirty;
+	private boolean mFrameChanged; // A new frame is shown, cleared by takeChange()
 	
 	
 	/**
@@ -102,16 +119,65 @@ public class Sprite extends Renderable{
 		mTop = 0.0f;
 		mBottom = mRowUnit;
 		
+		init();
+		generateFrameRect();
+	}
+	
+	/**
+	 * Initializes the Sprite from a sprite sheet descriptor. Without an
+	 * AnimationClip every frame of the sheet is played in name order.
+	 * @param texture
+	 * The Texture the sheet was packed into.
+	 * @param sheet
+	 * The SpriteSheet describing the frames.
+	 */
+	public Sprite(Texture texture, SpriteSheet sheet) {
+		if ((texture == null) || (sheet == null) || (sheet.getFrameCount() == 0)) {
+			return;
+		}
+		mTexture = texture;
+		mSheet = sheet;
+		mMaxFrames = sheet.getFrameCount();
+		mCurrentFrame = 0;
+		mColumns = 1;
+		mRows = 1;
+		
+		init();
+		generateFrameRect();
+	}
+	
+	// Sets up the state shared by both constructors
+	private void init() {
 		x = 0;
 		y = 0;
 		scale = 1.0f;
 		rotation = 0;
 		mTime = 0;
 		
-		color = Color.WHITE;
+		color = Color.WHITE.clone();
 		
 		mPlaying = true;
 		visible = true;
+		
+		mFrameTime = 66;
+		mClip = null;
+		mClipFrame = 0;
+		mClipDirection = 1;
+		mClipFinished = false;
+		mListener = null;
+		
+		// Vertices
+		ByteBuffer buf = ByteBuffer.allocateDirect(4 * VERTEX_SIZE);
+		buf.order(ByteOrder.nativeOrder());
+		mVertices = buf.asFloatBuffer();
+		
+		// Indices
+		short[] ind = { 0, 1, 2, 2, 3, 0 };
+		ByteBuffer buf2 = ByteBuffer.allocateDirect(6 * 2);
+		buf2.order(ByteOrder.nativeOrder());
+		mIndices = buf2.asShortBuffer();
+		mIndices.put(ind);
+		mIndices.position(0);
 	}
 	
 	/**
@@ -124,11 +190,15 @@ public class Sprite extends Renderable{
 		if (!mPlaying) {
 			return;
 		}
+		if (mClip != null) {
+			updateClip(time);
+			return;
+		}
 		if (mMaxFrames == 1) {
 			return;
 		}
 		mTime += time;
-		if (mTime < 66) {
+		if (mTime < mFrameTime) {
 			return;
 		}
 		mTime = 0;
@@ -136,8 +206,165 @@ public class Sprite extends Renderable{
 		if (mCurrentFrame > (mMaxFrames - 1)) {
 			mCurrentFrame = 0;
 		}
+		generateFrameRect();
+	}
+	
+	// Advances the clip, skipping frames if more than one has passed
+	private void updateClip(long time) {
+		AnimationClip clip = mClip;
+		if (mClipFinished) {
+			return;
+		}
+		mTime += time;
+		int last = clip.getFrameCount() - 1;
+		while (mTime >= clip.mDurations[mClipFrame]) {
+			mTime -= clip.mDurations[mClipFrame];
+			int next = mClipFrame + mClipDirection;
+			if ((next > last) || (next < 0)) {
+				int mode = clip.getMode();
+				if (mode == AnimationClip.MODE_ONCE) {
+					mTime = 0;
+					mClipFinished = true;
+					if (mListener != null) {
+						mListener.onAnimationEvent(this, clip, AnimationClip.EVENT_END);
+					}
+					return;
+				} else if (mode == AnimationClip.MODE_PING_PONG) {
+					mClipDirection = -mClipDirection;
+					next = (last == 0) ? 0 : mClipFrame + mClipDirection;
+				} else {
+					next = 0;
+				}
+			}
+			showClipFrame(next);
+			if (mClip != clip) {
+				// The listener started another clip
+				return;
+			}
+		}
+	}
+	
+	// Shows a frame of the clip and sends its event
+	private void showClipFrame(int frame) {
+		mClipFrame = frame;
+		if (mClip.mSheet != null) {
+			showSheetFrame(mClip.mSheet, mClip.mFrames[frame]);
+		} else {
+			int uv = frame * 4;
+			mLeft = mClip.mUVs[uv];
+			mTop = mClip.mUVs[uv + 1];
+			mRight = mClip.mUVs[uv + 2];
+			mBottom = mClip.mUVs[uv + 3];
+			mFrameSheet = null;
+			mVertsDirty = true;
+			mFrameChanged = true;
+		}
+		int event = mClip.mEvents[frame];
+		if ((event != AnimationClip.NO_EVENT) && (mListener != null)) {
+			mListener.onAnimationEvent(this, mClip, event);
+		}
+	}
+	
+	/**
+	 * Plays an AnimationClip from its first frame. Playing the clip that is
+	 * already playing does nothing, so this can be called every frame.
+	 * @param clip
+	 * The clip to play, or null to go back to looping the whole sheet.
+	 */
+	public void play(AnimationClip clip) {
+		mPlaying = true;
+		if ((clip == mClip) && !mClipFinished) {
+			return;
+		}
+		mClip = clip;
+		mTime = 0;
+		mClipDirection = 1;
+		mClipFinished = false;
+		if (clip == null) {
+			generateFrameRect();
+			return;
+		}
+		showClipFrame(0);
+	}
+	
+	/**
+	 * Gets the AnimationClip being played.
+	 * @return
+	 * The clip, or null if the whole sheet is looping.
+	 */
+	public AnimationClip getClip() { return mClip; }
+	
+	/**
+	 * Gets the frame of the AnimationClip being shown.
+	 * @return
+	 * The frame of the clip, from 0.
+	 */
+	public int getClipFrame() { return mClipFrame; }
+	
+	/**
+	 * Determines if a MODE_ONCE clip has played its last frame.
+	 * @return
+	 * True if the clip has finished.
+	 */
+	public boolean isFinished() { return mClipFinished; }
+	
+	/**
+	 * Sets the listener told about AnimationClip events.
+	 * @param listener
+	 * The listener, or null.
+	 */
+	public void setAnimationListener(AnimationListener listener) {
+		mListener = listener;
+	}
+	
+	/**
+	 * Determines if the Sprite is playing an animation with more than one
+	 * frame.
+	 * @return
+	 * true while a clip or the Sprite's own frames are playing.
+	 */
+	@Override
+	public boolean isAnimating() {
+		if (!mPlaying) {
+			return false;
+		}
+		if (mClip != null) {
+			return !mClipFinished && (mClip.mDurations.length > 1);
+		}
+		return mMaxFrames > 1;
 	}
 	
+	/**
+	 * Reports once that a different frame is shown, such as after setFrame().
+	 * @return
+	 * true if the frame changed since the last call.
+	 */
+	@Override
+	public boolean takeChange() {
+		boolean changed = mFrameChanged;
+		mFrameChanged = false;
+		return changed;
+	}
+	
+	/**
+	 * Sets how long each frame is shown when no AnimationClip is playing.
+	 * @param time
+	 * The time in milliseconds. Defaults to 66. (15fps)
+	 */
+	public void setFrameTime(int time) {
+		if (time < 1) {
+			time = 1;
+		}
+		mFrameTime = time;
+	}
+	
+	/**
+	 * Gets how long each frame is shown when no AnimationClip is playing.
+	 * @return
+	 * The time in milliseconds.
+	 */
+	public int getFrameTime() { return mFrameTime; }
+	
 	/**
      * Gets a new copy of the Renderable's texture from 
      * the TextureManager.
@@ -157,8 +384,13 @@ public class Sprite extends Renderable{
 		if (!visible) {
 			return;
 		}
-		generateFrameRect();
-		generateFrameVerts();
+		if (mVertsDirty) {
+			generateFrameVerts();
+		}
+		mVertices.position(0);
+		gl.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
+		mVertices.position(2);
+		gl.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
 		gl.glColor4f(color.r, color.g, color.b, color.a);
 		if (mTexture != null) {
 			gl.glBindTexture(GL10.GL_TEXTURE_2D, mTexture.getGLID());
@@ -185,65 +417,63 @@ public class Sprite extends Renderable{
         this.draw(gl);
     }
 	
-	private void generateFrameVerts() {		
-		
+	// Shows a frame of a sprite sheet. The size follows the untrimmed frame
+	private void showSheetFrame(SpriteSheet sheet, int frame) {
+		mFrameSheet = sheet;
+		mSheetFrame = frame;
+		mWidth = sheet.getSourceWidth(frame);
+		mHeight = sheet.getSourceHeight(frame);
+		mHalfWidth = mWidth / 2;
+		mHalfHeight = mHeight / 2;
+		mVertsDirty = true;
+		mFrameChanged = true;
+	}
+	
+	// Writes the current frame into the vertex buffer
+	private void generateFrameVerts() {
+		mVertices.clear();
+		if (mFrameSheet != null) {
+			float q[] = mFrameSheet.mQuads;
+			float uv[] = mFrameSheet.mUVs;
+			int i = mSheetFrame * 4;
+			int j = mSheetFrame * 8;
+			mVertices.put(q[i]).put(q[i + 1]).put(uv[j]).put(uv[j + 1]);
+			mVertices.put(q[i + 2]).put(q[i + 1]).put(uv[j + 2]).put(uv[j + 3]);
+			mVertices.put(q[i + 2]).put(q[i + 3]).put(uv[j + 4]).put(uv[j + 5]);
+			mVertices.put(q[i]).put(q[i + 3]).put(uv[j + 6]).put(uv[j + 7]);
+			mVertices.position(0);
+			mVertsDirty = false;
+			return;
+		}
+		mVertices.put(-mHalfWidth).put(-mHalfHeight).put(mLeft).put(mTop);
+		mVertices.put(mHalfWidth).put(-mHalfHeight).put(mRight).put(mTop);
+		mVertices.put(mHalfWidth).put(mHalfHeight).put(mRight).put(mBottom);
+		mVertices.put(-mHalfWidth).put(mHalfHeight).put(mLeft).put(mBottom);
+		mVertices.position(0);
+		mVertsDirty = false;
+	}
+	
+	private void generateFrameRect() {
+		if (mSheet != null) {
+			showSheetFrame(mSheet, mCurrentFrame);
+			return;
+		}
+		mFrameSheet = null;
+		mVertsDirty = true;
+		mFrameChanged = true;
 		if (mMaxFrames == 1) {
 			mLeft = 0;
 			mRight = 1;
 			mTop = 0;
 			mBottom = 1;
-		}
-		
-		float[] verts = { 
-			-mHalfWidth, -mHalfHeight, mLeft, mTop,
-			mHalfWidth, -mHalfHeight, mRight, mTop,
-			mHalfWidth, mHalfHeight, mRight, mBottom,
-			-mHalfWidth, mHalfHeight, mLeft, mBottom,	
-		};
-		
-		if (mVertices != null) {
-			mVertices.clear();
-		}
-		
-		if (mIndices != null) {
-			mIndices.clear();
-		}
-		
-		GL10 gl = GLRenderer.getGL();
-		if (gl == null) {
-			Log.e("Sprite", "OpenGL object is null while creating vertex array.");
 			return;
 		}
-		
-		// Vertices
-		ByteBuffer buf = ByteBuffer.allocateDirect(4 * VERTEX_SIZE);
-		buf.order(ByteOrder.nativeOrder());
-		mVertices = buf.asFloatBuffer();
-		mVertices.put(verts);
-		mVertices.position(0);
-		gl.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
-		mVertices.position(2);
-		gl.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, mVertices);
-	
-		// Indices
-		short[] ind = { 0, 1, 2, 2, 3, 0 };
-		ByteBuffer buf2 = ByteBuffer.allocateDirect(6 * 2);
-		buf2.order(ByteOrder.nativeOrder());
-		mIndices = buf2.asShortBuffer();
-		mIndices.put(ind);
-		mIndices.position(0);
-	}
-	
-	private void generateFrameRect() {
 	    if (mColumns < 1) {
 	        mColumns = 1;
 	    }
 		int left = mCurrentFrame % mColumns;
 		int right = left + 1;
-		if (mRows < 1) {
-		    mRows = 1;
-		}
-		int top = mCurrentFrame / mRows;
+		int top = mCurrentFrame / mColumns;
 		int bottom = top + 1;
 		
 		mLeft = ((float)left) * mColUnit;
@@ -267,7 +497,7 @@ public class Sprite extends Renderable{
 	}
 	
 	/** 
-	 * Set the current frame number.
+	 * Set the current frame number. Stops any AnimationClip that is playing.
 	 * @param frame
 	 * The frame you would like to set the Sprite to.
 	 */
@@ -278,11 +508,37 @@ public class Sprite extends Renderable{
 		if (frame > mMaxFrames ) {
 			frame = mMaxFrames;
 		}
+		mClip = null;
 		mCurrentFrame = frame - 1;
 		generateFrameRect();
-		generateFrameVerts();
 	}
 	
+	/**
+	 * Shows a named frame of the Sprite's SpriteSheet. Stops any
+	 * AnimationClip that is playing.
+	 * @param name
+	 * The frame's name.
+	 */
+	public void setFrame(String name) {
+		if (mSheet == null) {
+			Log.w("Sprite", "setFrame(String) called on a Sprite without a SpriteSheet.");
+			return;
+		}
+		int frame = mSheet.getFrameIndex(name);
+		if (frame == SpriteSheet.NO_FRAME) {
+			Log.w("Sprite", "No frame named " + name + " in the sprite sheet.");
+			return;
+		}
+		setFrame(frame + 1);
+	}
+	
+	/**
+	 * Gets the SpriteSheet the Sprite was made from.
+	 * @return
+	 * The sheet, or null.
+	 */
+	public SpriteSheet getSheet() { return mSheet; }
+	
 	/** 
 	 * Gets the current frame number.
 	 * @return
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.util.Log;
+
+/**
+ * Describes the named frames packed into a sprite sheet texture, loaded from
+ * a TexturePacker style JSON file. Both the "hash" and "array" layouts are
+ * supported, along with trimmed, rotated and pivoted frames.
+ * <p>
+ * Each frame's texture coordinates and quad are worked out when the sheet is
+ * loaded and kept in flat float arrays, so drawing a frame does no math.
+ * Trimmed frames are drawn with a quad that only covers the frame's visible
+ * pixels, which saves fill rate. Look frames up by name once with
+ * getFrameIndex() and use the index afterwards.
+ * @author James Johnson
+ */
+public class SpriteSheet {
+	/** Returned by getFrameIndex() when there is no frame with the name. */
+	public static final int NO_FRAME = -1;
+
+	private String mImage;
+	private int mWidth;
+	private int mHeight;
+	private int mFrameCount;
+	private String mNames[];
+	private HashMap<String, Integer> mIndices;
+
+	// Per frame tables
+	float mUVs[];        // u, v for the top left, top right, bottom right and bottom left corners
+	float mQuads[];      // left, top, right, bottom of the trimmed quad, relative to the pivot
+	int mSourceSizes[];  // width, height of the frame before it was trimmed
+
+	private SpriteSheet() {
+		mImage = null;
+		mWidth = 1;
+		mHeight = 1;
+		mFrameCount = 0;
+	}
+
+	/**
+	 * Loads a sprite sheet descriptor.
+	 * @param in
+	 * The stream to read. Usually an asset. It is closed when done.
+	 * @return
+	 * The sprite sheet, or null if it couldn't be read.
+	 */
+	public static SpriteSheet load(InputStream in) {
+		if (in == null) {
+			Log.e("SpriteSheet", "Null stream passed to load().");
+			return null;
+		}
+		String text;
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte buf[] = new byte[4096];
+			int n;
+			while ((n = in.read(buf)) > 0) {
+				out.write(buf, 0, n);
+			}
+			text = out.toString("UTF-8");
+		} catch (IOException e) {
+			Log.e("SpriteSheet", "Could not read sprite sheet: " + e.getMessage());
+			return null;
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) { }
+		}
+
+		SpriteSheet sheet = new SpriteSheet();
+		try {
+			JSONObject root = new JSONObject(text);
+			JSONObject meta = root.optJSONObject("meta");
+			if (meta != null) {
+				sheet.mImage = meta.optString("image", null);
+				JSONObject size = meta.optJSONObject("size");
+				if (size != null) {
+					sheet.mWidth = Math.max(size.optInt("w", 1), 1);
+					sheet.mHeight = Math.max(size.optInt("h", 1), 1);
+				}
+			}
+
+			JSONArray list = root.optJSONArray("frames");
+			if (list != null) {
+				sheet.allocate(list.length());
+				for (int i = 0; i < list.length(); i++) {
+					JSONObject f = list.getJSONObject(i);
+					sheet.putFrame(i, f.optString("filename", Integer.toString(i)), f);
+				}
+			} else {
+				JSONObject hash = root.getJSONObject("frames");
+				String names[] = new String[hash.length()];
+				int count = 0;
+				Iterator<?> keys = hash.keys();
+				while (keys.hasNext()) {
+					names[count++] = (String)keys.next();
+				}
+				// Sorted so frames like "walk_01", "walk_02" stay in order
+				Arrays.sort(names, 0, count);
+				sheet.allocate(count);
+				for (int i = 0; i < count; i++) {
+					sheet.putFrame(i, names[i], hash.getJSONObject(names[i]));
+				}
+			}
+		} catch (JSONException e) {
+			Log.e("SpriteSheet", "Invalid sprite sheet: " + e.getMessage());
+			return null;
+		}
+		return sheet;
+	}
+
+	/**
+	 * Finds a frame by name.
+	 * @param name
+	 * The frame's name, usually the file name of the original image.
+	 * @return
+	 * The frame's index, or NO_FRAME.
+	 */
+	public int getFrameIndex(String name) {
+		Integer index = mIndices.get(name);
+		if (index == null) {
+			return NO_FRAME;
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Finds every frame whose name starts with a prefix, in name order.
+	 * Useful for building an AnimationClip from frames like "walk_01.png",
+	 * "walk_02.png" and so on.
+	 * @param prefix
+	 * The start of the names.
+	 * @return
+	 * The frame indices. Empty if none match.
+	 */
+	public int[] getFrames(String prefix) {
+		int count = 0;
+		for (int i = 0; i < mFrameCount; i++) {
+			if (mNames[i].startsWith(prefix)) {
+				count++;
+			}
+		}
+		int frames[] = new int[count];
+		String names[] = new String[count];
+		count = 0;
+		for (int i = 0; i < mFrameCount; i++) {
+			if (mNames[i].startsWith(prefix)) {
+				names[count++] = mNames[i];
+			}
+		}
+		Arrays.sort(names);
+		for (int i = 0; i < count; i++) {
+			frames[i] = getFrameIndex(names[i]);
+		}
+		return frames;
+	}
+
+	/**
+	 * Gets the number of frames.
+	 * @return
+	 * The number of frames.
+	 */
+	public int getFrameCount() { return mFrameCount; }
+
+	/**
+	 * Gets the name of a frame.
+	 * @param frame
+	 * The frame's index.
+	 * @return
+	 * The name.
+	 */
+	public String getName(int frame) { return mNames[frame]; }
+
+	/**
+	 * Gets the file name of the sheet's texture, as written in the descriptor.
+	 * @return
+	 * The file name, or null.
+	 */
+	public String getImage() { return mImage; }
+
+	/**
+	 * Gets the width of a frame before it was trimmed.
+	 * @param frame
+	 * The frame's index.
+	 * @return
+	 * The width in pixels.
+	 */
+	public int getSourceWidth(int frame) { return mSourceSizes[frame * 2]; }
+
+	/**
+	 * Gets the height of a frame before it was trimmed.
+	 * @param frame
+	 * The frame's index.
+	 * @return
+	 * The height in pixels.
+	 */
+	public int getSourceHeight(int frame) { return mSourceSizes[frame * 2 + 1]; }
+
+	/**
+	 * Gets the texture coordinates of a frame's corners: u, v for the top
+	 * left, top right, bottom right and bottom left.
+	 * @param frame
+	 * The frame's index.
+	 * @param out
+	 * An array of at least 8 floats.
+	 * @return
+	 * The array passed in.
+	 */
+	public float[] getUVs(int frame, float[] out) {
+		System.arraycopy(mUVs, frame * 8, out, 0, 8);
+		return out;
+	}
+
+	/**
+	 * Gets the left, top, right and bottom of a frame's trimmed quad, relative
+	 * to its pivot.
+	 * @param frame
+	 * The frame's index.
+	 * @param out
+	 * An array of at least 4 floats.
+	 * @return
+	 * The array passed in.
+	 */
+	public float[] getQuad(int frame, float[] out) {
+		System.arraycopy(mQuads, frame * 4, out, 0, 4);
+		return out;
+	}
+
+	private void allocate(int count) {
+		mFrameCount = count;
+		mNames = new String[count];
+		mIndices = new HashMap<String, Integer>(count * 2);
+		mUVs = new float[count * 8];
+		mQuads = new float[count * 4];
+		mSourceSizes = new int[count * 2];
+	}
+
+	private void putFrame(int i, String name, JSONObject f) throws JSONException {
+		mNames[i] = name;
+		mIndices.put(name, Integer.valueOf(i));
+
+		JSONObject rect = f.getJSONObject("frame");
+		int x = rect.getInt("x");
+		int y = rect.getInt("y");
+		int w = rect.getInt("w");
+		int h = rect.getInt("h");
+		boolean rotated = f.optBoolean("rotated", false);
+
+		// Where the trimmed image sits inside the original
+		int trimX = 0;
+		int trimY = 0;
+		int sourceW = w;
+		int sourceH = h;
+		JSONObject trim = f.optJSONObject("spriteSourceSize");
+		if (trim != null) {
+			trimX = trim.optInt("x", 0);
+			trimY = trim.optInt("y", 0);
+		}
+		JSONObject source = f.optJSONObject("sourceSize");
+		if (source != null) {
+			sourceW = source.optInt("w", w);
+			sourceH = source.optInt("h", h);
+		}
+		float pivotX = 0.5f;
+		float pivotY = 0.5f;
+		JSONObject pivot = f.optJSONObject("pivot");
+		if (pivot != null) {
+			pivotX = (float)pivot.optDouble("x", 0.5);
+			pivotY = (float)pivot.optDouble("y", 0.5);
+		}
+		mSourceSizes[i * 2] = sourceW;
+		mSourceSizes[i * 2 + 1] = sourceH;
+
+		int q = i * 4;
+		mQuads[q] = trimX - pivotX * sourceW;
+		mQuads[q + 1] = trimY - pivotY * sourceH;
+		mQuads[q + 2] = mQuads[q] + w;
+		mQuads[q + 3] = mQuads[q + 1] + h;
+
+		float su = 1.0f / mWidth;
+		float sv = 1.0f / mHeight;
+		int uv = i * 8;
+		if (!rotated) {
+			float l = x * su;
+			float t = y * sv;
+			float r = (x + w) * su;
+			float b = (y + h) * sv;
+			mUVs[uv] = l;     mUVs[uv + 1] = t;
+			mUVs[uv + 2] = r; mUVs[uv + 3] = t;
+			mUVs[uv + 4] = r; mUVs[uv + 5] = b;
+			mUVs[uv + 6] = l; mUVs[uv + 7] = b;
+		} else {
+			// Stored turned 90 degrees clockwise, taking up h x w pixels
+			float l = x * su;
+			float t = y * sv;
+			float r = (x + h) * su;
+			float b = (y + w) * sv;
+			mUVs[uv] = r;     mUVs[uv + 1] = t;
+			mUVs[uv + 2] = r; mUVs[uv + 3] = b;
+			mUVs[uv + 4] = l; mUVs[uv + 5] = b;
+			mUVs[uv + 6] = l; mUVs[uv + 7] = t;
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+/**
+ * Works out where each glyph of a piece of text goes: line breaks at '\n',
+ * word wrapping to a maximum width, alignment and the size of the text.
+ * The results are kept in primitive arrays and reused by the next call, so
+ * laying out text doesn't allocate once the arrays are big enough.
+ * <p>
+ * BitmapFont uses a TextLayout to build its meshes. Use one directly to
+ * measure text without building a mesh.
+ * @author James Johnson
+ */
+public class TextLayout {
+	/** Lines start at the left edge. */
+	public static final int ALIGN_LEFT = 0;
+
+	/** Lines are centered. */
+	public static final int ALIGN_CENTER = 1;
+
+	/** Lines end at the right edge. */
+	public static final int ALIGN_RIGHT = 2;
+
+	// Glyphs that have an image, with the top left of their pen position
+	int mGlyphs[];
+	float mX[];
+	float mY[];
+	int mCount;
+
+	// The first glyph and the width of each line
+	private int mLineStart[];
+	private float mLineWidths[];
+	private int mLineCount;
+
+	private float mWidth;
+	private float mHeight;
+
+	/**
+	 * Initializes an empty TextLayout.
+	 */
+	public TextLayout() {
+		mGlyphs = new int[16];
+		mX = new float[16];
+		mY = new float[16];
+		mCount = 0;
+		mLineStart = new int[4];
+		mLineWidths = new float[4];
+		mLineCount = 0;
+		mWidth = 0;
+		mHeight = 0;
+	}
+
+	/**
+	 * Lays out a range of characters. Lines are broken at '\n' and, if
+	 * wrapWidth is more than 0, at the last space before a line would get
+	 * wider than wrapWidth. A word that doesn't fit on a line by itself is
+	 * broken between characters.
+	 * @param font
+	 * The font's descriptor.
+	 * @param chars
+	 * The characters to lay out.
+	 * @param offset
+	 * The index of the first character.
+	 * @param count
+	 * The number of characters.
+	 * @param wrapWidth
+	 * The widest a line may be in pixels, or 0 to only break at '\n'.
+	 * @param align
+	 * ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT.
+	 * @return
+	 * This TextLayout.
+	 */
+	public TextLayout layout(FontDescriptor font, char[] chars, int offset, int count, float wrapWidth, int align) {
+		mCount = 0;
+		mLineCount = 0;
+		mWidth = 0;
+		mHeight = 0;
+		if ((font == null) || (chars == null) || (count <= 0)) {
+			return this;
+		}
+		ensureGlyphs(count);
+		int lineHeight = font.getLineHeight();
+
+		float pen = 0;
+		float lineWidth = 0;        // Pen position after the last glyph that isn't a space
+		float y = 0;
+		int prev = FontDescriptor.NO_GLYPH;
+		boolean afterSpace = false; // The line can be broken before the next word
+		int wordStart = -1;         // First glyph of the word after the last break
+		float wordPen = 0;          // Pen position where that word starts
+		float breakWidth = 0;       // Width of the line if it is broken before that word
+		startLine(0);
+
+		for (int i = 0; i < count; i++) {
+			char c = chars[offset + i];
+			if (c == '\n') {
+				endLine(lineWidth);
+				y += lineHeight;
+				pen = 0;
+				lineWidth = 0;
+				prev = FontDescriptor.NO_GLYPH;
+				afterSpace = false;
+				wordStart = -1;
+				startLine(mCount);
+				continue;
+			}
+			if (c == '\r') {
+				continue;
+			}
+			int g = font.getGlyph(c);
+			if (g == FontDescriptor.NO_GLYPH) {
+				continue;
+			}
+			if (prev != FontDescriptor.NO_GLYPH) {
+				pen += font.getKerning(prev, g);
+			}
+			boolean space = (c == ' ') || (c == '\t');
+			float advance = font.mAdvances[g];
+
+			if (space) {
+				if (lineWidth > 0) {
+					breakWidth = lineWidth;
+					afterSpace = true;
+				}
+				wordStart = -1;
+			} else {
+				if (afterSpace) {
+					wordStart = mCount;
+					wordPen = pen;
+					afterSpace = false;
+				}
+				if ((wrapWidth > 0) && (pen + advance > wrapWidth) && (pen > 0)) {
+					if (wordStart >= 0) {
+						// Move the current word to a new line
+						endLine(breakWidth);
+						y += lineHeight;
+						for (int q = wordStart; q < mCount; q++) {
+							mX[q] -= wordPen;
+							mY[q] = y;
+						}
+						startLine(wordStart);
+						pen -= wordPen;
+						lineWidth = (lineWidth > wordPen) ? lineWidth - wordPen : 0;
+					} else {
+						// The word is wider than a line, break it here
+						endLine(lineWidth);
+						y += lineHeight;
+						startLine(mCount);
+						pen = 0;
+						lineWidth = 0;
+					}
+					wordStart = -1;
+				}
+			}
+
+			if (!space && (font.mWidths[g] > 0) && (font.mHeights[g] > 0)) {
+				mGlyphs[mCount] = g;
+				mX[mCount] = pen;
+				mY[mCount] = y;
+				mCount++;
+			}
+			pen += advance;
+			if (!space) {
+				lineWidth = pen;
+			}
+			prev = g;
+		}
+		endLine(lineWidth);
+		mHeight = mLineCount * lineHeight;
+
+		// The alignment box is the wrap width if there is one, otherwise the widest line
+		float box = mWidth;
+		if ((wrapWidth > 0) && (align != ALIGN_LEFT)) {
+			box = wrapWidth;
+			mWidth = wrapWidth;
+		}
+		if (align != ALIGN_LEFT) {
+			for (int line = 0; line < mLineCount; line++) {
+				float shift = box - mLineWidths[line];
+				if (align == ALIGN_CENTER) {
+					shift *= 0.5f;
+				}
+				int end = (line + 1 < mLineCount) ? mLineStart[line + 1] : mCount;
+				for (int q = mLineStart[line]; q < end; q++) {
+					mX[q] += shift;
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the width of the laid out text. This is the width of the widest
+	 * line, or the wrap width for centered and right aligned text that wraps.
+	 * @return
+	 * The width in pixels.
+	 */
+	public float getWidth() { return mWidth; }
+
+	/**
+	 * Gets the height of the laid out text.
+	 * @return
+	 * The height in pixels.
+	 */
+	public float getHeight() { return mHeight; }
+
+	/**
+	 * Gets the number of lines.
+	 * @return
+	 * The number of lines.
+	 */
+	public int getLineCount() { return mLineCount; }
+
+	/**
+	 * Gets the width of one line, not counting trailing spaces.
+	 * @param line
+	 * The line.
+	 * @return
+	 * The width in pixels.
+	 */
+	public float getLineWidth(int line) { return mLineWidths[line]; }
+
+	/**
+	 * Gets the number of glyphs with an image. Spaces aren't counted.
+	 * @return
+	 * The number of glyphs.
+	 */
+	public int getGlyphCount() { return mCount; }
+
+	/**
+	 * Gets a glyph's index in the FontDescriptor.
+	 * @param i
+	 * The glyph, from 0 to getGlyphCount() - 1.
+	 * @return
+	 * The glyph's index.
+	 */
+	public int getGlyph(int i) { return mGlyphs[i]; }
+
+	/**
+	 * Gets the pen position of a glyph along the X axis.
+	 * @param i
+	 * The glyph, from 0 to getGlyphCount() - 1.
+	 * @return
+	 * The position in pixels.
+	 */
+	public float getGlyphX(int i) { return mX[i]; }
+
+	/**
+	 * Gets the top of a glyph's line.
+	 * @param i
+	 * The glyph, from 0 to getGlyphCount() - 1.
+	 * @return
+	 * The position in pixels.
+	 */
+	public float getGlyphY(int i) { return mY[i]; }
+
+	private void startLine(int first) {
+		if (mLineCount == mLineStart.length) {
+			int grown[] = new int[mLineCount * 2];
+			System.arraycopy(mLineStart, 0, grown, 0, mLineCount);
+			mLineStart = grown;
+			float widths[] = new float[mLineCount * 2];
+			System.arraycopy(mLineWidths, 0, widths, 0, mLineCount);
+			mLineWidths = widths;
+		}
+		mLineStart[mLineCount] = first;
+		mLineWidths[mLineCount] = 0;
+		mLineCount++;
+	}
+
+	private void endLine(float width) {
+		mLineWidths[mLineCount - 1] = width;
+		if (width > mWidth) {
+			mWidth = width;
+		}
+	}
+
+	private void ensureGlyphs(int count) {
+		if (mGlyphs.length >= count) {
+			return;
+		}
+		mGlyphs = new int[count];
+		mX = new float[count];
+		mY = new float[count];
+	}
+}
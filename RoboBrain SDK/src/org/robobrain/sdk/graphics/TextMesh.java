@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import java.nio.FloatBuffer;
+
+/**
+ * The vertices for a piece of text built by a BitmapFont. Build a TextMesh
+ * once when the text changes, then draw it every frame with BitmapFont.draw().
+ * Quads are sorted by texture page so each page is drawn with one call.
+ * @author James Johnson
+ */
+public class TextMesh {
+	FloatBuffer mVertices;
+	int mPageCounts[];
+	int mQuads;
+	float mWidth;
+	float mHeight;
+	int mLineCount;
+	int mGeneration;
+
+	/**
+	 * Initializes an empty TextMesh.
+	 */
+	public TextMesh() {
+		mVertices = null;
+		mPageCounts = new int[1];
+		mQuads = 0;
+		mWidth = 0;
+		mHeight = 0;
+		mLineCount = 0;
+		mGeneration = 0;
+	}
+
+	/**
+	 * Gets the number of quads in the mesh. Characters without an image,
+	 * such as spaces, don't have a quad.
+	 * @return
+	 * The number of quads.
+	 */
+	public int getQuadCount() { return mQuads; }
+
+	/**
+	 * Gets the vertices, interleaved as x, y, u, v.
+	 * @return
+	 * The vertices, or null if nothing has been built.
+	 */
+	public FloatBuffer getVertices() { return mVertices; }
+
+	/**
+	 * Gets the width of the text the mesh was built from.
+	 * @return
+	 * The width in pixels.
+	 */
+	public float getWidth() { return mWidth; }
+
+	/**
+	 * Gets the height of the text the mesh was built from.
+	 * @return
+	 * The height in pixels.
+	 */
+	public float getHeight() { return mHeight; }
+
+	/**
+	 * Gets the number of lines of text.
+	 * @return
+	 * The number of lines.
+	 */
+	public int getLineCount() { return mLineCount; }
+}
@@ -22,63 +22,294 @@ package org.robobrain.sdk.graphics;
 
 import javax.microedition.khronos.opengles.GL10;
 
+import org.robobrain.sdk.GLRenderer;
+import org.robobrain.sdk.util.TextBuilder;
+
 /**
  * The TextSprite simply draws a String to the screen. It is analogous to a Label.
+ * Like a Sprite, the message is centered on its position and its size follows
+ * scale and GLRenderer.getScale().
+ * The mesh for the message is built once and reused every frame until
+ * setMessage() changes the text. The message is copied into a buffer owned by
+ * the TextSprite, so setting it from a TextBuilder or setNumber() every frame
+ * produces no garbage.
  * @author James Johnson
  */
 public class TextSprite extends Renderable {
 	private BitmapFont mFont;
-	private String mMessage;
-	
+	private TextBuilder mMessage;
+	private TextBuilder mPending;
+	private TextMesh mMesh;
+	private boolean mDirty;
+	private boolean mChanged; // The text or layout changed, cleared by takeChange()
+	private float mWrapWidth;
+	private int mAlignment;
+
 	/**
 	 * Initialize the TextSprite
 	 * @param texture
-	 * The Texture containing the font. It must be 16x16 units square and 
+	 * The Texture containing the font. It must be 16x16 units square and
 	 * contain the first UTF-8 codepage in order.
 	 */
 	public TextSprite(Texture texture) {
+		scale = 1.0f;
 		if (texture == null) {
 			return;
 		}
 		mFont = new BitmapFont(texture);
-		mMessage = null;
+		mMessage = new TextBuilder();
+		mPending = new TextBuilder();
+		mDirty = true;
 	}
-	
+
 	/**
 	 * Initialize the TextSprite
 	 * @param texture
-	 * The Texture containing the font. It must be 16x16 units square and 
+	 * The Texture containing the font. It must be 16x16 units square and
 	 * contain the first UTF-8 codepage in order.
 	 * @param message
 	 * The String to be drawn to the screen.
 	 */
 	public TextSprite(Texture texture, String message) {
+		scale = 1.0f;
 		if (texture == null) {
 			return;
 		}
 		mFont = new BitmapFont(texture);
-		mMessage = message;
+		mMessage = new TextBuilder();
+		mPending = new TextBuilder();
+		mMessage.append(message);
+		mDirty = true;
 	}
-	
+
+	/**
+	 * Initialize the TextSprite with a font that may be shared with other
+	 * TextSprites, such as one loaded from a BMFont descriptor.
+	 * @param font
+	 * The font used to draw the message.
+	 * @param message
+	 * The String to be drawn to the screen, or null.
+	 */
+	public TextSprite(BitmapFont font, String message) {
+		scale = 1.0f;
+		if (font == null) {
+			return;
+		}
+		mFont = font;
+		mMessage = new TextBuilder();
+		mPending = new TextBuilder();
+		mMessage.append(message);
+		mDirty = true;
+	}
+
 	/**
-	 * Sets the message to be displayed on the screen.
+	 * Sets the message to be displayed on the screen. The vertices are only
+	 * rebuilt if the text actually changed.
 	 * @param message
-	 * The string to be displayed on the screen.
+	 * The text to be displayed on the screen. It is copied, so a TextBuilder
+	 * can be reused for the next message.
+	 */
+	public void setMessage(CharSequence message) {
+		if (mFont == null) {
+			return;
+		}
+		mPending.clear().append(message);
+		swapPending();
+	}
+
+	/**
+	 * Sets the message to a range of characters.
+	 * @param chars
+	 * The characters to be displayed on the screen.
+	 * @param offset
+	 * The index of the first character.
+	 * @param count
+	 * The number of characters.
+	 */
+	public void setMessage(char[] chars, int offset, int count) {
+		if (mFont == null) {
+			return;
+		}
+		mPending.clear().append(chars, offset, count);
+		swapPending();
+	}
+
+	/**
+	 * Sets the message to an integer. Useful for scores.
+	 * @param value
+	 * The number to display.
 	 */
-	public void setMessage(String message) {
-		mMessage = message;
+	public void setNumber(int value) {
+		if (mFont == null) {
+			return;
+		}
+		mPending.clear().append(value);
+		swapPending();
 	}
-	
+
+	/**
+	 * Sets the message to a float with a fixed number of decimal places.
+	 * @param value
+	 * The number to display.
+	 * @param decimals
+	 * The number of digits after the decimal point.
+	 */
+	public void setNumber(float value, int decimals) {
+		if (mFont == null) {
+			return;
+		}
+		mPending.clear().append(value, decimals);
+		swapPending();
+	}
+
 	/**
-	 * Draws the message to the screen.
+	 * Sets the widest a line of the message may be. Longer lines are
+	 * wrapped at the last space that fits.
+	 * @param width
+	 * The width in pixels, or 0 to only break lines at '\n'.
+	 */
+	public void setWrapWidth(float width) {
+		if (width < 0) {
+			width = 0;
+		}
+		if (width != mWrapWidth) {
+			mWrapWidth = width;
+			mDirty = true;
+			mChanged = true;
+		}
+	}
+
+	/**
+	 * Gets the widest a line of the message may be.
+	 * @return
+	 * The width in pixels, or 0 if lines aren't wrapped.
+	 */
+	public float getWrapWidth() { return mWrapWidth; }
+
+	/**
+	 * Sets how the lines of the message are aligned.
+	 * @param align
+	 * TextLayout.ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT.
+	 */
+	public void setAlignment(int align) {
+		if (align != mAlignment) {
+			mAlignment = align;
+			mDirty = true;
+			mChanged = true;
+		}
+	}
+
+	/**
+	 * Gets how the lines of the message are aligned.
+	 * @return
+	 * TextLayout.ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT.
+	 */
+	public int getAlignment() { return mAlignment; }
+
+	/**
+	 * Gets the width of the message on screen, including scale. The layout
+	 * is only worked out again when the message, wrap width or alignment
+	 * changes.
+	 * @return
+	 * The width of the message in pixels.
+	 */
+	@Override
+	public int getWidth() {
+		if (mFont == null) {
+			return 0;
+		}
+		refresh();
+		return (int)Math.ceil(mMesh.getWidth() * scale * GLRenderer.getScale());
+	}
+
+	/**
+	 * Gets the height of the message on screen, including scale.
+	 * @return
+	 * The height of the message in pixels.
+	 */
+	@Override
+	public int getHeight() {
+		if (mFont == null) {
+			return 0;
+		}
+		refresh();
+		return (int)Math.ceil(mMesh.getHeight() * scale * GLRenderer.getScale());
+	}
+
+	/**
+	 * Gets the message displayed on the screen. Don't change it, call
+	 * setMessage() instead.
+	 * @return
+	 * The message.
+	 */
+	public CharSequence getMessage() { return mMessage; }
+
+	/**
+	 * Gets the font used to draw the message.
+	 * @return
+	 * The font.
+	 */
+	public BitmapFont getFont() { return mFont; }
+
+	/**
+	 * Reports once that the message or its layout changed, which may not
+	 * change the size.
+	 * @return
+	 * true if the text changed since the last call.
+	 */
+	@Override
+	public boolean takeChange() {
+		boolean changed = mChanged;
+		mChanged = false;
+		return changed;
+	}
+
+	/**
+	 * Gets new copies of the font's textures after OpenGL reloads them.
+	 */
+	@Override
+	public void updateTexture() {
+		if (mFont != null) {
+			mFont.updateTextures();
+		}
+	}
+
+	/**
+	 * Draws the message to the screen, centered on x and y like a Sprite so
+	 * it lines up with the Entity's bounds.
 	 * @param gl
 	 * A valid OpenGL ES 1.0 object
 	 */
-	@Override 
+	@Override
 	public void draw(GL10 gl) {
+		if ((mFont == null) || (mMessage.length() == 0)) {
+			return;
+		}
+		refresh();
+		float s = scale * GLRenderer.getScale();
 		mFont.begin(gl);
-		mFont.drawString(gl, mMessage, x, y);
+		mFont.draw(gl, mMesh, x - mMesh.getWidth() * s * 0.5f, y - mMesh.getHeight() * s * 0.5f, scale);
 		mFont.end(gl);
 	}
 
+	// Rebuilds the mesh if the message or its layout changed
+	private void refresh() {
+		if (mDirty || mFont.isStale(mMesh)) {
+			mMesh = mFont.buildChars(mMessage.getChars(), 0, mMessage.length(), mWrapWidth, mAlignment, mMesh);
+			mDirty = false;
+		}
+	}
+
+	// Makes the pending text the message if it is different
+	private void swapPending() {
+		if (mMessage.contentEquals(mPending)) {
+			return;
+		}
+		TextBuilder t = mMessage;
+		mMessage = mPending;
+		mPending = t;
+		mDirty = true;
+		mChanged = true;
+	}
+
 }
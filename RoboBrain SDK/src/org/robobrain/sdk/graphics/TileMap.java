@@ -0,0 +1,600 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.graphics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import org.robobrain.sdk.GLRenderer;
+
+import android.util.Log;
+
+/**
+ * A grid of tiles drawn from a single texture atlas. The map is split into
+ * square chunks of tiles, and each chunk keeps a static vertex buffer that is
+ * only rebuilt when one of its tiles changes. Chunks outside the viewport are
+ * skipped, so drawing a level costs one draw call per visible chunk no matter
+ * how large the level is.
+ * <p>
+ * Tile indices count across the atlas from the top left, row by row. Tiles set
+ * to EMPTY are not drawn. Collision queries look tiles up directly in the grid
+ * and never touch the World's Entity list.
+ * @author James Johnson
+ */
+public class TileMap extends Renderable {
+	/** Tile index for a cell with no tile. */
+	public static final int EMPTY = -1;
+
+	/** The number of tiles along each side of a chunk. */
+	public static final int CHUNK_SIZE = 16;
+
+	private static final int VERTEX_SIZE = (2 + 2) * 4; // Float x2 + Float x2
+
+	private Texture mTexture;
+	private int mColumns;
+	private int mRows;
+	private int mTileWidth;
+	private int mTileHeight;
+	private int mTiles[];
+	private boolean mSolid[];
+
+	// Viewport in screen pixels. A width of 0 uses the whole screen.
+	private float mViewLeft;
+	private float mViewTop;
+	private float mViewWidth;
+	private float mViewHeight;
+
+	// Chunks
+	private int mChunkColumns;
+	private int mChunkRows;
+	private FloatBuffer mChunkVertices[];
+	private int mChunkTileCount[];
+	private boolean mChunkDirty[];
+	private float mVertexData[];
+	private ShortBuffer mIndices;
+	private int mDrawCalls;
+
+	/**
+	 * Initializes an empty TileMap.
+	 * @param atlas
+	 * The Texture containing every tile, packed edge to edge.
+	 * @param tileWidth
+	 * The width of one tile in pixels.
+	 * @param tileHeight
+	 * The height of one tile in pixels.
+	 * @param columns
+	 * The number of tiles across the map.
+	 * @param rows
+	 * The number of tiles down the map.
+	 */
+	public TileMap(Texture atlas, int tileWidth, int tileHeight, int columns, int rows) {
+		if (tileWidth < 1) {
+			tileWidth = 1;
+		}
+		if (tileHeight < 1) {
+			tileHeight = 1;
+		}
+		if (columns < 1) {
+			columns = 1;
+		}
+		if (rows < 1) {
+			rows = 1;
+		}
+		mTexture = atlas;
+		mTileWidth = tileWidth;
+		mTileHeight = tileHeight;
+		mColumns = columns;
+		mRows = rows;
+		mTiles = new int[columns * rows];
+		for (int i = 0; i < mTiles.length; i++) {
+			mTiles[i] = EMPTY;
+		}
+		mSolid = new boolean[0];
+		mViewLeft = 0;
+		mViewTop = 0;
+		mViewWidth = 0;
+		mViewHeight = 0;
+
+		x = 0;
+		y = 0;
+		scale = 1.0f;
+		rotation = 0;
+		visible = true;
+
+		mChunkColumns = (columns + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		mChunkRows = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		int chunks = mChunkColumns * mChunkRows;
+		mChunkVertices = new FloatBuffer[chunks];
+		mChunkTileCount = new int[chunks];
+		mChunkDirty = new boolean[chunks];
+		for (int i = 0; i < chunks; i++) {
+			mChunkDirty[i] = true;
+		}
+
+		int tilesPerChunk = CHUNK_SIZE * CHUNK_SIZE;
+		mVertexData = new float[tilesPerChunk * 4 * 4];
+		ByteBuffer buf = ByteBuffer.allocateDirect(tilesPerChunk * 6 * 2);
+		buf.order(ByteOrder.nativeOrder());
+		mIndices = buf.asShortBuffer();
+		for (int i = 0; i < tilesPerChunk; i++) {
+			short base = (short)(i * 4);
+			mIndices.put(base);
+			mIndices.put((short)(base + 1));
+			mIndices.put((short)(base + 2));
+			mIndices.put((short)(base + 2));
+			mIndices.put((short)(base + 3));
+			mIndices.put(base);
+		}
+		mIndices.position(0);
+	}
+
+	/**
+	 * Loads the tile indices from comma separated text, one line per row.
+	 * Missing cells are left EMPTY and cells beyond the map's size are ignored.
+	 * @param in
+	 * The stream to read. Usually an asset. It is closed when done.
+	 * @return
+	 * true if the map was loaded.
+	 */
+	public boolean load(InputStream in) {
+		if (in == null) {
+			Log.e("TileMap", "Null stream passed to load().");
+			return false;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+		try {
+			int row = 0;
+			String line;
+			while (((line = reader.readLine()) != null) && (row < mRows)) {
+				line = line.trim();
+				if (line.length() == 0) {
+					continue;
+				}
+				String cells[] = line.split(",");
+				int c = Math.min(cells.length, mColumns);
+				int base = row * mColumns;
+				for (int col = 0; col < c; col++) {
+					String cell = cells[col].trim();
+					mTiles[base + col] = (cell.length() == 0) ? EMPTY : Integer.parseInt(cell);
+				}
+				row++;
+			}
+		} catch (IOException e) {
+			Log.e("TileMap", "Could not read map: " + e.getMessage());
+			return false;
+		} catch (NumberFormatException e) {
+			Log.e("TileMap", "Invalid tile index in map: " + e.getMessage());
+			return false;
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) { }
+		}
+		invalidate();
+		return true;
+	}
+
+	/**
+	 * Replaces every tile index in the map.
+	 * @param tiles
+	 * The tile indices, row by row. Must hold columns * rows values.
+	 */
+	public void setTiles(int[] tiles) {
+		if ((tiles == null) || (tiles.length < mTiles.length)) {
+			Log.e("TileMap", "Tile array is smaller than the map.");
+			return;
+		}
+		System.arraycopy(tiles, 0, mTiles, 0, mTiles.length);
+		invalidate();
+	}
+
+	/**
+	 * Sets a single tile. Only the chunk containing it is rebuilt.
+	 * @param column
+	 * The tile's column.
+	 * @param row
+	 * The tile's row.
+	 * @param tile
+	 * The tile index, or EMPTY.
+	 */
+	public void setTile(int column, int row, int tile) {
+		if ((column < 0) || (row < 0) || (column >= mColumns) || (row >= mRows)) {
+			return;
+		}
+		int i = row * mColumns + column;
+		if (mTiles[i] != tile) {
+			mTiles[i] = tile;
+			mChunkDirty[(row / CHUNK_SIZE) * mChunkColumns + column / CHUNK_SIZE] = true;
+		}
+	}
+
+	/**
+	 * Gets a single tile.
+	 * @param column
+	 * The tile's column.
+	 * @param row
+	 * The tile's row.
+	 * @return
+	 * The tile index, or EMPTY if the cell is empty or outside the map.
+	 */
+	public int getTile(int column, int row) {
+		if ((column < 0) || (row < 0) || (column >= mColumns) || (row >= mRows)) {
+			return EMPTY;
+		}
+		return mTiles[row * mColumns + column];
+	}
+
+	/**
+	 * Marks a tile index as solid or passable for collision queries.
+	 * @param tile
+	 * The tile index.
+	 * @param solid
+	 * true if the tile blocks movement.
+	 */
+	public void setSolid(int tile, boolean solid) {
+		if (tile < 0) {
+			return;
+		}
+		if (tile >= mSolid.length) {
+			boolean grown[] = new boolean[tile + 1];
+			System.arraycopy(mSolid, 0, grown, 0, mSolid.length);
+			mSolid = grown;
+		}
+		mSolid[tile] = solid;
+	}
+
+	/**
+	 * Checks whether a cell holds a solid tile.
+	 * @param column
+	 * The tile's column.
+	 * @param row
+	 * The tile's row.
+	 * @return
+	 * true if the tile is solid. Cells outside the map are not solid.
+	 */
+	public boolean isSolid(int column, int row) {
+		int tile = getTile(column, row);
+		return (tile >= 0) && (tile < mSolid.length) && mSolid[tile];
+	}
+
+	/**
+	 * Gets the column under a point on screen.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @return
+	 * The column. May be outside the map.
+	 */
+	public int getColumnAt(float x) {
+		float local = (x - this.x) / (scale * GLRenderer.getScale());
+		return (int)Math.floor(local / mTileWidth);
+	}
+
+	/**
+	 * Gets the row under a point on screen.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @return
+	 * The row. May be outside the map.
+	 */
+	public int getRowAt(float y) {
+		float local = (y - this.y) / (scale * GLRenderer.getScale());
+		return (int)Math.floor(local / mTileHeight);
+	}
+
+	/**
+	 * Gets the tile under a point on screen.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @return
+	 * The tile index, or EMPTY.
+	 */
+	public int getTileAt(float x, float y) {
+		return getTile(getColumnAt(x), getRowAt(y));
+	}
+
+	/**
+	 * Checks whether a point on screen is inside a solid tile.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @return
+	 * true if the point is inside a solid tile.
+	 */
+	public boolean isSolidAt(float x, float y) {
+		return isSolid(getColumnAt(x), getRowAt(y));
+	}
+
+	/**
+	 * Checks whether a rectangle on screen touches any solid tile. Only the
+	 * cells under the rectangle are checked.
+	 * @param rect
+	 * The rectangle to test, such as an Entity's collision rectangle.
+	 * @return
+	 * true if the rectangle overlaps a solid tile.
+	 */
+	public boolean overlapsSolid(Rectangle rect) {
+		return overlapsSolid(rect.x, rect.y, rect.x + rect.width, rect.y + rect.height);
+	}
+
+	/**
+	 * Checks whether a rectangle on screen touches any solid tile. Only the
+	 * cells under the rectangle are checked.
+	 * @param left
+	 * The left edge of the rectangle.
+	 * @param top
+	 * The top edge of the rectangle.
+	 * @param right
+	 * The right edge of the rectangle.
+	 * @param bottom
+	 * The bottom edge of the rectangle.
+	 * @return
+	 * true if the rectangle overlaps a solid tile.
+	 */
+	public boolean overlapsSolid(float left, float top, float right, float bottom) {
+		int c0 = Math.max(getColumnAt(left), 0);
+		int r0 = Math.max(getRowAt(top), 0);
+		// Edges that land exactly on a tile boundary don't touch the next tile
+		int c1 = Math.min(getColumnAt(right - 0.001f), mColumns - 1);
+		int r1 = Math.min(getRowAt(bottom - 0.001f), mRows - 1);
+		for (int row = r0; row <= r1; row++) {
+			for (int col = c0; col <= c1; col++) {
+				if (isSolid(col, row)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Limits drawing to part of the screen. By default the whole screen is used.
+	 * @param left
+	 * The left edge of the viewport in pixels.
+	 * @param top
+	 * The top edge of the viewport in pixels.
+	 * @param width
+	 * The width of the viewport in pixels. 0 = the whole screen.
+	 * @param height
+	 * The height of the viewport in pixels.
+	 */
+	public void setViewport(float left, float top, float width, float height) {
+		mViewLeft = left;
+		mViewTop = top;
+		mViewWidth = width;
+		mViewHeight = height;
+	}
+
+	/**
+	 * Rebuilds every chunk before the next draw.
+	 */
+	public void invalidate() {
+		for (int i = 0; i < mChunkDirty.length; i++) {
+			mChunkDirty[i] = true;
+		}
+	}
+
+	/**
+	 * Gets a new copy of the Renderable's texture from
+	 * the TextureManager.
+	 */
+	@Override
+	public void updateTexture() {
+		if (mTexture != null) {
+			mTexture = TextureManager.getTexture(mTexture.getID());
+		}
+	}
+
+	/**
+	 * Draws every chunk that overlaps the viewport.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	@Override
+	public void draw(GL10 gl) {
+		mDrawCalls = 0;
+		if (!visible || (mTexture == null)) {
+			return;
+		}
+
+		// Find the chunks under the viewport
+		float s = scale * GLRenderer.getScale();
+		float viewWidth = (mViewWidth > 0) ? mViewWidth : GLRenderer.getWidth();
+		float viewHeight = (mViewWidth > 0) ? mViewHeight : GLRenderer.getHeight();
+		float chunkWidth = CHUNK_SIZE * mTileWidth * s;
+		float chunkHeight = CHUNK_SIZE * mTileHeight * s;
+		int cx0 = (int)Math.floor((mViewLeft - x) / chunkWidth);
+		int cy0 = (int)Math.floor((mViewTop - y) / chunkHeight);
+		int cx1 = (int)Math.floor((mViewLeft + viewWidth - x) / chunkWidth);
+		int cy1 = (int)Math.floor((mViewTop + viewHeight - y) / chunkHeight);
+		cx0 = Math.max(cx0, 0);
+		cy0 = Math.max(cy0, 0);
+		cx1 = Math.min(cx1, mChunkColumns - 1);
+		cy1 = Math.min(cy1, mChunkRows - 1);
+		if ((cx0 > cx1) || (cy0 > cy1)) {
+			return;
+		}
+
+		gl.glColor4f(1.0f, 1.0f, 1.0f, 1.0f);
+		gl.glBindTexture(GL10.GL_TEXTURE_2D, mTexture.getGLID());
+		gl.glMatrixMode(GL10.GL_MODELVIEW);
+		gl.glLoadIdentity();
+		gl.glTranslatef(x, y, 0);
+		gl.glScalef(s, s, 1.0f);
+		for (int cy = cy0; cy <= cy1; cy++) {
+			for (int cx = cx0; cx <= cx1; cx++) {
+				int chunk = cy * mChunkColumns + cx;
+				if (mChunkDirty[chunk]) {
+					buildChunk(cx, cy);
+				}
+				if (mChunkTileCount[chunk] == 0) {
+					continue;
+				}
+				FloatBuffer vertices = mChunkVertices[chunk];
+				vertices.position(0);
+				gl.glVertexPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, vertices);
+				vertices.position(2);
+				gl.glTexCoordPointer(2, GL10.GL_FLOAT, VERTEX_SIZE, vertices);
+				mIndices.position(0);
+				gl.glDrawElements(GL10.GL_TRIANGLES, mChunkTileCount[chunk] * 6, GL10.GL_UNSIGNED_SHORT, mIndices);
+				mDrawCalls++;
+			}
+		}
+	}
+
+	/**
+	 * Moves the TileMap and draws it.
+	 * @param gl
+	 * A valid OpenGL ES 1.0 object.
+	 */
+	@Override
+	public void draw(GL10 gl, float x, float y, float rotation, float scale) {
+		this.x = x;
+		this.y = y;
+		this.scale = scale;
+		this.draw(gl);
+	}
+
+	/**
+	 * Gets the number of draw calls made by the last draw().
+	 * @return
+	 * The number of chunks drawn.
+	 */
+	public int getDrawCalls() { return mDrawCalls; }
+
+	/**
+	 * Gets the number of tiles across the map.
+	 * @return
+	 * The number of columns.
+	 */
+	public int getColumns() { return mColumns; }
+
+	/**
+	 * Gets the number of tiles down the map.
+	 * @return
+	 * The number of rows.
+	 */
+	public int getRows() { return mRows; }
+
+	/**
+	 * Gets the width of one tile.
+	 * @return
+	 * The width in pixels, before scaling.
+	 */
+	public int getTileWidth() { return mTileWidth; }
+
+	/**
+	 * Gets the height of one tile.
+	 * @return
+	 * The height in pixels, before scaling.
+	 */
+	public int getTileHeight() { return mTileHeight; }
+
+	/**
+	 * Gets the width of the whole map.
+	 * @return
+	 * The width of the map in pixels, before scaling.
+	 */
+	@Override
+	public int getWidth() { return mColumns * mTileWidth; }
+
+	/**
+	 * Gets the height of the whole map.
+	 * @return
+	 * The height of the map in pixels, before scaling.
+	 */
+	@Override
+	public int getHeight() { return mRows * mTileHeight; }
+
+	/**
+	 * Gets the atlas Texture.
+	 * @return
+	 * The Texture used by the TileMap.
+	 */
+	@Override
+	public Texture getTexture() { return mTexture; }
+
+	// Fills a chunk's vertex buffer with its non-empty tiles
+	private void buildChunk(int cx, int cy) {
+		int chunk = cy * mChunkColumns + cx;
+		mChunkDirty[chunk] = false;
+
+		int atlasColumns = Math.max(mTexture.getWidth() / mTileWidth, 1);
+		float du = (float)mTileWidth / (float)mTexture.getWidth();
+		float dv = (float)mTileHeight / (float)mTexture.getHeight();
+		int col0 = cx * CHUNK_SIZE;
+		int row0 = cy * CHUNK_SIZE;
+		int col1 = Math.min(col0 + CHUNK_SIZE, mColumns);
+		int row1 = Math.min(row0 + CHUNK_SIZE, mRows);
+
+		float v[] = mVertexData;
+		int n = 0;
+		int count = 0;
+		for (int row = row0; row < row1; row++) {
+			for (int col = col0; col < col1; col++) {
+				int tile = mTiles[row * mColumns + col];
+				if (tile < 0) {
+					continue;
+				}
+				float l = col * mTileWidth;
+				float t = row * mTileHeight;
+				float r = l + mTileWidth;
+				float b = t + mTileHeight;
+				float u0 = (tile % atlasColumns) * du;
+				float v0 = (tile / atlasColumns) * dv;
+				float u1 = u0 + du;
+				float v1 = v0 + dv;
+				v[n++] = l; v[n++] = t; v[n++] = u0; v[n++] = v0;
+				v[n++] = r; v[n++] = t; v[n++] = u1; v[n++] = v0;
+				v[n++] = r; v[n++] = b; v[n++] = u1; v[n++] = v1;
+				v[n++] = l; v[n++] = b; v[n++] = u0; v[n++] = v1;
+				count++;
+			}
+		}
+		mChunkTileCount[chunk] = count;
+		if (count == 0) {
+			mChunkVertices[chunk] = null;
+			return;
+		}
+
+		FloatBuffer vertices = mChunkVertices[chunk];
+		if ((vertices == null) || (vertices.capacity() < n)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(n * 4);
+			buf.order(ByteOrder.nativeOrder());
+			vertices = buf.asFloatBuffer();
+			mChunkVertices[chunk] = vertices;
+		}
+		vertices.clear();
+		vertices.put(v, 0, n);
+		vertices.position(0);
+	}
+}
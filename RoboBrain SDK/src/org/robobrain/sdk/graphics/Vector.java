@@ -20,10 +20,9 @@
  */
 package org.robobrain.sdk.graphics;
 
-import android.util.FloatMath;
-
 /**
- * Encapsulates a 2D Vector.
+ * Encapsulates a 2D Vector. For math inside per frame code prefer
+ * org.robobrain.sdk.math.Vector2, which never needs to be cloned.
  * @author James Johnson
  *
  */
@@ -62,7 +61,7 @@ public class Vector implements Cloneable {
 	 */
 	public Vector add(float x, float y) {
 		this.x += x;
-		this.x += y;
+		this.y += y;
 		return this;
 	}
 	
@@ -74,7 +73,7 @@ public class Vector implements Cloneable {
 	 */
 	public Vector add(Vector vector) {
 		this.x += vector.x;
-		this.x += vector.y;
+		this.y += vector.y;
 		return this;
 	}
 	
@@ -88,7 +87,7 @@ public class Vector implements Cloneable {
 	 */
 	public Vector subtract(float x, float y) {
 		this.x -= x;
-		this.x -= y;
+		this.y -= y;
 		return this;
 	}
 	
@@ -100,7 +99,7 @@ public class Vector implements Cloneable {
 	 */ 
 	public Vector subtract(Vector vector) {
 		this.x -= vector.x;
-		this.x -= vector.y;
+		this.y -= vector.y;
 		return this;
 	}
 	
@@ -113,12 +112,12 @@ public class Vector implements Cloneable {
 	 */
 	public Vector multiply(float scalar) {
 		this.x *= scalar;
-		this.x *= scalar;
+		this.y *= scalar;
 		return this;
 	}
 	
 	public float length() {
-		return FloatMath.sqrt(this.x * this.x + this.y * this.y);
+		return (float)Math.sqrt(this.x * this.x + this.y * this.y);
 	}
 	
 	public Vector normalize() {
@@ -140,8 +139,8 @@ public class Vector implements Cloneable {
 	
 	public Vector rotate(float angle) {
 		float rads = angle * TO_RADIANS;
-		float cos = FloatMath.cos(rads);
-		float sin = FloatMath.sin(rads);
+		float cos = (float)Math.cos(rads);
+		float sin = (float)Math.sin(rads);
 		
 		float newX = this.x * cos - this.y * sin;
 		float newY = this.x * sin + this.y * cos;
@@ -155,13 +154,13 @@ public class Vector implements Cloneable {
 	public float distance(float x, float y) {
 		float dx = this.x - x;
 		float dy = this.y - y;
-		return FloatMath.sqrt(dx * dx + dy * dy);
+		return (float)Math.sqrt(dx * dx + dy * dy);
 	}
 	
 	public float distance(Vector vector) {
 		float dx = this.x - vector.x;
 		float dy = this.y - vector.y;
-		return FloatMath.sqrt(dx * dx + dy * dy);
+		return (float)Math.sqrt(dx * dx + dy * dy);
 	}
 	
 	public Vector clone() { return new Vector(this.x, this.y); }
@@ -0,0 +1,526 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.input;
+
+/**
+ * Recognizes common gestures (tap, double tap, long press, fling, pan and pinch)
+ * from the Multitouch state. The detector is driven by the Engine once per frame,
+ * before the Multitouch state is cleared, and never allocates memory while running.
+ * Poll it from your game's update() the same way you would poll Multitouch:
+ * {@code}
+ * if (mGestures.hasGesture(GestureDetector.GESTURE_TAP)) {
+ *     ...
+ * }
+ * @author James Johnson
+ */
+public class GestureDetector {
+	/**
+	 * No gesture was recognized this frame.
+	 */
+	public static final int GESTURE_NONE = 0;
+
+	/**
+	 * A pointer touched and released the screen without moving.
+	 */
+	public static final int GESTURE_TAP = 1;
+
+	/**
+	 * A second tap followed the first one quickly and close by.
+	 */
+	public static final int GESTURE_DOUBLE_TAP = 1 << 1;
+
+	/**
+	 * A pointer has been held down without moving.
+	 */
+	public static final int GESTURE_LONG_PRESS = 1 << 2;
+
+	/**
+	 * A pointer was released while moving quickly.
+	 */
+	public static final int GESTURE_FLING = 1 << 3;
+
+	/**
+	 * A single pointer is being dragged across the screen.
+	 */
+	public static final int GESTURE_PAN = 1 << 4;
+
+	/**
+	 * Two pointers are moving towards or away from each other.
+	 */
+	public static final int GESTURE_PINCH = 1 << 5;
+
+	/** Default maximum length of a tap in milliseconds. */
+	public static final long DEFAULT_TAP_TIMEOUT = 250;
+
+	/** Default maximum time between two taps of a double tap in milliseconds. */
+	public static final long DEFAULT_DOUBLE_TAP_TIMEOUT = 300;
+
+	/** Default time a pointer has to be held down for a long press in milliseconds. */
+	public static final long DEFAULT_LONG_PRESS_TIMEOUT = 500;
+
+	/** Default distance in pixels a pointer can move before it stops being a tap. */
+	public static final float DEFAULT_TOUCH_SLOP = 16.0f;
+
+	/** Default minimum release speed of a fling in pixels per millisecond. */
+	public static final float DEFAULT_MIN_FLING_VELOCITY = 0.5f;
+
+	// Weight given to the newest sample when smoothing the pointer velocity
+	private static final float VELOCITY_SMOOTHING = 0.6f;
+
+	// A pointer held still this long in milliseconds before release has no velocity
+	private static final long VELOCITY_TIMEOUT = 100;
+
+	private long mTapTimeout;
+	private long mDoubleTapTimeout;
+	private long mLongPressTimeout;
+	private float mTouchSlop;
+	private float mMinFlingVelocity;
+
+	// Per pointer tracking
+	private boolean mDown[] = new boolean[Multitouch.MAX_POINTERS];
+	private float mPointerX[] = new float[Multitouch.MAX_POINTERS];
+	private float mPointerY[] = new float[Multitouch.MAX_POINTERS];
+
+	// Internal clock, accumulated from frame times
+	private long mClock;
+
+	// Primary pointer tracking
+	private int mPrimary;
+	private long mDownTime;
+	private float mDownX;
+	private float mDownY;
+	private float mLastX;
+	private float mLastY;
+	private long mLastMoveTime;
+	private float mVelocityX;
+	private float mVelocityY;
+	private boolean mMoved;
+	private boolean mLongPressed;
+	private boolean mMultiTouched;
+
+	// Double tap tracking
+	private long mLastTapTime;
+	private float mLastTapX;
+	private float mLastTapY;
+	private boolean mTapPending;
+
+	// Pinch tracking
+	private int mSecondary;
+	private float mStartSpan;
+	private float mLastSpan;
+
+	// Results for the current frame
+	private int mGestures;
+	private float mX;
+	private float mY;
+	private float mDeltaX;
+	private float mDeltaY;
+	private float mFlingVelocityX;
+	private float mFlingVelocityY;
+	private float mPinchScale;
+	private float mPinchDelta;
+
+	/**
+	 * Initializes the GestureDetector with the default thresholds.
+	 */
+	public GestureDetector() {
+		mTapTimeout = DEFAULT_TAP_TIMEOUT;
+		mDoubleTapTimeout = DEFAULT_DOUBLE_TAP_TIMEOUT;
+		mLongPressTimeout = DEFAULT_LONG_PRESS_TIMEOUT;
+		mTouchSlop = DEFAULT_TOUCH_SLOP;
+		mMinFlingVelocity = DEFAULT_MIN_FLING_VELOCITY;
+		reset();
+	}
+
+	/**
+	 * Forgets about all pointers and any gesture in progress.
+	 */
+	public void reset() {
+		for (int i = 0; i < Multitouch.MAX_POINTERS; i++) {
+			mDown[i] = false;
+			mPointerX[i] = 0.0f;
+			mPointerY[i] = 0.0f;
+		}
+		mClock = 0;
+		mPrimary = Multitouch.POINTER_INVALID;
+		mSecondary = Multitouch.POINTER_INVALID;
+		mMoved = false;
+		mLongPressed = false;
+		mMultiTouched = false;
+		mTapPending = false;
+		mPinchScale = 1.0f;
+		clearResults();
+	}
+
+	/**
+	 * Samples the Multitouch state and recognizes gestures. Called once per frame
+	 * by the Engine before the Multitouch state is cleared.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	public void update(long time) {
+		mClock += time;
+		clearResults();
+
+		// Forget the first tap once a second one can no longer make a double tap
+		if (mTapPending && (mClock - mLastTapTime > mDoubleTapTimeout)) {
+			mTapPending = false;
+		}
+
+		// Sample the pointers. Multitouch only reports changes, so a pointer that is
+		// held still keeps the last state we saw.
+		int downCount = 0;
+		for (int i = 0; i < Multitouch.MAX_POINTERS; i++) {
+			int state = Multitouch.getState(i);
+			if (state != Multitouch.POINTER_INVALID) {
+				mPointerX[i] = Multitouch.getX(i);
+				mPointerY[i] = Multitouch.getY(i);
+			}
+			if ((state == Multitouch.POINTER_DOWN) || (state == Multitouch.POINTER_MOVE)) {
+				if (!mDown[i]) {
+					onPointerDown(i);
+				}
+				mDown[i] = true;
+			} else if (state == Multitouch.POINTER_UP) {
+				if (!mDown[i]) {
+					// Pressed and released within the same frame
+					onPointerDown(i);
+				}
+				mDown[i] = false;
+				onPointerUp(i);
+			}
+			if (mDown[i]) {
+				downCount++;
+			}
+		}
+
+		if (mPrimary == Multitouch.POINTER_INVALID) {
+			return;
+		}
+
+		if ((mSecondary != Multitouch.POINTER_INVALID) && (downCount > 1)) {
+			updatePinch();
+		} else {
+			updatePrimary();
+		}
+	}
+
+	// A pointer started touching the screen
+	private void onPointerDown(int pointer) {
+		if (mPrimary == Multitouch.POINTER_INVALID) {
+			mPrimary = pointer;
+			mDownTime = mClock;
+			mDownX = mPointerX[pointer];
+			mDownY = mPointerY[pointer];
+			mLastX = mDownX;
+			mLastY = mDownY;
+			mLastMoveTime = mClock;
+			mVelocityX = 0.0f;
+			mVelocityY = 0.0f;
+			mMoved = false;
+			mLongPressed = false;
+			mMultiTouched = false;
+			return;
+		}
+		if (mSecondary == Multitouch.POINTER_INVALID) {
+			mSecondary = pointer;
+			mMultiTouched = true;
+			mStartSpan = span();
+			mLastSpan = mStartSpan;
+		}
+	}
+
+	// A pointer stopped touching the screen
+	private void onPointerUp(int pointer) {
+		if (pointer == mSecondary) {
+			// Continue panning from where the remaining pointer is now
+			mSecondary = Multitouch.POINTER_INVALID;
+			mLastX = mPointerX[mPrimary];
+			mLastY = mPointerY[mPrimary];
+			mLastMoveTime = mClock;
+			return;
+		}
+		if (pointer != mPrimary) {
+			return;
+		}
+		if (mSecondary != Multitouch.POINTER_INVALID) {
+			// Hand the gesture over to the remaining pointer without producing a tap
+			mPrimary = mSecondary;
+			mSecondary = Multitouch.POINTER_INVALID;
+			mLastX = mPointerX[mPrimary];
+			mLastY = mPointerY[mPrimary];
+			mLastMoveTime = mClock;
+			return;
+		}
+
+		float x = mPointerX[pointer];
+		float y = mPointerY[pointer];
+		if (mClock - mLastMoveTime > VELOCITY_TIMEOUT) {
+			// Held still before letting go, so the old velocity is stale
+			mVelocityX = 0.0f;
+			mVelocityY = 0.0f;
+		}
+		trackVelocity(x, y);
+		mX = x;
+		mY = y;
+
+		if (!mMoved && !mLongPressed && !mMultiTouched &&
+			(mClock - mDownTime <= mTapTimeout)) {
+			if (mTapPending && (mClock - mLastTapTime <= mDoubleTapTimeout) &&
+				(distanceSquared(x, y, mLastTapX, mLastTapY) <= mTouchSlop * mTouchSlop * 4)) {
+				mGestures |= GESTURE_DOUBLE_TAP;
+				mTapPending = false;
+			} else {
+				mGestures |= GESTURE_TAP;
+				mTapPending = true;
+				mLastTapTime = mClock;
+				mLastTapX = x;
+				mLastTapY = y;
+			}
+		} else if (mMoved && !mMultiTouched) {
+			float speedSquared = mVelocityX * mVelocityX + mVelocityY * mVelocityY;
+			if (speedSquared >= mMinFlingVelocity * mMinFlingVelocity) {
+				mGestures |= GESTURE_FLING;
+				mFlingVelocityX = mVelocityX;
+				mFlingVelocityY = mVelocityY;
+			}
+		}
+		mPrimary = Multitouch.POINTER_INVALID;
+	}
+
+	// Single pointer: pan and long press
+	private void updatePrimary() {
+		if (!mDown[mPrimary]) {
+			return;
+		}
+		float x = mPointerX[mPrimary];
+		float y = mPointerY[mPrimary];
+		mX = x;
+		mY = y;
+
+		if (!mMoved && (distanceSquared(x, y, mDownX, mDownY) > mTouchSlop * mTouchSlop)) {
+			mMoved = true;
+		}
+
+		if (mMoved) {
+			if ((x != mLastX) || (y != mLastY)) {
+				mGestures |= GESTURE_PAN;
+				mDeltaX = x - mLastX;
+				mDeltaY = y - mLastY;
+				trackVelocity(x, y);
+			}
+		} else if (!mLongPressed && !mMultiTouched &&
+				   (mClock - mDownTime >= mLongPressTimeout)) {
+			mGestures |= GESTURE_LONG_PRESS;
+			mLongPressed = true;
+			mTapPending = false;
+		}
+	}
+
+	// Two pointers: pinch
+	private void updatePinch() {
+		mX = (mPointerX[mPrimary] + mPointerX[mSecondary]) * 0.5f;
+		mY = (mPointerY[mPrimary] + mPointerY[mSecondary]) * 0.5f;
+		float span = span();
+		if ((span == mLastSpan) || (mStartSpan <= 0.0f) || (mLastSpan <= 0.0f)) {
+			return;
+		}
+		mGestures |= GESTURE_PINCH;
+		mPinchScale = span / mStartSpan;
+		mPinchDelta = span / mLastSpan;
+		mLastSpan = span;
+		mMoved = true;
+	}
+
+	// Smooths the primary pointer's velocity over the last few moves
+	private void trackVelocity(float x, float y) {
+		long elapsed = mClock - mLastMoveTime;
+		if (elapsed > 0) {
+			float vx = (x - mLastX) / (float)elapsed;
+			float vy = (y - mLastY) / (float)elapsed;
+			mVelocityX += (vx - mVelocityX) * VELOCITY_SMOOTHING;
+			mVelocityY += (vy - mVelocityY) * VELOCITY_SMOOTHING;
+		}
+		mLastX = x;
+		mLastY = y;
+		mLastMoveTime = mClock;
+	}
+
+	// Distance between the primary and secondary pointers
+	private float span() {
+		float dx = mPointerX[mSecondary] - mPointerX[mPrimary];
+		float dy = mPointerY[mSecondary] - mPointerY[mPrimary];
+		return (float)Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static float distanceSquared(float x1, float y1, float x2, float y2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		return dx * dx + dy * dy;
+	}
+
+	private void clearResults() {
+		mGestures = GESTURE_NONE;
+		mDeltaX = 0.0f;
+		mDeltaY = 0.0f;
+		mFlingVelocityX = 0.0f;
+		mFlingVelocityY = 0.0f;
+		mPinchDelta = 1.0f;
+	}
+
+	/**
+	 * Gets all of the gestures recognized during the last frame.
+	 * @return
+	 * A combination of the GESTURE_* flags, or GESTURE_NONE.
+	 */
+	public int getGestures() { return mGestures; }
+
+	/**
+	 * Determines if a gesture was recognized during the last frame.
+	 * @param gesture
+	 * One of the GESTURE_* flags.
+	 * @return
+	 * true if the gesture was recognized.
+	 */
+	public boolean hasGesture(int gesture) { return (mGestures & gesture) != 0; }
+
+	/**
+	 * Determines if a gesture may still be recognized without new input, such
+	 * as a long press while a pointer is held still or a double tap while the
+	 * first tap is pending. The Engine keeps drawing frames while this is true.
+	 * @return
+	 * true while a pointer is down or a tap is pending.
+	 */
+	public boolean isActive() {
+		return (mPrimary != Multitouch.POINTER_INVALID) ||
+			(mTapPending && (mClock - mLastTapTime <= mDoubleTapTimeout));
+	}
+
+	/**
+	 * Determines if a pointer is currently being dragged.
+	 * @return
+	 * true while a pan gesture is in progress.
+	 */
+	public boolean isPanning() {
+		return (mPrimary != Multitouch.POINTER_INVALID) && mMoved && (mSecondary == Multitouch.POINTER_INVALID);
+	}
+
+	/**
+	 * Determines if two pointers are currently pinching.
+	 * @return
+	 * true while a pinch gesture is in progress.
+	 */
+	public boolean isPinching() { return mSecondary != Multitouch.POINTER_INVALID; }
+
+	/**
+	 * Gets the position of the last gesture along the X axis. For pinches this is
+	 * the point halfway between both pointers.
+	 * @return
+	 * The gesture's x coordinate.
+	 */
+	public float getX() { return mX; }
+
+	/**
+	 * Gets the position of the last gesture along the Y axis. For pinches this is
+	 * the point halfway between both pointers.
+	 * @return
+	 * The gesture's y coordinate.
+	 */
+	public float getY() { return mY; }
+
+	/**
+	 * Gets the distance panned along the X axis during the last frame.
+	 * @return
+	 * The distance in pixels.
+	 */
+	public float getDeltaX() { return mDeltaX; }
+
+	/**
+	 * Gets the distance panned along the Y axis during the last frame.
+	 * @return
+	 * The distance in pixels.
+	 */
+	public float getDeltaY() { return mDeltaY; }
+
+	/**
+	 * Gets the velocity of the last fling along the X axis.
+	 * @return
+	 * The velocity in pixels per millisecond.
+	 */
+	public float getVelocityX() { return mFlingVelocityX; }
+
+	/**
+	 * Gets the velocity of the last fling along the Y axis.
+	 * @return
+	 * The velocity in pixels per millisecond.
+	 */
+	public float getVelocityY() { return mFlingVelocityY; }
+
+	/**
+	 * Gets the scale of the current pinch relative to where it started.
+	 * @return
+	 * The pinch scale. 1 = no change.
+	 */
+	public float getPinchScale() { return mPinchScale; }
+
+	/**
+	 * Gets the scale of the current pinch relative to the last frame.
+	 * @return
+	 * The change in scale. 1 = no change.
+	 */
+	public float getPinchDelta() { return mPinchDelta; }
+
+	/**
+	 * Sets the maximum length of a tap.
+	 * @param timeout
+	 * The time in milliseconds.
+	 */
+	public void setTapTimeout(long timeout) { mTapTimeout = timeout; }
+
+	/**
+	 * Sets the maximum time between the two taps of a double tap.
+	 * @param timeout
+	 * The time in milliseconds.
+	 */
+	public void setDoubleTapTimeout(long timeout) { mDoubleTapTimeout = timeout; }
+
+	/**
+	 * Sets the time a pointer has to be held down before it becomes a long press.
+	 * @param timeout
+	 * The time in milliseconds.
+	 */
+	public void setLongPressTimeout(long timeout) { mLongPressTimeout = timeout; }
+
+	/**
+	 * Sets the distance a pointer can move before a tap becomes a pan.
+	 * @param slop
+	 * The distance in pixels.
+	 */
+	public void setTouchSlop(float slop) { mTouchSlop = slop; }
+
+	/**
+	 * Sets the minimum speed a pointer must be released at to be a fling.
+	 * @param velocity
+	 * The speed in pixels per millisecond.
+	 */
+	public void setMinFlingVelocity(float velocity) { mMinFlingVelocity = velocity; }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import android.util.Log;
+
+/**
+ * Records the input seen by the game each frame so a play session can be
+ * replayed later with InputReplayer. The Engine calls recordFrame() once per
+ * frame before any game code runs, so the recording contains exactly what the
+ * game saw, in the order it saw it.
+ * <p>
+ * The file is a compact binary stream. Each frame is written as the input events
+ * that changed during that frame followed by a frame marker holding the number
+ * of milliseconds the frame lasted. Values that did not change are not written.
+ * @author James Johnson
+ */
+public class InputRecorder {
+	/** Identifies an input recording. Spells "RBIR". */
+	static final int MAGIC = 0x52424952;
+
+	/** Version of the recording format. */
+	static final int VERSION = 1;
+
+	/** Ends a frame. Followed by the frame time in milliseconds as an int. */
+	static final int EVENT_FRAME = 0;
+
+	/** A pointer changed. Followed by pointer and state bytes and x, y floats. */
+	static final int EVENT_TOUCH = 1;
+
+	/** The Keyboard changed. Followed by the key as an int and the state byte. */
+	static final int EVENT_KEY = 2;
+
+	/** The Accelerometer changed. Followed by x, y, z floats. */
+	static final int EVENT_ACCELEROMETER = 3;
+
+	/** Ends the recording. */
+	static final int EVENT_END = 0xFF;
+
+	private DataOutputStream mOut;
+	private int mFrameCount;
+	private int mLastKey;
+	private int mLastKeyState;
+	private float mLastAccelX;
+	private float mLastAccelY;
+	private float mLastAccelZ;
+
+	/**
+	 * Initializes the InputRecorder and writes the recording header.
+	 * @param out
+	 * The stream the recording is written to. Usually a FileOutputStream.
+	 */
+	public InputRecorder(OutputStream out) {
+		mFrameCount = 0;
+		mLastKey = Keyboard.KEY_INDETERMINATE;
+		mLastKeyState = Keyboard.KEY_INDETERMINATE;
+		mLastAccelX = 0.0f;
+		mLastAccelY = 0.0f;
+		mLastAccelZ = 0.0f;
+		if (out == null) {
+			Log.e("InputRecorder", "Null stream passed to InputRecorder.");
+			return;
+		}
+		mOut = new DataOutputStream(new BufferedOutputStream(out));
+		try {
+			mOut.writeInt(MAGIC);
+			mOut.writeByte(VERSION);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Records the current input state as one frame. Called by the Engine once
+	 * per frame.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	public void recordFrame(long time) {
+		if (mOut == null) {
+			return;
+		}
+		try {
+			for (int i = 0; i < Multitouch.MAX_POINTERS; i++) {
+				int state = Multitouch.getState(i);
+				if (state == Multitouch.POINTER_INVALID) {
+					continue;
+				}
+				mOut.writeByte(EVENT_TOUCH);
+				mOut.writeByte(i);
+				mOut.writeByte(state);
+				mOut.writeFloat(Multitouch.getX(i));
+				mOut.writeFloat(Multitouch.getY(i));
+			}
+
+			int key = Keyboard.key;
+			int keyState = Keyboard.state;
+			if ((key != mLastKey) || (keyState != mLastKeyState)) {
+				mOut.writeByte(EVENT_KEY);
+				mOut.writeInt(key);
+				mOut.writeByte(keyState);
+				mLastKey = key;
+				mLastKeyState = keyState;
+			}
+
+			float ax = Accelerometer.x;
+			float ay = Accelerometer.y;
+			float az = Accelerometer.z;
+			if ((ax != mLastAccelX) || (ay != mLastAccelY) || (az != mLastAccelZ)) {
+				mOut.writeByte(EVENT_ACCELEROMETER);
+				mOut.writeFloat(ax);
+				mOut.writeFloat(ay);
+				mOut.writeFloat(az);
+				mLastAccelX = ax;
+				mLastAccelY = ay;
+				mLastAccelZ = az;
+			}
+
+			mOut.writeByte(EVENT_FRAME);
+			mOut.writeInt((int)time);
+			mFrameCount++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Ends the recording and closes the stream.
+	 */
+	public void close() {
+		if (mOut == null) {
+			return;
+		}
+		try {
+			mOut.writeByte(EVENT_END);
+			mOut.close();
+		} catch (IOException e) {
+			Log.e("InputRecorder", "Unable to close recording: " + e.getMessage());
+		}
+		mOut = null;
+	}
+
+	/**
+	 * Determines if the InputRecorder is still recording.
+	 * @return
+	 * true until the recording is closed or an error occurs.
+	 */
+	public boolean isRecording() { return mOut != null; }
+
+	/**
+	 * Gets the number of frames recorded so far.
+	 * @return
+	 * The number of frames.
+	 */
+	public int getFrameCount() { return mFrameCount; }
+
+	// Stops recording after a write error
+	private void fail(IOException e) {
+		Log.e("InputRecorder", "Unable to write recording: " + e.getMessage());
+		try {
+			mOut.close();
+		} catch (IOException ignored) {
+			// Nothing else we can do
+		}
+		mOut = null;
+	}
+}
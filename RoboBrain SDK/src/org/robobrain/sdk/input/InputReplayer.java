@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.input;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.robobrain.sdk.game.Engine;
+
+import android.util.Log;
+
+/**
+ * Plays back a recording made by InputRecorder. Each recorded frame writes its
+ * input into Multitouch, Keyboard and Accelerometer and then updates the Engine,
+ * without rendering, so a play session can be reproduced headless. The time it
+ * took to update each frame is kept so runs from different builds can be compared.
+ * @author James Johnson
+ */
+public class InputReplayer {
+	private static final int INITIAL_FRAMES = 1024;
+
+	private DataInputStream mIn;
+	private long mTimestep;
+	private int mFrameCount;
+	private long mFrameTimes[];
+	private boolean mFinished;
+
+	/**
+	 * Initializes the InputReplayer and reads the recording header.
+	 * @param in
+	 * The stream containing the recording. Usually a FileInputStream or an asset.
+	 * @param timestep
+	 * The number of milliseconds to advance the Engine each frame, or 0 to use
+	 * the frame times stored in the recording.
+	 */
+	public InputReplayer(InputStream in, long timestep) {
+		mTimestep = timestep;
+		mFrameCount = 0;
+		mFrameTimes = new long[INITIAL_FRAMES];
+		mFinished = true;
+		if (in == null) {
+			Log.e("InputReplayer", "Null stream passed to InputReplayer.");
+			return;
+		}
+		mIn = new DataInputStream(new BufferedInputStream(in));
+		try {
+			if (mIn.readInt() != InputRecorder.MAGIC) {
+				Log.e("InputReplayer", "Stream is not an input recording.");
+				close();
+				return;
+			}
+			int version = mIn.readUnsignedByte();
+			if (version != InputRecorder.VERSION) {
+				Log.e("InputReplayer", "Unsupported recording version: " + version);
+				close();
+				return;
+			}
+		} catch (IOException e) {
+			fail(e);
+			return;
+		}
+		resetInput();
+		mFinished = false;
+	}
+
+	// Puts Keyboard and Accelerometer back to the values InputRecorder starts
+	// from. The recording only holds changes from them, so input left over from
+	// a live session or an earlier replay would otherwise leak into this one.
+	private static void resetInput() {
+		Keyboard.key = Keyboard.KEY_INDETERMINATE;
+		Keyboard.state = Keyboard.KEY_INDETERMINATE;
+		Accelerometer.x = 0.0f;
+		Accelerometer.y = 0.0f;
+		Accelerometer.z = 0.0f;
+	}
+
+	/**
+	 * Replays one frame of input and updates the Engine with it.
+	 * @param engine
+	 * The game Engine to drive. It must already be initialized.
+	 * @return
+	 * true if a frame was played, false once the recording has ended.
+	 */
+	public boolean step(Engine engine) {
+		if (mFinished || (engine == null)) {
+			return false;
+		}
+		Multitouch.clear();
+		try {
+			while (true) {
+				int event = mIn.readUnsignedByte();
+				switch (event) {
+					case InputRecorder.EVENT_TOUCH:
+						int pointer = mIn.readUnsignedByte();
+						int state = mIn.readByte();
+						Multitouch.setState(pointer, state);
+						Multitouch.setX(pointer, mIn.readFloat());
+						Multitouch.setY(pointer, mIn.readFloat());
+						break;
+
+					case InputRecorder.EVENT_KEY:
+						Keyboard.key = mIn.readInt();
+						Keyboard.state = mIn.readByte();
+						break;
+
+					case InputRecorder.EVENT_ACCELEROMETER:
+						Accelerometer.x = mIn.readFloat();
+						Accelerometer.y = mIn.readFloat();
+						Accelerometer.z = mIn.readFloat();
+						break;
+
+					case InputRecorder.EVENT_FRAME:
+						long time = mIn.readInt();
+						if (mTimestep > 0) {
+							time = mTimestep;
+						}
+						long start = System.nanoTime();
+						engine.update(time);
+						addFrameTime(System.nanoTime() - start);
+						return true;
+
+					case InputRecorder.EVENT_END:
+						close();
+						return false;
+
+					default:
+						Log.e("InputReplayer", "Corrupt recording, unknown event: " + event);
+						close();
+						return false;
+				}
+			}
+		} catch (EOFException e) {
+			// Recording was not closed properly; treat it as finished
+			close();
+			return false;
+		} catch (IOException e) {
+			fail(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Replays the whole recording.
+	 * @param engine
+	 * The game Engine to drive. It must already be initialized.
+	 * @return
+	 * The number of frames played.
+	 */
+	public int run(Engine engine) {
+		while (step(engine)) {
+			// Keep going until the recording ends
+		}
+		return mFrameCount;
+	}
+
+	/**
+	 * Closes the recording.
+	 */
+	public void close() {
+		mFinished = true;
+		if (mIn == null) {
+			return;
+		}
+		try {
+			mIn.close();
+		} catch (IOException e) {
+			Log.e("InputReplayer", "Unable to close recording: " + e.getMessage());
+		}
+		mIn = null;
+	}
+
+	/**
+	 * Determines if the whole recording has been played.
+	 * @return
+	 * true once the recording has ended.
+	 */
+	public boolean isFinished() { return mFinished; }
+
+	/**
+	 * Gets the number of frames played so far.
+	 * @return
+	 * The number of frames.
+	 */
+	public int getFrameCount() { return mFrameCount; }
+
+	/**
+	 * Gets the time it took the Engine to update one of the played frames.
+	 * @param frame
+	 * The frame to query. Ranges from 0 - (getFrameCount() - 1).
+	 * @return
+	 * The update time in nanoseconds.
+	 */
+	public long getFrameTime(int frame) {
+		if ((frame < 0) || (frame >= mFrameCount)) {
+			return 0;
+		}
+		return mFrameTimes[frame];
+	}
+
+	/**
+	 * Gets the total time the Engine spent updating all of the played frames.
+	 * @return
+	 * The update time in nanoseconds.
+	 */
+	public long getTotalTime() {
+		long total = 0;
+		for (int i = 0; i < mFrameCount; i++) {
+			total += mFrameTimes[i];
+		}
+		return total;
+	}
+
+	// Grows the frame time table as needed
+	private void addFrameTime(long nanos) {
+		if (mFrameCount == mFrameTimes.length) {
+			long grown[] = new long[mFrameTimes.length * 2];
+			System.arraycopy(mFrameTimes, 0, grown, 0, mFrameCount);
+			mFrameTimes = grown;
+		}
+		mFrameTimes[mFrameCount++] = nanos;
+	}
+
+	// Stops playing after a read error
+	private void fail(IOException e) {
+		Log.e("InputReplayer", "Unable to read recording: " + e.getMessage());
+		close();
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+/**
+ * Fast approximations of the trigonometry and square root functions used to
+ * transform sprites on the CPU. Sine and cosine come from a lookup table, atan2
+ * from a second table indexed by the ratio of its arguments, and the inverse
+ * square root from the classic bit trick followed by one Newton step.
+ * <p>
+ * With the default precision the sine and cosine tables have 4096 entries, good
+ * to about 0.0008, and the arctangent table 1024 entries, good to about 0.0005
+ * radians. Call setPrecision() once at start up if you need more or less.
+ * Use java.lang.Math when you need exact results.
+ * @author James Johnson
+ */
+public class FastMath {
+	/** Pi as a float. */
+	public static final float PI = (float)Math.PI;
+
+	/** Two times Pi, one full turn in radians. */
+	public static final float TWO_PI = PI * 2.0f;
+
+	/** Half of Pi, a quarter turn in radians. */
+	public static final float HALF_PI = PI * 0.5f;
+
+	/** Constant used to convert degrees to radians. */
+	public static final float TO_RADIANS = PI / 180.0f;
+
+	/** Constant used to convert radians to degrees. */
+	public static final float TO_DEGREES = 180.0f / PI;
+
+	/** Default number of bits used to index the sine table. */
+	public static final int DEFAULT_SIN_BITS = 12;
+
+	/** Default number of bits used to index the arctangent table. */
+	public static final int DEFAULT_ATAN_BITS = 10;
+
+	// The tables in use. setPrecision() swaps in a whole new set, so a thread
+	// reading them always sees a table with its own mask and scales.
+	private static Tables sTables;
+
+	static {
+		setPrecision(DEFAULT_SIN_BITS, DEFAULT_ATAN_BITS);
+	}
+
+	/**
+	 * Rebuilds the lookup tables. This allocates, so only call it while loading.
+	 * It is safe to call while other threads use FastMath; they switch to the
+	 * new tables on a later call.
+	 * @param sinBits
+	 * The sine table gets 2^sinBits entries covering one full turn. From 6 - 16.
+	 * @param atanBits
+	 * The arctangent table gets 2^atanBits entries. From 6 - 16.
+	 */
+	public static synchronized void setPrecision(int sinBits, int atanBits) {
+		sinBits = clamp(sinBits, 6, 16);
+		atanBits = clamp(atanBits, 6, 16);
+
+		int sinSize = 1 << sinBits;
+		float sin[] = new float[sinSize];
+		for (int i = 0; i < sinSize; i++) {
+			sin[i] = (float)Math.sin((i * Math.PI * 2.0) / sinSize);
+		}
+
+		int atanSize = 1 << atanBits;
+		float atan[] = new float[atanSize + 1];
+		for (int i = 0; i <= atanSize; i++) {
+			atan[i] = (float)Math.atan((double)i / atanSize);
+		}
+
+		sTables = new Tables(sin, atan);
+	}
+
+	/**
+	 * Approximates the sine of an angle.
+	 * @param radians
+	 * The angle in radians.
+	 * @return
+	 * The sine of the angle.
+	 */
+	public static float sin(float radians) {
+		Tables t = sTables;
+		return t.sin[round(radians * t.radToIndex) & t.sinMask];
+	}
+
+	/**
+	 * Approximates the cosine of an angle.
+	 * @param radians
+	 * The angle in radians.
+	 * @return
+	 * The cosine of the angle.
+	 */
+	public static float cos(float radians) {
+		Tables t = sTables;
+		return t.sin[(round(radians * t.radToIndex) + t.cosOffset) & t.sinMask];
+	}
+
+	/**
+	 * Approximates the sine of an angle given in degrees, the unit Renderable
+	 * and Entity rotations use.
+	 * @param degrees
+	 * The angle in degrees.
+	 * @return
+	 * The sine of the angle.
+	 */
+	public static float sinDeg(float degrees) {
+		Tables t = sTables;
+		return t.sin[round(degrees * t.degToIndex) & t.sinMask];
+	}
+
+	/**
+	 * Approximates the cosine of an angle given in degrees, the unit Renderable
+	 * and Entity rotations use.
+	 * @param degrees
+	 * The angle in degrees.
+	 * @return
+	 * The cosine of the angle.
+	 */
+	public static float cosDeg(float degrees) {
+		Tables t = sTables;
+		return t.sin[(round(degrees * t.degToIndex) + t.cosOffset) & t.sinMask];
+	}
+
+	/**
+	 * Approximates the angle of the point (x, y) from the X axis.
+	 * @param y
+	 * The point's y component.
+	 * @param x
+	 * The point's x component.
+	 * @return
+	 * The angle in radians, from -PI to PI.
+	 */
+	public static float atan2(float y, float x) {
+		if ((x == 0.0f) && (y == 0.0f)) {
+			return 0.0f;
+		}
+		Tables t = sTables;
+		float ax = x < 0 ? -x : x;
+		float ay = y < 0 ? -y : y;
+		float angle;
+		if (ax >= ay) {
+			angle = t.atan[(int)((ay / ax) * t.atanSize + 0.5f)];
+		} else {
+			angle = HALF_PI - t.atan[(int)((ax / ay) * t.atanSize + 0.5f)];
+		}
+		if (x < 0) {
+			angle = PI - angle;
+		}
+		return y < 0 ? -angle : angle;
+	}
+
+	/**
+	 * Approximates the angle of the point (x, y) from the X axis in degrees.
+	 * @param y
+	 * The point's y component.
+	 * @param x
+	 * The point's x component.
+	 * @return
+	 * The angle in degrees, from 0 - 360 like Vector.angle().
+	 */
+	public static float atan2Deg(float y, float x) {
+		float angle = atan2(y, x) * TO_DEGREES;
+		if (angle < 0) {
+			angle += 360.0f;
+		}
+		return angle;
+	}
+
+	/**
+	 * Approximates 1 / sqrt(x). Good to about 0.2%.
+	 * @param x
+	 * A positive number.
+	 * @return
+	 * The inverse square root of x.
+	 */
+	public static float invSqrt(float x) {
+		float half = 0.5f * x;
+		int i = Float.floatToRawIntBits(x);
+		i = 0x5f375a86 - (i >> 1);
+		float y = Float.intBitsToFloat(i);
+		return y * (1.5f - half * y * y);
+	}
+
+	/**
+	 * Approximates sqrt(x). Good to about 0.2%.
+	 * @param x
+	 * A positive number.
+	 * @return
+	 * The square root of x, or 0 if x is not positive.
+	 */
+	public static float sqrt(float x) {
+		if (x <= 0.0f) {
+			return 0.0f;
+		}
+		return x * invSqrt(x);
+	}
+
+	/**
+	 * Converts an angle from degrees to radians.
+	 * @param degrees
+	 * The angle in degrees.
+	 * @return
+	 * The angle in radians.
+	 */
+	public static float toRadians(float degrees) {
+		return degrees * TO_RADIANS;
+	}
+
+	/**
+	 * Converts an angle from radians to degrees.
+	 * @param radians
+	 * The angle in radians.
+	 * @return
+	 * The angle in degrees.
+	 */
+	public static float toDegrees(float radians) {
+		return radians * TO_DEGREES;
+	}
+
+	/**
+	 * Wraps an angle into the range 0 - 360.
+	 * @param degrees
+	 * The angle in degrees.
+	 * @return
+	 * The same angle, from 0 up to but not including 360.
+	 */
+	public static float wrapDegrees(float degrees) {
+		degrees %= 360.0f;
+		if (degrees < 0) {
+			degrees += 360.0f;
+		}
+		return degrees;
+	}
+
+	// Rounds to the nearest integer, halves away from zero
+	private static int round(float value) {
+		return value < 0 ? (int)(value - 0.5f) : (int)(value + 0.5f);
+	}
+
+	// One set of lookup tables. The fields are final, so a thread that sees
+	// the object also sees everything in it.
+	private static final class Tables {
+		final float sin[];
+		final int sinMask;
+		final float radToIndex;
+		final float degToIndex;
+		final int cosOffset;
+		final float atan[];
+		final int atanSize;
+
+		Tables(float sin[], float atan[]) {
+			this.sin = sin;
+			sinMask = sin.length - 1;
+			radToIndex = sin.length / TWO_PI;
+			degToIndex = sin.length / 360.0f;
+			cosOffset = sin.length / 4;
+			this.atan = atan;
+			atanSize = atan.length - 1;
+		}
+	}
+
+	private static int clamp(int value, int min, int max) {
+		if (value < min) {
+			return min;
+		}
+		if (value > max) {
+			return max;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+/**
+ * Intersection tests between axis aligned boxes, points, circles and rays. Every
+ * test takes plain floats so it can run on cached bounds or packed arrays
+ * without creating Rectangles. Boxes are given as left, top, right and bottom
+ * edges, and touching edges count as an intersection.
+ * <p>
+ * ray() and sweep() return the fraction of the movement at which contact
+ * starts, from 0 to 1, or NO_HIT.
+ * @author James Johnson
+ */
+public class Intersect {
+	/** Returned by ray() and sweep() when nothing is hit. */
+	public static final float NO_HIT = -1.0f;
+
+	/**
+	 * Tests two boxes for overlap.
+	 * @param left1
+	 * The left edge of the first box.
+	 * @param top1
+	 * The top edge of the first box.
+	 * @param right1
+	 * The right edge of the first box.
+	 * @param bottom1
+	 * The bottom edge of the first box.
+	 * @param left2
+	 * The left edge of the second box.
+	 * @param top2
+	 * The top edge of the second box.
+	 * @param right2
+	 * The right edge of the second box.
+	 * @param bottom2
+	 * The bottom edge of the second box.
+	 * @return
+	 * true if the boxes overlap or touch.
+	 */
+	public static boolean boxes(float left1, float top1, float right1, float bottom1,
+								float left2, float top2, float right2, float bottom2) {
+		return (right2 >= left1) && (left2 <= right1) && (bottom2 >= top1) && (top2 <= bottom1);
+	}
+
+	/**
+	 * Tests whether a box contains a point.
+	 * @param left
+	 * The left edge of the box.
+	 * @param top
+	 * The top edge of the box.
+	 * @param right
+	 * The right edge of the box.
+	 * @param bottom
+	 * The bottom edge of the box.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @return
+	 * true if the point is inside the box or on its edge.
+	 */
+	public static boolean boxPoint(float left, float top, float right, float bottom, float x, float y) {
+		return (x >= left) && (x <= right) && (y >= top) && (y <= bottom);
+	}
+
+	/**
+	 * Tests a box and a circle for overlap.
+	 * @param left
+	 * The left edge of the box.
+	 * @param top
+	 * The top edge of the box.
+	 * @param right
+	 * The right edge of the box.
+	 * @param bottom
+	 * The bottom edge of the box.
+	 * @param x
+	 * The center of the circle along the X axis.
+	 * @param y
+	 * The center of the circle along the Y axis.
+	 * @param radius
+	 * The radius of the circle.
+	 * @return
+	 * true if the box and circle overlap or touch.
+	 */
+	public static boolean boxCircle(float left, float top, float right, float bottom,
+									float x, float y, float radius) {
+		return boxDistanceSquared(left, top, right, bottom, x, y) <= radius * radius;
+	}
+
+	/**
+	 * Gets the squared distance from a point to the closest point of a box.
+	 * @param left
+	 * The left edge of the box.
+	 * @param top
+	 * The top edge of the box.
+	 * @param right
+	 * The right edge of the box.
+	 * @param bottom
+	 * The bottom edge of the box.
+	 * @param x
+	 * The point's position along the X axis.
+	 * @param y
+	 * The point's position along the Y axis.
+	 * @return
+	 * The squared distance. 0 if the point is inside the box.
+	 */
+	public static float boxDistanceSquared(float left, float top, float right, float bottom, float x, float y) {
+		float dx = 0;
+		float dy = 0;
+		if (x < left) {
+			dx = left - x;
+		} else if (x > right) {
+			dx = x - right;
+		}
+		if (y < top) {
+			dy = top - y;
+		} else if (y > bottom) {
+			dy = y - bottom;
+		}
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Casts a ray segment against a box.
+	 * @param x
+	 * The start of the segment along the X axis.
+	 * @param y
+	 * The start of the segment along the Y axis.
+	 * @param dx
+	 * The length of the segment along the X axis.
+	 * @param dy
+	 * The length of the segment along the Y axis.
+	 * @param left
+	 * The left edge of the box.
+	 * @param top
+	 * The top edge of the box.
+	 * @param right
+	 * The right edge of the box.
+	 * @param bottom
+	 * The bottom edge of the box.
+	 * @param normal
+	 * An array of at least 2 floats that receives the normal of the face that
+	 * was hit, or 0, 0 if the segment starts inside the box. May be null.
+	 * @return
+	 * The fraction of the segment where it enters the box, from 0 to 1, or
+	 * NO_HIT.
+	 */
+	public static float ray(float x, float y, float dx, float dy,
+							float left, float top, float right, float bottom, float[] normal) {
+		float enter = 0.0f;
+		float exit = 1.0f;
+		float nx = 0;
+		float ny = 0;
+
+		// Clip the segment against the X slab, then the Y slab
+		if (dx == 0.0f) {
+			if ((x < left) || (x > right)) {
+				return NO_HIT;
+			}
+		} else {
+			float inv = 1.0f / dx;
+			float near = ((dx > 0) ? left : right);
+			float far = ((dx > 0) ? right : left);
+			float t0 = (near - x) * inv;
+			float t1 = (far - x) * inv;
+			if (t0 > enter) {
+				enter = t0;
+				nx = (dx > 0) ? -1.0f : 1.0f;
+			}
+			if (t1 < exit) {
+				exit = t1;
+			}
+			if (enter > exit) {
+				return NO_HIT;
+			}
+		}
+		if (dy == 0.0f) {
+			if ((y < top) || (y > bottom)) {
+				return NO_HIT;
+			}
+		} else {
+			float inv = 1.0f / dy;
+			float near = ((dy > 0) ? top : bottom);
+			float far = ((dy > 0) ? bottom : top);
+			float t0 = (near - y) * inv;
+			float t1 = (far - y) * inv;
+			if (t0 > enter) {
+				enter = t0;
+				nx = 0;
+				ny = (dy > 0) ? -1.0f : 1.0f;
+			}
+			if (t1 < exit) {
+				exit = t1;
+			}
+			if (enter > exit) {
+				return NO_HIT;
+			}
+		}
+		if (normal != null) {
+			normal[0] = nx;
+			normal[1] = ny;
+		}
+		return enter;
+	}
+
+	/**
+	 * Sweeps a moving box against a still one.
+	 * @param left1
+	 * The left edge of the moving box at the start of the movement.
+	 * @param top1
+	 * The top edge of the moving box at the start of the movement.
+	 * @param right1
+	 * The right edge of the moving box at the start of the movement.
+	 * @param bottom1
+	 * The bottom edge of the moving box at the start of the movement.
+	 * @param dx
+	 * The distance the box moves along the X axis.
+	 * @param dy
+	 * The distance the box moves along the Y axis.
+	 * @param left2
+	 * The left edge of the still box.
+	 * @param top2
+	 * The top edge of the still box.
+	 * @param right2
+	 * The right edge of the still box.
+	 * @param bottom2
+	 * The bottom edge of the still box.
+	 * @param normal
+	 * An array of at least 2 floats that receives the normal of the face of the
+	 * still box that was hit, or 0, 0 if the boxes start overlapping. May be null.
+	 * @return
+	 * The fraction of the movement where the boxes first touch, from 0 to 1,
+	 * or NO_HIT.
+	 */
+	public static float sweep(float left1, float top1, float right1, float bottom1, float dx, float dy,
+							  float left2, float top2, float right2, float bottom2, float[] normal) {
+		// Shrink the moving box to a point and grow the still one to match
+		float hw = (right1 - left1) * 0.5f;
+		float hh = (bottom1 - top1) * 0.5f;
+		return ray(left1 + hw, top1 + hh, dx, dy,
+				   left2 - hw, top2 - hh, right2 + hw, bottom2 + hh, normal);
+	}
+
+	/**
+	 * Tests two circles for overlap.
+	 * @param x1
+	 * The center of the first circle along the X axis.
+	 * @param y1
+	 * The center of the first circle along the Y axis.
+	 * @param radius1
+	 * The radius of the first circle.
+	 * @param x2
+	 * The center of the second circle along the X axis.
+	 * @param y2
+	 * The center of the second circle along the Y axis.
+	 * @param radius2
+	 * The radius of the second circle.
+	 * @return
+	 * true if the circles overlap or touch.
+	 */
+	public static boolean circles(float x1, float y1, float radius1, float x2, float y2, float radius2) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		float r = radius1 + radius2;
+		return dx * dx + dy * dy <= r * r;
+	}
+}
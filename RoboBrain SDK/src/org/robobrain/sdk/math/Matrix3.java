@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+/**
+ * An affine 2D transform stored as the top two rows of a 3x3 matrix. The bottom
+ * row is always (0, 0, 1) so it is not stored. Points are transformed as
+ * <pre>
+ * x' = m00 * x + m01 * y + m02
+ * y' = m10 * x + m11 * y + m12
+ * </pre>
+ * All operations change the Matrix in place and return it.
+ * @author James Johnson
+ */
+public class Matrix3 {
+	public float m00;
+	public float m01;
+	public float m02;
+	public float m10;
+	public float m11;
+	public float m12;
+
+	/**
+	 * Initializes the Matrix to the identity.
+	 */
+	public Matrix3() {
+		identity();
+	}
+
+	/**
+	 * Resets the Matrix to the identity.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 identity() {
+		m00 = 1; m01 = 0; m02 = 0;
+		m10 = 0; m11 = 1; m12 = 0;
+		return this;
+	}
+
+	/**
+	 * Copies another Matrix into this one.
+	 * @param m
+	 * The Matrix to copy.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 set(Matrix3 m) {
+		m00 = m.m00; m01 = m.m01; m02 = m.m02;
+		m10 = m.m10; m11 = m.m11; m12 = m.m12;
+		return this;
+	}
+
+	/**
+	 * Sets the Matrix to translate, then rotate, then scale. This is the same
+	 * order the Sprites use with glTranslatef, glRotatef and glScalef. The
+	 * rotation uses the FastMath lookup tables.
+	 * @param x
+	 * The translation along the X axis.
+	 * @param y
+	 * The translation along the Y axis.
+	 * @param rotation
+	 * The angle of rotation in degrees.
+	 * @param scaleX
+	 * The scale along the X axis.
+	 * @param scaleY
+	 * The scale along the Y axis.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 setTransform(float x, float y, float rotation, float scaleX, float scaleY) {
+		float cos = 1.0f;
+		float sin = 0.0f;
+		if (rotation != 0.0f) {
+			cos = FastMath.cosDeg(rotation);
+			sin = FastMath.sinDeg(rotation);
+		}
+		m00 = cos * scaleX; m01 = -sin * scaleY; m02 = x;
+		m10 = sin * scaleX; m11 = cos * scaleY;  m12 = y;
+		return this;
+	}
+
+	/**
+	 * Sets the Matrix to a translation.
+	 * @param x
+	 * The translation along the X axis.
+	 * @param y
+	 * The translation along the Y axis.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 setTranslation(float x, float y) {
+		m00 = 1; m01 = 0; m02 = x;
+		m10 = 0; m11 = 1; m12 = y;
+		return this;
+	}
+
+	/**
+	 * Sets the Matrix to a rotation around the origin.
+	 * @param rotation
+	 * The angle of rotation in degrees.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 setRotation(float rotation) {
+		return setTransform(0, 0, rotation, 1, 1);
+	}
+
+	/**
+	 * Sets the Matrix to a scale.
+	 * @param scaleX
+	 * The scale along the X axis.
+	 * @param scaleY
+	 * The scale along the Y axis.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 setScale(float scaleX, float scaleY) {
+		m00 = scaleX; m01 = 0; m02 = 0;
+		m10 = 0; m11 = scaleY; m12 = 0;
+		return this;
+	}
+
+	/**
+	 * Multiplies this Matrix by another one. The other transform is applied
+	 * first, then this one. (this = this * m)
+	 * @param m
+	 * The Matrix to multiply by.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 multiply(Matrix3 m) {
+		float a00 = m00 * m.m00 + m01 * m.m10;
+		float a01 = m00 * m.m01 + m01 * m.m11;
+		float a02 = m00 * m.m02 + m01 * m.m12 + m02;
+		float a10 = m10 * m.m00 + m11 * m.m10;
+		float a11 = m10 * m.m01 + m11 * m.m11;
+		float a12 = m10 * m.m02 + m11 * m.m12 + m12;
+		m00 = a00; m01 = a01; m02 = a02;
+		m10 = a10; m11 = a11; m12 = a12;
+		return this;
+	}
+
+	/**
+	 * Multiplies another Matrix by this one. This transform is applied first,
+	 * then the other one. (this = m * this)
+	 * @param m
+	 * The Matrix to multiply by.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 preMultiply(Matrix3 m) {
+		float a00 = m.m00 * m00 + m.m01 * m10;
+		float a01 = m.m00 * m01 + m.m01 * m11;
+		float a02 = m.m00 * m02 + m.m01 * m12 + m.m02;
+		float a10 = m.m10 * m00 + m.m11 * m10;
+		float a11 = m.m10 * m01 + m.m11 * m11;
+		float a12 = m.m10 * m02 + m.m11 * m12 + m.m12;
+		m00 = a00; m01 = a01; m02 = a02;
+		m10 = a10; m11 = a11; m12 = a12;
+		return this;
+	}
+
+	/**
+	 * Appends a translation to this Matrix. The translation is applied before
+	 * the existing transform.
+	 * @param x
+	 * The translation along the X axis.
+	 * @param y
+	 * The translation along the Y axis.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 translate(float x, float y) {
+		m02 += m00 * x + m01 * y;
+		m12 += m10 * x + m11 * y;
+		return this;
+	}
+
+	/**
+	 * Appends a scale to this Matrix. The scale is applied before the existing
+	 * transform.
+	 * @param scaleX
+	 * The scale along the X axis.
+	 * @param scaleY
+	 * The scale along the Y axis.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 scale(float scaleX, float scaleY) {
+		m00 *= scaleX; m01 *= scaleY;
+		m10 *= scaleX; m11 *= scaleY;
+		return this;
+	}
+
+	/**
+	 * Gets the determinant of the Matrix.
+	 * @return
+	 * The determinant. 0 if the Matrix cannot be inverted.
+	 */
+	public float determinant() {
+		return m00 * m11 - m01 * m10;
+	}
+
+	/**
+	 * Inverts the Matrix. A Matrix that cannot be inverted is left alone.
+	 * @return
+	 * This Matrix.
+	 */
+	public Matrix3 invert() {
+		float det = determinant();
+		if (det == 0.0f) {
+			return this;
+		}
+		float inv = 1.0f / det;
+		float a00 = m11 * inv;
+		float a01 = -m01 * inv;
+		float a10 = -m10 * inv;
+		float a11 = m00 * inv;
+		float a02 = -(a00 * m02 + a01 * m12);
+		float a12 = -(a10 * m02 + a11 * m12);
+		m00 = a00; m01 = a01; m02 = a02;
+		m10 = a10; m11 = a11; m12 = a12;
+		return this;
+	}
+
+	/**
+	 * Transforms a Vector by this Matrix.
+	 * @param vector
+	 * The Vector to transform. It is changed in place.
+	 * @return
+	 * The transformed Vector.
+	 */
+	public Vector2 transform(Vector2 vector) {
+		float x = vector.x;
+		float y = vector.y;
+		vector.x = m00 * x + m01 * y + m02;
+		vector.y = m10 * x + m11 * y + m12;
+		return vector;
+	}
+
+	/**
+	 * Transforms a list of points packed as x, y pairs. The source and
+	 * destination may be the same array.
+	 * @param src
+	 * The points to transform.
+	 * @param srcOffset
+	 * The index of the first point's x component in src.
+	 * @param dst
+	 * The array that receives the transformed points.
+	 * @param dstOffset
+	 * The index of the first point's x component in dst.
+	 * @param count
+	 * The number of points to transform.
+	 */
+	public void transform(float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+		transform(src, srcOffset, 2, dst, dstOffset, 2, count);
+	}
+
+	/**
+	 * Transforms a list of points stored with a stride, such as the positions in
+	 * an interleaved vertex array. Only the first two values of each element are
+	 * touched. The source and destination may be the same array.
+	 * @param src
+	 * The points to transform.
+	 * @param srcOffset
+	 * The index of the first point's x component in src.
+	 * @param srcStride
+	 * The number of floats between the start of two points in src.
+	 * @param dst
+	 * The array that receives the transformed points.
+	 * @param dstOffset
+	 * The index of the first point's x component in dst.
+	 * @param dstStride
+	 * The number of floats between the start of two points in dst.
+	 * @param count
+	 * The number of points to transform.
+	 */
+	public void transform(float[] src, int srcOffset, int srcStride,
+						  float[] dst, int dstOffset, int dstStride, int count) {
+		float a00 = m00, a01 = m01, a02 = m02;
+		float a10 = m10, a11 = m11, a12 = m12;
+		int s = srcOffset;
+		int d = dstOffset;
+		for (int i = 0; i < count; i++) {
+			float x = src[s];
+			float y = src[s + 1];
+			dst[d] = a00 * x + a01 * y + a02;
+			dst[d + 1] = a10 * x + a11 * y + a12;
+			s += srcStride;
+			d += dstStride;
+		}
+	}
+
+	/**
+	 * Copies the Matrix into a 4x4 column major array that can be passed to
+	 * glLoadMatrixf() or glMultMatrixf().
+	 * @param out
+	 * An array of at least 16 floats.
+	 * @return
+	 * The array passed in.
+	 */
+	public float[] toGL(float[] out) {
+		out[0] = m00; out[4] = m01; out[8] = 0;  out[12] = m02;
+		out[1] = m10; out[5] = m11; out[9] = 0;  out[13] = m12;
+		out[2] = 0;   out[6] = 0;   out[10] = 1; out[14] = 0;
+		out[3] = 0;   out[7] = 0;   out[11] = 0; out[15] = 1;
+		return out;
+	}
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+/**
+ * A mutable 2D Vector. Every operation changes this Vector in place and returns
+ * it, so calls can be chained without creating new objects. Use set() to copy
+ * a Vector instead of creating a new one, and a VectorPool for temporaries.
+ * @author James Johnson
+ */
+public class Vector2 {
+	/** Constant used to convert degrees to radians. */
+	public static final float TO_RADIANS = (1.0f / 180.0f) * (float)Math.PI;
+
+	/** Constant used to convert radians to degrees. */
+	public static final float TO_DEGREES = (1.0f / (float)Math.PI) * 180.0f;
+
+	/** The Vector's distance from the origin on the X-axis. */
+	public float x;
+
+	/** The Vector's distance from the origin on the Y-axis. */
+	public float y;
+
+	/** Initializes the Vector at the origin. */
+	public Vector2() {
+		x = 0;
+		y = 0;
+	}
+
+	/**
+	 * Initializes the Vector at a specified point in space.
+	 * @param x
+	 * The x component.
+	 * @param y
+	 * The y component.
+	 */
+	public Vector2(float x, float y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Sets both components of the Vector.
+	 * @param x
+	 * The x component.
+	 * @param y
+	 * The y component.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 set(float x, float y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	/**
+	 * Copies another Vector into this one.
+	 * @param vector
+	 * The Vector to copy.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 set(Vector2 vector) {
+		this.x = vector.x;
+		this.y = vector.y;
+		return this;
+	}
+
+	/**
+	 * Adds a Vector to this one.
+	 * @param x
+	 * The x component to add to this Vector.
+	 * @param y
+	 * The y component to add to this Vector.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 add(float x, float y) {
+		this.x += x;
+		this.y += y;
+		return this;
+	}
+
+	/**
+	 * Adds a Vector to this one.
+	 * @param vector
+	 * The Vector to add to this one.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 add(Vector2 vector) {
+		this.x += vector.x;
+		this.y += vector.y;
+		return this;
+	}
+
+	/**
+	 * Adds a scaled Vector to this one. Useful for integrating velocity.
+	 * @param vector
+	 * The Vector to add to this one.
+	 * @param scalar
+	 * The amount to scale the other Vector by before adding it.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 addScaled(Vector2 vector, float scalar) {
+		this.x += vector.x * scalar;
+		this.y += vector.y * scalar;
+		return this;
+	}
+
+	/**
+	 * Subtracts a Vector from this one.
+	 * @param x
+	 * The x component to subtract from this Vector.
+	 * @param y
+	 * The y component to subtract from this Vector.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 subtract(float x, float y) {
+		this.x -= x;
+		this.y -= y;
+		return this;
+	}
+
+	/**
+	 * Subtracts a Vector from this one.
+	 * @param vector
+	 * The Vector to subtract from this one.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 subtract(Vector2 vector) {
+		this.x -= vector.x;
+		this.y -= vector.y;
+		return this;
+	}
+
+	/**
+	 * Multiplies this Vector by a scalar.
+	 * @param scalar
+	 * The number to multiply both components by.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 multiply(float scalar) {
+		this.x *= scalar;
+		this.y *= scalar;
+		return this;
+	}
+
+	/**
+	 * Multiplies each component of this Vector by a different amount.
+	 * @param sx
+	 * The number to multiply the x component by.
+	 * @param sy
+	 * The number to multiply the y component by.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 multiply(float sx, float sy) {
+		this.x *= sx;
+		this.y *= sy;
+		return this;
+	}
+
+	/**
+	 * Calculates the dot product of this Vector and another one.
+	 * @param vector
+	 * The other Vector.
+	 * @return
+	 * The dot product.
+	 */
+	public float dot(Vector2 vector) {
+		return this.x * vector.x + this.y * vector.y;
+	}
+
+	/**
+	 * Calculates the z component of the cross product of this Vector and another one.
+	 * @param vector
+	 * The other Vector.
+	 * @return
+	 * Positive if the other Vector is clockwise from this one on screen.
+	 */
+	public float cross(Vector2 vector) {
+		return this.x * vector.y - this.y * vector.x;
+	}
+
+	/**
+	 * Gets the length of the Vector.
+	 * @return
+	 * The length of the Vector.
+	 */
+	public float length() {
+		return (float)Math.sqrt(this.x * this.x + this.y * this.y);
+	}
+
+	/**
+	 * Gets the squared length of the Vector. Cheaper than length() when you
+	 * only need to compare lengths.
+	 * @return
+	 * The squared length of the Vector.
+	 */
+	public float lengthSquared() {
+		return this.x * this.x + this.y * this.y;
+	}
+
+	/**
+	 * Scales the Vector so its length is 1. A zero length Vector is left alone.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 normalize() {
+		float len = length();
+		if (len != 0.0f) {
+			float inv = 1.0f / len;
+			this.x *= inv;
+			this.y *= inv;
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the angle of the Vector.
+	 * @return
+	 * The angle in degrees, from 0 - 360.
+	 */
+	public float angle() {
+		float angle = (float)Math.atan2(this.y, this.x) * TO_DEGREES;
+		if (angle < 0) {
+			angle += 360;
+		}
+		return angle;
+	}
+
+	/**
+	 * Rotates the Vector around the origin.
+	 * @param angle
+	 * The angle to rotate by in degrees.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 rotate(float angle) {
+		float rads = angle * TO_RADIANS;
+		float cos = (float)Math.cos(rads);
+		float sin = (float)Math.sin(rads);
+
+		float newX = this.x * cos - this.y * sin;
+		float newY = this.x * sin + this.y * cos;
+
+		this.x = newX;
+		this.y = newY;
+
+		return this;
+	}
+
+	/**
+	 * Moves this Vector part of the way towards another one.
+	 * @param vector
+	 * The Vector to move towards.
+	 * @param alpha
+	 * How far to move. 0 = not at all, 1 = all the way.
+	 * @return
+	 * This Vector.
+	 */
+	public Vector2 lerp(Vector2 vector, float alpha) {
+		this.x += (vector.x - this.x) * alpha;
+		this.y += (vector.y - this.y) * alpha;
+		return this;
+	}
+
+	/**
+	 * Gets the distance between this Vector and a point.
+	 * @param x
+	 * The point's x component.
+	 * @param y
+	 * The point's y component.
+	 * @return
+	 * The distance to the point.
+	 */
+	public float distance(float x, float y) {
+		float dx = this.x - x;
+		float dy = this.y - y;
+		return (float)Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Gets the distance between this Vector and another one.
+	 * @param vector
+	 * The other Vector.
+	 * @return
+	 * The distance to the other Vector.
+	 */
+	public float distance(Vector2 vector) {
+		return distance(vector.x, vector.y);
+	}
+
+	/**
+	 * Gets the squared distance between this Vector and a point.
+	 * @param x
+	 * The point's x component.
+	 * @param y
+	 * The point's y component.
+	 * @return
+	 * The squared distance to the point.
+	 */
+	public float distanceSquared(float x, float y) {
+		float dx = this.x - x;
+		float dy = this.y - y;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Gets the squared distance between this Vector and another one.
+	 * @param vector
+	 * The other Vector.
+	 * @return
+	 * The squared distance to the other Vector.
+	 */
+	public float distanceSquared(Vector2 vector) {
+		return distanceSquared(vector.x, vector.y);
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+/**
+ * Bulk operations over Vectors stored in float arrays. Points are either packed
+ * as x, y pairs in one array, or kept in separate x and y arrays. Each call runs
+ * one tight loop over the data, which is much cheaper than calling a method on
+ * thousands of Vector objects. To transform points by a Matrix3 use
+ * Matrix3.transform().
+ * @author James Johnson
+ */
+public class VectorArrays {
+	/**
+	 * Moves points packed as x, y pairs by their velocities.
+	 * (position += velocity * time)
+	 * @param positions
+	 * The positions, packed as x, y pairs.
+	 * @param velocities
+	 * The velocities, packed as x, y pairs in the same order.
+	 * @param offset
+	 * The index of the first point. (Not the index of the first float.)
+	 * @param count
+	 * The number of points to move.
+	 * @param time
+	 * The amount of time to move the points for.
+	 */
+	public static void integrate(float[] positions, float[] velocities, int offset, int count, float time) {
+		int end = (offset + count) * 2;
+		for (int i = offset * 2; i < end; i++) {
+			positions[i] += velocities[i] * time;
+		}
+	}
+
+	/**
+	 * Moves points stored in separate x and y arrays by their velocities.
+	 * (position += velocity * time)
+	 * @param x
+	 * The x components of the positions.
+	 * @param y
+	 * The y components of the positions.
+	 * @param vx
+	 * The x components of the velocities.
+	 * @param vy
+	 * The y components of the velocities.
+	 * @param offset
+	 * The index of the first point.
+	 * @param count
+	 * The number of points to move.
+	 * @param time
+	 * The amount of time to move the points for.
+	 */
+	public static void integrate(float[] x, float[] y, float[] vx, float[] vy, int offset, int count, float time) {
+		int end = offset + count;
+		for (int i = offset; i < end; i++) {
+			x[i] += vx[i] * time;
+		}
+		for (int i = offset; i < end; i++) {
+			y[i] += vy[i] * time;
+		}
+	}
+
+	/**
+	 * Adds the same acceleration to a list of velocities stored in separate x
+	 * and y arrays. Useful for gravity and wind. (velocity += acceleration * time)
+	 * @param vx
+	 * The x components of the velocities.
+	 * @param vy
+	 * The y components of the velocities.
+	 * @param offset
+	 * The index of the first velocity.
+	 * @param count
+	 * The number of velocities to change.
+	 * @param ax
+	 * The acceleration along the X axis.
+	 * @param ay
+	 * The acceleration along the Y axis.
+	 * @param time
+	 * The amount of time to accelerate for.
+	 */
+	public static void accelerate(float[] vx, float[] vy, int offset, int count, float ax, float ay, float time) {
+		int end = offset + count;
+		float dvx = ax * time;
+		float dvy = ay * time;
+		for (int i = offset; i < end; i++) {
+			vx[i] += dvx;
+			vy[i] += dvy;
+		}
+	}
+
+	/**
+	 * Multiplies a range of values by a scalar. Useful for applying friction
+	 * to velocities.
+	 * @param values
+	 * The values to multiply.
+	 * @param offset
+	 * The index of the first value.
+	 * @param count
+	 * The number of values to multiply.
+	 * @param scalar
+	 * The number to multiply each value by.
+	 */
+	public static void multiply(float[] values, int offset, int count, float scalar) {
+		int end = offset + count;
+		for (int i = offset; i < end; i++) {
+			values[i] *= scalar;
+		}
+	}
+
+	/**
+	 * Moves points packed as x, y pairs by the same amount.
+	 * @param points
+	 * The points, packed as x, y pairs.
+	 * @param offset
+	 * The index of the first point. (Not the index of the first float.)
+	 * @param count
+	 * The number of points to move.
+	 * @param dx
+	 * The distance to move along the X axis.
+	 * @param dy
+	 * The distance to move along the Y axis.
+	 */
+	public static void translate(float[] points, int offset, int count, float dx, float dy) {
+		int end = (offset + count) * 2;
+		for (int i = offset * 2; i < end; i += 2) {
+			points[i] += dx;
+			points[i + 1] += dy;
+		}
+	}
+
+	/**
+	 * Calculates the bounding box of points packed as x, y pairs.
+	 * @param points
+	 * The points, packed as x, y pairs.
+	 * @param offset
+	 * The index of the first point. (Not the index of the first float.)
+	 * @param count
+	 * The number of points. Must be at least 1.
+	 * @param out
+	 * An array of at least 4 floats that receives left, top, right and bottom.
+	 * @return
+	 * The array passed in.
+	 */
+	public static float[] bounds(float[] points, int offset, int count, float[] out) {
+		int start = offset * 2;
+		float left = points[start];
+		float top = points[start + 1];
+		float right = left;
+		float bottom = top;
+		int end = (offset + count) * 2;
+		for (int i = start + 2; i < end; i += 2) {
+			float x = points[i];
+			float y = points[i + 1];
+			if (x < left) {
+				left = x;
+			} else if (x > right) {
+				right = x;
+			}
+			if (y < top) {
+				top = y;
+			} else if (y > bottom) {
+				bottom = y;
+			}
+		}
+		out[0] = left;
+		out[1] = top;
+		out[2] = right;
+		out[3] = bottom;
+		return out;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+import android.util.Log;
+
+/**
+ * A stack of scratch Vectors for temporary values inside a calculation. Take
+ * a mark before borrowing, then reset to it when done and every Vector borrowed
+ * since the mark is returned at once:
+ * {@code}
+ * int mark = pool.mark();
+ * Vector2 delta = pool.obtain().set(target).subtract(position);
+ * ...
+ * pool.reset(mark);
+ * <p>
+ * A VectorPool is not thread safe. Give each thread its own pool.
+ * @author James Johnson
+ */
+public class VectorPool {
+	private Vector2 mVectors[];
+	private int mTop;
+
+	/**
+	 * Initializes the VectorPool.
+	 * @param capacity
+	 * The number of Vectors to create up front. The pool grows if more are
+	 * borrowed at once, but that allocates.
+	 */
+	public VectorPool(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		mVectors = new Vector2[capacity];
+		for (int i = 0; i < capacity; i++) {
+			mVectors[i] = new Vector2();
+		}
+		mTop = 0;
+	}
+
+	/**
+	 * Borrows a Vector from the pool. Its contents are undefined.
+	 * @return
+	 * A scratch Vector.
+	 */
+	public Vector2 obtain() {
+		if (mTop == mVectors.length) {
+			grow();
+		}
+		return mVectors[mTop++];
+	}
+
+	/**
+	 * Borrows a Vector from the pool and sets it.
+	 * @param x
+	 * The x component.
+	 * @param y
+	 * The y component.
+	 * @return
+	 * A scratch Vector.
+	 */
+	public Vector2 obtain(float x, float y) {
+		return obtain().set(x, y);
+	}
+
+	/**
+	 * Marks the current top of the pool.
+	 * @return
+	 * The mark to pass to reset().
+	 */
+	public int mark() {
+		return mTop;
+	}
+
+	/**
+	 * Returns every Vector borrowed since a mark to the pool.
+	 * @param mark
+	 * A value returned by mark().
+	 */
+	public void reset(int mark) {
+		if ((mark < 0) || (mark > mTop)) {
+			Log.w("VectorPool", "Invalid mark passed to reset().");
+			return;
+		}
+		mTop = mark;
+	}
+
+	/**
+	 * Returns every borrowed Vector to the pool.
+	 */
+	public void clear() {
+		mTop = 0;
+	}
+
+	/**
+	 * Gets the number of Vectors currently borrowed.
+	 * @return
+	 * The number of Vectors.
+	 */
+	public int getUsed() { return mTop; }
+
+	/**
+	 * Gets the number of Vectors the pool holds.
+	 * @return
+	 * The number of Vectors.
+	 */
+	public int getCapacity() { return mVectors.length; }
+
+	// Doubles the size of the pool
+	private void grow() {
+		Log.w("VectorPool", "Pool exhausted, growing to " + (mVectors.length * 2) + " Vectors.");
+		Vector2 grown[] = new Vector2[mVectors.length * 2];
+		System.arraycopy(mVectors, 0, grown, 0, mVectors.length);
+		for (int i = mVectors.length; i < grown.length; i++) {
+			grown[i] = new Vector2();
+		}
+		mVectors = grown;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Allocation free vectors, matrices and bulk math operations.
+ */
+package org.robobrain.sdk.math;
\ No newline at end of file
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.physics;
+
+import org.robobrain.sdk.game.Entity;
+
+/**
+ * A rigid body simulated by a PhysicsWorld. A Body is either an axis aligned box
+ * or a circle, positioned by its center. Bodies don't rotate. A Body with no mass
+ * is static: it never moves but other Bodies bounce off it.
+ * <p>
+ * Positions are in pixels, velocities in pixels per millisecond, the same units
+ * the Entities use. A Body can drive an Entity, which is moved to the Body's
+ * position after every PhysicsWorld update.
+ * @author James Johnson
+ */
+public class Body {
+	/** Shape type of an axis aligned box. */
+	public static final int SHAPE_BOX = 0;
+
+	/** Shape type of a circle. */
+	public static final int SHAPE_CIRCLE = 1;
+
+	/** The Body's center along the X axis. */
+	public float x;
+
+	/** The Body's center along the Y axis. */
+	public float y;
+
+	/** The Body's velocity along the X axis in pixels per millisecond. */
+	public float vx;
+
+	/** The Body's velocity along the Y axis in pixels per millisecond. */
+	public float vy;
+
+	/** How bouncy the Body is. 0 = no bounce, 1 = perfectly elastic. */
+	public float restitution;
+
+	/** How much the Body resists sliding. 0 = ice. */
+	public float friction;
+
+	/** The amount of the PhysicsWorld's gravity applied to the Body. */
+	public float gravityScale;
+
+	/** The collision categories this Body belongs to, one per bit. */
+	public int collisionCategory;
+
+	/** The collision categories this Body collides with, one per bit. */
+	public int collisionMask;
+
+	// Shape
+	int mShape;
+	float mHalfWidth;
+	float mHalfHeight;
+	float mRadius;
+	float mInvMass;
+
+	// Sleeping
+	boolean mSleeping;
+	float mSleepTime;
+	boolean mFellAsleep;  // Entity hasn't been moved to where it fell asleep
+
+	// Position in the PhysicsWorld's list, or -1
+	int mIndex;
+
+	private Entity mEntity;
+
+	/**
+	 * Initializes a box shaped Body.
+	 * @param width
+	 * The width of the box in pixels.
+	 * @param height
+	 * The height of the box in pixels.
+	 * @param mass
+	 * The mass of the Body. 0 = static.
+	 */
+	public Body(float width, float height, float mass) {
+		init(mass);
+		mShape = SHAPE_BOX;
+		mHalfWidth = width * 0.5f;
+		mHalfHeight = height * 0.5f;
+		mRadius = 0;
+	}
+
+	/**
+	 * Initializes a circle shaped Body.
+	 * @param radius
+	 * The radius of the circle in pixels.
+	 * @param mass
+	 * The mass of the Body. 0 = static.
+	 */
+	public Body(float radius, float mass) {
+		init(mass);
+		mShape = SHAPE_CIRCLE;
+		mHalfWidth = radius;
+		mHalfHeight = radius;
+		mRadius = radius;
+	}
+
+	private void init(float mass) {
+		x = 0;
+		y = 0;
+		vx = 0;
+		vy = 0;
+		restitution = 0.2f;
+		friction = 0.3f;
+		gravityScale = 1.0f;
+		collisionCategory = Entity.CATEGORY_DEFAULT;
+		collisionMask = Entity.MASK_ALL;
+		mInvMass = (mass > 0) ? 1.0f / mass : 0.0f;
+		mSleeping = false;
+		mSleepTime = 0;
+		mIndex = -1;
+		mEntity = null;
+	}
+
+	/**
+	 * Changes the Body's velocity instantly.
+	 * @param ix
+	 * The impulse along the X axis. Divided by the mass.
+	 * @param iy
+	 * The impulse along the Y axis. Divided by the mass.
+	 */
+	public void applyImpulse(float ix, float iy) {
+		vx += ix * mInvMass;
+		vy += iy * mInvMass;
+		wake();
+	}
+
+	/**
+	 * Moves the Body to a new position and wakes it.
+	 * @param x
+	 * The new center along the X axis.
+	 * @param y
+	 * The new center along the Y axis.
+	 */
+	public void setPosition(float x, float y) {
+		this.x = x;
+		this.y = y;
+		wake();
+	}
+
+	/**
+	 * Sets the Body's velocity and wakes it.
+	 * @param vx
+	 * The velocity along the X axis in pixels per millisecond.
+	 * @param vy
+	 * The velocity along the Y axis in pixels per millisecond.
+	 */
+	public void setVelocity(float vx, float vy) {
+		this.vx = vx;
+		this.vy = vy;
+		wake();
+	}
+
+	/**
+	 * Wakes the Body so the PhysicsWorld simulates it again.
+	 */
+	public void wake() {
+		mSleeping = false;
+		mSleepTime = 0;
+	}
+
+	/**
+	 * Links the Body to an Entity. The Body starts at the Entity's position and
+	 * moves the Entity after every PhysicsWorld update.
+	 * @param entity
+	 * The Entity to move, or null to unlink.
+	 */
+	public void setEntity(Entity entity) {
+		mEntity = entity;
+		if (entity != null) {
+			x = entity.x;
+			y = entity.y;
+			wake();
+		}
+	}
+
+	/**
+	 * Gets the Entity moved by the Body.
+	 * @return
+	 * The Entity, or null.
+	 */
+	public Entity getEntity() { return mEntity; }
+
+	/**
+	 * Determines if the Body is asleep. Sleeping Bodies are not moved or tested
+	 * against each other until something wakes them.
+	 * @return
+	 * true if the Body is asleep.
+	 */
+	public boolean isSleeping() { return mSleeping; }
+
+	/**
+	 * Determines if the Body is static.
+	 * @return
+	 * true if the Body has no mass and never moves.
+	 */
+	public boolean isStatic() { return mInvMass == 0; }
+
+	/**
+	 * Gets the Body's shape.
+	 * @return
+	 * SHAPE_BOX or SHAPE_CIRCLE.
+	 */
+	public int getShape() { return mShape; }
+
+	/**
+	 * Gets half of the width of the Body's bounding box.
+	 * @return
+	 * The half width in pixels.
+	 */
+	public float getHalfWidth() { return mHalfWidth; }
+
+	/**
+	 * Gets half of the height of the Body's bounding box.
+	 * @return
+	 * The half height in pixels.
+	 */
+	public float getHalfHeight() { return mHalfHeight; }
+
+	/**
+	 * Gets the radius of a circle Body.
+	 * @return
+	 * The radius in pixels, or 0 for a box.
+	 */
+	public float getRadius() { return mRadius; }
+
+	/**
+	 * Gets the Body's mass.
+	 * @return
+	 * The mass, or 0 if the Body is static.
+	 */
+	public float getMass() { return (mInvMass == 0) ? 0 : 1.0f / mInvMass; }
+}
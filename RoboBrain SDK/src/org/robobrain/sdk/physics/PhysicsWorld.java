@@ -0,0 +1,847 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.physics;
+
+import java.util.ArrayList;
+
+import org.robobrain.sdk.game.Entity;
+
+import android.util.Log;
+
+/**
+ * Simulates Bodies with gravity, impulse based collision response, restitution
+ * and friction. The simulation always advances in fixed steps no matter what
+ * the frame rate is, so stacks behave the same on fast and slow phones.
+ * <p>
+ * Candidate pairs come from a sort and sweep broadphase: Bodies are kept sorted
+ * by their left edge, which barely changes between steps, so only Bodies whose
+ * horizontal extents overlap are tested. Contacts that last from one step to
+ * the next start from the previous step's impulses, which keeps stacks firm
+ * with few solver iterations. Touching Bodies form islands, and an
+ * island whose Bodies have all been still for a while is put to sleep. Sleeping
+ * Bodies cost nothing until an awake Body hits them.
+ * @author James Johnson
+ */
+public class PhysicsWorld {
+	/** Default length of one simulation step in milliseconds. */
+	public static final float DEFAULT_STEP = 1000.0f / 60.0f;
+
+	/** The most steps run in one update. Any time left over is dropped. */
+	public static final int MAX_STEPS = 5;
+
+	/** Bodies slower than this in pixels per millisecond may fall asleep. */
+	public static final float SLEEP_VELOCITY = 0.01f;
+
+	/** How long in milliseconds an island must be still before it sleeps. */
+	public static final float SLEEP_TIME = 500.0f;
+
+	// Contacts slower than this don't bounce, which keeps stacks steady
+	private static final float BOUNCE_VELOCITY = 0.05f;
+
+	// Share of last step's impulse used as the first guess for this step
+	private static final float WARM_START = 0.9f;
+
+	// Bodies this close are treated as touching so resting contacts don't flicker
+	private static final float MARGIN = 1.0f;
+
+	// Positional correction
+	private static final float SLOP = 0.5f;
+	private static final float CORRECTION = 0.4f;
+
+	/** Gravity along the X axis in pixels per millisecond squared. */
+	public float gravityX;
+
+	/** Gravity along the Y axis in pixels per millisecond squared. */
+	public float gravityY;
+
+	private ArrayList<Body> mBodies;
+	private float mStep;
+	private float mAccumulator;
+	private int mIterations;
+	private boolean mSleepEnabled;
+
+	// Broadphase
+	private int mOrder[];
+	private boolean mOrderDirty;
+	private float mLeft[];
+
+	// Contacts from the current step
+	private int mContactCount;
+	private Body mContactA[];
+	private Body mContactB[];
+	private float mNormalX[];
+	private float mNormalY[];
+	private float mImpulse[];
+	private float mTangentImpulse[];
+	private float mBounce[];
+	private float mPenetration[];
+	private boolean mFresh[];
+
+	// Contacts from the last step, found by Body pair through a hash table
+	private int mPrevCount;
+	private int mPrevA[];
+	private int mPrevB[];
+	private float mPrevNormalX[];
+	private float mPrevNormalY[];
+	private float mPrevImpulse[];
+	private float mPrevTangent[];
+	private int mTable[];
+
+	// Islands
+	private int mParent[];
+	private boolean mIslandAwake[];
+
+	// Narrowphase output
+	private float mNX;
+	private float mNY;
+	private float mPen;
+
+	/**
+	 * Initializes an empty PhysicsWorld with no gravity.
+	 */
+	public PhysicsWorld() {
+		gravityX = 0;
+		gravityY = 0;
+		mBodies = new ArrayList<Body>();
+		mStep = DEFAULT_STEP;
+		mAccumulator = 0;
+		mIterations = 10;
+		mSleepEnabled = true;
+		mOrder = new int[32];
+		mOrderDirty = true;
+		mLeft = new float[32];
+		mContactCount = 0;
+		mContactA = new Body[64];
+		mContactB = new Body[64];
+		mNormalX = new float[64];
+		mNormalY = new float[64];
+		mImpulse = new float[64];
+		mTangentImpulse = new float[64];
+		mBounce = new float[64];
+		mPenetration = new float[64];
+		mFresh = new boolean[64];
+		mPrevCount = 0;
+		mPrevA = new int[64];
+		mPrevB = new int[64];
+		mPrevNormalX = new float[64];
+		mPrevNormalY = new float[64];
+		mPrevImpulse = new float[64];
+		mPrevTangent = new float[64];
+		mTable = new int[128];
+		mParent = new int[32];
+		mIslandAwake = new boolean[32];
+	}
+
+	/**
+	 * Adds a Body to the simulation.
+	 * @param body
+	 * The Body to add.
+	 */
+	public void addBody(Body body) {
+		if (body == null) {
+			Log.w("PhysicsWorld", "Null Body passed to addBody().");
+			return;
+		}
+		if (body.mIndex != -1) {
+			Log.w("PhysicsWorld", "Body is already in a PhysicsWorld.");
+			return;
+		}
+		body.mIndex = mBodies.size();
+		mBodies.add(body);
+		mOrderDirty = true;
+		mPrevCount = 0;
+	}
+
+	/**
+	 * Removes a Body from the simulation.
+	 * @param body
+	 * The Body to remove.
+	 */
+	public void removeBody(Body body) {
+		if ((body == null) || (body.mIndex < 0) || (body.mIndex >= mBodies.size()) ||
+			(mBodies.get(body.mIndex) != body)) {
+			return;
+		}
+
+		// Move the last Body into the gap
+		int last = mBodies.size() - 1;
+		Body moved = mBodies.get(last);
+		mBodies.set(body.mIndex, moved);
+		moved.mIndex = body.mIndex;
+		mBodies.remove(last);
+		body.mIndex = -1;
+		mOrderDirty = true;
+		mPrevCount = 0;
+	}
+
+	/**
+	 * Removes every Body.
+	 */
+	public void clear() {
+		int count = mBodies.size();
+		for (int i = 0; i < count; i++) {
+			mBodies.get(i).mIndex = -1;
+		}
+		mBodies.clear();
+		mAccumulator = 0;
+		mOrderDirty = true;
+		mPrevCount = 0;
+	}
+
+	/**
+	 * Advances the simulation by whole steps, then moves the linked Entities.
+	 * Time that doesn't fill a step is carried over to the next update.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	public void update(long time) {
+		mAccumulator += time;
+		int steps = 0;
+		while (mAccumulator >= mStep) {
+			if (steps == MAX_STEPS) {
+				// Too far behind. Slow down instead of spiraling.
+				mAccumulator = 0;
+				break;
+			}
+			step(mStep);
+			mAccumulator -= mStep;
+			steps++;
+		}
+
+		int count = mBodies.size();
+		for (int i = 0; i < count; i++) {
+			Body b = mBodies.get(i);
+			Entity e = b.getEntity();
+			// A Body that fell asleep during this update was still moved by the
+			// step that put it to sleep
+			if ((e != null) && (!b.mSleeping || b.mFellAsleep)) {
+				e.offset(b.x - e.x, b.y - e.y);
+			}
+			b.mFellAsleep = false;
+		}
+	}
+
+	/**
+	 * Runs one step of the simulation.
+	 * @param dt
+	 * The length of the step in milliseconds.
+	 */
+	public void step(float dt) {
+		int count = mBodies.size();
+		if (count == 0) {
+			return;
+		}
+
+		// Gravity
+		for (int i = 0; i < count; i++) {
+			Body b = mBodies.get(i);
+			if ((b.mInvMass == 0) || b.mSleeping) {
+				continue;
+			}
+			b.vx += gravityX * b.gravityScale * dt;
+			b.vy += gravityY * b.gravityScale * dt;
+		}
+
+		findContacts(count);
+
+		// Velocity impulses, starting from last step's answer
+		for (int c = 0; c < mContactCount; c++) {
+			prepareContact(c, dt);
+		}
+		for (int k = 0; k < mIterations; k++) {
+			for (int c = 0; c < mContactCount; c++) {
+				solveContact(c);
+			}
+		}
+		storeContacts();
+
+		// Move
+		for (int i = 0; i < count; i++) {
+			Body b = mBodies.get(i);
+			if ((b.mInvMass == 0) || b.mSleeping) {
+				continue;
+			}
+			b.x += b.vx * dt;
+			b.y += b.vy * dt;
+		}
+
+		// Push apart what is still overlapping. The overlap is measured again on
+		// every pass so tall stacks settle instead of sinking.
+		for (int k = 0; k < mIterations; k++) {
+			for (int c = 0; c < mContactCount; c++) {
+				correctPosition(c);
+			}
+		}
+
+		if (mSleepEnabled) {
+			updateSleep(count, dt);
+		}
+
+		for (int c = 0; c < mContactCount; c++) {
+			mContactA[c] = null;
+			mContactB[c] = null;
+		}
+	}
+
+	/**
+	 * Sets the length of one simulation step.
+	 * @param step
+	 * The length of a step in milliseconds. Defaults to DEFAULT_STEP.
+	 */
+	public void setStep(float step) {
+		if (step <= 0) {
+			Log.w("PhysicsWorld", "Invalid step passed to setStep().");
+			return;
+		}
+		mStep = step;
+	}
+
+	/**
+	 * Sets how many times each contact is solved per step. More iterations make
+	 * stacks stiffer but cost more.
+	 * @param iterations
+	 * The number of iterations. Defaults to 10.
+	 */
+	public void setIterations(int iterations) {
+		mIterations = Math.max(iterations, 1);
+	}
+
+	/**
+	 * Turns sleeping on or off.
+	 * @param enabled
+	 * true to let still islands fall asleep. On by default.
+	 */
+	public void setSleepEnabled(boolean enabled) {
+		mSleepEnabled = enabled;
+		if (!enabled) {
+			int count = mBodies.size();
+			for (int i = 0; i < count; i++) {
+				mBodies.get(i).wake();
+			}
+		}
+	}
+
+	/**
+	 * Determines if any Body can still move. Static and sleeping Bodies
+	 * don't count.
+	 * @return
+	 * true if a dynamic Body is awake.
+	 */
+	public boolean isAwake() {
+		int count = mBodies.size();
+		for (int i = 0; i < count; i++) {
+			Body b = mBodies.get(i);
+			if ((b.mInvMass != 0) && !b.mSleeping) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the number of Bodies in the simulation.
+	 * @return
+	 * The number of Bodies.
+	 */
+	public int getBodyCount() { return mBodies.size(); }
+
+	/**
+	 * Gets a Body by its position in the simulation's list.
+	 * @param index
+	 * The Body's position.
+	 * @return
+	 * The Body.
+	 */
+	public Body getBody(int index) { return mBodies.get(index); }
+
+	/**
+	 * Gets the number of contacts found in the last step.
+	 * @return
+	 * The number of touching pairs.
+	 */
+	public int getContactCount() { return mContactCount; }
+
+	/**
+	 * Gets the number of Bodies that are asleep.
+	 * @return
+	 * The number of sleeping Bodies.
+	 */
+	public int getSleepingCount() {
+		int sleeping = 0;
+		int count = mBodies.size();
+		for (int i = 0; i < count; i++) {
+			if (mBodies.get(i).mSleeping) {
+				sleeping++;
+			}
+		}
+		return sleeping;
+	}
+
+	// Sort and sweep along the X axis, then the shape tests
+	private void findContacts(int count) {
+		mContactCount = 0;
+		if (mOrder.length < count) {
+			mOrder = new int[count * 2];
+			mLeft = new float[count * 2];
+			mOrderDirty = true;
+		}
+		if (mOrderDirty) {
+			for (int i = 0; i < count; i++) {
+				mOrder[i] = i;
+			}
+			mOrderDirty = false;
+		}
+		for (int i = 0; i < count; i++) {
+			Body b = mBodies.get(i);
+			mLeft[i] = b.x - b.mHalfWidth;
+		}
+
+		// Insertion sort is close to linear because the order barely changes
+		for (int i = 1; i < count; i++) {
+			int index = mOrder[i];
+			float left = mLeft[index];
+			int j = i - 1;
+			while ((j >= 0) && (mLeft[mOrder[j]] > left)) {
+				mOrder[j + 1] = mOrder[j];
+				j--;
+			}
+			mOrder[j + 1] = index;
+		}
+
+		for (int i = 0; i < count; i++) {
+			Body a = mBodies.get(mOrder[i]);
+			float right = a.x + a.mHalfWidth + MARGIN;
+			for (int j = i + 1; j < count; j++) {
+				int bi = mOrder[j];
+				if (mLeft[bi] > right) {
+					break;
+				}
+				Body b = mBodies.get(bi);
+
+				// Something has to be awake and able to move
+				boolean aActive = (a.mInvMass != 0) && !a.mSleeping;
+				boolean bActive = (b.mInvMass != 0) && !b.mSleeping;
+				if (!aActive && !bActive) {
+					continue;
+				}
+				if (Math.abs(a.y - b.y) > a.mHalfHeight + b.mHalfHeight + MARGIN) {
+					continue;
+				}
+				if (((a.collisionCategory & b.collisionMask) == 0) ||
+					((b.collisionCategory & a.collisionMask) == 0)) {
+					continue;
+				}
+				if (collide(a, b)) {
+					addContact(a, b);
+				}
+			}
+		}
+	}
+
+	// Shape test. Fills mNX, mNY (from a to b) and mPen. Bodies up to MARGIN
+	// apart count as touching with a negative mPen.
+	private boolean collide(Body a, Body b) {
+		if (a.mShape == Body.SHAPE_BOX) {
+			if (b.mShape == Body.SHAPE_BOX) {
+				return boxBox(a, b);
+			}
+			return boxCircle(a, b);
+		}
+		if (b.mShape == Body.SHAPE_BOX) {
+			if (boxCircle(b, a)) {
+				mNX = -mNX;
+				mNY = -mNY;
+				return true;
+			}
+			return false;
+		}
+		return circleCircle(a, b);
+	}
+
+	private boolean boxBox(Body a, Body b) {
+		float dx = b.x - a.x;
+		float dy = b.y - a.y;
+		float ox = a.mHalfWidth + b.mHalfWidth - Math.abs(dx);
+		float oy = a.mHalfHeight + b.mHalfHeight - Math.abs(dy);
+		if ((ox <= -MARGIN) || (oy <= -MARGIN)) {
+			return false;
+		}
+		if (ox < oy) {
+			mNX = (dx < 0) ? -1.0f : 1.0f;
+			mNY = 0;
+			mPen = ox;
+		} else {
+			mNX = 0;
+			mNY = (dy < 0) ? -1.0f : 1.0f;
+			mPen = oy;
+		}
+		return true;
+	}
+
+	private boolean circleCircle(Body a, Body b) {
+		float dx = b.x - a.x;
+		float dy = b.y - a.y;
+		float r = a.mRadius + b.mRadius;
+		float d2 = dx * dx + dy * dy;
+		if (d2 >= (r + MARGIN) * (r + MARGIN)) {
+			return false;
+		}
+		float d = (float)Math.sqrt(d2);
+		if (d == 0) {
+			mNX = 0;
+			mNY = 1.0f;
+		} else {
+			mNX = dx / d;
+			mNY = dy / d;
+		}
+		mPen = r - d;
+		return true;
+	}
+
+	// The box is a, the circle is b
+	private boolean boxCircle(Body a, Body b) {
+		float dx = b.x - a.x;
+		float dy = b.y - a.y;
+		float hw = a.mHalfWidth;
+		float hh = a.mHalfHeight;
+		float r = b.mRadius;
+		if ((Math.abs(dx) <= hw) && (Math.abs(dy) <= hh)) {
+			// The center is inside the box. Push out through the nearest face.
+			float ox = hw - Math.abs(dx);
+			float oy = hh - Math.abs(dy);
+			if (ox < oy) {
+				mNX = (dx < 0) ? -1.0f : 1.0f;
+				mNY = 0;
+				mPen = ox + r;
+			} else {
+				mNX = 0;
+				mNY = (dy < 0) ? -1.0f : 1.0f;
+				mPen = oy + r;
+			}
+			return true;
+		}
+		float cx = Math.max(-hw, Math.min(hw, dx));
+		float cy = Math.max(-hh, Math.min(hh, dy));
+		float ex = dx - cx;
+		float ey = dy - cy;
+		float d2 = ex * ex + ey * ey;
+		if (d2 >= (r + MARGIN) * (r + MARGIN)) {
+			return false;
+		}
+		float d = (float)Math.sqrt(d2);
+		mNX = ex / d;
+		mNY = ey / d;
+		mPen = r - d;
+		return true;
+	}
+
+	private void addContact(Body a, Body b) {
+		if (mContactCount == mContactA.length) {
+			int size = mContactCount * 2;
+			Body ca[] = new Body[size];
+			Body cb[] = new Body[size];
+			System.arraycopy(mContactA, 0, ca, 0, mContactCount);
+			System.arraycopy(mContactB, 0, cb, 0, mContactCount);
+			mContactA = ca;
+			mContactB = cb;
+			mNormalX = grow(mNormalX, size);
+			mNormalY = grow(mNormalY, size);
+			mImpulse = grow(mImpulse, size);
+			mTangentImpulse = grow(mTangentImpulse, size);
+			mBounce = grow(mBounce, size);
+			mPenetration = grow(mPenetration, size);
+			boolean fresh[] = new boolean[size];
+			System.arraycopy(mFresh, 0, fresh, 0, mContactCount);
+			mFresh = fresh;
+		}
+		int c = mContactCount++;
+		mContactA[c] = a;
+		mContactB[c] = b;
+		mNormalX[c] = mNX;
+		mNormalY[c] = mNY;
+		mPenetration[c] = mPen;
+		mImpulse[c] = 0;
+		mTangentImpulse[c] = 0;
+
+		// Reuse last step's impulses if the pair touched the same way. The
+		// pair may come out of the broadphase in either order.
+		int prev = findPrevious(a.mIndex, b.mIndex);
+		float sign = 1.0f;
+		if (prev == -1) {
+			prev = findPrevious(b.mIndex, a.mIndex);
+			sign = -1.0f;
+		}
+		mFresh[c] = true;
+		if ((prev != -1) && ((mPrevNormalX[prev] * mNX + mPrevNormalY[prev] * mNY) * sign > 0.9f)) {
+			mImpulse[c] = mPrevImpulse[prev] * WARM_START;
+			mTangentImpulse[c] = mPrevTangent[prev] * WARM_START;
+			mFresh[c] = false;
+		}
+
+		// An awake Body moving into a sleeping one wakes it
+		if (a.mSleeping && !b.mSleeping && (b.mInvMass != 0)) {
+			a.wake();
+		} else if (b.mSleeping && !a.mSleeping && (a.mInvMass != 0)) {
+			b.wake();
+		}
+	}
+
+	// Works out the target speed along the normal, then applies the warm
+	// start impulses
+	private void prepareContact(int c, float dt) {
+		Body a = mContactA[c];
+		Body b = mContactB[c];
+		float nx = mNormalX[c];
+		float ny = mNormalY[c];
+		float vn = (b.vx - a.vx) * nx + (b.vy - a.vy) * ny;
+
+		// Bodies with a gap may close it this step. Only a new contact with a
+		// real impact bounces, so resting contacts never gain energy.
+		float pen = mPenetration[c];
+		if (pen < 0) {
+			mBounce[c] = pen / dt;
+		} else if (mFresh[c] && (-vn > BOUNCE_VELOCITY)) {
+			mBounce[c] = -vn * Math.max(a.restitution, b.restitution);
+		} else {
+			mBounce[c] = 0;
+		}
+
+		float px = nx * mImpulse[c] - ny * mTangentImpulse[c];
+		float py = ny * mImpulse[c] + nx * mTangentImpulse[c];
+		a.vx -= px * a.mInvMass;
+		a.vy -= py * a.mInvMass;
+		b.vx += px * b.mInvMass;
+		b.vy += py * b.mInvMass;
+	}
+
+	private void solveContact(int c) {
+		Body a = mContactA[c];
+		Body b = mContactB[c];
+		float invMass = a.mInvMass + b.mInvMass;
+		if (invMass == 0) {
+			return;
+		}
+		float nx = mNormalX[c];
+		float ny = mNormalY[c];
+		float rvx = b.vx - a.vx;
+		float rvy = b.vy - a.vy;
+		float vn = rvx * nx + rvy * ny;
+
+		// Clamp the total impulse of the step rather than each pass, so later
+		// passes can take back some of what earlier ones applied
+		float j = (mBounce[c] - vn) / invMass;
+		float total = Math.max(mImpulse[c] + j, 0.0f);
+		j = total - mImpulse[c];
+		mImpulse[c] = total;
+		a.vx -= j * nx * a.mInvMass;
+		a.vy -= j * ny * a.mInvMass;
+		b.vx += j * nx * b.mInvMass;
+		b.vy += j * ny * b.mInvMass;
+
+		// Coulomb friction along the contact surface
+		rvx = b.vx - a.vx;
+		rvy = b.vy - a.vy;
+		float tx = -ny;
+		float ty = nx;
+		float vt = rvx * tx + rvy * ty;
+		float jt = -vt / invMass;
+		float mu = (float)Math.sqrt(a.friction * b.friction);
+		float limit = mImpulse[c] * mu;
+		float tangent = mTangentImpulse[c] + jt;
+		if (tangent > limit) {
+			tangent = limit;
+		} else if (tangent < -limit) {
+			tangent = -limit;
+		}
+		jt = tangent - mTangentImpulse[c];
+		mTangentImpulse[c] = tangent;
+		a.vx -= jt * tx * a.mInvMass;
+		a.vy -= jt * ty * a.mInvMass;
+		b.vx += jt * tx * b.mInvMass;
+		b.vy += jt * ty * b.mInvMass;
+	}
+
+	// Remembers this step's impulses for warm starting the next one
+	private void storeContacts() {
+		int count = mContactCount;
+		if (mPrevA.length < count) {
+			int size = count * 2;
+			mPrevA = new int[size];
+			mPrevB = new int[size];
+			mPrevNormalX = new float[size];
+			mPrevNormalY = new float[size];
+			mPrevImpulse = new float[size];
+			mPrevTangent = new float[size];
+		}
+		if (mTable.length < count * 2) {
+			int size = mTable.length;
+			while (size < count * 2) {
+				size *= 2;
+			}
+			mTable = new int[size];
+		} else {
+			for (int i = 0; i < mTable.length; i++) {
+				mTable[i] = 0;
+			}
+		}
+		int mask = mTable.length - 1;
+		for (int c = 0; c < count; c++) {
+			int a = mContactA[c].mIndex;
+			int b = mContactB[c].mIndex;
+			mPrevA[c] = a;
+			mPrevB[c] = b;
+			mPrevNormalX[c] = mNormalX[c];
+			mPrevNormalY[c] = mNormalY[c];
+			mPrevImpulse[c] = mImpulse[c];
+			mPrevTangent[c] = mTangentImpulse[c];
+			int slot = hash(a, b) & mask;
+			while (mTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			mTable[slot] = c + 1;
+		}
+		mPrevCount = count;
+	}
+
+	// Finds a Body pair in last step's contacts, or -1
+	private int findPrevious(int a, int b) {
+		if (mPrevCount == 0) {
+			return -1;
+		}
+		int mask = mTable.length - 1;
+		int slot = hash(a, b) & mask;
+		while (mTable[slot] != 0) {
+			int prev = mTable[slot] - 1;
+			if ((prev < mPrevCount) && (mPrevA[prev] == a) && (mPrevB[prev] == b)) {
+				return prev;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int hash(int a, int b) {
+		int h = a * 73856093 ^ b * 19349663;
+		return h ^ (h >>> 16);
+	}
+
+	private void correctPosition(int c) {
+		Body a = mContactA[c];
+		Body b = mContactB[c];
+		float invMass = a.mInvMass + b.mInvMass;
+		if ((invMass == 0) || !collide(a, b)) {
+			return;
+		}
+		float pen = mPen - SLOP;
+		if (pen <= 0) {
+			return;
+		}
+		float amount = pen * CORRECTION / invMass;
+		float nx = mNX * amount;
+		float ny = mNY * amount;
+		if (!a.mSleeping) {
+			a.x -= nx * a.mInvMass;
+			a.y -= ny * a.mInvMass;
+		}
+		if (!b.mSleeping) {
+			b.x += nx * b.mInvMass;
+			b.y += ny * b.mInvMass;
+		}
+	}
+
+	// Groups touching Bodies into islands and puts still islands to sleep
+	private void updateSleep(int count, float dt) {
+		if (mParent.length < count) {
+			mParent = new int[count * 2];
+			mIslandAwake = new boolean[count * 2];
+		}
+		float limit = SLEEP_VELOCITY * SLEEP_VELOCITY;
+		for (int i = 0; i < count; i++) {
+			mParent[i] = i;
+			mIslandAwake[i] = false;
+			Body b = mBodies.get(i);
+			if ((b.mInvMass == 0) || b.mSleeping) {
+				continue;
+			}
+			if (b.vx * b.vx + b.vy * b.vy > limit) {
+				b.mSleepTime = 0;
+			} else {
+				b.mSleepTime += dt;
+			}
+		}
+
+		// Static Bodies don't join islands, or the whole level would be one
+		for (int c = 0; c < mContactCount; c++) {
+			Body a = mContactA[c];
+			Body b = mContactB[c];
+			if ((a.mInvMass != 0) && (b.mInvMass != 0)) {
+				union(a.mIndex, b.mIndex);
+			}
+		}
+
+		// An island stays awake while any of its Bodies is moving
+		for (int i = 0; i < count; i++) {
+			Body b = mBodies.get(i);
+			if ((b.mInvMass != 0) && (b.mSleepTime < SLEEP_TIME)) {
+				mIslandAwake[find(i)] = true;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			Body b = mBodies.get(i);
+			if (b.mInvMass == 0) {
+				continue;
+			}
+			if (mIslandAwake[find(i)]) {
+				if (b.mSleeping) {
+					b.wake();
+				}
+			} else if (!b.mSleeping) {
+				b.mSleeping = true;
+				b.mFellAsleep = true;
+				b.vx = 0;
+				b.vy = 0;
+			}
+		}
+	}
+
+	private int find(int i) {
+		while (mParent[i] != i) {
+			mParent[i] = mParent[mParent[i]];
+			i = mParent[i];
+		}
+		return i;
+	}
+
+	private void union(int a, int b) {
+		int ra = find(a);
+		int rb = find(b);
+		if (ra != rb) {
+			mParent[ra] = rb;
+		}
+	}
+
+	private static float[] grow(float[] array, int size) {
+		float grown[] = new float[size];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Lightweight 2D rigid body physics.
+ */
+package org.robobrain.sdk.physics;
\ No newline at end of file
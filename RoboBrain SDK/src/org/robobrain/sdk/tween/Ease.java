@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.tween;
+
+import org.robobrain.sdk.math.FastMath;
+
+/**
+ * Easing functions used by Tweens. Each one maps the share of the tween that
+ * has played, from 0 to 1, to the share of the distance covered. They are
+ * picked by number rather than by object, so nothing is allocated and
+ * a Tween only stores an int.
+ * @author James Johnson
+ */
+public class Ease {
+	/** Constant speed. */
+	public static final int LINEAR = 0;
+
+	/** Starts slowly. */
+	public static final int QUAD_IN = 1;
+
+	/** Ends slowly. */
+	public static final int QUAD_OUT = 2;
+
+	/** Starts and ends slowly. */
+	public static final int QUAD_IN_OUT = 3;
+
+	/** Starts slowly, more sharply than QUAD_IN. */
+	public static final int CUBIC_IN = 4;
+
+	/** Ends slowly, more sharply than QUAD_OUT. */
+	public static final int CUBIC_OUT = 5;
+
+	/** Starts and ends slowly, more sharply than QUAD_IN_OUT. */
+	public static final int CUBIC_IN_OUT = 6;
+
+	/** Starts slowly along a quarter sine wave. */
+	public static final int SINE_IN = 7;
+
+	/** Ends slowly along a quarter sine wave. */
+	public static final int SINE_OUT = 8;
+
+	/** Starts and ends slowly along a half sine wave. */
+	public static final int SINE_IN_OUT = 9;
+
+	/** Pulls back a little before starting. */
+	public static final int BACK_IN = 10;
+
+	/** Overshoots the end a little before settling. */
+	public static final int BACK_OUT = 11;
+
+	/** Pulls back before starting and overshoots before settling. */
+	public static final int BACK_IN_OUT = 12;
+
+	/** Springs past the end and wobbles to a stop. */
+	public static final int ELASTIC_OUT = 13;
+
+	/** Bounces to a stop at the end. */
+	public static final int BOUNCE_OUT = 14;
+
+	// How far BACK eases pull back
+	private static final float BACK = 1.70158f;
+	private static final float BACK_2 = BACK * 1.525f;
+
+	private Ease() { }
+
+	/**
+	 * Applies an easing function.
+	 * @param ease
+	 * One of the easing constants. Unknown values are treated as LINEAR.
+	 * @param t
+	 * The share of the tween that has played, from 0 to 1.
+	 * @return
+	 * The share of the distance covered. 0 at the start and 1 at the end, but
+	 * BACK and ELASTIC eases go outside that range in between.
+	 */
+	public static float apply(int ease, float t) {
+		if (t <= 0.0f) {
+			return 0.0f;
+		}
+		if (t >= 1.0f) {
+			return 1.0f;
+		}
+		switch (ease) {
+		case QUAD_IN:
+			return t * t;
+		case QUAD_OUT:
+			return t * (2.0f - t);
+		case QUAD_IN_OUT:
+			if (t < 0.5f) {
+				return 2.0f * t * t;
+			}
+			t = 1.0f - t;
+			return 1.0f - 2.0f * t * t;
+		case CUBIC_IN:
+			return t * t * t;
+		case CUBIC_OUT:
+			t = 1.0f - t;
+			return 1.0f - t * t * t;
+		case CUBIC_IN_OUT:
+			if (t < 0.5f) {
+				return 4.0f * t * t * t;
+			}
+			t = 1.0f - t;
+			return 1.0f - 4.0f * t * t * t;
+		case SINE_IN:
+			return 1.0f - FastMath.cos(t * FastMath.HALF_PI);
+		case SINE_OUT:
+			return FastMath.sin(t * FastMath.HALF_PI);
+		case SINE_IN_OUT:
+			return 0.5f - 0.5f * FastMath.cos(t * FastMath.PI);
+		case BACK_IN:
+			return t * t * ((BACK + 1.0f) * t - BACK);
+		case BACK_OUT:
+			t = t - 1.0f;
+			return 1.0f + t * t * ((BACK + 1.0f) * t + BACK);
+		case BACK_IN_OUT:
+			t *= 2.0f;
+			if (t < 1.0f) {
+				return 0.5f * t * t * ((BACK_2 + 1.0f) * t - BACK_2);
+			}
+			t -= 2.0f;
+			return 0.5f * (t * t * ((BACK_2 + 1.0f) * t + BACK_2) + 2.0f);
+		case ELASTIC_OUT:
+			return (float)Math.pow(2.0, -10.0 * t) * FastMath.sin((t * 10.0f - 0.75f) * (FastMath.TWO_PI / 3.0f)) + 1.0f;
+		case BOUNCE_OUT:
+			return bounce(t);
+		default:
+			return t;
+		}
+	}
+
+	// Four bounces of shrinking height, the last ending at 1
+	private static float bounce(float t) {
+		if (t < 1.0f / 2.75f) {
+			return 7.5625f * t * t;
+		}
+		if (t < 2.0f / 2.75f) {
+			t -= 1.5f / 2.75f;
+			return 7.5625f * t * t + 0.75f;
+		}
+		if (t < 2.5f / 2.75f) {
+			t -= 2.25f / 2.75f;
+			return 7.5625f * t * t + 0.9375f;
+		}
+		t -= 2.625f / 2.75f;
+		return 7.5625f * t * t + 0.984375f;
+	}
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.tween;
+
+import org.robobrain.sdk.game.Entity;
+import org.robobrain.sdk.graphics.Color;
+import org.robobrain.sdk.graphics.Renderable;
+
+import android.util.Log;
+
+/**
+ * Animates a property of an Entity, Renderable or Color from its current
+ * value to a target value, or groups other Tweens into a sequence or a
+ * parallel set. Tweens are pooled: get them from a TweenManager with to(),
+ * delay(), sequence() or parallel(), set them up, then pass the outermost one
+ * to TweenManager.start(). Once it finishes or is killed it goes back to the
+ * pool, so don't keep references to Tweens that may have ended.
+ * {@code}
+ * Tween slide = tweens.to(panel, Tween.X, 400, Ease.BACK_OUT).setValue(160);
+ * Tween fade = tweens.to(label.color, Tween.ALPHA, 250, Ease.LINEAR).setValue(0);
+ * tweens.start(tweens.sequence().add(slide).add(tweens.delay(1000)).add(fade));
+ * <p>
+ * The start values are read from the target when the Tween first begins, after
+ * its delay or when its sequence reaches it. Repeats replay the same values.
+ * @author James Johnson
+ */
+public class Tween {
+	/** The X position. One value. */
+	public static final int X = 0;
+
+	/** The Y position. One value. */
+	public static final int Y = 1;
+
+	/** The X and Y position. Two values. */
+	public static final int POSITION = 2;
+
+	/** The rotation in degrees. One value. */
+	public static final int ROTATION = 3;
+
+	/** The scale. One value. */
+	public static final int SCALE = 4;
+
+	/** The alpha channel of a Color. One value. */
+	public static final int ALPHA = 5;
+
+	/** The red, green, blue and alpha channels of a Color. Four values. */
+	public static final int COLOR = 6;
+
+	/** Pass to setRepeat() to repeat until killed. */
+	public static final int REPEAT_FOREVER = -1;
+
+	// Kinds of Tween
+	static final int KIND_PROPERTY = 0;
+	static final int KIND_DELAY = 1;
+	static final int KIND_SEQUENCE = 2;
+	static final int KIND_PARALLEL = 3;
+
+	// Where the Tween is in its life
+	static final int STATE_FREE = 0;     // In the pool
+	static final int STATE_IDLE = 1;     // Being set up
+	static final int STATE_ACTIVE = 2;   // Started with TweenManager.start()
+	static final int STATE_CHILD = 3;    // Added to a group
+
+	int mKind;
+	int mState;
+	boolean mKilled;
+
+	// Target
+	Entity mEntity;
+	Renderable mRenderable;
+	Color mColor;
+	int mProperty;
+	int mValueCount;
+	float mStart[];
+	float mEnd[];
+
+	// Settings
+	int mDuration;
+	int mDelay;
+	int mEase;
+	int mRepeat;
+	boolean mYoyo;
+	TweenListener mListener;
+
+	// Children of a sequence or parallel set
+	Tween mChildren[];
+	int mChildCount;
+
+	// Playback
+	private int mTime;
+	private int mDelayLeft;
+	private int mIteration;
+	private int mCurrent;
+	private boolean mReversed;
+	private boolean mBegun;
+	private boolean mFinished;
+
+	// Only the TweenManager makes Tweens
+	Tween() {
+		mStart = new float[4];
+		mEnd = new float[4];
+		mChildren = null;
+		reset();
+	}
+
+	/**
+	 * Sets the target value of a one value property.
+	 * @param value
+	 * The value to end on.
+	 * @return
+	 * This Tween.
+	 */
+	public Tween setValue(float value) {
+		if (mValueCount != 1) {
+			Log.w("Tween", "setValue() called on a Tween that doesn't take one value.");
+			return this;
+		}
+		mEnd[0] = value;
+		return this;
+	}
+
+	/**
+	 * Sets the target of a POSITION Tween.
+	 * @param x
+	 * The X position to end on.
+	 * @param y
+	 * The Y position to end on.
+	 * @return
+	 * This Tween.
+	 */
+	public Tween setValues(float x, float y) {
+		if (mValueCount != 2) {
+			Log.w("Tween", "setValues() called on a Tween that doesn't take two values.");
+			return this;
+		}
+		mEnd[0] = x;
+		mEnd[1] = y;
+		return this;
+	}
+
+	/**
+	 * Sets the target of a COLOR Tween.
+	 * @param r
+	 * The red channel to end on.
+	 * @param g
+	 * The green channel to end on.
+	 * @param b
+	 * The blue channel to end on.
+	 * @param a
+	 * The alpha channel to end on.
+	 * @return
+	 * This Tween.
+	 */
+	public Tween setValues(float r, float g, float b, float a) {
+		if (mValueCount != 4) {
+			Log.w("Tween", "setValues() called on a Tween that doesn't take four values.");
+			return this;
+		}
+		mEnd[0] = r;
+		mEnd[1] = g;
+		mEnd[2] = b;
+		mEnd[3] = a;
+		return this;
+	}
+
+	/**
+	 * Sets how long to wait before the Tween begins. The delay is only waited
+	 * once, not before every repeat.
+	 * @param delay
+	 * The delay in milliseconds.
+	 * @return
+	 * This Tween.
+	 */
+	public Tween setDelay(int delay) {
+		mDelay = Math.max(delay, 0);
+		mDelayLeft = mDelay;
+		return this;
+	}
+
+	/**
+	 * Plays the Tween more than once.
+	 * @param count
+	 * The number of extra times to play, or REPEAT_FOREVER.
+	 * @param yoyo
+	 * True to play every other repeat backwards. Only property Tweens can
+	 * yoyo; sequences and parallel sets always repeat from the start.
+	 * @return
+	 * This Tween.
+	 */
+	public Tween setRepeat(int count, boolean yoyo) {
+		if ((count < 0) && (count != REPEAT_FOREVER)) {
+			count = 0;
+		}
+		if (yoyo && (mKind != KIND_PROPERTY)) {
+			Log.w("Tween", "Only property Tweens can yoyo.");
+			yoyo = false;
+		}
+		mRepeat = count;
+		mYoyo = yoyo;
+		return this;
+	}
+
+	/**
+	 * Sets the listener told when the Tween finishes.
+	 * @param listener
+	 * The listener, or null.
+	 * @return
+	 * This Tween.
+	 */
+	public Tween setListener(TweenListener listener) {
+		mListener = listener;
+		return this;
+	}
+
+	/**
+	 * Adds a Tween to a sequence or parallel set. A sequence plays its Tweens
+	 * one after another, a parallel set plays them all at once and finishes
+	 * with the longest. Add everything before starting the group.
+	 * @param tween
+	 * A Tween from the same TweenManager that hasn't been started or added
+	 * to another group.
+	 * @return
+	 * This Tween.
+	 */
+	public Tween add(Tween tween) {
+		if ((mKind != KIND_SEQUENCE) && (mKind != KIND_PARALLEL)) {
+			Log.e("Tween", "add() called on a Tween that isn't a sequence or parallel set.");
+			return this;
+		}
+		if ((tween == null) || (tween == this) || (tween.mState != STATE_IDLE)) {
+			Log.e("Tween", "Tween passed to add() is null, started or already in a group.");
+			return this;
+		}
+		if (mChildren == null) {
+			mChildren = new Tween[4];
+		} else if (mChildCount == mChildren.length) {
+			Tween grown[] = new Tween[mChildCount * 2];
+			System.arraycopy(mChildren, 0, grown, 0, mChildCount);
+			mChildren = grown;
+		}
+		tween.mState = STATE_CHILD;
+		mChildren[mChildCount++] = tween;
+		return this;
+	}
+
+	/**
+	 * Determines if the Tween has played through all of its repeats.
+	 * @return
+	 * True if the Tween has finished.
+	 */
+	public boolean isFinished() { return mFinished; }
+
+	/**
+	 * Gets the property being animated.
+	 * @return
+	 * One of the property constants, or -1 for delays and groups.
+	 */
+	public int getProperty() { return mProperty; }
+
+	/**
+	 * Gets how long one play of the Tween lasts, not counting its delay or
+	 * repeats. For groups this is worked out from the children.
+	 * @return
+	 * The duration in milliseconds.
+	 */
+	public int getDuration() {
+		if (mKind == KIND_SEQUENCE) {
+			int total = 0;
+			for (int i = 0; i < mChildCount; i++) {
+				total += mChildren[i].getTotalDuration();
+			}
+			return total;
+		}
+		if (mKind == KIND_PARALLEL) {
+			int longest = 0;
+			for (int i = 0; i < mChildCount; i++) {
+				longest = Math.max(longest, mChildren[i].getTotalDuration());
+			}
+			return longest;
+		}
+		return mDuration;
+	}
+
+	// Length including the delay and repeats, or Integer.MAX_VALUE if it never ends
+	private int getTotalDuration() {
+		if (mRepeat == REPEAT_FOREVER) {
+			return Integer.MAX_VALUE;
+		}
+		long total = mDelay + (long)getDuration() * (mRepeat + 1);
+		return (int)Math.min(total, Integer.MAX_VALUE);
+	}
+
+	// Sets up a Tween taken from the pool
+	void init(int kind, int property, int valueCount, int duration, int ease) {
+		mKind = kind;
+		mState = STATE_IDLE;
+		mProperty = property;
+		mValueCount = valueCount;
+		mDuration = Math.max(duration, 0);
+		mEase = ease;
+	}
+
+	// Clears everything so the Tween can go back to the pool
+	void reset() {
+		mKind = KIND_DELAY;
+		mState = STATE_FREE;
+		mKilled = false;
+		mEntity = null;
+		mRenderable = null;
+		mColor = null;
+		mProperty = -1;
+		mValueCount = 0;
+		mDuration = 0;
+		mDelay = 0;
+		mEase = Ease.LINEAR;
+		mRepeat = 0;
+		mYoyo = false;
+		mListener = null;
+		if (mChildren != null) {
+			for (int i = 0; i < mChildCount; i++) {
+				mChildren[i] = null;
+			}
+		}
+		mChildCount = 0;
+		mTime = 0;
+		mDelayLeft = 0;
+		mIteration = 0;
+		mCurrent = 0;
+		mReversed = false;
+		mBegun = false;
+		mFinished = false;
+	}
+
+	// Checks whether this Tween or any of its children animates an object
+	boolean targets(Object target) {
+		if ((mEntity == target) || (mRenderable == target) || (mColor == target)) {
+			return true;
+		}
+		for (int i = 0; i < mChildCount; i++) {
+			if (mChildren[i].targets(target)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Plays the Tween forward. Returns the time left over if it finished, or -1
+	int advance(int time) {
+		if (mFinished) {
+			return time;
+		}
+		if (mDelayLeft > 0) {
+			if (time < mDelayLeft) {
+				mDelayLeft -= time;
+				return -1;
+			}
+			time -= mDelayLeft;
+			mDelayLeft = 0;
+		}
+		if (!mBegun) {
+			begin();
+		}
+		while (true) {
+			int left = step(time);
+			if (left < 0) {
+				return -1;
+			}
+			if ((mRepeat != REPEAT_FOREVER) && (mIteration >= mRepeat)) {
+				mFinished = true;
+				if (mListener != null) {
+					mListener.onTweenComplete(this);
+				}
+				return left;
+			}
+			if ((left == time) && (mRepeat == REPEAT_FOREVER)) {
+				// Nothing was played, so looping again would never end
+				restart();
+				return -1;
+			}
+			time = left;
+			mIteration++;
+			if (mYoyo) {
+				mReversed = !mReversed;
+			}
+			restart();
+		}
+	}
+
+	// Plays one iteration. Returns the time left over if it ended, or -1
+	private int step(int time) {
+		int left;
+		switch (mKind) {
+		case KIND_SEQUENCE:
+			while (mCurrent < mChildCount) {
+				time = mChildren[mCurrent].advance(time);
+				if (time < 0) {
+					return -1;
+				}
+				mCurrent++;
+			}
+			return time;
+		case KIND_PARALLEL:
+			left = time;
+			boolean running = false;
+			for (int i = 0; i < mChildCount; i++) {
+				int childLeft = mChildren[i].advance(time);
+				if (childLeft < 0) {
+					running = true;
+				} else if (childLeft < left) {
+					left = childLeft;
+				}
+			}
+			return running ? -1 : left;
+		default:
+			mTime += time;
+			if (mTime < mDuration) {
+				apply((float)mTime / (float)mDuration);
+				return -1;
+			}
+			left = mTime - mDuration;
+			mTime = mDuration;
+			apply(1.0f);
+			return left;
+		}
+	}
+
+	// Starts the next iteration. Children keep their start values
+	private void restart() {
+		mTime = 0;
+		mCurrent = 0;
+		for (int i = 0; i < mChildCount; i++) {
+			Tween child = mChildren[i];
+			child.mTime = 0;
+			child.mDelayLeft = child.mDelay;
+			child.mIteration = 0;
+			child.mReversed = false;
+			child.mFinished = false;
+			child.restart();
+		}
+	}
+
+	// Reads the start values from the target
+	private void begin() {
+		mBegun = true;
+		if (mKind != KIND_PROPERTY) {
+			return;
+		}
+		if (mColor != null) {
+			if (mProperty == ALPHA) {
+				mStart[0] = mColor.a;
+			} else {
+				mStart[0] = mColor.r;
+				mStart[1] = mColor.g;
+				mStart[2] = mColor.b;
+				mStart[3] = mColor.a;
+			}
+			return;
+		}
+		float x, y, rotation, scale;
+		if (mEntity != null) {
+			x = mEntity.x;
+			y = mEntity.y;
+			rotation = mEntity.rotation;
+			scale = mEntity.scale;
+		} else {
+			x = mRenderable.x;
+			y = mRenderable.y;
+			rotation = mRenderable.rotation;
+			scale = mRenderable.scale;
+		}
+		switch (mProperty) {
+		case X:
+			mStart[0] = x;
+			break;
+		case Y:
+			mStart[0] = y;
+			break;
+		case POSITION:
+			mStart[0] = x;
+			mStart[1] = y;
+			break;
+		case ROTATION:
+			mStart[0] = rotation;
+			break;
+		default:
+			mStart[0] = scale;
+			break;
+		}
+	}
+
+	// Writes the eased values to the target
+	private void apply(float t) {
+		if (mKind != KIND_PROPERTY) {
+			return;
+		}
+		if (mReversed) {
+			t = 1.0f - t;
+		}
+		float e = Ease.apply(mEase, t);
+		float v0 = mStart[0] + (mEnd[0] - mStart[0]) * e;
+		if (mColor != null) {
+			if (mProperty == ALPHA) {
+				mColor.a = v0;
+			} else {
+				mColor.r = v0;
+				mColor.g = mStart[1] + (mEnd[1] - mStart[1]) * e;
+				mColor.b = mStart[2] + (mEnd[2] - mStart[2]) * e;
+				mColor.a = mStart[3] + (mEnd[3] - mStart[3]) * e;
+			}
+			return;
+		}
+		float v1 = (mValueCount == 2) ? mStart[1] + (mEnd[1] - mStart[1]) * e : 0;
+		if (mEntity != null) {
+			// Moved like Entity.offset() so its Renderable follows
+			switch (mProperty) {
+			case X:
+				mEntity.offset(v0 - mEntity.x, 0);
+				break;
+			case Y:
+				mEntity.offset(0, v0 - mEntity.y);
+				break;
+			case POSITION:
+				mEntity.offset(v0 - mEntity.x, v1 - mEntity.y);
+				break;
+			case ROTATION:
+				mEntity.rotation = v0;
+				mEntity.invalidateBounds();
+				break;
+			default:
+				mEntity.scale = v0;
+				mEntity.invalidateBounds();
+				break;
+			}
+			return;
+		}
+		switch (mProperty) {
+		case X:
+			mRenderable.x = v0;
+			break;
+		case Y:
+			mRenderable.y = v0;
+			break;
+		case POSITION:
+			mRenderable.x = v0;
+			mRenderable.y = v1;
+			break;
+		case ROTATION:
+			mRenderable.rotation = v0;
+			break;
+		default:
+			mRenderable.scale = v0;
+			break;
+		}
+	}
+}
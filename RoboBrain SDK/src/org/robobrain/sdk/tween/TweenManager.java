@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.tween;
+
+import org.robobrain.sdk.game.Entity;
+import org.robobrain.sdk.graphics.Color;
+import org.robobrain.sdk.graphics.Renderable;
+
+import android.util.Log;
+
+/**
+ * Owns a pool of Tweens and plays the ones that have been started. Register
+ * it with the Engine and every running Tween is advanced in one pass per
+ * frame, before the World updates. Once the pool is warm no Tween is
+ * allocated, so hundreds of UI tweens cost very little.
+ * <p>
+ * A TweenManager is not thread safe. Use it from the game thread.
+ * @author James Johnson
+ */
+public class TweenManager {
+	private Tween mPool[];
+	private int mFree;
+	private Tween mActive[];
+	private int mActiveCount;
+
+	/**
+	 * Initializes the TweenManager.
+	 * @param capacity
+	 * The number of Tweens to create up front. Groups use a Tween each, on top
+	 * of their children. The pool grows if more are needed, but that allocates.
+	 */
+	public TweenManager(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		mPool = new Tween[capacity];
+		for (int i = 0; i < capacity; i++) {
+			mPool[i] = new Tween();
+		}
+		mFree = capacity;
+		mActive = new Tween[capacity];
+		mActiveCount = 0;
+	}
+
+	/**
+	 * Gets a Tween that animates an Entity. Its Renderable moves with it.
+	 * @param entity
+	 * The Entity to animate.
+	 * @param property
+	 * X, Y, POSITION, ROTATION or SCALE.
+	 * @param duration
+	 * How long the Tween lasts in milliseconds.
+	 * @param ease
+	 * One of the Ease constants.
+	 * @return
+	 * The Tween. Set its target value, then start it or add it to a group.
+	 */
+	public Tween to(Entity entity, int property, int duration, int ease) {
+		if ((entity == null) || (property < Tween.X) || (property > Tween.SCALE)) {
+			Log.e("TweenManager", "Invalid Entity or property passed to to().");
+			return delay(duration);
+		}
+		Tween tween = obtain(Tween.KIND_PROPERTY, property, duration, ease);
+		tween.mEntity = entity;
+		return tween;
+	}
+
+	/**
+	 * Gets a Tween that animates a Renderable on its own.
+	 * @param renderable
+	 * The Renderable to animate.
+	 * @param property
+	 * X, Y, POSITION, ROTATION or SCALE.
+	 * @param duration
+	 * How long the Tween lasts in milliseconds.
+	 * @param ease
+	 * One of the Ease constants.
+	 * @return
+	 * The Tween. Set its target value, then start it or add it to a group.
+	 */
+	public Tween to(Renderable renderable, int property, int duration, int ease) {
+		if ((renderable == null) || (property < Tween.X) || (property > Tween.SCALE)) {
+			Log.e("TweenManager", "Invalid Renderable or property passed to to().");
+			return delay(duration);
+		}
+		Tween tween = obtain(Tween.KIND_PROPERTY, property, duration, ease);
+		tween.mRenderable = renderable;
+		return tween;
+	}
+
+	/**
+	 * Gets a Tween that animates a Color, such as a Sprite's color. The Color
+	 * is changed in place, so don't animate shared constants like Color.WHITE.
+	 * Sprites, SimpleSprites and fonts each start with a Color of their own.
+	 * @param color
+	 * The Color to animate.
+	 * @param property
+	 * ALPHA or COLOR.
+	 * @param duration
+	 * How long the Tween lasts in milliseconds.
+	 * @param ease
+	 * One of the Ease constants.
+	 * @return
+	 * The Tween. Set its target value, then start it or add it to a group.
+	 */
+	public Tween to(Color color, int property, int duration, int ease) {
+		if ((color == null) || ((property != Tween.ALPHA) && (property != Tween.COLOR))) {
+			Log.e("TweenManager", "Invalid Color or property passed to to().");
+			return delay(duration);
+		}
+		Tween tween = obtain(Tween.KIND_PROPERTY, property, duration, ease);
+		tween.mColor = color;
+		return tween;
+	}
+
+	/**
+	 * Gets a Tween that does nothing for a while. Useful for gaps in a sequence,
+	 * or with a TweenListener as a timer.
+	 * @param duration
+	 * How long to wait in milliseconds.
+	 * @return
+	 * The Tween.
+	 */
+	public Tween delay(int duration) {
+		return obtain(Tween.KIND_DELAY, -1, duration, Ease.LINEAR);
+	}
+
+	/**
+	 * Gets an empty sequence. Tweens added to it play one after another.
+	 * @return
+	 * The sequence.
+	 */
+	public Tween sequence() {
+		return obtain(Tween.KIND_SEQUENCE, -1, 0, Ease.LINEAR);
+	}
+
+	/**
+	 * Gets an empty parallel set. Tweens added to it play at the same time.
+	 * @return
+	 * The parallel set.
+	 */
+	public Tween parallel() {
+		return obtain(Tween.KIND_PARALLEL, -1, 0, Ease.LINEAR);
+	}
+
+	/**
+	 * Starts playing a Tween. It is first advanced on the next update().
+	 * @param tween
+	 * A Tween from this TweenManager that hasn't been started or added to a
+	 * group.
+	 */
+	public void start(Tween tween) {
+		if ((tween == null) || (tween.mState != Tween.STATE_IDLE)) {
+			Log.e("TweenManager", "Tween passed to start() is null, started or in a group.");
+			return;
+		}
+		if (mActiveCount == mActive.length) {
+			Tween grown[] = new Tween[mActiveCount * 2];
+			System.arraycopy(mActive, 0, grown, 0, mActiveCount);
+			mActive = grown;
+		}
+		tween.mState = Tween.STATE_ACTIVE;
+		mActive[mActiveCount++] = tween;
+	}
+
+	/**
+	 * Stops a started Tween where it is. It goes back to the pool on the next
+	 * update().
+	 * @param tween
+	 * The Tween to stop. Must be one passed to start(), not a group's child.
+	 */
+	public void kill(Tween tween) {
+		if ((tween == null) || (tween.mState != Tween.STATE_ACTIVE)) {
+			return;
+		}
+		tween.mKilled = true;
+	}
+
+	/**
+	 * Stops every started Tween that animates an object, including groups
+	 * that contain such a Tween.
+	 * @param target
+	 * The Entity, Renderable or Color.
+	 */
+	public void killTweensOf(Object target) {
+		if (target == null) {
+			return;
+		}
+		for (int i = 0; i < mActiveCount; i++) {
+			if (mActive[i].targets(target)) {
+				mActive[i].mKilled = true;
+			}
+		}
+	}
+
+	/**
+	 * Stops every started Tween.
+	 */
+	public void killAll() {
+		for (int i = 0; i < mActiveCount; i++) {
+			mActive[i].mKilled = true;
+		}
+	}
+
+	/**
+	 * Advances every started Tween. Finished and killed Tweens go back to the
+	 * pool. Called by the Engine once per frame.
+	 * @param time
+	 * The number of milliseconds elapsed since the last frame.
+	 */
+	public void update(long time) {
+		int step = (int)Math.min(time, Integer.MAX_VALUE);
+		int count = mActiveCount;
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			Tween tween = mActive[i];
+			if (!tween.mKilled && (tween.advance(step) < 0) && !tween.mKilled) {
+				mActive[kept++] = tween;
+			} else {
+				free(tween);
+			}
+		}
+
+		// Keep Tweens started by listeners during this update
+		for (int i = count; i < mActiveCount; i++) {
+			mActive[kept++] = mActive[i];
+		}
+		for (int i = kept; i < mActiveCount; i++) {
+			mActive[i] = null;
+		}
+		mActiveCount = kept;
+	}
+
+	/**
+	 * Gets the number of started Tweens that are still playing.
+	 * @return
+	 * The number of Tweens.
+	 */
+	public int getActiveCount() { return mActiveCount; }
+
+	/**
+	 * Gets the number of Tweens waiting in the pool.
+	 * @return
+	 * The number of Tweens.
+	 */
+	public int getFreeCount() { return mFree; }
+
+	// Takes a Tween from the pool, growing it if empty
+	private Tween obtain(int kind, int property, int duration, int ease) {
+		if (mFree == 0) {
+			Log.w("TweenManager", "Pool exhausted, growing to " + (mPool.length * 2) + " Tweens.");
+			Tween grown[] = new Tween[mPool.length * 2];
+			for (int i = 0; i < mPool.length; i++) {
+				grown[i] = new Tween();
+			}
+			mFree = mPool.length;
+			mPool = grown;
+		}
+		Tween tween = mPool[--mFree];
+		mPool[mFree] = null;
+		int values = 0;
+		if (kind == Tween.KIND_PROPERTY) {
+			values = (property == Tween.POSITION) ? 2 : (property == Tween.COLOR) ? 4 : 1;
+		}
+		tween.init(kind, property, values, duration, ease);
+		return tween;
+	}
+
+	// Returns a Tween and all of its children to the pool
+	private void free(Tween tween) {
+		if (tween.mState == Tween.STATE_FREE) {
+			return;
+		}
+		for (int i = 0; i < tween.mChildCount; i++) {
+			free(tween.mChildren[i]);
+		}
+		tween.reset();
+		mPool[mFree++] = tween;
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Tweens that animate Entities, Renderables and Colors over time.
+ */
+package org.robobrain.sdk.tween;
\ No newline at end of file
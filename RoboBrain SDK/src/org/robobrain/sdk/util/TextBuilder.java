@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to 
+ * deal in the Software without restriction, including without limitation the 
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or 
+ * sell copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS 
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL 
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.util;
+
+/**
+ * A reusable, growable buffer of characters. Numbers are formatted straight
+ * into the buffer without creating Strings, so a score or FPS counter can be
+ * rebuilt every frame without producing garbage:
+ * {@code}
+ * mText.clear().append("FPS: ").append(fps);
+ * mLabel.setMessage(mText);
+ * <p>
+ * A TextBuilder is a CharSequence, so it can be passed anywhere text is
+ * accepted. It is not thread safe.
+ * @author James Johnson
+ */
+public class TextBuilder implements CharSequence {
+	/** The most decimal places append(float, int) will write. */
+	public static final int MAX_DECIMALS = 9;
+
+	private static final long POWERS[] = {
+		1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+	};
+
+	private char mChars[];
+	private int mLength;
+
+	/**
+	 * Initializes the TextBuilder with room for 32 characters.
+	 */
+	public TextBuilder() {
+		this(32);
+	}
+
+	/**
+	 * Initializes the TextBuilder.
+	 * @param capacity
+	 * The number of characters to make room for up front. The buffer grows
+	 * if more are appended, but that allocates.
+	 */
+	public TextBuilder(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		mChars = new char[capacity];
+		mLength = 0;
+	}
+
+	/**
+	 * Removes every character.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder clear() {
+		mLength = 0;
+		return this;
+	}
+
+	/**
+	 * Appends one character.
+	 * @param c
+	 * The character to append.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(char c) {
+		ensureCapacity(mLength + 1);
+		mChars[mLength++] = c;
+		return this;
+	}
+
+	/**
+	 * Appends a range of characters.
+	 * @param chars
+	 * The characters to append.
+	 * @param offset
+	 * The index of the first character.
+	 * @param count
+	 * The number of characters to append.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(char[] chars, int offset, int count) {
+		if ((chars == null) || (count <= 0)) {
+			return this;
+		}
+		ensureCapacity(mLength + count);
+		System.arraycopy(chars, offset, mChars, mLength, count);
+		mLength += count;
+		return this;
+	}
+
+	/**
+	 * Appends text. Null appends nothing.
+	 * @param s
+	 * The text to append.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(CharSequence s) {
+		if (s == null) {
+			return this;
+		}
+		int count = s.length();
+		ensureCapacity(mLength + count);
+		if (s instanceof String) {
+			((String)s).getChars(0, count, mChars, mLength);
+		} else {
+			for (int i = 0; i < count; i++) {
+				mChars[mLength + i] = s.charAt(i);
+			}
+		}
+		mLength += count;
+		return this;
+	}
+
+	/**
+	 * Appends an integer.
+	 * @param value
+	 * The number to append.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(int value) {
+		return append((long)value, 1);
+	}
+
+	/**
+	 * Appends an integer padded with leading zeros. Useful for clocks and
+	 * scores. (append(7, 2) appends "07")
+	 * @param value
+	 * The number to append.
+	 * @param minDigits
+	 * The smallest number of digits to write.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(int value, int minDigits) {
+		return append((long)value, minDigits);
+	}
+
+	/**
+	 * Appends a long integer.
+	 * @param value
+	 * The number to append.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(long value) {
+		return append(value, 1);
+	}
+
+	/**
+	 * Appends a long integer padded with leading zeros.
+	 * @param value
+	 * The number to append.
+	 * @param minDigits
+	 * The smallest number of digits to write.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(long value, int minDigits) {
+		if (value < 0) {
+			append('-');
+			if (value == Long.MIN_VALUE) {
+				// Can't be negated, write the last digit on its own
+				appendDigits(-(value / 10), minDigits - 1);
+				return append((char)('0' - (value % 10)));
+			}
+			value = -value;
+		}
+		return appendDigits(value, minDigits);
+	}
+
+	/**
+	 * Appends a float with a fixed number of decimal places, rounded to the
+	 * nearest value. (append(3.14159f, 2) appends "3.14") Values too big to
+	 * fit in a long are clamped.
+	 * @param value
+	 * The number to append.
+	 * @param decimals
+	 * The number of digits after the decimal point, from 0 to MAX_DECIMALS.
+	 * @return
+	 * This TextBuilder.
+	 */
+	public TextBuilder append(float value, int decimals) {
+		if (value != value) {
+			return append("NaN");
+		}
+		if (value == Float.POSITIVE_INFINITY) {
+			return append("Infinity");
+		}
+		if (value == Float.NEGATIVE_INFINITY) {
+			return append("-Infinity");
+		}
+		if (decimals < 0) {
+			decimals = 0;
+		} else if (decimals > MAX_DECIMALS) {
+			decimals = MAX_DECIMALS;
+		}
+		double d = value;
+		if (d < 0) {
+			d = -d;
+		}
+		long power = POWERS[decimals];
+		long whole;
+		long fraction;
+		if (d * power < Long.MAX_VALUE) {
+			long scaled = (long)(d * power + 0.5);
+			whole = scaled / power;
+			fraction = scaled % power;
+		} else {
+			whole = (long)d;
+			fraction = 0;
+		}
+		if ((value < 0) && ((whole != 0) || (fraction != 0))) {
+			append('-');
+		}
+		appendDigits(whole, 1);
+		if (decimals > 0) {
+			append('.');
+			appendDigits(fraction, decimals);
+		}
+		return this;
+	}
+
+	/**
+	 * Determines if the TextBuilder holds the same characters as some text.
+	 * @param s
+	 * The text to compare against.
+	 * @return
+	 * True if the characters match.
+	 */
+	public boolean contentEquals(CharSequence s) {
+		if (s == null) {
+			return false;
+		}
+		if (s.length() != mLength) {
+			return false;
+		}
+		for (int i = 0; i < mLength; i++) {
+			if (mChars[i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of characters.
+	 * @return
+	 * The number of characters.
+	 */
+	public int length() { return mLength; }
+
+	/**
+	 * Gets a character.
+	 * @param index
+	 * The index of the character.
+	 * @return
+	 * The character.
+	 */
+	public char charAt(int index) { return mChars[index]; }
+
+	/**
+	 * Gets the backing array. Only the first length() characters are valid,
+	 * and the array changes if the buffer grows.
+	 * @return
+	 * The backing array.
+	 */
+	public char[] getChars() { return mChars; }
+
+	/**
+	 * Copies part of the text into a new String. This allocates.
+	 * @param start
+	 * The index of the first character.
+	 * @param end
+	 * The index after the last character.
+	 * @return
+	 * The text as a String.
+	 */
+	public CharSequence subSequence(int start, int end) {
+		return new String(mChars, start, end - start);
+	}
+
+	/**
+	 * Copies the text into a new String. This allocates.
+	 * @return
+	 * The text as a String.
+	 */
+	@Override
+	public String toString() {
+		return new String(mChars, 0, mLength);
+	}
+
+	// Writes a non-negative number, padded with zeros to minDigits
+	private TextBuilder appendDigits(long value, int minDigits) {
+		int digits = 1;
+		long v = value;
+		while (v >= 10) {
+			v /= 10;
+			digits++;
+		}
+		if (digits < minDigits) {
+			digits = minDigits;
+		}
+		ensureCapacity(mLength + digits);
+		int i = mLength + digits - 1;
+		for (int d = 0; d < digits; d++) {
+			mChars[i--] = (char)('0' + (value % 10));
+			value /= 10;
+		}
+		mLength += digits;
+		return this;
+	}
+
+	// Grows the buffer to hold at least capacity characters
+	private void ensureCapacity(int capacity) {
+		if (capacity <= mChars.length) {
+			return;
+		}
+		int size = mChars.length * 2;
+		if (size < capacity) {
+			size = capacity;
+		}
+		char grown[] = new char[size];
+		System.arraycopy(mChars, 0, grown, 0, mLength);
+		mChars = grown;
+	}
+}
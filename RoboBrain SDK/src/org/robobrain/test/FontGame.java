@@ -18,8 +18,9 @@ public class FontGame extends Engine {
 		
 		mWorld = new World();
 		TextEntity te = new TextEntity();
-		te.setX(0);
-		te.setY(100);
+		// TextEntity draws the text centered on its Renderable, so move the
+		// Renderable along with the Entity to put the left edge at 0
+		te.offset(te.getWidth() / 2, 100);
 		mWorld.addEntity(te);
 	}
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+/**
+ * Times FastMath against java.lang.Math. Each function runs over the same
+ * array of inputs for several warm up rounds, then the best of the measured
+ * rounds is printed in nanoseconds per call. Results are summed so the JIT
+ * can't drop the calls. Desktop numbers only show the trend; run it on a
+ * device, or with -Xint to get closer to an interpreter, to see what a game
+ * will get.
+ * <pre>
+ * javac -d out src/org/robobrain/sdk/math/FastMath.java tests/org/robobrain/sdk/math/*.java
+ * java -cp out org.robobrain.sdk.math.FastMathBenchmark
+ * </pre>
+ * @author James Johnson
+ */
+public class FastMathBenchmark {
+	private static final int SIZE = 4096;
+	private static final int CALLS = 4000000;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 10;
+
+	private static final int SIN = 0;
+	private static final int COS = 1;
+	private static final int ATAN2 = 2;
+	private static final int INV_SQRT = 3;
+	private static final String NAMES[] = { "sin", "cos", "atan2", "invSqrt" };
+
+	private static float sA[] = new float[SIZE];
+	private static float sB[] = new float[SIZE];
+	private static double sSink;
+
+	public static void main(String args[]) {
+		java.util.Random random = new java.util.Random(42);
+		for (int i = 0; i < SIZE; i++) {
+			sA[i] = (random.nextFloat() - 0.5f) * 20.0f;
+			sB[i] = (random.nextFloat() - 0.5f) * 20.0f;
+		}
+
+		for (int f = 0; f < NAMES.length; f++) {
+			double exact = best(f, false);
+			double fast = best(f, true);
+			System.out.println(pad(NAMES[f]) + "Math " + format(exact) + " ns   FastMath " +
+				format(fast) + " ns   x" + format(exact / fast));
+		}
+		System.out.println("(sink " + sSink + ")");
+	}
+
+	// Runs one function for the warm up and measured rounds and returns the
+	// fastest round in nanoseconds per call
+	private static double best(int function, boolean fast) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			run(function, fast);
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			run(function, fast);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return (double)best / CALLS;
+	}
+
+	private static void run(int function, boolean fast) {
+		float a[] = sA;
+		float b[] = sB;
+		float sum = 0;
+		int mask = SIZE - 1;
+		switch (function) {
+		case SIN:
+			if (fast) {
+				for (int i = 0; i < CALLS; i++) { sum += FastMath.sin(a[i & mask]); }
+			} else {
+				for (int i = 0; i < CALLS; i++) { sum += (float)Math.sin(a[i & mask]); }
+			}
+			break;
+		case COS:
+			if (fast) {
+				for (int i = 0; i < CALLS; i++) { sum += FastMath.cos(a[i & mask]); }
+			} else {
+				for (int i = 0; i < CALLS; i++) { sum += (float)Math.cos(a[i & mask]); }
+			}
+			break;
+		case ATAN2:
+			if (fast) {
+				for (int i = 0; i < CALLS; i++) { sum += FastMath.atan2(a[i & mask], b[i & mask]); }
+			} else {
+				for (int i = 0; i < CALLS; i++) { sum += (float)Math.atan2(a[i & mask], b[i & mask]); }
+			}
+			break;
+		case INV_SQRT:
+			// Squares keep the input positive
+			if (fast) {
+				for (int i = 0; i < CALLS; i++) { float x = a[i & mask]; sum += FastMath.invSqrt(x * x + 1.0f); }
+			} else {
+				for (int i = 0; i < CALLS; i++) { float x = a[i & mask]; sum += (float)(1.0 / Math.sqrt(x * x + 1.0f)); }
+			}
+			break;
+		}
+		sSink += sum;
+	}
+
+	private static String format(double value) {
+		return String.valueOf(Math.round(value * 100.0) / 100.0);
+	}
+
+	private static String pad(String name) {
+		StringBuilder sb = new StringBuilder(name);
+		while (sb.length() < 10) {
+			sb.append(' ');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011 James Johnson
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+ * OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package org.robobrain.sdk.math;
+
+/**
+ * Checks FastMath against java.lang.Math and fails if any function is further
+ * off than its table size allows. FastMath has no Android dependencies, so this
+ * runs on a desktop JVM:
+ * <pre>
+ * javac -d out src/org/robobrain/sdk/math/FastMath.java tests/org/robobrain/sdk/math/*.java
+ * java -cp out org.robobrain.sdk.math.FastMathCheck
+ * </pre>
+ * @author James Johnson
+ */
+public class FastMathCheck {
+	// Slack for float rounding on top of the table error
+	private static final double EPSILON = 1e-6;
+
+	// Bound given in the invSqrt() and sqrt() docs
+	private static final double SQRT_BOUND = 0.002;
+
+	private static final int SAMPLES = 1000000;
+
+	private static int sFailures;
+
+	public static void main(String args[]) {
+		check(FastMath.DEFAULT_SIN_BITS, FastMath.DEFAULT_ATAN_BITS);
+		check(8, 8);
+		check(16, 14);
+		FastMath.setPrecision(FastMath.DEFAULT_SIN_BITS, FastMath.DEFAULT_ATAN_BITS);
+		checkSqrt();
+
+		if (sFailures > 0) {
+			System.out.println(sFailures + " check(s) failed.");
+			System.exit(1);
+		}
+		System.out.println("All checks passed.");
+	}
+
+	// Checks the table functions at one precision
+	private static void check(int sinBits, int atanBits) {
+		FastMath.setPrecision(sinBits, atanBits);
+
+		// Rounding to the nearest entry is off by at most half a step, and
+		// sine changes by at most one per radian
+		double sinBound = Math.PI / (1 << sinBits) + EPSILON;
+		double sinError = 0;
+		double cosError = 0;
+		double sinDegError = 0;
+		double cosDegError = 0;
+		for (int i = 0; i <= SAMPLES; i++) {
+			float radians = (float)(-4.0 * Math.PI + (8.0 * Math.PI * i) / SAMPLES);
+			sinError = Math.max(sinError, Math.abs(FastMath.sin(radians) - Math.sin(radians)));
+			cosError = Math.max(cosError, Math.abs(FastMath.cos(radians) - Math.cos(radians)));
+			float degrees = (float)(-720.0 + (1440.0 * i) / SAMPLES);
+			double r = Math.toRadians(degrees);
+			sinDegError = Math.max(sinDegError, Math.abs(FastMath.sinDeg(degrees) - Math.sin(r)));
+			cosDegError = Math.max(cosDegError, Math.abs(FastMath.cosDeg(degrees) - Math.cos(r)));
+		}
+		String bits = " (" + sinBits + " bits)";
+		report("sin" + bits, sinError, sinBound);
+		report("cos" + bits, cosError, sinBound);
+		report("sinDeg" + bits, sinDegError, sinBound);
+		report("cosDeg" + bits, cosDegError, sinBound);
+
+		// The table is indexed by a ratio from 0 - 1 and atan changes by at
+		// most one per unit of ratio
+		double atanBound = 0.5 / (1 << atanBits) + EPSILON;
+		double atanError = 0;
+		for (int i = 0; i < SAMPLES; i++) {
+			double angle = -Math.PI + (2.0 * Math.PI * i) / SAMPLES;
+			float length = 1.0f + (i % 1000);
+			float x = (float)(Math.cos(angle) * length);
+			float y = (float)(Math.sin(angle) * length);
+			double error = Math.abs(FastMath.atan2(y, x) - Math.atan2(y, x));
+			// -PI and PI are the same angle
+			error = Math.min(error, Math.abs(error - 2.0 * Math.PI));
+			atanError = Math.max(atanError, error);
+		}
+		report("atan2 (" + atanBits + " bits)", atanError, atanBound);
+	}
+
+	// Checks the relative error of the square roots
+	private static void checkSqrt() {
+		double invSqrtError = 0;
+		double sqrtError = 0;
+		for (int i = 1; i <= SAMPLES; i++) {
+			// Cover many exponents, from about 1e-6 up to 1e6
+			float x = (float)Math.pow(10.0, -6.0 + (12.0 * i) / SAMPLES);
+			double exact = Math.sqrt(x);
+			invSqrtError = Math.max(invSqrtError, Math.abs(FastMath.invSqrt(x) * exact - 1.0));
+			sqrtError = Math.max(sqrtError, Math.abs(FastMath.sqrt(x) / exact - 1.0));
+		}
+		report("invSqrt (relative)", invSqrtError, SQRT_BOUND);
+		report("sqrt (relative)", sqrtError, SQRT_BOUND);
+		if (FastMath.sqrt(0.0f) != 0.0f || FastMath.sqrt(-1.0f) != 0.0f) {
+			System.out.println("FAIL sqrt of 0 or a negative number is not 0");
+			sFailures++;
+		}
+	}
+
+	private static void report(String name, double error, double bound) {
+		boolean ok = error <= bound;
+		System.out.println((ok ? "ok   " : "FAIL ") + name + ": max error " + error + ", bound " + bound);
+		if (!ok) {
+			sFailures++;
+		}
+	}
+}